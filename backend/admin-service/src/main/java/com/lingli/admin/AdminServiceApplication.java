@@ -1,19 +1,36 @@
 package com.lingli.admin;
 
+import com.lingli.product.ProductServiceApplication;
+import com.lingli.user.UserServiceApplication;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 /**
  * 管理后台服务启动类
+ * 扫描用户、套餐、地点、订单模块以在进程内调用这些服务，但不加载这些服务自己的启动类
+ * （避免带入其扫描范围和@EnableScheduling）；定时任务见 {@link com.lingli.admin.config.AdminSchedulingConfig}
  *
  * @author lingli
  * @since 2023-11-28
  */
-@SpringBootApplication
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ComponentScan(basePackages = {"com.lingli.admin", "com.lingli.common", "com.lingli.user",
+        "com.lingli.product", "com.lingli.location", "com.lingli.order"},
+        excludeFilters = {
+                @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+                @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class),
+                @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                        classes = {ProductServiceApplication.class, UserServiceApplication.class})})
 @EnableTransactionManagement
-@MapperScan("com.lingli.admin.mapper")
+@MapperScan({"com.lingli.admin.mapper", "com.lingli.user.mapper", "com.lingli.product.mapper", "com.lingli.order.mapper"})
 public class AdminServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,40 @@
+package com.lingli.admin.analytics;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 销售事实：已支付且未取消订单的一条明细，分成金额按明细小计占订单金额的比例分摊
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class SalesFact {
+
+    private Long orderId;
+
+    private Long companyId;
+
+    private Long cityId;
+
+    private Long packageId;
+
+    private Integer quantity;
+
+    /**
+     * 明细小计
+     */
+    private BigDecimal amount;
+
+    /**
+     * 公司分成金额
+     */
+    private BigDecimal companyAmount;
+
+    /**
+     * 平台分成金额
+     */
+    private BigDecimal platformAmount;
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+package com.lingli.admin.analytics;
+
+import com.lingli.admin.mapper.SalesFactMapper;
+import com.lingli.common.enums.OrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 销售事实列存
+ * 已支付订单的明细按支付日期分段写入本地列存文件，管理后台销售统计在内存映射的段上过滤、聚合，不访问业务库。
+ * 段不可修改：增量任务找出订单有变化的支付日期整天重新抽取并原子替换，夜间任务重抽前一天补齐分成数据；
+ * 本地没有段时从最早的支付日期开始全量抽取
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class SalesFactStore {
+
+    private static final String SEGMENT_PREFIX = "sales-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String WATERMARK_FILE = "watermark";
+    private static final DateTimeFormatter SEGMENT_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Autowired
+    private SalesFactMapper salesFactMapper;
+
+    @Value("${admin.analytics.data-dir:data/sales-facts}")
+    private String dataDir;
+
+    /**
+     * 增量抽取时向前多扫描的秒数，覆盖事务提交晚于更新时间的订单
+     */
+    @Value("${admin.analytics.overlap-seconds:120}")
+    private long overlapSeconds;
+
+    private Path directory;
+
+    private final NavigableMap<LocalDate, SalesSegment> segments = new ConcurrentSkipListMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(dataDir);
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    loadSegment(file, name);
+                }
+            }
+        }
+        log.info("加载销售事实段: segments={}, dir={}", segments.size(), directory.toAbsolutePath());
+    }
+
+    /**
+     * 按条件过滤、聚合销售事实，各段并行扫描后合并
+     *
+     * @return 聚合结果，按金额倒序
+     */
+    public List<SalesSlice> query(SalesQuery query) {
+        LocalDate start = query.getStartDate() != null ? query.getStartDate() : LocalDate.MIN;
+        LocalDate end = query.getEndDate() != null ? query.getEndDate() : LocalDate.MAX;
+        Collection<SalesSegment> selected = end.isBefore(start)
+                ? new ArrayList<>() : segments.subMap(start, true, end, true).values();
+
+        Map<Long, SalesSlice> merged = selected.parallelStream()
+                .map(segment -> segment.scan(query))
+                .reduce(new HashMap<>(), (left, right) -> {
+                    Map<Long, SalesSlice> result = new HashMap<>(left);
+                    right.forEach((key, slice) -> result.merge(key, slice,
+                            (a, b) -> new SalesSlice(key).merge(a).merge(b)));
+                    return result;
+                });
+
+        List<SalesSlice> slices = new ArrayList<>(merged.values());
+        slices.sort(Comparator.comparingLong(SalesSlice::getAmount).reversed()
+                .thenComparingLong(SalesSlice::getKey));
+        return slices;
+    }
+
+    /**
+     * 增量抽取：重建上次抽取以来订单有变化的支付日期；本地没有段时全量抽取
+     */
+    @Scheduled(fixedDelayString = "${admin.analytics.refresh-interval-ms:300000}")
+    public void refresh() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            LocalDateTime watermark = readWatermark();
+            List<LocalDate> days = watermark == null
+                    ? salesFactMapper.selectPaidDays()
+                    : salesFactMapper.selectPaidDaysUpdatedSince(watermark.minusSeconds(overlapSeconds));
+            for (LocalDate day : new TreeSet<>(days)) {
+                rebuildDay(day);
+            }
+            writeWatermark(startedAt);
+            if (!days.isEmpty()) {
+                log.info("增量抽取销售事实: days={}, full={}", days.size(), watermark == null);
+            }
+        } catch (Exception e) {
+            log.warn("增量抽取销售事实失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 夜间重抽前一天，补齐支付后才写入的分成数据
+     */
+    @Scheduled(cron = "${admin.analytics.nightly-cron:0 30 2 * * ?}")
+    public void rebuildYesterday() {
+        try {
+            rebuildDay(LocalDate.now().minusDays(1));
+        } catch (Exception e) {
+            log.warn("夜间抽取销售事实失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 重新抽取一天的事实，写临时文件后原子替换段文件
+     */
+    public synchronized void rebuildDay(LocalDate day) throws IOException {
+        List<SalesFact> facts = salesFactMapper.selectFacts(day.atStartOfDay(), day.plusDays(1).atStartOfDay(),
+                OrderStatus.CANCELLED.getCode());
+        Path file = directory.resolve(SEGMENT_PREFIX + day.format(SEGMENT_DATE) + SEGMENT_SUFFIX);
+        if (facts.isEmpty()) {
+            segments.remove(day);
+            Files.deleteIfExists(file);
+            return;
+        }
+
+        Path temp = directory.resolve(file.getFileName() + ".tmp");
+        SalesSegment.write(temp, facts);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // 旧段的映射在无引用后随GC释放，正在扫描旧段的查询不受影响
+        segments.put(day, SalesSegment.open(day, file));
+    }
+
+    // ========== 私有方法 ==========
+
+    private void loadSegment(Path file, String name) {
+        String date = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+        try {
+            LocalDate day = LocalDate.parse(date, SEGMENT_DATE);
+            segments.put(day, SalesSegment.open(day, file));
+        } catch (Exception e) {
+            // 格式不兼容的段删除后由全量抽取重建
+            log.warn("销售事实段不可用，删除后重建: file={}, error={}", name, e.getMessage());
+            try {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(directory.resolve(WATERMARK_FILE));
+            } catch (IOException ignored) {
+                // 删除失败时下次启动再处理
+            }
+        }
+    }
+
+    private LocalDateTime readWatermark() throws IOException {
+        Path file = directory.resolve(WATERMARK_FILE);
+        if (segments.isEmpty() || !Files.exists(file)) {
+            return null;
+        }
+        return LocalDateTime.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+    }
+
+    private void writeWatermark(LocalDateTime watermark) throws IOException {
+        Path temp = directory.resolve(WATERMARK_FILE + ".tmp");
+        Files.write(temp, watermark.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, directory.resolve(WATERMARK_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+}
\ No newline at end of file
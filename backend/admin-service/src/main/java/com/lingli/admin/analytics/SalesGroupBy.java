@@ -0,0 +1,35 @@
+package com.lingli.admin.analytics;
+
+/**
+ * 销售事实的分组维度
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public enum SalesGroupBy {
+
+    /**
+     * 不分组，结果只有一条，维度值为0
+     */
+    NONE(-1),
+    /**
+     * 按天，维度值为 epochDay
+     */
+    DAY(-1),
+    COMPANY(SalesSegment.COMPANY),
+    CITY(SalesSegment.CITY),
+    PACKAGE(SalesSegment.PACKAGE);
+
+    /**
+     * 分组使用的字典列，不按字典列分组时为-1
+     */
+    private final int column;
+
+    SalesGroupBy(int column) {
+        this.column = column;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+}
\ No newline at end of file
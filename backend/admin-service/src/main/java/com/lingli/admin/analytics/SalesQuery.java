@@ -0,0 +1,40 @@
+package com.lingli.admin.analytics;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 销售事实查询条件，条件为空时不过滤
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class SalesQuery {
+
+    /**
+     * 开始日期（含，按支付日期）
+     */
+    private LocalDate startDate;
+
+    /**
+     * 结束日期（含，按支付日期）
+     */
+    private LocalDate endDate;
+
+    private Long companyId;
+
+    private Long cityId;
+
+    private Long packageId;
+
+    private SalesGroupBy groupBy = SalesGroupBy.NONE;
+
+    /**
+     * 是否按明细计数：按套餐过滤或分组时，订单数即包含该套餐的明细数
+     */
+    public boolean countsItems() {
+        return packageId != null || groupBy == SalesGroupBy.PACKAGE;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,344 @@
+package com.lingli.admin.analytics;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一天的销售事实列存段，写入后不再修改，整段替换
+ * 文件布局：魔数、版本、行数；公司、城市、套餐三个字典（升序ID）；
+ * 之后每列一个字节宽度加定宽数据，字典列存编码、数值列存值，宽度按列内最大值取1/2/4/8字节。
+ * 读取时整个文件只读内存映射，按块解码到数组后过滤、聚合；分组按字典编码直接寻址数组，不做哈希
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public class SalesSegment {
+
+    // 字典列
+    public static final int COMPANY = 0;
+    public static final int CITY = 1;
+    public static final int PACKAGE = 2;
+
+    // 数值列
+    private static final int QUANTITY = 3;
+    private static final int AMOUNT = 4;
+    private static final int COMPANY_AMOUNT = 5;
+    private static final int PLATFORM_AMOUNT = 6;
+    /**
+     * 订单首行标记：同一订单的第一条明细为1，求和即订单数
+     */
+    private static final int ORDER_FIRST = 7;
+
+    private static final int DICTIONARY_COLUMNS = 3;
+    private static final int COLUMN_COUNT = 8;
+
+    private static final int MAGIC = 0x4C534631;
+    private static final int VERSION = 1;
+
+    /**
+     * 每次解码、过滤的行数
+     */
+    private static final int BLOCK_SIZE = 4096;
+
+    private final LocalDate day;
+
+    private final int rowCount;
+
+    private final MappedByteBuffer buffer;
+
+    private final long[][] dictionaries = new long[DICTIONARY_COLUMNS][];
+
+    private final int[] widths = new int[COLUMN_COUNT];
+
+    private final int[] offsets = new int[COLUMN_COUNT];
+
+    private SalesSegment(LocalDate day, MappedByteBuffer buffer) {
+        this.day = day;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("销售事实段格式不兼容: day=" + day);
+        }
+        this.rowCount = buffer.getInt(8);
+
+        int position = 12;
+        for (int column = 0; column < DICTIONARY_COLUMNS; column++) {
+            long[] dictionary = new long[buffer.getInt(position)];
+            position += 4;
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = buffer.getLong(position);
+                position += 8;
+            }
+            dictionaries[column] = dictionary;
+        }
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            widths[column] = buffer.get(position);
+            offsets[column] = position + 1;
+            position = offsets[column] + rowCount * widths[column];
+        }
+    }
+
+    /**
+     * 只读映射段文件
+     */
+    public static SalesSegment open(LocalDate day, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SalesSegment(day, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 把一天的事实写成段文件
+     */
+    public static void write(Path file, List<SalesFact> facts) throws IOException {
+        List<SalesFact> rows = new ArrayList<>(facts);
+        rows.sort(Comparator.comparing(SalesFact::getOrderId));
+        int rowCount = rows.size();
+
+        long[][] values = new long[COLUMN_COUNT][rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            SalesFact fact = rows.get(i);
+            values[COMPANY][i] = fact.getCompanyId() != null ? fact.getCompanyId() : 0L;
+            values[CITY][i] = fact.getCityId() != null ? fact.getCityId() : 0L;
+            values[PACKAGE][i] = fact.getPackageId();
+            values[QUANTITY][i] = fact.getQuantity() != null ? fact.getQuantity() : 0;
+            values[AMOUNT][i] = toCents(fact.getAmount());
+            values[COMPANY_AMOUNT][i] = toCents(fact.getCompanyAmount());
+            values[PLATFORM_AMOUNT][i] = toCents(fact.getPlatformAmount());
+            values[ORDER_FIRST][i] = i == 0 || !fact.getOrderId().equals(rows.get(i - 1).getOrderId()) ? 1 : 0;
+        }
+
+        // 字典编码：ID替换为在升序字典中的下标
+        long[][] dictionaries = new long[DICTIONARY_COLUMNS][];
+        for (int column = 0; column < DICTIONARY_COLUMNS; column++) {
+            long[] dictionary = Arrays.stream(values[column]).distinct().sorted().toArray();
+            Map<Long, Integer> codes = new HashMap<>();
+            for (int code = 0; code < dictionary.length; code++) {
+                codes.put(dictionary[code], code);
+            }
+            for (int i = 0; i < rowCount; i++) {
+                values[column][i] = codes.get(values[column][i]);
+            }
+            dictionaries[column] = dictionary;
+        }
+
+        int[] widths = new int[COLUMN_COUNT];
+        int size = 12;
+        for (long[] dictionary : dictionaries) {
+            size += 4 + dictionary.length * 8;
+        }
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            widths[column] = widthOf(values[column]);
+            size += 1 + rowCount * widths[column];
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putInt(VERSION).putInt(rowCount);
+        for (long[] dictionary : dictionaries) {
+            out.putInt(dictionary.length);
+            for (long id : dictionary) {
+                out.putLong(id);
+            }
+        }
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            out.put((byte) widths[column]);
+            for (long value : values[column]) {
+                switch (widths[column]) {
+                    case 1:
+                        out.put((byte) value);
+                        break;
+                    case 2:
+                        out.putShort((short) value);
+                        break;
+                    case 4:
+                        out.putInt((int) value);
+                        break;
+                    default:
+                        out.putLong(value);
+                }
+            }
+        }
+        out.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 过滤、聚合本段
+     *
+     * @return 维度值 -> 聚合结果
+     */
+    public Map<Long, SalesSlice> scan(SalesQuery query) {
+        // 字典裁剪：过滤值不在本段字典中时整段跳过
+        int[] filterCodes = {
+                codeOf(COMPANY, query.getCompanyId()),
+                codeOf(CITY, query.getCityId()),
+                codeOf(PACKAGE, query.getPackageId())
+        };
+        Long[] filterValues = {query.getCompanyId(), query.getCityId(), query.getPackageId()};
+        for (int column = 0; column < DICTIONARY_COLUMNS; column++) {
+            if (filterValues[column] != null && filterCodes[column] < 0) {
+                return new HashMap<>();
+            }
+        }
+
+        int groupColumn = query.getGroupBy().getColumn();
+        int groups = groupColumn >= 0 ? dictionaries[groupColumn].length : 1;
+        long[] rows = new long[groups];
+        long[] orders = new long[groups];
+        long[] quantity = new long[groups];
+        long[] amount = new long[groups];
+        long[] companyAmount = new long[groups];
+        long[] platformAmount = new long[groups];
+
+        long[][] block = new long[COLUMN_COUNT][BLOCK_SIZE];
+        int[] selection = new int[BLOCK_SIZE];
+        for (int from = 0; from < rowCount; from += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, rowCount - from);
+            int selected = length;
+            for (int i = 0; i < length; i++) {
+                selection[i] = i;
+            }
+            for (int column = 0; column < DICTIONARY_COLUMNS && selected > 0; column++) {
+                if (filterValues[column] != null) {
+                    selected = filter(column, filterCodes[column], from, length, block[column], selection, selected);
+                }
+            }
+            if (selected == 0) {
+                continue;
+            }
+
+            if (groupColumn >= 0 && filterValues[groupColumn] == null) {
+                decode(groupColumn, from, length, block[groupColumn]);
+            }
+            for (int column = QUANTITY; column < COLUMN_COUNT; column++) {
+                decode(column, from, length, block[column]);
+            }
+            for (int k = 0; k < selected; k++) {
+                int i = selection[k];
+                int group = groupColumn >= 0 ? (int) block[groupColumn][i] : 0;
+                rows[group]++;
+                orders[group] += block[ORDER_FIRST][i];
+                quantity[group] += block[QUANTITY][i];
+                amount[group] += block[AMOUNT][i];
+                companyAmount[group] += block[COMPANY_AMOUNT][i];
+                platformAmount[group] += block[PLATFORM_AMOUNT][i];
+            }
+        }
+
+        Map<Long, SalesSlice> slices = new HashMap<>();
+        for (int group = 0; group < groups; group++) {
+            if (rows[group] == 0) {
+                continue;
+            }
+            long key = groupColumn >= 0 ? dictionaries[groupColumn][group]
+                    : query.getGroupBy() == SalesGroupBy.DAY ? day.toEpochDay() : 0L;
+            SalesSlice slice = new SalesSlice(key);
+            slice.setOrderCount(query.countsItems() ? rows[group] : orders[group]);
+            slice.setQuantity(quantity[group]);
+            slice.setAmount(amount[group]);
+            slice.setCompanyAmount(companyAmount[group]);
+            slice.setPlatformAmount(platformAmount[group]);
+            slices.put(key, slice);
+        }
+        return slices;
+    }
+
+    // ========== 私有方法 ==========
+
+    private int codeOf(int column, Long id) {
+        return id == null ? -1 : Arrays.binarySearch(dictionaries[column], id);
+    }
+
+    /**
+     * 保留列值等于编码的已选行，返回剩余行数
+     */
+    private int filter(int column, int code, int from, int length, long[] values, int[] selection, int selected) {
+        decode(column, from, length, values);
+        int kept = 0;
+        for (int k = 0; k < selected; k++) {
+            if (values[selection[k]] == code) {
+                selection[kept++] = selection[k];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * 解码一列 [from, from + length) 行到数组
+     */
+    private void decode(int column, int from, int length, long[] out) {
+        int base = offsets[column] + from * widths[column];
+        switch (widths[column]) {
+            case 1:
+                for (int i = 0; i < length; i++) {
+                    out[i] = buffer.get(base + i) & 0xFFL;
+                }
+                break;
+            case 2:
+                for (int i = 0; i < length; i++) {
+                    out[i] = buffer.getShort(base + i * 2) & 0xFFFFL;
+                }
+                break;
+            case 4:
+                for (int i = 0; i < length; i++) {
+                    out[i] = buffer.getInt(base + i * 4) & 0xFFFFFFFFL;
+                }
+                break;
+            default:
+                for (int i = 0; i < length; i++) {
+                    out[i] = buffer.getLong(base + i * 8);
+                }
+        }
+    }
+
+    /**
+     * 非负值按最大值取最小宽度，有负值时用8字节
+     */
+    private static int widthOf(long[] values) {
+        long max = 0;
+        for (long value : values) {
+            if (value < 0) {
+                return 8;
+            }
+            max = Math.max(max, value);
+        }
+        if (max <= 0xFFL) {
+            return 1;
+        }
+        if (max <= 0xFFFFL) {
+            return 2;
+        }
+        return max <= 0xFFFFFFFFL ? 4 : 8;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0L : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+}
\ No newline at end of file
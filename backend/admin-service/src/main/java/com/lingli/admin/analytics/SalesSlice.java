@@ -0,0 +1,41 @@
+package com.lingli.admin.analytics;
+
+import lombok.Data;
+
+/**
+ * 销售事实聚合结果，金额单位为分
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class SalesSlice {
+
+    /**
+     * 维度值：公司ID、城市ID、套餐ID或 epochDay，不分组时为0
+     */
+    private long key;
+
+    private long orderCount;
+
+    private long quantity;
+
+    private long amount;
+
+    private long companyAmount;
+
+    private long platformAmount;
+
+    public SalesSlice(long key) {
+        this.key = key;
+    }
+
+    public SalesSlice merge(SalesSlice other) {
+        orderCount += other.orderCount;
+        quantity += other.quantity;
+        amount += other.amount;
+        companyAmount += other.companyAmount;
+        platformAmount += other.platformAmount;
+        return this;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.lingli.admin.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.ScheduledAnnotationBeanPostProcessor;
+import org.springframework.scheduling.config.TaskManagementConfigUtils;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 管理后台定时任务配置
+ * 管理后台在进程内调用用户、套餐、订单等服务，会扫描到这些模块的定时任务。
+ * 库存写回、预占到期、发件箱调度、超时取消、统计对账等集群任务由套餐服务和订单服务运行，
+ * 管理后台只运行自身的任务和维护本节点本地缓存的任务（分类快照、搜索与联想索引、排行快照、浏览计数）
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Configuration
+public class AdminSchedulingConfig {
+
+    /**
+     * 默认允许运行定时任务的包
+     */
+    private static final String[] DEFAULT_PACKAGES = {"com.lingli.admin", "com.lingli.product.cache",
+            "com.lingli.product.search", "com.lingli.product.ranking"};
+
+    /**
+     * 代替@EnableScheduling注册定时任务处理器，只注册允许的包中的任务
+     */
+    @Bean(name = TaskManagementConfigUtils.SCHEDULED_ANNOTATION_PROCESSOR_BEAN_NAME)
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static ScheduledAnnotationBeanPostProcessor scheduledAnnotationProcessor(Environment environment) {
+        String[] packages = environment.getProperty("admin.scheduling.packages", String[].class, DEFAULT_PACKAGES);
+        return new PackageScheduledAnnotationBeanPostProcessor(Arrays.asList(packages));
+    }
+
+    /**
+     * 按任务所在的包过滤的定时任务处理器
+     */
+    static class PackageScheduledAnnotationBeanPostProcessor extends ScheduledAnnotationBeanPostProcessor {
+
+        private final List<String> packages;
+
+        PackageScheduledAnnotationBeanPostProcessor(List<String> packages) {
+            this.packages = packages;
+        }
+
+        @Override
+        protected void processScheduled(Scheduled scheduled, Method method, Object bean) {
+            String className = method.getDeclaringClass().getName();
+            if (isAllowed(className)) {
+                super.processScheduled(scheduled, method, bean);
+            } else {
+                log.info("管理后台不运行定时任务: {}.{}", className, method.getName());
+            }
+        }
+
+        boolean isAllowed(String className) {
+            for (String packageName : packages) {
+                String trimmed = packageName.trim();
+                if (!trimmed.isEmpty() && className.startsWith(trimmed + ".")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
\ No newline at end of file
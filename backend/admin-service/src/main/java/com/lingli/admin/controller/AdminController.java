@@ -1,23 +1,38 @@
 package com.lingli.admin.controller;
 
 import com.lingli.admin.dto.packageinfo.AdminPackageDTO;
+import com.lingli.admin.dto.report.ReportUploadInitDTO;
 import com.lingli.admin.dto.report.UploadReportDTO;
+import com.lingli.admin.export.ExportFile;
 import com.lingli.admin.service.AdminService;
 import com.lingli.admin.vo.packageinfo.AdminPackageVO;
 import com.lingli.admin.vo.report.AdminReportVO;
+import com.lingli.admin.vo.report.ReportDownloadVO;
+import com.lingli.admin.vo.report.ReportUploadVO;
+import com.lingli.admin.vo.statistics.SalesBreakdownVO;
 import com.lingli.common.core.PageResult;
 import com.lingli.common.core.Result;
+import com.lingli.order.state.TransitionResult;
+import com.lingli.product.vo.PackageBatchResultVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * 管理后台控制器
@@ -89,17 +104,15 @@ public class AdminController {
 
     @PutMapping("/packages/batch/status")
     @Operation(summary = "批量操作套餐状态")
-    public Result<Void> batchUpdatePackageStatus(@RequestParam @NotBlank String packageIds, 
-                                              @RequestParam @NotNull Integer status) {
-        adminService.batchUpdatePackageStatus(packageIds, status);
-        return Result.success("批量操作成功", null);
+    public Result<PackageBatchResultVO> batchUpdatePackageStatus(@RequestParam @NotBlank String packageIds,
+                                                              @RequestParam @NotNull Integer status) {
+        return Result.success("批量操作成功", adminService.batchUpdatePackageStatus(packageIds, status));
     }
 
     @PutMapping("/packages/batch/delete")
     @Operation(summary = "批量删除套餐")
-    public Result<Void> batchDeletePackages(@RequestParam @NotBlank String packageIds) {
-        adminService.batchDeletePackages(packageIds);
-        return Result.success("批量删除成功", null);
+    public Result<PackageBatchResultVO> batchDeletePackages(@RequestParam @NotBlank String packageIds) {
+        return Result.success("批量删除成功", adminService.batchDeletePackages(packageIds));
     }
 
     @PutMapping("/packages/{packageId}/recommended")
@@ -133,19 +146,57 @@ public class AdminController {
         return Result.success(reports);
     }
 
+    @GetMapping("/reports/export")
+    @Operation(summary = "导出报告列表（CSV/Excel）")
+    public void exportReports(
+            @RequestParam(required = false) Long orderId,
+            @RequestParam(required = false) String samplerName,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        writeExport(response, adminService.exportReports(orderId, samplerName, status, startDate, endDate, format));
+    }
+
     @PostMapping("/reports/upload")
     @Operation(summary = "上传检测报告")
     public Result<AdminReportVO> uploadReport(
             @Valid @RequestPart UploadReportDTO reportDTO,
-            @RequestPart MultipartFile file) {
+            @RequestPart MultipartFile file) throws IOException {
         
-        // 这里应该保存文件并获取文件URL
-        String fileUrl = "https://cdn.example.com/reports/" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        
-        AdminReportVO reportInfo = adminService.uploadReport(reportDTO, fileUrl);
+        AdminReportVO reportInfo = adminService.uploadReport(reportDTO, file.getOriginalFilename(), file.getInputStream());
         return Result.success("报告上传成功", reportInfo);
     }
 
+    @PostMapping("/reports/uploads")
+    @Operation(summary = "创建报告文件分片上传任务")
+    public Result<ReportUploadVO> initReportUpload(@Valid @RequestBody ReportUploadInitDTO uploadDTO) {
+        return Result.success(adminService.initReportUpload(uploadDTO));
+    }
+
+    @GetMapping("/reports/uploads/{uploadId}")
+    @Operation(summary = "查询分片上传进度（断点续传）")
+    public Result<ReportUploadVO> getReportUpload(@PathVariable String uploadId) {
+        return Result.success(adminService.getReportUpload(uploadId));
+    }
+
+    @PutMapping(value = "/reports/uploads/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "上传报告文件分片，请求体为分片原始内容")
+    public Result<ReportUploadVO> uploadReportChunk(@PathVariable String uploadId,
+                                                    @PathVariable Integer index,
+                                                    @RequestHeader("X-Chunk-Sha256") String checksum,
+                                                    HttpServletRequest request) throws IOException {
+        return Result.success(adminService.uploadReportChunk(uploadId, index, checksum, request.getInputStream()));
+    }
+
+    @PostMapping("/reports/uploads/{uploadId}/complete")
+    @Operation(summary = "完成分片上传并创建报告")
+    public Result<AdminReportVO> completeReportUpload(@PathVariable String uploadId,
+                                                      @Valid @RequestBody UploadReportDTO reportDTO) {
+        return Result.success("报告上传成功", adminService.completeReportUpload(uploadId, reportDTO));
+    }
+
     @PutMapping("/reports/{reportId}")
     @Operation(summary = "更新报告")
     public Result<AdminReportVO> updateReport(@PathVariable Long reportId, 
@@ -187,9 +238,96 @@ public class AdminController {
     }
 
     @GetMapping("/reports/{reportId}/download")
-    @Operation(summary = "下载报告文件")
-    public Result<Void> downloadReportFile(@PathVariable Long reportId) {
-        adminService.downloadReportFile(reportId);
-        return Result.success(null);
+    @Operation(summary = "获取报告文件下载地址")
+    public Result<ReportDownloadVO> downloadReportFile(@PathVariable Long reportId) {
+        return Result.success(adminService.downloadReportFile(reportId));
+    }
+
+    @GetMapping("/reports/files/{hash}")
+    @Operation(summary = "下载报告文件（签名地址，支持断点续传）")
+    public void writeReportFile(@PathVariable String hash,
+                                @RequestParam String name,
+                                @RequestParam Long expires,
+                                @RequestParam String signature,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        adminService.writeReportFile(hash, name, expires, signature, request, response);
+    }
+
+    // ========== 订单管理接口 ==========
+
+    @GetMapping("/orders/export")
+    @Operation(summary = "导出订单列表（CSV/Excel）")
+    public void exportOrders(
+            @RequestParam(required = false) Long companyId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        writeExport(response, adminService.exportOrders(companyId, userId, status, startDate, endDate, format));
+    }
+
+    @PutMapping("/orders/batch/ship")
+    @Operation(summary = "批量发货")
+    public Result<TransitionResult> batchShipOrders(@RequestParam @NotBlank String orderIds) {
+        return Result.success(adminService.batchShipOrders(orderIds));
+    }
+
+    @PutMapping("/orders/batch/complete")
+    @Operation(summary = "批量确认完成订单")
+    public Result<TransitionResult> batchCompleteOrders(@RequestParam @NotBlank String orderIds) {
+        return Result.success(adminService.batchCompleteOrders(orderIds));
+    }
+
+    @PutMapping("/orders/batch/cancel")
+    @Operation(summary = "批量取消订单")
+    public Result<TransitionResult> batchCancelOrders(@RequestParam @NotBlank String orderIds,
+                                                      @RequestParam(required = false) String reason) {
+        return Result.success(adminService.batchCancelOrders(orderIds, reason));
+    }
+
+    // ========== 用户管理接口 ==========
+
+    @GetMapping("/users/export")
+    @Operation(summary = "导出用户列表（CSV/Excel）")
+    public void exportUsers(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        writeExport(response, adminService.exportUsers(keyword, status, startDate, endDate, format));
+    }
+
+    // ========== 统计接口 ==========
+
+    @GetMapping("/statistics/sales/report")
+    @Operation(summary = "销售数据切片")
+    public Result<List<SalesBreakdownVO>> getSalesReport(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) Long companyId,
+            @RequestParam(required = false) Long cityId,
+            @RequestParam(required = false) Long packageId,
+            @RequestParam(required = false) String groupBy) {
+        return Result.success(adminService.getSalesReport(startDate, endDate, companyId, cityId, packageId, groupBy));
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 设置下载响应头后把导出文件直接写入响应流
+     * 条件校验在生成导出文件时完成，出错时还未写出响应头，仍按统一格式返回错误
+     */
+    private void writeExport(HttpServletResponse response, ExportFile exportFile) throws IOException {
+        response.setContentType(exportFile.getFormat().getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(exportFile.getFileName(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        exportFile.writeTo(response.getOutputStream());
     }
 }
\ No newline at end of file
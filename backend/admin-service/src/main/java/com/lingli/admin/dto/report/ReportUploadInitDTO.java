@@ -0,0 +1,40 @@
+package com.lingli.admin.dto.report;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+/**
+ * 报告文件分片上传初始化DTO
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class ReportUploadInitDTO {
+
+    /**
+     * 文件名，扩展名须为pdf、doc或docx
+     */
+    @NotBlank(message = "文件名不能为空")
+    private String fileName;
+
+    /**
+     * 文件大小(字节)
+     */
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    private Long fileSize;
+
+    /**
+     * 整个文件的SHA-256，可选；完成上传时校验
+     */
+    private String sha256;
+
+    /**
+     * 分片大小(字节)，可选，为空时使用服务端默认值
+     */
+    private Integer chunkSize;
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.lingli.admin.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.lingli.common.core.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 检验报告实体
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("test_reports")
+public class TestReport extends BaseEntity {
+
+    /**
+     * 订单ID
+     */
+    private Long orderId;
+
+    /**
+     * 订单项ID
+     */
+    private Long orderItemId;
+
+    /**
+     * 采样人ID
+     */
+    private Long samplerId;
+
+    /**
+     * 文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件访问URL
+     */
+    private String fileUrl;
+
+    /**
+     * 文件类型：pdf,doc,docx
+     */
+    private String fileType;
+
+    /**
+     * 文件大小(字节)
+     */
+    private Long fileSize;
+
+    /**
+     * 文件内容SHA-256，即文件存储键
+     */
+    private String fileHash;
+
+    /**
+     * 报告类型：1-检验报告，2-健康建议
+     */
+    private Integer reportType;
+
+    /**
+     * 上传时间
+     */
+    private LocalDateTime uploadTime;
+
+    /**
+     * 上传人ID
+     */
+    private Long uploadedBy;
+
+    /**
+     * 状态：1-正常，2-已删除
+     */
+    private Integer status;
+}
\ No newline at end of file
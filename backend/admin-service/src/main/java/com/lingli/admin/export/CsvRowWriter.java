@@ -0,0 +1,72 @@
+package com.lingli.admin.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * CSV写出器，UTF-8带BOM以便Excel直接打开中文
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public class CsvRowWriter implements RowWriter {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+
+    public CsvRowWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write('\uFEFF');
+    }
+
+    @Override
+    public void writeRow(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeValue(values.get(i));
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    // ========== 私有方法 ==========
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            writer.write(value.toString());
+            return;
+        }
+
+        String text = value instanceof LocalDateTime ? ((LocalDateTime) value).format(DATE_TIME) : value.toString();
+        // 以公式字符开头的文本加单引号，防止在Excel中被当作公式执行
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+    }
+}
\ No newline at end of file
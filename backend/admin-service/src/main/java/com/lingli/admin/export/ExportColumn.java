@@ -0,0 +1,33 @@
+package com.lingli.admin.export;
+
+import java.util.function.Function;
+
+/**
+ * 导出列：表头和从行对象取值的方法
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public final class ExportColumn<T> {
+
+    private final String header;
+
+    private final Function<T, ?> value;
+
+    private ExportColumn(String header, Function<T, ?> value) {
+        this.header = header;
+        this.value = value;
+    }
+
+    public static <T> ExportColumn<T> of(String header, Function<T, ?> value) {
+        return new ExportColumn<>(header, value);
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public Object valueOf(T row) {
+        return value.apply(row);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.lingli.admin.export;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.common.enums.PayStatus;
+import com.lingli.common.enums.UserStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 各导出的列定义
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public final class ExportColumns {
+
+    public static final List<ExportColumn<OrderExportRow>> ORDERS = Collections.unmodifiableList(Arrays.asList(
+            ExportColumn.of("订单ID", OrderExportRow::getId),
+            ExportColumn.of("订单号", OrderExportRow::getOrderNo),
+            ExportColumn.of("用户ID", OrderExportRow::getUserId),
+            ExportColumn.of("用户名", OrderExportRow::getUsername),
+            ExportColumn.of("公司ID", OrderExportRow::getCompanyId),
+            ExportColumn.of("公司名称", OrderExportRow::getCompanyName),
+            ExportColumn.of("订单金额", OrderExportRow::getTotalAmount),
+            ExportColumn.of("已付金额", OrderExportRow::getPaidAmount),
+            ExportColumn.of("订单状态", (OrderExportRow row) -> orderStatus(row.getStatus())),
+            ExportColumn.of("支付状态", (OrderExportRow row) -> payStatus(row.getPayStatus())),
+            ExportColumn.of("支付方式", OrderExportRow::getPayType),
+            ExportColumn.of("支付时间", OrderExportRow::getPayTime),
+            ExportColumn.of("联系人", OrderExportRow::getContactName),
+            ExportColumn.of("联系电话", OrderExportRow::getContactPhone),
+            ExportColumn.of("下单时间", OrderExportRow::getCreatedAt)
+    ));
+
+    public static final List<ExportColumn<UserExportRow>> USERS = Collections.unmodifiableList(Arrays.asList(
+            ExportColumn.of("用户ID", UserExportRow::getId),
+            ExportColumn.of("用户名", UserExportRow::getUsername),
+            ExportColumn.of("手机号", UserExportRow::getPhone),
+            ExportColumn.of("邮箱", UserExportRow::getEmail),
+            ExportColumn.of("状态", (UserExportRow row) -> userStatus(row.getStatus())),
+            ExportColumn.of("最后登录时间", UserExportRow::getLastLoginAt),
+            ExportColumn.of("注册时间", UserExportRow::getCreatedAt)
+    ));
+
+    public static final List<ExportColumn<ReportExportRow>> REPORTS = Collections.unmodifiableList(Arrays.asList(
+            ExportColumn.of("报告ID", ReportExportRow::getId),
+            ExportColumn.of("订单ID", ReportExportRow::getOrderId),
+            ExportColumn.of("订单号", ReportExportRow::getOrderNo),
+            ExportColumn.of("套餐名称", ReportExportRow::getPackageName),
+            ExportColumn.of("采样人ID", ReportExportRow::getSamplerId),
+            ExportColumn.of("采样人姓名", ReportExportRow::getSamplerName),
+            ExportColumn.of("报告类型", (ReportExportRow row) -> reportType(row.getReportType())),
+            ExportColumn.of("文件名", ReportExportRow::getFileName),
+            ExportColumn.of("文件类型", ReportExportRow::getFileType),
+            ExportColumn.of("文件大小", ReportExportRow::getFileSize),
+            ExportColumn.of("状态", (ReportExportRow row) -> reportStatus(row.getStatus())),
+            ExportColumn.of("上传时间", ReportExportRow::getUploadTime)
+    ));
+
+    private ExportColumns() {
+    }
+
+    // ========== 私有方法 ==========
+
+    private static String orderStatus(Integer code) {
+        OrderStatus status = OrderStatus.getByCode(code);
+        return status != null ? status.getDescription() : null;
+    }
+
+    private static String payStatus(Integer code) {
+        PayStatus status = PayStatus.getByCode(code);
+        return status != null ? status.getDescription() : null;
+    }
+
+    private static String userStatus(Integer code) {
+        UserStatus status = UserStatus.getByCode(code);
+        return status != null ? status.getDescription() : null;
+    }
+
+    private static String reportType(Integer code) {
+        if (code == null) {
+            return null;
+        }
+        return code == 1 ? "检验报告" : code == 2 ? "健康建议" : null;
+    }
+
+    private static String reportStatus(Integer code) {
+        if (code == null) {
+            return null;
+        }
+        return code == 1 ? "正常" : code == 2 ? "已删除" : null;
+    }
+}
\ No newline at end of file
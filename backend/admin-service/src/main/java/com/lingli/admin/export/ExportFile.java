@@ -0,0 +1,104 @@
+package com.lingli.admin.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 待写出的导出文件
+ * 查询条件在创建时已校验完毕，写出时用游标查询逐行转换后直接写入输出流，内存占用与行数无关
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+public final class ExportFile {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final String fileName;
+
+    private final ExportFormat format;
+
+    private final Content content;
+
+    private ExportFile(String fileName, ExportFormat format, Content content) {
+        this.fileName = fileName;
+        this.format = format;
+        this.content = content;
+    }
+
+    /**
+     * @param name    文件名前缀，实际文件名附加导出时间和扩展名
+     * @param columns 导出列，按顺序写出
+     * @param query   以结果处理器执行游标查询，每行回调一次
+     */
+    public static <T> ExportFile of(String name, ExportFormat format, List<ExportColumn<T>> columns,
+                                    Consumer<ResultHandler<T>> query) {
+        String fileName = name + "-" + LocalDateTime.now().format(FILE_TIME) + "." + format.getExtension();
+        return new ExportFile(fileName, format, writer -> {
+            List<String> header = new ArrayList<>(columns.size());
+            columns.forEach(column -> header.add(column.getHeader()));
+            writer.writeRow(header);
+
+            long[] rows = {0};
+            query.accept(context -> {
+                T row = context.getResultObject();
+                List<Object> values = new ArrayList<>(columns.size());
+                for (ExportColumn<T> column : columns) {
+                    values.add(column.valueOf(row));
+                }
+                try {
+                    writer.writeRow(values);
+                } catch (IOException e) {
+                    // 客户端断开时抛出，中止游标查询
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+            return rows[0];
+        });
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * 写出全部行
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        long rows;
+        try (RowWriter writer = format.open(out)) {
+            rows = content.write(writer);
+        } catch (RuntimeException e) {
+            // 结果处理器中的写出异常会被MyBatis和Spring包装，还原为IO异常
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+            }
+            throw e;
+        }
+        log.info("导出完成: file={}, rows={}, costMs={}", fileName, rows, System.currentTimeMillis() - start);
+    }
+
+    @FunctionalInterface
+    private interface Content {
+
+        long write(RowWriter writer) throws IOException;
+    }
+}
\ No newline at end of file
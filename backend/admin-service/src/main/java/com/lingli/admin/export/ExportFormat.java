@@ -0,0 +1,57 @@
+package com.lingli.admin.export;
+
+import com.lingli.common.exception.BusinessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 导出文件格式
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public enum ExportFormat {
+
+    CSV("csv", "text/csv;charset=UTF-8"),
+    XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    private final String extension;
+
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 按扩展名解析格式，为空时默认CSV
+     */
+    public static ExportFormat of(String format) {
+        if (format == null || format.trim().isEmpty()) {
+            return CSV;
+        }
+        for (ExportFormat value : values()) {
+            if (value.extension.equalsIgnoreCase(format.trim())) {
+                return value;
+            }
+        }
+        throw new BusinessException(50003, "不支持的导出格式");
+    }
+
+    /**
+     * 在输出流上打开逐行写出器
+     */
+    public RowWriter open(OutputStream out) throws IOException {
+        return this == XLSX ? new XlsxRowWriter(out) : new CsvRowWriter(out);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.lingli.admin.export;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单导出行
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class OrderExportRow {
+
+    private Long id;
+
+    private String orderNo;
+
+    private Long userId;
+
+    private String username;
+
+    private Long companyId;
+
+    private String companyName;
+
+    private BigDecimal totalAmount;
+
+    private BigDecimal paidAmount;
+
+    private Integer status;
+
+    private Integer payStatus;
+
+    private String payType;
+
+    private LocalDateTime payTime;
+
+    private String contactName;
+
+    private String contactPhone;
+
+    private LocalDateTime createdAt;
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.lingli.admin.export;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 检验报告导出行
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class ReportExportRow {
+
+    private Long id;
+
+    private Long orderId;
+
+    private String orderNo;
+
+    private String packageName;
+
+    private Long samplerId;
+
+    private String samplerName;
+
+    private Integer reportType;
+
+    private String fileName;
+
+    private String fileType;
+
+    private Long fileSize;
+
+    private Integer status;
+
+    private LocalDateTime uploadTime;
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.lingli.admin.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 逐行写出导出文件，不在内存中保留已写出的行
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public interface RowWriter extends Closeable {
+
+    /**
+     * 写出一行，值为null时写空单元格
+     */
+    void writeRow(List<?> values) throws IOException;
+
+    /**
+     * 写完所有行后收尾并刷出，不关闭底层输出流
+     */
+    @Override
+    void close() throws IOException;
+}
\ No newline at end of file
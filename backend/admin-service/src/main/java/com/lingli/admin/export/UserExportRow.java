@@ -0,0 +1,29 @@
+package com.lingli.admin.export;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户导出行
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class UserExportRow {
+
+    private Long id;
+
+    private String username;
+
+    private String phone;
+
+    private String email;
+
+    private Integer status;
+
+    private LocalDateTime lastLoginAt;
+
+    private LocalDateTime createdAt;
+}
\ No newline at end of file
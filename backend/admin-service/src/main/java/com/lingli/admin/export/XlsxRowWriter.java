@@ -0,0 +1,106 @@
+package com.lingli.admin.export;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Excel写出器
+ * 使用SXSSF流式工作簿，内存中只保留最近的行窗口，其余行压缩写入临时文件；
+ * 单个工作表写满后自动新建工作表并重复表头
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public class XlsxRowWriter implements RowWriter {
+
+    /**
+     * 内存中保留的行数
+     */
+    private static final int ROW_ACCESS_WINDOW = 100;
+
+    private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final OutputStream out;
+
+    private final SXSSFWorkbook workbook;
+
+    private final CellStyle dateTimeStyle;
+
+    private List<?> header;
+
+    private SXSSFSheet sheet;
+
+    private int rowIndex;
+
+    public XlsxRowWriter(OutputStream out) {
+        this.out = out;
+        this.workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        this.dateTimeStyle = workbook.createCellStyle();
+        dateTimeStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+    }
+
+    @Override
+    public void writeRow(List<?> values) throws IOException {
+        if (header == null) {
+            // 第一行为表头，新建工作表时重复写出
+            header = values;
+        }
+        if (sheet == null || rowIndex >= MAX_ROWS_PER_SHEET) {
+            sheet = workbook.createSheet();
+            rowIndex = 0;
+            if (values != header) {
+                fillRow(header);
+            }
+        }
+        fillRow(values);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (sheet == null) {
+                workbook.createSheet();
+            }
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    private void fillRow(List<?> values) {
+        Row row = sheet.createRow(rowIndex++);
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            Cell cell = row.createCell(i);
+            if (value instanceof BigDecimal) {
+                cell.setCellValue(((BigDecimal) value).doubleValue());
+            } else if (value instanceof Integer) {
+                cell.setCellValue((Integer) value);
+            } else if (value instanceof LocalDateTime) {
+                cell.setCellValue((LocalDateTime) value);
+                cell.setCellStyle(dateTimeStyle);
+            } else {
+                // Long型ID超过Excel数值精度，按文本写出
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+}
\ No newline at end of file
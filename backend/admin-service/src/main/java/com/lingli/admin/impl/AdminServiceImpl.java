@@ -1,24 +1,73 @@
 package com.lingli.admin.impl;
 
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.io.FileUtil;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.lingli.admin.analytics.SalesFactStore;
+import com.lingli.admin.analytics.SalesGroupBy;
+import com.lingli.admin.analytics.SalesQuery;
+import com.lingli.admin.analytics.SalesSlice;
+import com.lingli.admin.dto.report.ReportUploadInitDTO;
+import com.lingli.admin.dto.report.UploadReportDTO;
+import com.lingli.admin.entity.TestReport;
+import com.lingli.admin.export.ExportColumns;
+import com.lingli.admin.export.ExportFile;
+import com.lingli.admin.export.ExportFormat;
+import com.lingli.admin.mapper.AdminExportMapper;
+import com.lingli.admin.mapper.TestReportMapper;
 import com.lingli.admin.service.AdminService;
+import com.lingli.admin.storage.BlobDownloadWriter;
+import com.lingli.admin.storage.ReportDownloadSigner;
+import com.lingli.admin.storage.ReportUploadManager;
+import com.lingli.admin.storage.StoredBlob;
+import com.lingli.admin.storage.UploadSession;
 import com.lingli.admin.vo.packageinfo.AdminPackageVO;
 import com.lingli.admin.vo.report.AdminReportVO;
+import com.lingli.admin.vo.report.ReportDownloadVO;
+import com.lingli.admin.vo.report.ReportUploadVO;
+import com.lingli.admin.vo.statistics.SalesBreakdownVO;
+import com.lingli.admin.vo.statistics.SalesTrendVO;
 import com.lingli.common.core.PageResult;
 import com.lingli.common.enums.OrderStatus;
 import com.lingli.common.enums.PayStatus;
 import com.lingli.common.enums.UserStatus;
+import com.lingli.common.exception.BusinessException;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.order.analytics.RollupDimension;
+import com.lingli.order.analytics.RollupGranularity;
+import com.lingli.order.analytics.SalesRollup;
+import com.lingli.order.analytics.SalesRollupStore;
 import com.lingli.order.service.OrderService;
+import com.lingli.order.state.OrderTransition;
+import com.lingli.order.state.TransitionResult;
 import com.lingli.product.service.ProductService;
+import com.lingli.product.vo.PackageBatchResultVO;
+import com.lingli.product.vo.PackageVO;
 import com.lingli.user.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 管理后台服务实现
@@ -40,11 +89,50 @@ public class AdminServiceImpl implements AdminService {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private SalesRollupStore salesRollupStore;
+
+    @Autowired
+    private SalesFactStore salesFactStore;
+
+    @Autowired
+    private AdminExportMapper adminExportMapper;
+
+    @Autowired
+    private TestReportMapper testReportMapper;
+
+    @Autowired
+    private ReportUploadManager reportUploadManager;
+
+    @Autowired
+    private ReportDownloadSigner reportDownloadSigner;
+
+    @Autowired
+    private BlobDownloadWriter blobDownloadWriter;
+
+    /**
+     * 统计排行返回条数
+     */
+    private static final int RANKING_SIZE = 10;
+
+    /**
+     * 销售统计未指定日期时默认统计的天数
+     */
+    private static final int DEFAULT_SALES_DAYS = 30;
+
+    /**
+     * 进行中的订单状态：待支付、已支付、待发货、已发货
+     */
+    private static final List<Integer> ACTIVE_STATUSES = Arrays.asList(OrderStatus.PENDING_PAYMENT.getCode(),
+            OrderStatus.PAID.getCode(), OrderStatus.PENDING_SHIPMENT.getCode(), OrderStatus.SHIPPED.getCode());
+
     @Override
     public PageResult<AdminPackageVO> getPackages(Long categoryId, String keyword, Integer status, Integer page, Integer size) {
         try {
-            // 调用商品服务获取套餐列表
-            return productService.getPackageList(categoryId, keyword, page, size);
+            // 调用商品服务获取套餐列表（分类名称已由商品服务整页批量回填）
+            PageResult<PackageVO> packages = productService.getPackageList(categoryId, keyword, page, size);
+            return new PageResult<>(convertToAdminPackageVOs(packages.getRecords()),
+                    packages.getTotal(), packages.getSize(), packages.getCurrent(), packages.getPages());
         } catch (Exception e) {
             log.error("获取套餐列表失败", e);
             throw new RuntimeException("获取套餐列表失败", e);
@@ -102,36 +190,13 @@ public class AdminServiceImpl implements AdminService {
     }
 
     @Override
-    public void batchUpdatePackageStatus(String packageIds, Integer status) {
-        try {
-            // 解析ID列表
-            String[] ids = packageIds.split(",");
-            for (String id : ids) {
-                if (!id.trim().isEmpty()) {
-                    productService.updatePackageStatus(Long.parseLong(id.trim()), status);
-                }
-            }
-            log.info("批量更新套餐状态成功: {}", packageIds);
-        } catch (Exception e) {
-            log.error("批量更新套餐状态失败", e);
-            throw new RuntimeException("批量更新套餐状态失败", e);
-        }
+    public PackageBatchResultVO batchUpdatePackageStatus(String packageIds, Integer status) {
+        return productService.batchUpdatePackageStatus(parseIds(packageIds), status);
     }
 
     @Override
-    public void batchDeletePackages(String packageIds) {
-        try {
-            String[] ids = packageIds.split(",");
-            for (String id : ids) {
-                if (!id.trim().isEmpty()) {
-                    productService.deletePackage(Long.parseLong(id.trim()));
-                }
-            }
-            log.info("批量删除套餐成功: {}", packageIds);
-        } catch (Exception e) {
-            log.error("批量删除套餐失败", e);
-            throw new RuntimeException("批量删除套餐失败", e);
-        }
+    public PackageBatchResultVO batchDeletePackages(String packageIds) {
+        return productService.batchDeletePackages(parseIds(packageIds));
     }
 
     @Override
@@ -193,20 +258,50 @@ public class AdminServiceImpl implements AdminService {
     }
 
     @Override
-    public AdminReportVO uploadReport(com.lingli.admin.dto.report.UploadReportDTO reportDTO, String fileUrl) {
-        // TODO: 实现报告上传逻辑
-        log.info("上传报告: orderId={}, samplerId={}, fileUrl={}", 
-            reportDTO.getOrderId(), reportDTO.getSamplerId(), fileUrl);
-        
-        // 返回模拟的VO
-        AdminReportVO reportVO = new AdminReportVO();
-        reportVO.setId(System.currentTimeMillis());
-        reportVO.setOrderId(reportDTO.getOrderId());
-        reportVO.setSamplerId(reportDTO.getSamplerId());
-        reportVO.setTitle(reportDTO.getTitle());
-        reportVO.setStatus(reportDTO.getStatus());
-        reportVO.setUploadTime(LocalDateTime.now());
-        reportVO.setFileUrl(fileUrl);
+    public ExportFile exportReports(Long orderId, String samplerName, Integer status, String startDate, String endDate, String format) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        LocalDateTime from = startOfDay(parseDate(startDate, null));
+        LocalDateTime to = endOfDay(parseDate(endDate, null));
+        return ExportFile.of("reports", exportFormat, ExportColumns.REPORTS,
+                handler -> adminExportMapper.streamReports(orderId, samplerName, status, from, to, handler));
+    }
+
+    @Override
+    public AdminReportVO uploadReport(UploadReportDTO reportDTO, String fileName, InputStream content) {
+        StoredBlob blob = reportUploadManager.ingest(fileName, content);
+        return createReport(reportDTO, fileName, blob);
+    }
+
+    /**
+     * 分片传输可能较慢，上传任务相关操作不开启事务，避免占用数据库连接
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportUploadVO initReportUpload(ReportUploadInitDTO uploadDTO) {
+        UploadSession session = reportUploadManager.create(uploadDTO.getFileName(), uploadDTO.getFileSize(),
+                uploadDTO.getSha256(), uploadDTO.getChunkSize());
+        return convertToReportUploadVO(session);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportUploadVO getReportUpload(String uploadId) {
+        return convertToReportUploadVO(reportUploadManager.get(uploadId));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReportUploadVO uploadReportChunk(String uploadId, Integer index, String checksum, InputStream content) {
+        return convertToReportUploadVO(reportUploadManager.writeChunk(uploadId, index, checksum, content));
+    }
+
+    @Override
+    public AdminReportVO completeReportUpload(String uploadId, UploadReportDTO reportDTO) {
+        UploadSession session = reportUploadManager.get(uploadId);
+        StoredBlob blob = reportUploadManager.complete(uploadId);
+        AdminReportVO reportVO = createReport(reportDTO, session.getFileName(), blob);
+        // 报告入库后删除上传任务；事务回滚时保留任务，可以重新提交
+        TransactionUtils.afterCommit(() -> reportUploadManager.discard(uploadId));
         return reportVO;
     }
 
@@ -249,9 +344,30 @@ public class AdminServiceImpl implements AdminService {
     }
 
     @Override
-    public void downloadReportFile(Long reportId) {
-        // TODO: 实现下载报告文件逻辑
-        log.info("下载报告文件: reportId={}", reportId);
+    public ReportDownloadVO downloadReportFile(Long reportId) {
+        TestReport report = testReportMapper.selectById(reportId);
+        if (report == null || report.getFileHash() == null) {
+            throw new BusinessException(50013, "报告文件不存在");
+        }
+        long expires = reportDownloadSigner.nextExpiry();
+
+        ReportDownloadVO downloadVO = new ReportDownloadVO();
+        downloadVO.setUrl(reportDownloadSigner.sign(report.getFileHash(), report.getFileName(), expires));
+        downloadVO.setFileName(report.getFileName());
+        downloadVO.setFileSize(report.getFileSize());
+        downloadVO.setEtag("\"" + report.getFileHash() + "\"");
+        downloadVO.setExpiresAt(LocalDateTime.ofInstant(Instant.ofEpochSecond(expires), ZoneId.systemDefault()));
+        log.info("签发报告下载地址: reportId={}, expires={}", reportId, expires);
+        return downloadVO;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeReportFile(String hash, String fileName, Long expires, String signature,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 只校验签名，分段续传的每个请求都不查库
+        reportDownloadSigner.verify(hash, fileName, expires, signature);
+        blobDownloadWriter.write(request, response, hash, fileName);
     }
 
     @Override
@@ -267,6 +383,15 @@ public class AdminServiceImpl implements AdminService {
         return result;
     }
 
+    @Override
+    public ExportFile exportOrders(Long companyId, Long userId, Integer status, String startDate, String endDate, String format) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        LocalDateTime from = startOfDay(parseDate(startDate, null));
+        LocalDateTime to = endOfDay(parseDate(endDate, null));
+        return ExportFile.of("orders", exportFormat, ExportColumns.ORDERS,
+                handler -> adminExportMapper.streamOrders(companyId, userId, status, from, to, handler));
+    }
+
     @Override
     public AdminOrderVO getOrderDetail(Long orderId) {
         // TODO: 实现获取订单详情逻辑
@@ -275,38 +400,62 @@ public class AdminServiceImpl implements AdminService {
 
     @Override
     public AdminOrderVO updateOrderStatus(Long orderId, Integer status) {
-        // TODO: 实现更新订单状态逻辑
-        return null;
+        orderService.updateOrderStatus(orderId, status);
+        return getOrderDetail(orderId);
     }
 
     @Override
     public AdminOrderVO shipOrder(Long orderId, String logisticsCompany, String trackingNumber, String remark) {
-        // TODO: 实现订单发货逻辑
-        return null;
+        // TODO: 保存物流信息
+        orderService.transitOrder(orderId, OrderTransition.SHIP, null);
+        log.info("订单发货: orderId={}, logisticsCompany={}, trackingNumber={}", orderId, logisticsCompany, trackingNumber);
+        return getOrderDetail(orderId);
     }
 
     @Override
     public AdminOrderVO completeOrder(Long orderId) {
-        // TODO: 实现确认完成订单逻辑
-        return null;
+        orderService.transitOrder(orderId, OrderTransition.COMPLETE, null);
+        return getOrderDetail(orderId);
     }
 
     @Override
     public AdminOrderVO cancelOrder(Long orderId, String reason) {
-        // TODO: 实现取消订单逻辑
-        return null;
+        orderService.transitOrder(orderId, OrderTransition.CANCEL, null);
+        log.info("管理员取消订单: orderId={}, reason={}", orderId, reason);
+        return getOrderDetail(orderId);
+    }
+
+    @Override
+    public TransitionResult batchShipOrders(String orderIds) {
+        return orderService.transitOrders(parseIds(orderIds), OrderTransition.SHIP);
+    }
+
+    @Override
+    public TransitionResult batchCompleteOrders(String orderIds) {
+        return orderService.transitOrders(parseIds(orderIds), OrderTransition.COMPLETE);
+    }
+
+    @Override
+    public TransitionResult batchCancelOrders(String orderIds, String reason) {
+        TransitionResult result = orderService.transitOrders(parseIds(orderIds), OrderTransition.CANCEL);
+        log.info("管理员批量取消订单: cancelled={}, reason={}", result.getSucceeded(), reason);
+        return result;
     }
 
     @Override
     public AdminOrderStatisticsVO getOrderStatistics() {
-        // TODO: 实现订单统计逻辑
+        // 累计下单、取消数读预聚合；进行中的订单走状态索引计数，已完成数由两者推出，不扫描历史订单
+        SalesRollup total = getTotalRollup();
+        Map<Integer, Long> activeCounts = orderService.countOrdersByStatus(ACTIVE_STATUSES);
+        long active = activeCounts.values().stream().mapToLong(Long::longValue).sum();
+
         AdminOrderStatisticsVO statistics = new AdminOrderStatisticsVO();
-        statistics.setTotalOrders(100);
-        statistics.setTotalAmount(new BigDecimal("50000.00"));
-        statistics.setPendingOrders(10);
-        statistics.setShippedOrders(20);
-        statistics.setCompletedOrders(60);
-        statistics.setCancelledOrders(10);
+        statistics.setTotalOrders(total.getOrderCount().intValue());
+        statistics.setTotalAmount(total.getOrderAmount());
+        statistics.setPendingOrders(activeCounts.getOrDefault(OrderStatus.PENDING_PAYMENT.getCode(), 0L).intValue());
+        statistics.setShippedOrders(activeCounts.getOrDefault(OrderStatus.SHIPPED.getCode(), 0L).intValue());
+        statistics.setCancelledOrders(total.getCancelledCount().intValue());
+        statistics.setCompletedOrders((int) Math.max(0, total.getOrderCount() - total.getCancelledCount() - active));
         return statistics;
     }
 
@@ -323,6 +472,15 @@ public class AdminServiceImpl implements AdminService {
         return result;
     }
 
+    @Override
+    public ExportFile exportUsers(String keyword, Integer status, String startDate, String endDate, String format) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        LocalDateTime from = startOfDay(parseDate(startDate, null));
+        LocalDateTime to = endOfDay(parseDate(endDate, null));
+        return ExportFile.of("users", exportFormat, ExportColumns.USERS,
+                handler -> adminExportMapper.streamUsers(keyword, status, from, to, handler));
+    }
+
     @Override
     public AdminUserVO getUserDetail(Long userId) {
         // TODO: 实现获取用户详情逻辑
@@ -343,33 +501,222 @@ public class AdminServiceImpl implements AdminService {
 
     @Override
     public AdminDashboardVO getDashboard() {
-        // TODO: 实现仪表盘数据获取逻辑
+        // TODO: 用户数、待审核报告数
+        SalesRollup total = getTotalRollup();
+        LocalDate today = LocalDate.now();
+        List<SalesRollup> todayRollups = salesRollupStore.summarize(today, today, RollupDimension.ALL, null);
+        SalesRollup todayTotal = todayRollups.isEmpty() ? new SalesRollup() : todayRollups.get(0);
+
         AdminDashboardVO dashboard = new AdminDashboardVO();
-        dashboard.setTotalUsers(1000L);
-        dashboard.setTotalOrders(500L);
-        dashboard.setTotalRevenue(new BigDecimal("100000.00"));
-        dashboard.setPendingReports(20L);
+        dashboard.setTotalOrders(total.getOrderCount());
+        dashboard.setTotalRevenue(total.getPaidAmount());
+        dashboard.setTodayOrders(todayTotal.getOrderCount());
+        dashboard.setTodayRevenue(todayTotal.getPaidAmount());
+        // 最近24小时按小时走势
+        LocalDateTime now = LocalDateTime.now();
+        dashboard.setHourlyTrend(convertToSalesTrendVOs(
+                salesRollupStore.getSeries(RollupGranularity.HOUR, now.minusHours(23), now)));
         return dashboard;
     }
 
     @Override
     public AdminSalesStatisticsVO getSalesStatistics(String startDate, String endDate) {
-        // TODO: 实现销售统计逻辑
+        LocalDate end = parseDate(endDate, LocalDate.now());
+        LocalDate start = parseDate(startDate, end.minusDays(DEFAULT_SALES_DAYS - 1));
+
+        // 合并预聚合时间桶，读取行数只与日期跨度有关
+        List<SalesRollup> totals = salesRollupStore.summarize(start, end, RollupDimension.ALL, null);
+        SalesRollup total = totals.isEmpty() ? new SalesRollup() : totals.get(0);
+
         AdminSalesStatisticsVO statistics = new AdminSalesStatisticsVO();
-        statistics.setTotalSales(new BigDecimal("50000.00"));
-        statistics.setOrderCount(100L);
-        statistics.setAverageOrderValue(new BigDecimal("500.00"));
+        statistics.setTotalSales(total.getPaidAmount());
+        statistics.setOrderCount(total.getOrderCount());
+        statistics.setPaidOrderCount(total.getPaidCount());
+        statistics.setCancelledOrderCount(total.getCancelledCount());
+        statistics.setAverageOrderValue(total.getPaidCount() > 0
+                ? total.getPaidAmount().divide(BigDecimal.valueOf(total.getPaidCount()), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO);
+        // 公司、城市、套餐排行在销售事实列存上聚合，含分成金额
+        statistics.setCompanySales(querySales(start, end, SalesGroupBy.COMPANY, RANKING_SIZE));
+        statistics.setCitySales(querySales(start, end, SalesGroupBy.CITY, RANKING_SIZE));
+        statistics.setPackageSales(querySales(start, end, SalesGroupBy.PACKAGE, RANKING_SIZE));
         return statistics;
     }
 
     @Override
     public AdminPackageStatisticsVO getPackageStatistics() {
-        // TODO: 实现套餐统计逻辑
+        // TODO: 套餐总数、上下架数、推荐数
         AdminPackageStatisticsVO statistics = new AdminPackageStatisticsVO();
-        statistics.setTotalPackages(50L);
-        statistics.setOnlinePackages(45L);
-        statistics.setOfflinePackages(5L);
-        statistics.setRecommendedPackages(10L);
+        statistics.setTopSellingPackages(querySales(null, null, SalesGroupBy.PACKAGE, RANKING_SIZE));
         return statistics;
     }
+
+    @Override
+    public List<SalesBreakdownVO> getSalesReport(String startDate, String endDate, Long companyId, Long cityId,
+                                                 Long packageId, String groupBy) {
+        SalesQuery query = new SalesQuery();
+        query.setStartDate(parseDate(startDate, null));
+        query.setEndDate(parseDate(endDate, null));
+        query.setCompanyId(companyId);
+        query.setCityId(cityId);
+        query.setPackageId(packageId);
+        if (groupBy != null && !groupBy.trim().isEmpty()) {
+            try {
+                query.setGroupBy(SalesGroupBy.valueOf(groupBy.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new BusinessException(50002, "不支持的分组维度: " + groupBy);
+            }
+        }
+
+        List<SalesSlice> slices = salesFactStore.query(query);
+        if (query.getGroupBy() == SalesGroupBy.DAY) {
+            slices.sort(Comparator.comparingLong(SalesSlice::getKey));
+        }
+        return convertToSalesBreakdownVOs(slices, query.getGroupBy());
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 全部订单的累计预聚合
+     */
+    private SalesRollup getTotalRollup() {
+        List<SalesRollup> totals = salesRollupStore.summarizeTotal(RollupDimension.ALL, null);
+        return totals.isEmpty() ? new SalesRollup() : totals.get(0);
+    }
+
+    private LocalDate parseDate(String date, LocalDate defaultDate) {
+        if (date == null || date.trim().isEmpty()) {
+            return defaultDate;
+        }
+        try {
+            return LocalDate.parse(date.trim());
+        } catch (DateTimeParseException e) {
+            throw new BusinessException(50001, "日期格式错误，应为yyyy-MM-dd");
+        }
+    }
+
+    /**
+     * 为已入库的文件创建检测报告记录，文件URL指向报告下载接口
+     */
+    private AdminReportVO createReport(UploadReportDTO reportDTO, String fileName, StoredBlob blob) {
+        String name = FileUtil.getName(fileName);
+        TestReport report = new TestReport();
+        report.setId(IdWorker.getId());
+        report.setOrderId(reportDTO.getOrderId());
+        report.setOrderItemId(reportDTO.getOrderItemId());
+        report.setSamplerId(reportDTO.getSamplerId());
+        report.setReportType(reportDTO.getReportType());
+        report.setFileName(name);
+        report.setFileType(reportUploadManager.fileTypeOf(name));
+        report.setFileSize(blob.getSize());
+        report.setFileHash(blob.getHash());
+        report.setFileUrl("/admin/reports/" + report.getId() + "/download");
+        report.setUploadTime(LocalDateTime.now());
+        report.setStatus(1);
+        testReportMapper.insert(report);
+        log.info("上传报告: reportId={}, orderId={}, fileHash={}, fileSize={}",
+                report.getId(), report.getOrderId(), blob.getHash(), blob.getSize());
+
+        AdminReportVO reportVO = BeanUtil.copyProperties(reportDTO, AdminReportVO.class);
+        reportVO.setId(report.getId());
+        reportVO.setFileName(report.getFileName());
+        reportVO.setFileUrl(report.getFileUrl());
+        reportVO.setFileSize(report.getFileSize());
+        reportVO.setFileType(report.getFileType());
+        reportVO.setUploadTime(report.getUploadTime());
+        return reportVO;
+    }
+
+    private ReportUploadVO convertToReportUploadVO(UploadSession session) {
+        ReportUploadVO uploadVO = BeanUtil.copyProperties(session, ReportUploadVO.class, "receivedChunks");
+        uploadVO.setReceivedChunks(new ArrayList<>(session.getReceivedChunks()));
+        uploadVO.setCompleted(session.getBlobHash() != null);
+        return uploadVO;
+    }
+
+    /**
+     * 日期当天零点，为空时不限
+     */
+    private LocalDateTime startOfDay(LocalDate date) {
+        return date != null ? date.atStartOfDay() : null;
+    }
+
+    /**
+     * 日期次日零点（不含），为空时不限
+     */
+    private LocalDateTime endOfDay(LocalDate date) {
+        return date != null ? date.plusDays(1).atStartOfDay() : null;
+    }
+
+    /**
+     * 销售事实按维度分组的排行
+     */
+    private List<SalesBreakdownVO> querySales(LocalDate start, LocalDate end, SalesGroupBy groupBy, int limit) {
+        SalesQuery query = new SalesQuery();
+        query.setStartDate(start);
+        query.setEndDate(end);
+        query.setGroupBy(groupBy);
+        List<SalesSlice> slices = salesFactStore.query(query);
+        return convertToSalesBreakdownVOs(slices.subList(0, Math.min(limit, slices.size())), groupBy);
+    }
+
+    /**
+     * 转换销售事实聚合结果，按套餐分组时批量回填套餐名称
+     */
+    private List<SalesBreakdownVO> convertToSalesBreakdownVOs(List<SalesSlice> slices, SalesGroupBy groupBy) {
+        Map<Long, PackageVO> packages = groupBy == SalesGroupBy.PACKAGE
+                ? productService.getPackagesByIds(slices.stream().map(SalesSlice::getKey).collect(Collectors.toList()))
+                : Collections.emptyMap();
+
+        List<SalesBreakdownVO> breakdowns = new ArrayList<>(slices.size());
+        for (SalesSlice slice : slices) {
+            SalesBreakdownVO breakdown = new SalesBreakdownVO();
+            breakdown.setKey(groupBy == SalesGroupBy.DAY
+                    ? LocalDate.ofEpochDay(slice.getKey()).toString() : String.valueOf(slice.getKey()));
+            PackageVO packageVO = packages.get(slice.getKey());
+            breakdown.setName(packageVO != null ? packageVO.getName() : null);
+            breakdown.setPaidCount(slice.getOrderCount());
+            breakdown.setQuantity(slice.getQuantity());
+            breakdown.setPaidAmount(BigDecimal.valueOf(slice.getAmount(), 2));
+            breakdown.setCompanyAmount(BigDecimal.valueOf(slice.getCompanyAmount(), 2));
+            breakdown.setPlatformAmount(BigDecimal.valueOf(slice.getPlatformAmount(), 2));
+            breakdowns.add(breakdown);
+        }
+        return breakdowns;
+    }
+
+    private List<SalesTrendVO> convertToSalesTrendVOs(List<SalesRollup> rollups) {
+        List<SalesTrendVO> trends = new ArrayList<>(rollups.size());
+        for (SalesRollup rollup : rollups) {
+            SalesTrendVO trend = BeanUtil.copyProperties(rollup, SalesTrendVO.class);
+            trend.setTime(rollup.getBucketStart());
+            trends.add(trend);
+        }
+        return trends;
+    }
+
+    /**
+     * 解析逗号分隔的ID列表
+     */
+    private List<Long> parseIds(String ids) {
+        return Arrays.stream(ids.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(Long::parseLong)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 批量转换为管理员套餐VO
+     */
+    private List<AdminPackageVO> convertToAdminPackageVOs(List<PackageVO> packageVOs) {
+        List<AdminPackageVO> adminPackageVOs = new ArrayList<>(packageVOs.size());
+        for (PackageVO packageVO : packageVOs) {
+            AdminPackageVO adminPackageVO = BeanUtil.copyProperties(packageVO, AdminPackageVO.class);
+            adminPackageVO.setStatus(Boolean.TRUE.equals(packageVO.getOnShelf()) ? 1 : 0);
+            adminPackageVOs.add(adminPackageVO);
+        }
+        return adminPackageVOs;
+    }
 }
\ No newline at end of file
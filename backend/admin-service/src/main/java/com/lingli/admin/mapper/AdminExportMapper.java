@@ -0,0 +1,43 @@
+package com.lingli.admin.mapper;
+
+import com.lingli.admin.export.OrderExportRow;
+import com.lingli.admin.export.ReportExportRow;
+import com.lingli.admin.export.UserExportRow;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+
+/**
+ * 管理后台导出Mapper接口
+ * 查询均为只进游标（MySQL逐行读取），结果通过ResultHandler逐行回调，不在内存中聚集结果集；
+ * 回调期间连接被结果集占用，回调内不能再执行其他SQL
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface AdminExportMapper {
+
+    /**
+     * 按条件流式查询订单，时间范围为创建时间 [from, to)
+     */
+    void streamOrders(@Param("companyId") Long companyId, @Param("userId") Long userId,
+                      @Param("status") Integer status, @Param("from") LocalDateTime from,
+                      @Param("to") LocalDateTime to, ResultHandler<OrderExportRow> handler);
+
+    /**
+     * 按条件流式查询用户，时间范围为注册时间 [from, to)
+     */
+    void streamUsers(@Param("keyword") String keyword, @Param("status") Integer status,
+                     @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                     ResultHandler<UserExportRow> handler);
+
+    /**
+     * 按条件流式查询检验报告，时间范围为上传时间 [from, to)
+     */
+    void streamReports(@Param("orderId") Long orderId, @Param("samplerName") String samplerName,
+                       @Param("status") Integer status, @Param("from") LocalDateTime from,
+                       @Param("to") LocalDateTime to, ResultHandler<ReportExportRow> handler);
+}
\ No newline at end of file
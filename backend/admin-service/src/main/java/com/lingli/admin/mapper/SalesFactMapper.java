@@ -0,0 +1,37 @@
+package com.lingli.admin.mapper;
+
+import com.lingli.admin.analytics.SalesFact;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 销售事实抽取Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface SalesFactMapper {
+
+    /**
+     * 查询支付时间在 [from, to) 内、未取消订单的明细事实
+     *
+     * @param cancelled 已取消的订单状态
+     */
+    List<SalesFact> selectFacts(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                @Param("cancelled") Integer cancelled);
+
+    /**
+     * 查询有已支付订单的日期
+     */
+    List<LocalDate> selectPaidDays();
+
+    /**
+     * 查询指定时间后有变化的已支付订单所在的支付日期
+     */
+    List<LocalDate> selectPaidDaysUpdatedSince(@Param("since") LocalDateTime since);
+}
\ No newline at end of file
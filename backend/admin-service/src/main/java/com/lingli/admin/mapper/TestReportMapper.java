@@ -0,0 +1,15 @@
+package com.lingli.admin.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lingli.admin.entity.TestReport;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 检验报告Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface TestReportMapper extends BaseMapper<TestReport> {
+}
\ No newline at end of file
@@ -1,10 +1,23 @@
 package com.lingli.admin.service;
 
 import com.lingli.admin.dto.packageinfo.AdminPackageDTO;
+import com.lingli.admin.dto.report.ReportUploadInitDTO;
 import com.lingli.admin.dto.report.UploadReportDTO;
+import com.lingli.admin.export.ExportFile;
 import com.lingli.admin.vo.packageinfo.AdminPackageVO;
 import com.lingli.admin.vo.report.AdminReportVO;
+import com.lingli.admin.vo.report.ReportDownloadVO;
+import com.lingli.admin.vo.report.ReportUploadVO;
+import com.lingli.admin.vo.statistics.SalesBreakdownVO;
 import com.lingli.common.core.PageResult;
+import com.lingli.order.state.TransitionResult;
+import com.lingli.product.vo.PackageBatchResultVO;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 /**
  * 管理后台服务接口
@@ -47,14 +60,14 @@ public interface AdminService {
     AdminPackageVO updatePackageStatus(Long packageId, Integer status);
 
     /**
-     * 批量操作套餐
+     * 批量上下架套餐，返回每个套餐的处理结果
      */
-    void batchUpdatePackageStatus(String packageIds, Integer status);
+    PackageBatchResultVO batchUpdatePackageStatus(String packageIds, Integer status);
 
     /**
-     * 批量删除套餐
+     * 批量删除套餐，返回每个套餐的处理结果
      */
-    void batchDeletePackages(String packageIds);
+    PackageBatchResultVO batchDeletePackages(String packageIds);
 
     /**
      * 设置推荐套餐
@@ -106,9 +119,38 @@ public interface AdminService {
     PageResult<AdminReportVO> getReports(Long orderId, String samplerName, Integer status, Integer page, Integer size);
 
     /**
-     * 上传检测报告
+     * 导出报告列表，按上传日期过滤
+     *
+     * @param format csv或xlsx，为空时为csv
+     */
+    ExportFile exportReports(Long orderId, String samplerName, Integer status, String startDate, String endDate, String format);
+
+    /**
+     * 上传检测报告，文件内容流式写入文件存储
+     */
+    AdminReportVO uploadReport(UploadReportDTO reportDTO, String fileName, InputStream content);
+
+    /**
+     * 创建报告文件分片上传任务
+     */
+    ReportUploadVO initReportUpload(ReportUploadInitDTO uploadDTO);
+
+    /**
+     * 查询分片上传任务，用于断点续传
      */
-    AdminReportVO uploadReport(UploadReportDTO reportDTO, String fileUrl);
+    ReportUploadVO getReportUpload(String uploadId);
+
+    /**
+     * 上传一个分片
+     *
+     * @param checksum 分片内容的SHA-256
+     */
+    ReportUploadVO uploadReportChunk(String uploadId, Integer index, String checksum, InputStream content);
+
+    /**
+     * 完成分片上传并创建检测报告
+     */
+    AdminReportVO completeReportUpload(String uploadId, UploadReportDTO reportDTO);
 
     /**
      * 更新报告
@@ -141,9 +183,15 @@ public interface AdminService {
     AdminReportVO getReportDetail(Long reportId);
 
     /**
-     * 下载报告文件
+     * 获取报告文件的签名下载地址
+     */
+    ReportDownloadVO downloadReportFile(Long reportId);
+
+    /**
+     * 按签名下载地址输出报告文件，支持Range断点续传和ETag协商缓存
      */
-    void downloadReportFile(Long reportId);
+    void writeReportFile(String hash, String fileName, Long expires, String signature,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException;
 
     // ========== 订单管理相关 ==========
 
@@ -152,6 +200,13 @@ public interface AdminService {
      */
     PageResult<AdminOrderVO> getOrders(Long companyId, Long userId, Integer status, String startDate, String endDate, Integer page, Integer size);
 
+    /**
+     * 导出订单列表，按下单日期过滤
+     *
+     * @param format csv或xlsx，为空时为csv
+     */
+    ExportFile exportOrders(Long companyId, Long userId, Integer status, String startDate, String endDate, String format);
+
     /**
      * 获取订单详情（管理员）
      */
@@ -177,6 +232,23 @@ public interface AdminService {
      */
     AdminOrderVO cancelOrder(Long orderId, String reason);
 
+    /**
+     * 批量发货
+     *
+     * @param orderIds 逗号分隔的订单ID
+     */
+    TransitionResult batchShipOrders(String orderIds);
+
+    /**
+     * 批量确认完成订单
+     */
+    TransitionResult batchCompleteOrders(String orderIds);
+
+    /**
+     * 批量取消订单
+     */
+    TransitionResult batchCancelOrders(String orderIds, String reason);
+
     /**
      * 获取订单统计
      */
@@ -189,6 +261,13 @@ public interface AdminService {
      */
     PageResult<AdminUserVO> getUsers(String keyword, Integer status, Integer page, Integer size);
 
+    /**
+     * 导出用户列表，按注册日期过滤
+     *
+     * @param format csv或xlsx，为空时为csv
+     */
+    ExportFile exportUsers(String keyword, Integer status, String startDate, String endDate, String format);
+
     /**
      * 获取用户详情
      */
@@ -220,4 +299,12 @@ public interface AdminService {
      * 获取套餐统计
      */
     AdminPackageStatisticsVO getPackageStatistics();
+
+    /**
+     * 按条件切片销售数据（已支付未取消的订单明细）
+     *
+     * @param groupBy 分组维度：NONE、DAY、COMPANY、CITY、PACKAGE
+     */
+    List<SalesBreakdownVO> getSalesReport(String startDate, String endDate, Long companyId, Long cityId,
+                                          Long packageId, String groupBy);
 }
\ No newline at end of file
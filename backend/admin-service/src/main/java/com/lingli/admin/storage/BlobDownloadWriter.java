@@ -0,0 +1,188 @@
+package com.lingli.admin.storage;
+
+import com.lingli.common.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * 把存储中的文件写入HTTP响应
+ * 强ETag取内容哈希，支持 If-None-Match 返回304、单段 Range/If-Range 断点续传；
+ * 容器支持sendfile时（Tomcat NIO）交给容器直接从文件发送到socket，否则用 FileChannel.transferTo 写出，都不经过堆内存
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Component
+public class BlobDownloadWriter {
+
+    // Tomcat sendfile 请求属性
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String BYTES_PREFIX = "bytes=";
+
+    /**
+     * 无法满足的Range
+     */
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    @Autowired
+    private BlobStore blobStore;
+
+    public void write(HttpServletRequest request, HttpServletResponse response, String hash, String fileName)
+            throws IOException {
+        StoredBlob blob = blobStore.stat(hash);
+        if (blob == null) {
+            throw new BusinessException(50013, "报告文件不存在");
+        }
+        long size = blob.getSize();
+        String etag = "\"" + hash + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // 内容按哈希寻址不会变化，客户端可放心缓存
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=86400");
+
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range 与当前内容不一致时忽略Range，返回整个文件
+        if (range != null && (ifRange == null || ifRange.trim().equals(etag))) {
+            long[] parsed = parseRange(range, size);
+            if (parsed == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (parsed != null) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentType(contentTypeOf(fileName));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(fileName, StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        response.setContentLengthLong(length);
+        if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+            return;
+        }
+
+        Path file = blobStore.locate(hash);
+        if (file != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 容器在响应结束后用sendfile发送，结束位置不含
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = blobStore.open(hash)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 解析单段Range
+     *
+     * @return {start, end}（含）；多段或格式不对时返回null，按整个文件响应；超出文件长度时返回 UNSATISFIABLE
+     */
+    private long[] parseRange(String header, long size) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, BYTES_PREFIX, 0, BYTES_PREFIX.length()) || value.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = value.substring(BYTES_PREFIX.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // 后缀范围：最后N个字节
+                long suffix = Long.parseLong(last);
+                return suffix > 0 ? new long[]{Math.max(0, size - suffix), size - 1} : UNSATISFIABLE;
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size) {
+                return UNSATISFIABLE;
+            }
+            return start <= end ? new long[]{start, end} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * If-None-Match 是否命中，按弱比较忽略 W/ 前缀
+     */
+    private boolean matchesAny(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String contentTypeOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String type = dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        switch (type) {
+            case "pdf":
+                return "application/pdf";
+            case "doc":
+                return "application/msword";
+            case "docx":
+                return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+            default:
+                return "application/octet-stream";
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.lingli.admin.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * 按内容寻址的文件存储：文件以内容SHA-256为键，内容相同的文件只存一份
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public interface BlobStore {
+
+    Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    /**
+     * 暂存目录，文件写完后通过 {@link #put} 入库；与数据文件在同一文件系统，入库时可原子移动
+     */
+    Path stagingDir();
+
+    /**
+     * 把暂存文件按内容哈希入库：已有相同内容时删除暂存文件，否则移动到位
+     *
+     * @param sha256 调用方计算好的暂存文件内容哈希
+     */
+    StoredBlob put(Path stagedFile, String sha256) throws IOException;
+
+    /**
+     * 查询文件，不存在时返回null
+     */
+    StoredBlob stat(String sha256) throws IOException;
+
+    /**
+     * 只读打开文件
+     */
+    FileChannel open(String sha256) throws IOException;
+
+    /**
+     * 文件在本地磁盘上的路径，供容器直接发送文件；文件不在本地磁盘时返回null
+     */
+    Path locate(String sha256);
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.lingli.admin.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 本地磁盘文件存储
+ * 数据文件位于 objects/{哈希前两位}/{哈希}，暂存文件位于 staging/，两者在同一目录下以便原子移动
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class LocalBlobStore implements BlobStore {
+
+    @Value("${admin.storage.blob-dir:data/blobs}")
+    private String blobDir;
+
+    private Path objectDir;
+
+    private Path stagingDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path root = Paths.get(blobDir);
+        objectDir = Files.createDirectories(root.resolve("objects"));
+        stagingDir = Files.createDirectories(root.resolve("staging"));
+        log.info("本地文件存储目录: {}", root.toAbsolutePath());
+    }
+
+    @Override
+    public Path stagingDir() {
+        return stagingDir;
+    }
+
+    @Override
+    public StoredBlob put(Path stagedFile, String sha256) throws IOException {
+        Path target = objectPath(sha256);
+        if (Files.exists(target)) {
+            // 内容已存在，丢弃暂存文件
+            Files.deleteIfExists(stagedFile);
+            log.info("文件内容已存在，去重: hash={}", sha256);
+            return new StoredBlob(sha256, Files.size(target));
+        }
+        Files.createDirectories(target.getParent());
+        // 并发写入相同内容时后到者覆盖，内容一致不影响读取
+        Files.move(stagedFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new StoredBlob(sha256, Files.size(target));
+    }
+
+    @Override
+    public StoredBlob stat(String sha256) throws IOException {
+        Path file = objectPath(sha256);
+        return Files.exists(file) ? new StoredBlob(sha256, Files.size(file)) : null;
+    }
+
+    @Override
+    public FileChannel open(String sha256) throws IOException {
+        return FileChannel.open(objectPath(sha256), StandardOpenOption.READ);
+    }
+
+    @Override
+    public Path locate(String sha256) {
+        return objectPath(sha256).toAbsolutePath();
+    }
+
+    // ========== 私有方法 ==========
+
+    private Path objectPath(String sha256) {
+        if (sha256 == null || !HASH_PATTERN.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("文件哈希无效: " + sha256);
+        }
+        return objectDir.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,392 @@
+package com.lingli.admin.storage;
+
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.IdUtil;
+import com.lingli.common.exception.BusinessException;
+import com.lingli.common.utils.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * 检测报告文件接收
+ * 大文件按分片上传：每个分片边读边计算SHA-256并按偏移写入暂存文件，校验通过才记为已接收；
+ * 任务元数据持久化在暂存目录，断点续传时按已接收分片补传。全部分片到齐后计算整个文件的哈希并按内容入库，
+ * 内容已存在时入库去重。声明的哈希只用于校验，不能代替文件内容，否则知道哈希即可引用他人的文件。小文件可一次性流式入库
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class ReportUploadManager {
+
+    private static final List<String> ALLOWED_TYPES = Arrays.asList("pdf", "doc", "docx");
+
+    private static final Pattern UPLOAD_ID_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    private static final String PART_SUFFIX = ".part";
+    private static final String SESSION_SUFFIX = ".json";
+
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${admin.storage.chunk-size:5242880}")
+    private int defaultChunkSize;
+
+    @Value("${admin.storage.max-file-size:209715200}")
+    private long maxFileSize;
+
+    @Value("${admin.storage.upload-expire-hours:24}")
+    private long uploadExpireHours;
+
+    /**
+     * 任务元数据的读写锁对象，分片数据写入不加锁
+     */
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * 创建分片上传任务，即使声明的哈希已入库也需上传全部分片
+     */
+    public UploadSession create(String fileName, long fileSize, String sha256, Integer chunkSize) {
+        String fileType = fileTypeOf(fileName);
+        if (fileSize <= 0 || fileSize > maxFileSize) {
+            throw new BusinessException(50005, "报告文件大小超出限制");
+        }
+        String hash = normalizeHash(sha256);
+        int size = chunkSize != null ? chunkSize : defaultChunkSize;
+        size = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
+
+        UploadSession session = new UploadSession();
+        session.setUploadId(IdUtil.fastSimpleUUID());
+        session.setFileName(fileName);
+        session.setFileType(fileType);
+        session.setFileSize(fileSize);
+        session.setChunkSize(size);
+        session.setChunkCount((int) ((fileSize + size - 1) / size));
+        session.setSha256(hash);
+        session.setCreatedAt(LocalDateTime.now());
+        try {
+            save(session);
+        } catch (IOException e) {
+            throw uploadFailed(e);
+        }
+        return session;
+    }
+
+    /**
+     * 查询上传任务，用于断点续传
+     */
+    public UploadSession get(String uploadId) {
+        return load(uploadId);
+    }
+
+    /**
+     * 接收一个分片：流式写入暂存文件对应偏移，长度和SHA-256都与声明一致才记为已接收
+     */
+    public UploadSession writeChunk(String uploadId, int index, String checksum, InputStream body) {
+        UploadSession session = load(uploadId);
+        if (session.getBlobHash() != null) {
+            return session;
+        }
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new BusinessException(50007, "分片序号超出范围");
+        }
+        String expected = normalizeHash(checksum);
+        if (expected == null) {
+            throw new BusinessException(50008, "分片校验和不能为空");
+        }
+
+        long offset = (long) index * session.getChunkSize();
+        long length = Math.min(session.getChunkSize(), session.getFileSize() - offset);
+        MessageDigest digest = sha256();
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(partFile(uploadId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                if (written + read > length) {
+                    throw new BusinessException(50008, "分片长度与声明不符");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer source = ByteBuffer.wrap(buffer, 0, read);
+                while (source.hasRemaining()) {
+                    written += channel.write(source, offset + written);
+                }
+            }
+        } catch (IOException e) {
+            throw uploadFailed(e);
+        }
+        if (written != length) {
+            throw new BusinessException(50008, "分片长度与声明不符");
+        }
+        if (!HexUtil.encodeHexStr(digest.digest()).equals(expected)) {
+            throw new BusinessException(50008, "分片校验失败");
+        }
+
+        synchronized (lockOf(uploadId)) {
+            UploadSession current = load(uploadId);
+            current.getReceivedChunks().add(index);
+            try {
+                save(current);
+            } catch (IOException e) {
+                throw uploadFailed(e);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 完成上传：校验分片齐全和整个文件的哈希后按内容入库，重复调用返回同一文件
+     */
+    public StoredBlob complete(String uploadId) {
+        synchronized (lockOf(uploadId)) {
+            UploadSession session = load(uploadId);
+            try {
+                if (session.getBlobHash() != null) {
+                    StoredBlob blob = blobStore.stat(session.getBlobHash());
+                    if (blob == null) {
+                        throw new BusinessException(50006, "上传任务不存在或已过期");
+                    }
+                    return blob;
+                }
+                if (session.getReceivedChunks().size() < session.getChunkCount()) {
+                    throw new BusinessException(50009, "分片未全部上传");
+                }
+
+                Path part = partFile(uploadId);
+                String hash = hashOf(part);
+                if (session.getSha256() != null && !session.getSha256().equals(hash)) {
+                    // 分片都已校验但整体不符，说明声明的哈希有误，任务作废
+                    discard(uploadId);
+                    throw new BusinessException(50010, "文件校验失败");
+                }
+                StoredBlob blob = blobStore.put(part, hash);
+                session.setBlobHash(hash);
+                save(session);
+                log.info("报告文件上传完成: uploadId={}, hash={}, size={}", uploadId, hash, blob.getSize());
+                return blob;
+            } catch (IOException e) {
+                throw uploadFailed(e);
+            }
+        }
+    }
+
+    /**
+     * 一次性流式接收整个文件并入库
+     */
+    public StoredBlob ingest(String fileName, InputStream content) {
+        fileTypeOf(fileName);
+        Path staged = partFile(IdUtil.fastSimpleUUID());
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(staged, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                size += read;
+                if (size > maxFileSize) {
+                    throw new BusinessException(50005, "报告文件大小超出限制");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer source = ByteBuffer.wrap(buffer, 0, read);
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+            }
+        } catch (IOException e) {
+            deleteQuietly(staged);
+            throw uploadFailed(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(staged);
+            throw e;
+        }
+        if (size == 0) {
+            deleteQuietly(staged);
+            throw new BusinessException(50005, "报告文件不能为空");
+        }
+
+        try {
+            return blobStore.put(staged, HexUtil.encodeHexStr(digest.digest()));
+        } catch (IOException e) {
+            deleteQuietly(staged);
+            throw uploadFailed(e);
+        }
+    }
+
+    /**
+     * 删除上传任务和暂存文件，已入库的文件不受影响
+     */
+    public void discard(String uploadId) {
+        if (uploadId == null || !UPLOAD_ID_PATTERN.matcher(uploadId).matches()) {
+            return;
+        }
+        synchronized (lockOf(uploadId)) {
+            deleteQuietly(sessionFile(uploadId));
+            deleteQuietly(partFile(uploadId));
+        }
+        locks.remove(uploadId);
+    }
+
+    /**
+     * 按文件名取文件类型，不支持的类型抛出异常
+     */
+    public String fileTypeOf(String fileName) {
+        int dot = fileName != null ? fileName.lastIndexOf('.') : -1;
+        String type = dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        if (!ALLOWED_TYPES.contains(type)) {
+            throw new BusinessException(50004, "不支持的报告文件类型");
+        }
+        return type;
+    }
+
+    /**
+     * 定时清理过期的上传任务，以及中断的一次性上传留下的暂存文件
+     */
+    @Scheduled(fixedDelayString = "${admin.storage.cleanup-interval-ms:3600000}")
+    public void cleanupExpired() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusHours(uploadExpireHours);
+        long expireBeforeMillis = System.currentTimeMillis() - uploadExpireHours * 3600_000L;
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(blobStore.stagingDir())) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SESSION_SUFFIX)) {
+                    String uploadId = name.substring(0, name.length() - SESSION_SUFFIX.length());
+                    UploadSession session = JsonUtils.fromJson(
+                            new String(Files.readAllBytes(file), StandardCharsets.UTF_8), UploadSession.class);
+                    if (session == null || session.getUpdatedAt() == null || session.getUpdatedAt().isBefore(expireBefore)) {
+                        discard(uploadId);
+                        removed++;
+                    }
+                } else {
+                    // 没有任务元数据的暂存文件：中断的一次性上传或写入中断的临时文件
+                    int dot = name.indexOf('.');
+                    String uploadId = dot >= 0 ? name.substring(0, dot) : name;
+                    if (!Files.exists(sessionFile(uploadId))
+                            && Files.getLastModifiedTime(file).toMillis() < expireBeforeMillis) {
+                        deleteQuietly(file);
+                        removed++;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("清理过期上传任务失败: {}", e.getMessage());
+        }
+        if (removed > 0) {
+            log.info("清理过期上传任务: count={}", removed);
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    private UploadSession load(String uploadId) {
+        if (uploadId == null || !UPLOAD_ID_PATTERN.matcher(uploadId).matches()) {
+            throw new BusinessException(50006, "上传任务不存在或已过期");
+        }
+        Path file = sessionFile(uploadId);
+        try {
+            UploadSession session = Files.exists(file) ? JsonUtils.fromJson(
+                    new String(Files.readAllBytes(file), StandardCharsets.UTF_8), UploadSession.class) : null;
+            if (session == null) {
+                throw new BusinessException(50006, "上传任务不存在或已过期");
+            }
+            return session;
+        } catch (IOException e) {
+            throw uploadFailed(e);
+        }
+    }
+
+    private void save(UploadSession session) throws IOException {
+        session.setUpdatedAt(LocalDateTime.now());
+        Path file = sessionFile(session.getUploadId());
+        Path temp = blobStore.stagingDir().resolve(session.getUploadId() + SESSION_SUFFIX + ".tmp");
+        Files.write(temp, JsonUtils.toJson(session).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path sessionFile(String uploadId) {
+        return blobStore.stagingDir().resolve(uploadId + SESSION_SUFFIX);
+    }
+
+    private Path partFile(String uploadId) {
+        return blobStore.stagingDir().resolve(uploadId + PART_SUFFIX);
+    }
+
+    private Object lockOf(String uploadId) {
+        return locks.computeIfAbsent(uploadId, id -> new Object());
+    }
+
+    private String hashOf(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexUtil.encodeHexStr(digest.digest());
+    }
+
+    private String normalizeHash(String hash) {
+        if (hash == null || hash.trim().isEmpty()) {
+            return null;
+        }
+        String normalized = hash.trim().toLowerCase(Locale.ROOT);
+        if (!BlobStore.HASH_PATTERN.matcher(normalized).matches()) {
+            throw new BusinessException(50010, "文件校验和格式错误");
+        }
+        return normalized;
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BusinessException uploadFailed(IOException e) {
+        log.error("报告文件写入失败", e);
+        return new BusinessException(50011, "报告文件上传失败");
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除暂存文件失败: file={}, error={}", file, e.getMessage());
+        }
+    }
+}
\ No newline at end of file
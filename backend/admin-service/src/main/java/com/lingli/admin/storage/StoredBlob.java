@@ -0,0 +1,30 @@
+package com.lingli.admin.storage;
+
+/**
+ * 已入库的文件内容
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public final class StoredBlob {
+
+    /**
+     * 内容SHA-256（小写十六进制），即存储键
+     */
+    private final String hash;
+
+    private final long size;
+
+    public StoredBlob(String hash, long size) {
+        this.hash = hash;
+        this.size = size;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
\ No newline at end of file
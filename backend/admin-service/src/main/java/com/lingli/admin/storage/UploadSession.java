@@ -0,0 +1,50 @@
+package com.lingli.admin.storage;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.TreeSet;
+
+/**
+ * 分片上传任务，持久化在上传目录中，服务重启后可续传
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class UploadSession {
+
+    private String uploadId;
+
+    private String fileName;
+
+    /**
+     * 文件类型（扩展名）：pdf、doc、docx
+     */
+    private String fileType;
+
+    private Long fileSize;
+
+    private Integer chunkSize;
+
+    private Integer chunkCount;
+
+    /**
+     * 客户端声明的整个文件SHA-256，可为空
+     */
+    private String sha256;
+
+    /**
+     * 已校验通过的分片序号
+     */
+    private TreeSet<Integer> receivedChunks = new TreeSet<>();
+
+    /**
+     * 入库后的文件哈希，非空表示文件已完整入库
+     */
+    private String blobHash;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
\ No newline at end of file
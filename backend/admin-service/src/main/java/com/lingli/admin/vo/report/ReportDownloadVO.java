@@ -0,0 +1,40 @@
+package com.lingli.admin.vo.report;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 报告文件下载地址VO
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class ReportDownloadVO {
+
+    /**
+     * 签名下载地址，支持Range断点续传，过期后需重新获取
+     */
+    private String url;
+
+    /**
+     * 文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小(字节)
+     */
+    private Long fileSize;
+
+    /**
+     * 文件ETag，续传时可作为 If-Range 使用
+     */
+    private String etag;
+
+    /**
+     * 下载地址过期时间
+     */
+    private LocalDateTime expiresAt;
+}
\ No newline at end of file
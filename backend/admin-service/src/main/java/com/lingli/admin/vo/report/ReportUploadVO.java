@@ -0,0 +1,50 @@
+package com.lingli.admin.vo.report;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 报告文件分片上传任务VO
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class ReportUploadVO {
+
+    /**
+     * 上传任务ID
+     */
+    private String uploadId;
+
+    /**
+     * 文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小(字节)
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小(字节)，最后一个分片可能较小
+     */
+    private Integer chunkSize;
+
+    /**
+     * 分片数量
+     */
+    private Integer chunkCount;
+
+    /**
+     * 已接收的分片序号（从0开始），续传时只需上传其余分片
+     */
+    private List<Integer> receivedChunks;
+
+    /**
+     * 文件是否已完整入库
+     */
+    private Boolean completed;
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.lingli.admin.vo.statistics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 按维度（公司、城市、套餐）汇总的销售VO
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SalesBreakdownVO {
+
+    /**
+     * 维度值：公司ID、城市名称（或城市ID）、套餐ID
+     */
+    private String key;
+
+    /**
+     * 显示名称（套餐名称等）
+     */
+    private String name;
+
+    /**
+     * 下单数（套餐维度为份数）
+     */
+    private Long orderCount;
+
+    private BigDecimal orderAmount;
+
+    /**
+     * 支付数（套餐维度为份数）
+     */
+    private Long paidCount;
+
+    private BigDecimal paidAmount;
+
+    /**
+     * 取消数（套餐维度为份数）
+     */
+    private Long cancelledCount;
+
+    private BigDecimal cancelledAmount;
+
+    /**
+     * 份数
+     */
+    private Long quantity;
+
+    /**
+     * 公司分成金额
+     */
+    private BigDecimal companyAmount;
+
+    /**
+     * 平台分成金额
+     */
+    private BigDecimal platformAmount;
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.lingli.admin.vo.statistics;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 销售走势VO，一个时间桶一条
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class SalesTrendVO {
+
+    /**
+     * 时间桶起点
+     */
+    private LocalDateTime time;
+
+    private Long orderCount;
+
+    private Long paidCount;
+
+    private BigDecimal paidAmount;
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.lingli.admin.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 销售事实列存段测试：写入后读取的汇总、分组、字典过滤与原始事实一致，跨解码块和不同列宽的数据不丢失
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class SalesSegmentTest {
+
+    private static final LocalDate DAY = LocalDate.of(2023, 11, 28);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void totalsMatchFacts() throws IOException {
+        SalesSegment segment = writeAndOpen(sampleFacts());
+
+        SalesSlice total = single(segment.scan(new SalesQuery()));
+
+        assertThat(segment.getRowCount()).isEqualTo(4);
+        assertThat(total.getKey()).isZero();
+        assertThat(total.getOrderCount()).isEqualTo(3);
+        assertThat(total.getQuantity()).isEqualTo(5);
+        assertThat(total.getAmount()).isEqualTo(125050);
+        assertThat(total.getCompanyAmount()).isEqualTo(6000);
+        assertThat(total.getPlatformAmount()).isEqualTo(4000);
+    }
+
+    @Test
+    void groupByCompanyCountsOrders() throws IOException {
+        SalesSegment segment = writeAndOpen(sampleFacts());
+
+        Map<Long, SalesSlice> slices = segment.scan(query(null, SalesGroupBy.COMPANY));
+
+        assertThat(slices).containsOnlyKeys(0L, 10L, 20L);
+        assertThat(slices.get(10L).getOrderCount()).isEqualTo(1);
+        assertThat(slices.get(10L).getAmount()).isEqualTo(15050);
+        assertThat(slices.get(0L).getAmount()).isEqualTo(100000);
+    }
+
+    @Test
+    void packageFilterCountsItems() throws IOException {
+        SalesSegment segment = writeAndOpen(sampleFacts());
+
+        SalesSlice slice = single(segment.scan(query(1L, SalesGroupBy.NONE)));
+
+        assertThat(slice.getOrderCount()).isEqualTo(2);
+        assertThat(slice.getAmount()).isEqualTo(20000);
+    }
+
+    @Test
+    void filterValueMissingFromDictionarySkipsSegment() throws IOException {
+        SalesSegment segment = writeAndOpen(sampleFacts());
+        SalesQuery query = new SalesQuery();
+        query.setCompanyId(99L);
+
+        assertThat(segment.scan(query)).isEmpty();
+    }
+
+    @Test
+    void groupByDayUsesEpochDay() throws IOException {
+        SalesSegment segment = writeAndOpen(sampleFacts());
+
+        assertThat(segment.scan(query(null, SalesGroupBy.DAY))).containsOnlyKeys(DAY.toEpochDay());
+    }
+
+    @Test
+    void scanSpansMultipleBlocks() throws IOException {
+        List<SalesFact> facts = new ArrayList<>();
+        for (long orderId = 1; orderId <= 10000; orderId++) {
+            facts.add(fact(orderId, orderId % 50, orderId % 7, orderId % 3 + 1, 1, "1.00", null));
+        }
+        SalesSegment segment = writeAndOpen(facts);
+
+        assertThat(single(segment.scan(new SalesQuery())).getOrderCount()).isEqualTo(10000);
+        assertThat(single(segment.scan(query(2L, SalesGroupBy.NONE))).getOrderCount()).isEqualTo(3334);
+        Map<Long, SalesSlice> byCity = segment.scan(query(null, SalesGroupBy.CITY));
+        assertThat(byCity).hasSize(7);
+        assertThat(byCity.values().stream().mapToLong(SalesSlice::getAmount).sum()).isEqualTo(1000000);
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 三个订单：订单1两条明细，订单3公司、城市为空且金额超过两字节
+     */
+    private static List<SalesFact> sampleFacts() {
+        return Arrays.asList(
+                fact(2L, 20L, 200L, 1L, 1, "100.00", null),
+                fact(1L, 10L, 100L, 1L, 1, "100.00", "60.00"),
+                fact(1L, 10L, 100L, 2L, 2, "50.50", null),
+                fact(3L, null, null, 3L, 1, "1000.00", null));
+    }
+
+    private static SalesFact fact(Long orderId, Long companyId, Long cityId, Long packageId, int quantity,
+                                  String amount, String companyAmount) {
+        SalesFact fact = new SalesFact();
+        fact.setOrderId(orderId);
+        fact.setCompanyId(companyId);
+        fact.setCityId(cityId);
+        fact.setPackageId(packageId);
+        fact.setQuantity(quantity);
+        fact.setAmount(new BigDecimal(amount));
+        if (companyAmount != null) {
+            fact.setCompanyAmount(new BigDecimal(companyAmount));
+            fact.setPlatformAmount(new BigDecimal(amount).subtract(new BigDecimal(companyAmount)));
+        }
+        return fact;
+    }
+
+    private static SalesQuery query(Long packageId, SalesGroupBy groupBy) {
+        SalesQuery query = new SalesQuery();
+        query.setPackageId(packageId);
+        query.setGroupBy(groupBy);
+        return query;
+    }
+
+    private SalesSegment writeAndOpen(List<SalesFact> facts) throws IOException {
+        Path file = directory.resolve("sales-" + DAY + ".seg");
+        SalesSegment.write(file, facts);
+        return SalesSegment.open(DAY, file);
+    }
+
+    private static SalesSlice single(Map<Long, SalesSlice> slices) {
+        assertThat(slices).hasSize(1);
+        return slices.values().iterator().next();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.lingli.admin.config;
+
+import com.lingli.product.inventory.PackageInventory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.ScheduledAnnotationBeanPostProcessor;
+import org.springframework.scheduling.config.ScheduledTask;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 管理后台定时任务配置测试：只注册允许的包中的任务
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class AdminSchedulingConfigTest {
+
+    private final ScheduledAnnotationBeanPostProcessor processor =
+            AdminSchedulingConfig.scheduledAnnotationProcessor(new MockEnvironment());
+
+    @AfterEach
+    void tearDown() {
+        processor.destroy();
+    }
+
+    @Test
+    void adminJobsAreRegistered() {
+        processor.postProcessAfterInitialization(new AdminJob(), "adminJob");
+
+        assertThat(processor.getScheduledTasks()).extracting(ScheduledTask::toString)
+                .containsExactly(AdminJob.class.getName() + ".run");
+    }
+
+    @Test
+    void serviceJobsAreSkipped() {
+        processor.postProcessAfterInitialization(new PackageInventory(), "packageInventory");
+
+        assertThat(processor.getScheduledTasks()).isEmpty();
+    }
+
+    @Test
+    void packagesCanBeConfigured() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("admin.scheduling.packages", "com.lingli.product.inventory");
+        AdminSchedulingConfig.PackageScheduledAnnotationBeanPostProcessor configured =
+                (AdminSchedulingConfig.PackageScheduledAnnotationBeanPostProcessor)
+                        AdminSchedulingConfig.scheduledAnnotationProcessor(environment);
+
+        assertThat(configured.isAllowed(PackageInventory.class.getName())).isTrue();
+        assertThat(configured.isAllowed(AdminJob.class.getName())).isFalse();
+        assertThat(configured.isAllowed("com.lingli.product.inventoryx.Job")).isFalse();
+    }
+
+    static class AdminJob {
+
+        @Scheduled(fixedDelay = 60000)
+        public void run() {
+        }
+    }
+}
\ No newline at end of file
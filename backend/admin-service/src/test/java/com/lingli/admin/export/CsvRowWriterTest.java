@@ -0,0 +1,81 @@
+package com.lingli.admin.export;
+
+import com.lingli.common.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * CSV写出测试：BOM、转义、公式字符前缀和导出格式解析
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class CsvRowWriterTest {
+
+    @Test
+    void startsWithBomAndSeparatesRowsWithCrlf() throws IOException {
+        String csv = write(Arrays.asList("订单号", "金额"), Arrays.asList("A001", new BigDecimal("99.50")));
+
+        assertThat(csv).isEqualTo("\uFEFF订单号,金额\r\nA001,99.50\r\n");
+    }
+
+    @Test
+    void quotesValuesContainingSeparatorsQuotesOrLineBreaks() throws IOException {
+        String csv = write(Arrays.asList("a,b", "say \"hi\"", "line1\nline2", "plain"));
+
+        assertThat(csv).isEqualTo("\uFEFF\"a,b\",\"say \"\"hi\"\"\",\"line1\nline2\",plain\r\n");
+    }
+
+    @Test
+    void prefixesFormulaLikeText() throws IOException {
+        String csv = write(Arrays.asList("=SUM(A1:A2)", "+1", "-1", "@cmd", "a=b"));
+
+        assertThat(csv).isEqualTo("\uFEFF'=SUM(A1:A2),'+1,'-1,'@cmd,a=b\r\n");
+    }
+
+    @Test
+    void prefixedFormulaIsStillQuotedWhenNeeded() throws IOException {
+        String csv = write(Arrays.asList("=HYPERLINK(\"x\",\"y\")"));
+
+        assertThat(csv).isEqualTo("\uFEFF\"'=HYPERLINK(\"\"x\"\",\"\"y\"\")\"\r\n");
+    }
+
+    @Test
+    void numbersAreNotPrefixedAndNullsAreEmpty() throws IOException {
+        String csv = write(Arrays.asList(-5, null, LocalDateTime.of(2023, 11, 28, 9, 5, 0)));
+
+        assertThat(csv).isEqualTo("\uFEFF-5,,2023-11-28 09:05:00\r\n");
+    }
+
+    @Test
+    void resolvesFormatByExtension() {
+        assertThat(ExportFormat.of(null)).isEqualTo(ExportFormat.CSV);
+        assertThat(ExportFormat.of(" ")).isEqualTo(ExportFormat.CSV);
+        assertThat(ExportFormat.of("XLSX")).isEqualTo(ExportFormat.XLSX);
+        assertThatThrownBy(() -> ExportFormat.of("pdf"))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(50003);
+    }
+
+    // ========== 私有方法 ==========
+
+    private static String write(List<?>... rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RowWriter writer = new CsvRowWriter(out)) {
+            for (List<?> row : rows) {
+                writer.writeRow(row);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+package com.lingli.admin.storage;
+
+import cn.hutool.core.util.HexUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 报告文件下载测试：Range解析、206/416/304响应
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class BlobDownloadWriterTest {
+
+    private static final long SIZE = 1000;
+
+    @TempDir
+    Path blobDir;
+
+    private LocalBlobStore blobStore;
+
+    private BlobDownloadWriter downloadWriter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new LocalBlobStore();
+        ReflectionTestUtils.setField(blobStore, "blobDir", blobDir.toString());
+        blobStore.init();
+
+        downloadWriter = new BlobDownloadWriter();
+        ReflectionTestUtils.setField(downloadWriter, "blobStore", blobStore);
+    }
+
+    @Test
+    void parsesSingleRanges() {
+        assertThat(parseRange("bytes=0-99")).containsExactly(0, 99);
+        assertThat(parseRange("bytes=900-")).containsExactly(900, 999);
+        assertThat(parseRange(" bytes=10-20 ")).containsExactly(10, 20);
+        // 结束位置超出文件长度时截断
+        assertThat(parseRange("bytes=500-5000")).containsExactly(500, 999);
+    }
+
+    @Test
+    void parsesSuffixRanges() {
+        assertThat(parseRange("bytes=-100")).containsExactly(900, 999);
+        assertThat(parseRange("bytes=-2000")).containsExactly(0, 999);
+    }
+
+    @Test
+    void rangesBeyondFileAreUnsatisfiable() {
+        Object unsatisfiable = ReflectionTestUtils.getField(BlobDownloadWriter.class, "UNSATISFIABLE");
+
+        assertThat(parseRange("bytes=1000-")).isSameAs(unsatisfiable);
+        assertThat(parseRange("bytes=1000-1100")).isSameAs(unsatisfiable);
+        assertThat(parseRange("bytes=-0")).isSameAs(unsatisfiable);
+    }
+
+    @Test
+    void unsupportedRangesFallBackToWholeFile() {
+        assertThat(parseRange("bytes=0-1,5-6")).isNull();
+        assertThat(parseRange("items=0-1")).isNull();
+        assertThat(parseRange("bytes=100")).isNull();
+        assertThat(parseRange("bytes=a-b")).isNull();
+        assertThat(parseRange("bytes=20-10")).isNull();
+    }
+
+    @Test
+    void writesPartialContent() throws IOException {
+        byte[] content = store("0123456789");
+        String hash = hashOf(content);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        downloadWriter.write(request, response, hash, "report.pdf");
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 2, 6));
+        assertThat(response.getContentType()).isEqualTo("application/pdf");
+    }
+
+    @Test
+    void staleIfRangeReturnsWholeFile() throws IOException {
+        byte[] content = store("0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        downloadWriter.write(request, response, hashOf(content), "report.pdf");
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() throws IOException {
+        byte[] content = store("0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        downloadWriter.write(request, response, hashOf(content), "report.pdf");
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void matchingEtagReturns304() throws IOException {
+        byte[] content = store("0123456789");
+        String hash = hashOf(content);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"" + hash + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        downloadWriter.write(request, response, hash, "report.pdf");
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    // ========== 私有方法 ==========
+
+    private long[] parseRange(String header) {
+        return ReflectionTestUtils.invokeMethod(downloadWriter, "parseRange", header, SIZE);
+    }
+
+    private byte[] store(String text) throws IOException {
+        byte[] content = text.getBytes(StandardCharsets.UTF_8);
+        Path staged = Files.write(blobStore.stagingDir().resolve("test.part"), content);
+        blobStore.put(staged, hashOf(content));
+        return content;
+    }
+
+    private static String hashOf(byte[] content) {
+        try {
+            return HexUtil.encodeHexStr(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
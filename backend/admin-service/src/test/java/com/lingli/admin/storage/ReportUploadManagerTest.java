@@ -0,0 +1,148 @@
+package com.lingli.admin.storage;
+
+import cn.hutool.core.util.HexUtil;
+import com.lingli.common.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 报告分片上传测试：分片校验、整体入库去重，以及声明已存在的哈希不能跳过上传
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class ReportUploadManagerTest {
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    @TempDir
+    Path blobDir;
+
+    private LocalBlobStore blobStore;
+
+    private ReportUploadManager uploadManager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new LocalBlobStore();
+        ReflectionTestUtils.setField(blobStore, "blobDir", blobDir.toString());
+        blobStore.init();
+
+        uploadManager = new ReportUploadManager();
+        ReflectionTestUtils.setField(uploadManager, "blobStore", blobStore);
+        ReflectionTestUtils.setField(uploadManager, "defaultChunkSize", CHUNK_SIZE);
+        ReflectionTestUtils.setField(uploadManager, "maxFileSize", 10L * 1024 * 1024);
+        ReflectionTestUtils.setField(uploadManager, "uploadExpireHours", 24L);
+    }
+
+    @Test
+    void chunkedUploadIsStoredByContentHash() throws IOException {
+        byte[] content = randomBytes(CHUNK_SIZE + 1000);
+
+        StoredBlob blob = upload(content);
+
+        assertThat(blob.getHash()).isEqualTo(sha256(content));
+        assertThat(blob.getSize()).isEqualTo(content.length);
+        try (FileChannel channel = blobStore.open(blob.getHash())) {
+            assertThat(channel.size()).isEqualTo(content.length);
+        }
+    }
+
+    @Test
+    void knownHashStillRequiresContent() throws IOException {
+        byte[] content = randomBytes(1000);
+        upload(content);
+
+        // 只知道哈希和大小不能直接引用已入库的文件
+        UploadSession session = uploadManager.create("report.pdf", content.length, sha256(content), null);
+
+        assertThat(session.getBlobHash()).isNull();
+        assertThat(uploadManager.get(session.getUploadId()).getReceivedChunks()).isEmpty();
+        assertThatThrownBy(() -> uploadManager.complete(session.getUploadId()))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(50009);
+    }
+
+    @Test
+    void identicalContentIsDeduplicated() throws IOException {
+        byte[] content = randomBytes(1000);
+
+        StoredBlob first = upload(content);
+        StoredBlob second = upload(content);
+
+        assertThat(second.getHash()).isEqualTo(first.getHash());
+        try (Stream<Path> staged = Files.list(blobStore.stagingDir())) {
+            assertThat(staged.filter(file -> file.toString().endsWith(".part"))).isEmpty();
+        }
+    }
+
+    @Test
+    void chunkWithWrongChecksumIsRejected() {
+        byte[] content = randomBytes(1000);
+        UploadSession session = uploadManager.create("report.pdf", content.length, null, null);
+
+        assertThatThrownBy(() -> uploadManager.writeChunk(session.getUploadId(), 0, sha256(new byte[]{1}),
+                new ByteArrayInputStream(content)))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(50008);
+        assertThat(uploadManager.get(session.getUploadId()).getReceivedChunks()).isEmpty();
+    }
+
+    @Test
+    void declaredHashMismatchDiscardsUpload() {
+        byte[] content = randomBytes(1000);
+        UploadSession session = uploadManager.create("report.pdf", content.length, sha256(new byte[]{1}), null);
+        uploadManager.writeChunk(session.getUploadId(), 0, sha256(content), new ByteArrayInputStream(content));
+
+        assertThatThrownBy(() -> uploadManager.complete(session.getUploadId()))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(50010);
+        assertThatThrownBy(() -> uploadManager.get(session.getUploadId()))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(50006);
+    }
+
+    // ========== 私有方法 ==========
+
+    private StoredBlob upload(byte[] content) {
+        UploadSession session = uploadManager.create("report.pdf", content.length, sha256(content), null);
+        for (int index = 0; index < session.getChunkCount(); index++) {
+            int from = index * session.getChunkSize();
+            byte[] chunk = Arrays.copyOfRange(content, from, Math.min(content.length, from + session.getChunkSize()));
+            uploadManager.writeChunk(session.getUploadId(), index, sha256(chunk), new ByteArrayInputStream(chunk));
+        }
+        StoredBlob blob = uploadManager.complete(session.getUploadId());
+        uploadManager.discard(session.getUploadId());
+        return blob;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexUtil.encodeHexStr(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
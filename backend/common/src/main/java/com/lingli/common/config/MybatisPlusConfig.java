@@ -20,6 +20,11 @@ import java.time.LocalDateTime;
 @Configuration
 public class MybatisPlusConfig {
 
+    /**
+     * 自动填充的创建人、更新人；自定义SQL不经过自动填充，需显式写入
+     */
+    public static final String SYSTEM_OPERATOR = "system";
+
     /**
      * 分页插件
      */
@@ -40,14 +45,14 @@ public class MybatisPlusConfig {
         public void insertFill(MetaObject metaObject) {
             this.strictInsertFill(metaObject, "createdAt", LocalDateTime.class, LocalDateTime.now());
             this.strictInsertFill(metaObject, "updatedAt", LocalDateTime.class, LocalDateTime.now());
-            this.strictInsertFill(metaObject, "createdBy", String.class, "system");
-            this.strictInsertFill(metaObject, "updatedBy", String.class, "system");
+            this.strictInsertFill(metaObject, "createdBy", String.class, SYSTEM_OPERATOR);
+            this.strictInsertFill(metaObject, "updatedBy", String.class, SYSTEM_OPERATOR);
         }
 
         @Override
         public void updateFill(MetaObject metaObject) {
             this.strictUpdateFill(metaObject, "updatedAt", LocalDateTime.class, LocalDateTime.now());
-            this.strictUpdateFill(metaObject, "updatedBy", String.class, "system");
+            this.strictUpdateFill(metaObject, "updatedBy", String.class, SYSTEM_OPERATOR);
         }
     }
 }
\ No newline at end of file
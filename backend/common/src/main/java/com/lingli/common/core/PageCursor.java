@@ -0,0 +1,69 @@
+package com.lingli.common.core;
+
+import com.lingli.common.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 游标分页位置
+ * 记录上一页最后一条记录的（排序键, ID），下一页从该位置之后继续查询，避免LIMIT offset的深分页扫描。
+ * 对外以不透明字符串传递，客户端原样回传即可
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public final class PageCursor {
+
+    private static final String VERSION = "v1";
+
+    /**
+     * 排序键（时间类字段使用毫秒时间戳）
+     */
+    private final long sortKey;
+
+    /**
+     * 记录ID，排序键相同时用于定位
+     */
+    private final long id;
+
+    public PageCursor(long sortKey, long id) {
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    public long getSortKey() {
+        return sortKey;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 编码为不透明字符串
+     */
+    public String encode() {
+        String raw = VERSION + ":" + sortKey + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，为空返回null（表示第一页）
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new BusinessException(400, "分页游标无效");
+            }
+            return new PageCursor(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(400, "分页游标无效");
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.lingli.common.core;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.List;
 
 /**
  * 分页结果
+ * 支持两种模式：页码模式（total/current/pages，适用于管理后台）；
+ * 游标模式（nextCursor/hasMore，不统计总数，适用于移动端列表下拉加载）
  *
  * @author lingli
  * @since 2023-11-28
@@ -39,6 +42,18 @@ public class PageResult<T> {
      */
     private Long pages;
 
+    /**
+     * 下一页游标（游标模式），没有更多数据时为空
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据（游标模式）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasMore;
+
     public PageResult() {
     }
 
@@ -70,4 +85,20 @@ public class PageResult<T> {
         long pages = (total + size - 1) / size;
         return new PageResult<>(records, total, size, current, pages);
     }
+
+    /**
+     * 构建游标分页结果
+     *
+     * @param records    当前页记录
+     * @param nextCursor 下一页游标，没有更多数据时传null
+     * @param size       每页数量
+     */
+    public static <T> PageResult<T> ofCursor(List<T> records, PageCursor nextCursor, Long size) {
+        PageResult<T> result = new PageResult<>();
+        result.setRecords(records);
+        result.setSize(size);
+        result.setNextCursor(nextCursor != null ? nextCursor.encode() : null);
+        result.setHasMore(nextCursor != null);
+        return result;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.lingli.common.enums;
 
+import com.baomidou.mybatisplus.annotation.EnumValue;
+
 /**
  * 性别枚举
  *
@@ -12,6 +14,10 @@ public enum Gender {
     MALE(1, "男"),
     FEMALE(2, "女");
     
+    /**
+     * 数据库存储值
+     */
+    @EnumValue
     private final Integer code;
     private final String description;
     
@@ -1,5 +1,7 @@
 package com.lingli.common.enums;
 
+import com.baomidou.mybatisplus.annotation.EnumValue;
+
 /**
  * 订单状态枚举
  *
@@ -15,6 +17,10 @@ public enum OrderStatus {
     COMPLETED(5, "已完成"),
     CANCELLED(6, "已取消");
     
+    /**
+     * 数据库存储值
+     */
+    @EnumValue
     private final Integer code;
     private final String description;
     
@@ -1,5 +1,7 @@
 package com.lingli.common.enums;
 
+import com.baomidou.mybatisplus.annotation.EnumValue;
+
 /**
  * 支付状态枚举
  *
@@ -13,6 +15,10 @@ public enum PayStatus {
     PAID(3, "已支付"),
     PAYMENT_FAILED(4, "支付失败");
     
+    /**
+     * 数据库存储值
+     */
+    @EnumValue
     private final Integer code;
     private final String description;
     
@@ -0,0 +1,49 @@
+package com.lingli.common.enums;
+
+import com.baomidou.mybatisplus.annotation.EnumValue;
+
+/**
+ * 采样状态枚举
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public enum SamplingStatus {
+    
+    PENDING(1, "待采样"),
+    APPOINTED(2, "已预约"),
+    COLLECTED(3, "已采样"),
+    SUBMITTED(4, "已送检");
+    
+    /**
+     * 数据库存储值
+     */
+    @EnumValue
+    private final Integer code;
+    private final String description;
+    
+    SamplingStatus(Integer code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+    
+    public Integer getCode() {
+        return code;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    /**
+     * 根据code获取枚举
+     */
+    public static SamplingStatus getByCode(Integer code) {
+        for (SamplingStatus status : SamplingStatus.values()) {
+            if (status.getCode().equals(code)) {
+                return status;
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
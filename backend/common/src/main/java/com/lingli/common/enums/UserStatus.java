@@ -1,5 +1,7 @@
 package com.lingli.common.enums;
 
+import com.baomidou.mybatisplus.annotation.EnumValue;
+
 /**
  * 用户状态枚举
  *
@@ -11,6 +13,10 @@ public enum UserStatus {
     DISABLED(0, "禁用"),
     ENABLED(1, "启用");
     
+    /**
+     * 数据库存储值
+     */
+    @EnumValue
     private final Integer code;
     private final String description;
     
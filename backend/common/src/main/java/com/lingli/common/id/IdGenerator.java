@@ -0,0 +1,324 @@
+package com.lingli.common.id;
+
+import com.lingli.common.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 业务编号生成器
+ * 编号格式：前缀 + yyyyMMddHHmmss + 4位机器号 + 7位秒内序号，如 ORD2023112810302100120000001。
+ * 机器号从Redis租约获取并定时续期，同一时刻各节点机器号互不相同；秒内序号由本地CAS递增，
+ * 不加锁、不访问Redis。秒内序号用尽时借用下一秒，时钟回拨时沿用已发出的最大秒，编号不会重复。
+ * 未能获取机器号或租约失效时，降级为Redis号段分配（前缀 + 时间 + 12位全局序号）
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class IdGenerator {
+
+    /**
+     * 机器号位数，最多1024个节点
+     */
+    private static final int WORKER_BITS = 10;
+    private static final int MAX_WORKERS = 1 << WORKER_BITS;
+
+    /**
+     * 秒内序号位数，单节点每秒最多1048576个编号
+     */
+    private static final int SEQUENCE_BITS = 20;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final int WORKER_DIGITS = 4;
+    private static final int SEQUENCE_DIGITS = 7;
+    private static final int SEGMENT_DIGITS = 12;
+
+    // Redis键前缀
+    private static final String WORKER_LEASE_KEY = "id:worker:";
+    private static final String WORKER_SECONDS_KEY = "id:worker:seconds";
+    private static final String SEGMENT_KEY = "id:segment:";
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneId.systemDefault());
+
+    /**
+     * 续期租约并记录已发出的最大秒，租约已被他人持有时返回0
+     * KEYS[1] 租约键，KEYS[2] 最大秒哈希；ARGV[1] 持有者，ARGV[2] 租约秒数，ARGV[3] 机器号，ARGV[4] 最大秒
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+            "redis.call('HSET', KEYS[2], ARGV[3], ARGV[4])\n" +
+            "return 1",
+            Long.class);
+
+    /**
+     * 释放租约并记录已发出的最大秒
+     * KEYS[1] 租约键，KEYS[2] 最大秒哈希；ARGV[1] 持有者，ARGV[2] 机器号，ARGV[3] 最大秒
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end\n" +
+            "redis.call('HSET', KEYS[2], ARGV[2], ARGV[3])\n" +
+            "return redis.call('DEL', KEYS[1])",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 机器号租约时长（秒），每1/3时长续期一次
+     */
+    @Value("${lingli.id.worker-lease-seconds:60}")
+    private long leaseSeconds;
+
+    /**
+     * 降级时每次从Redis申请的号段长度
+     */
+    @Value("${lingli.id.segment-step:1000}")
+    private long segmentStep;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    /**
+     * 高位为秒，低位为秒内序号；序号溢出时自然进位到下一秒
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+
+    private volatile int workerId = -1;
+
+    /**
+     * 租约在本地的有效截止时间，提前1/3租约时长视为失效，留出时钟误差余量
+     */
+    private volatile long leaseDeadline;
+
+    private volatile CachedTimestamp cachedTimestamp;
+
+    private ScheduledExecutorService leaseExecutor;
+
+    @PostConstruct
+    public void init() {
+        acquireLease();
+        leaseExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "id-worker-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, leaseSeconds / 3);
+        leaseExecutor.scheduleWithFixedDelay(this::renewLease, period, period, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (leaseExecutor != null) {
+            leaseExecutor.shutdownNow();
+        }
+        int current = workerId;
+        if (current < 0) {
+            return;
+        }
+        workerId = -1;
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT,
+                    Arrays.asList(WORKER_LEASE_KEY + current, WORKER_SECONDS_KEY),
+                    owner, String.valueOf(current), String.valueOf(state.get() >>> SEQUENCE_BITS));
+        } catch (Exception e) {
+            log.warn("释放机器号租约失败: workerId={}, error={}", current, e.getMessage());
+        }
+    }
+
+    /**
+     * 生成业务编号
+     *
+     * @param prefix 业务前缀，如 ORD
+     */
+    public String nextNo(String prefix) {
+        int worker = workerId;
+        if (worker >= 0 && System.currentTimeMillis() < leaseDeadline) {
+            long next = nextState();
+            StringBuilder builder = new StringBuilder(prefix.length() + 14 + WORKER_DIGITS + SEQUENCE_DIGITS);
+            builder.append(prefix).append(formatSecond(next >>> SEQUENCE_BITS));
+            appendPadded(builder, worker, WORKER_DIGITS);
+            appendPadded(builder, next & SEQUENCE_MASK, SEQUENCE_DIGITS);
+            return builder.toString();
+        }
+        return nextFromSegment(prefix);
+    }
+
+    // ========== 私有方法 ==========
+
+    private long nextState() {
+        long now = System.currentTimeMillis() / 1000;
+        while (true) {
+            long previous = state.get();
+            long next = (previous >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : previous + 1;
+            if (state.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 号段降级：本地按号段发号，号段用完后向Redis申请下一段
+     */
+    private String nextFromSegment(String prefix) {
+        long value;
+        while (true) {
+            Segment segment = segments.get(prefix);
+            if (segment != null) {
+                value = segment.cursor.getAndIncrement();
+                if (value < segment.end) {
+                    break;
+                }
+            }
+            synchronized (segments) {
+                if (segments.get(prefix) == segment) {
+                    segments.put(prefix, allocateSegment(prefix));
+                }
+            }
+        }
+
+        StringBuilder builder = new StringBuilder(prefix.length() + 14 + SEGMENT_DIGITS);
+        builder.append(prefix).append(formatSecond(System.currentTimeMillis() / 1000));
+        appendPadded(builder, value, SEGMENT_DIGITS);
+        return builder.toString();
+    }
+
+    private Segment allocateSegment(String prefix) {
+        Long max;
+        try {
+            max = stringRedisTemplate.opsForValue().increment(SEGMENT_KEY + prefix, segmentStep);
+        } catch (Exception e) {
+            log.error("申请编号号段失败: prefix={}, error={}", prefix, e.getMessage());
+            throw new BusinessException(500, "编号生成失败，请稍后重试");
+        }
+        if (max == null) {
+            throw new BusinessException(500, "编号生成失败，请稍后重试");
+        }
+        log.info("申请编号号段: prefix={}, end={}", prefix, max);
+        return new Segment(max - segmentStep + 1, max + 1);
+    }
+
+    /**
+     * 从随机位置开始逐个尝试占用机器号
+     */
+    private void acquireLease() {
+        int start = ThreadLocalRandom.current().nextInt(MAX_WORKERS);
+        try {
+            for (int i = 0; i < MAX_WORKERS; i++) {
+                int candidate = (start + i) % MAX_WORKERS;
+                long acquiredAt = System.currentTimeMillis();
+                Boolean acquired = stringRedisTemplate.opsForValue()
+                        .setIfAbsent(WORKER_LEASE_KEY + candidate, owner, leaseSeconds, TimeUnit.SECONDS);
+                if (Boolean.TRUE.equals(acquired)) {
+                    advancePastPreviousHolder(candidate);
+                    leaseDeadline = acquiredAt + TimeUnit.SECONDS.toMillis(leaseSeconds) * 2 / 3;
+                    workerId = candidate;
+                    log.info("获取机器号租约: workerId={}", candidate);
+                    return;
+                }
+            }
+            log.warn("机器号已全部占用，编号生成降级为号段分配");
+        } catch (Exception e) {
+            log.warn("获取机器号租约失败，编号生成降级为号段分配: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从上一持有者已发出的最大秒之后开始，避免其借用的未来秒与本节点重复
+     */
+    private void advancePastPreviousHolder(int candidate) {
+        Object lastSecond = stringRedisTemplate.opsForHash().get(WORKER_SECONDS_KEY, String.valueOf(candidate));
+        if (lastSecond != null) {
+            long floor = (Long.parseLong(lastSecond.toString()) + 1) << SEQUENCE_BITS;
+            state.accumulateAndGet(floor, Math::max);
+        }
+    }
+
+    private void renewLease() {
+        int current = workerId;
+        if (current < 0) {
+            acquireLease();
+            return;
+        }
+
+        try {
+            long renewedAt = System.currentTimeMillis();
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT,
+                    Arrays.asList(WORKER_LEASE_KEY + current, WORKER_SECONDS_KEY),
+                    owner, String.valueOf(leaseSeconds), String.valueOf(current),
+                    String.valueOf(state.get() >>> SEQUENCE_BITS));
+            if (renewed != null && renewed == 1L) {
+                leaseDeadline = renewedAt + TimeUnit.SECONDS.toMillis(leaseSeconds) * 2 / 3;
+                return;
+            }
+            log.warn("机器号租约已丢失，重新获取: workerId={}", current);
+            workerId = -1;
+            acquireLease();
+        } catch (Exception e) {
+            // 续期失败时沿用当前租约直到本地截止时间，之后降级为号段分配
+            log.warn("续期机器号租约失败: workerId={}, error={}", current, e.getMessage());
+        }
+    }
+
+    private String formatSecond(long second) {
+        CachedTimestamp cached = cachedTimestamp;
+        if (cached != null && cached.second == second) {
+            return cached.text;
+        }
+        String text = TIMESTAMP_FORMATTER.format(Instant.ofEpochSecond(second));
+        cachedTimestamp = new CachedTimestamp(second, text);
+        return text;
+    }
+
+    private static void appendPadded(StringBuilder builder, long value, int width) {
+        String digits = Long.toString(value);
+        for (int i = digits.length(); i < width; i++) {
+            builder.append('0');
+        }
+        builder.append(digits);
+    }
+
+    private static class Segment {
+
+        private final AtomicLong cursor;
+        private final long end;
+
+        Segment(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private static class CachedTimestamp {
+
+        private final long second;
+        private final String text;
+
+        CachedTimestamp(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+}
\ No newline at end of file
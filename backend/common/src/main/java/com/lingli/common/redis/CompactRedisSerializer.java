@@ -0,0 +1,177 @@
+package com.lingli.common.redis;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑的Redis值序列化器
+ * 使用Smile二进制格式（开启字段名和字符串值回引，类型名、字段名在同一个值内只写一次），
+ * 超过阈值的值再做LZ4压缩。写入格式：
+ * <pre>
+ * 魔数(0xFE 0xCA) | 版本(1字节) | 标志(1字节) | [原始长度(4字节，仅压缩时)] | Smile数据
+ * </pre>
+ * 读取时没有魔数的值按旧版JSON解析，滚动发布期间新旧节点可以读取彼此写入的数据
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    // 头部
+    private static final byte MAGIC_0 = (byte) 0xFE;
+    private static final byte MAGIC_1 = (byte) 0xCA;
+    private static final byte VERSION = 1;
+    private static final byte FLAG_LZ4 = 0x01;
+    private static final int HEADER_LENGTH = 4;
+    private static final int LENGTH_FIELD = 4;
+
+    private static final byte[] EMPTY_ARRAY = new byte[0];
+
+    private final ObjectMapper smileMapper;
+
+    private final ObjectMapper jsonMapper;
+
+    /**
+     * 是否写入紧凑格式；为false时写入旧版JSON（仍可读取两种格式），用于灰度切换和回滚
+     */
+    private final boolean writeCompact;
+
+    /**
+     * 超过该字节数时压缩，小于等于0表示不压缩
+     */
+    private final int compressionThreshold;
+
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    public CompactRedisSerializer(boolean writeCompact, int compressionThreshold) {
+        SmileFactory smileFactory = new SmileFactory();
+        smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        this.smileMapper = createObjectMapper(smileFactory);
+        this.jsonMapper = createObjectMapper(new JsonFactory());
+        this.writeCompact = writeCompact;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY_ARRAY;
+        }
+        try {
+            if (!writeCompact) {
+                return jsonMapper.writeValueAsBytes(value);
+            }
+
+            byte[] body = smileMapper.writeValueAsBytes(value);
+            if (compressionThreshold > 0 && body.length > compressionThreshold) {
+                byte[] compressed = compress(body);
+                if (compressed != null) {
+                    return compressed;
+                }
+            }
+
+            byte[] bytes = new byte[HEADER_LENGTH + body.length];
+            writeHeader(bytes, (byte) 0);
+            System.arraycopy(body, 0, bytes, HEADER_LENGTH, body.length);
+            return bytes;
+        } catch (Exception e) {
+            throw new SerializationException("Redis值序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (!hasHeader(bytes)) {
+                // 旧版JSON
+                return jsonMapper.readValue(bytes, Object.class);
+            }
+
+            if (bytes[2] != VERSION) {
+                throw new SerializationException("不支持的Redis值格式版本: " + bytes[2]);
+            }
+            if ((bytes[3] & FLAG_LZ4) != 0) {
+                int originalLength = readInt(bytes, HEADER_LENGTH);
+                byte[] body = decompressor.decompress(bytes, HEADER_LENGTH + LENGTH_FIELD, originalLength);
+                return smileMapper.readValue(body, Object.class);
+            }
+            return smileMapper.readValue(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, Object.class);
+        } catch (SerializationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SerializationException("Redis值反序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 压缩后没有变小时返回null
+     */
+    private byte[] compress(byte[] body) {
+        int maxLength = compressor.maxCompressedLength(body.length);
+        byte[] bytes = new byte[HEADER_LENGTH + LENGTH_FIELD + maxLength];
+        int compressedLength = compressor.compress(body, 0, body.length, bytes, HEADER_LENGTH + LENGTH_FIELD, maxLength);
+        if (compressedLength + LENGTH_FIELD >= body.length) {
+            return null;
+        }
+        writeHeader(bytes, FLAG_LZ4);
+        writeInt(bytes, HEADER_LENGTH, body.length);
+        return Arrays.copyOf(bytes, HEADER_LENGTH + LENGTH_FIELD + compressedLength);
+    }
+
+    private static boolean hasHeader(byte[] bytes) {
+        // 0xFE不是合法的UTF-8字节，JSON文本不会以它开头
+        return bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    private static void writeHeader(byte[] bytes, byte flags) {
+        bytes[0] = MAGIC_0;
+        bytes[1] = MAGIC_1;
+        bytes[2] = VERSION;
+        bytes[3] = flags;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24)
+                | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8)
+                | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * 与旧版配置保持一致：字段可见性ALL + NON_FINAL默认类型，保证新旧格式表达同样的对象
+     */
+    private static ObjectMapper createObjectMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        mapper.registerModule(new JavaTimeModule());
+        return mapper;
+    }
+}
@@ -0,0 +1,47 @@
+package com.lingli.common.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public class TransactionUtils {
+
+    /**
+     * 在当前事务提交后执行；没有活动事务时立即执行
+     * 常用于缓存失效、索引更新、消息广播等需要读到已提交数据的操作
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 在当前事务回滚后执行；没有活动事务时不执行
+     * 常用于撤销事务外已完成的预占等补偿操作
+     */
+    public static void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.lingli.common.id;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成基准：原 generateOrderNo（时间字符串正则替换 + UUID）与 IdGenerator 在1线程、8线程下的吞吐量
+ * 不随单元测试执行，需要时运行 main 方法（test classpath）
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private static final String PREFIX = "ORD";
+
+    private IdGenerator idGenerator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        idGenerator = IdGeneratorFixture.leased();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        idGenerator.destroy();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String legacySingleThread() {
+        return legacyOrderNo();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String legacyEightThreads() {
+        return legacyOrderNo();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String idGeneratorSingleThread() {
+        return idGenerator.nextNo(PREFIX);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String idGeneratorEightThreads() {
+        return idGenerator.nextNo(PREFIX);
+    }
+
+    /**
+     * 原 OrderServiceImpl.generateOrderNo 的实现
+     */
+    private static String legacyOrderNo() {
+        String timestamp = LocalDateTime.now().toString().replaceAll("[-:]", "").substring(0, 14);
+        String random = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+        return PREFIX + timestamp + random;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IdGeneratorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
\ No newline at end of file
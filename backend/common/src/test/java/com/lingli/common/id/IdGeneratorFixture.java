@@ -0,0 +1,77 @@
+package com.lingli.common.id;
+
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 构造使用模拟Redis的编号生成器
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+final class IdGeneratorFixture {
+
+    static final long SEGMENT_STEP = 1000;
+
+    private IdGeneratorFixture() {
+    }
+
+    /**
+     * 已获取机器号租约的生成器
+     */
+    static IdGenerator leased() {
+        return create(true, null);
+    }
+
+    /**
+     * 接手机器号的生成器，上一持有者已发号到 lastSecond
+     */
+    static IdGenerator leasedAfter(long lastSecond) {
+        return create(true, lastSecond);
+    }
+
+    /**
+     * 机器号全部被占用、降级为号段分配的生成器
+     */
+    static IdGenerator segmentOnly() {
+        return create(false, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IdGenerator create(boolean leaseAvailable, Long previousHolderSecond) {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        lenient().when(valueOperations.setIfAbsent(anyString(), anyString(), anyLong(), eq(TimeUnit.SECONDS)))
+                .thenReturn(leaseAvailable);
+        if (previousHolderSecond != null) {
+            lenient().when(hashOperations.get(eq("id:worker:seconds"), anyString()))
+                    .thenReturn(String.valueOf(previousHolderSecond));
+        }
+
+        // 号段计数器：INCRBY 返回累加后的值
+        AtomicLong counter = new AtomicLong();
+        lenient().when(valueOperations.increment(anyString(), eq(SEGMENT_STEP)))
+                .thenAnswer(invocation -> counter.addAndGet(SEGMENT_STEP));
+
+        IdGenerator idGenerator = new IdGenerator();
+        ReflectionTestUtils.setField(idGenerator, "stringRedisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(idGenerator, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(idGenerator, "segmentStep", SEGMENT_STEP);
+        idGenerator.init();
+        return idGenerator;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.lingli.common.id;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 业务编号生成器测试
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class IdGeneratorTest {
+
+    private static final String PREFIX = "ORD";
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 250_000;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private IdGenerator idGenerator;
+
+    @AfterEach
+    void tearDown() {
+        if (idGenerator != null) {
+            idGenerator.destroy();
+        }
+    }
+
+    @Test
+    void numberFormat() {
+        idGenerator = IdGeneratorFixture.leased();
+
+        String orderNo = idGenerator.nextNo(PREFIX);
+
+        assertThat(orderNo).hasSize(PREFIX.length() + 14 + 4 + 7).startsWith(PREFIX).matches("ORD\\d{25}");
+        assertThat(orderNo.length()).isLessThanOrEqualTo(32);
+    }
+
+    @Test
+    void millionsOfConcurrentNumbersAreUniqueAndIncreasingPerThread() throws Exception {
+        idGenerator = IdGeneratorFixture.leased();
+
+        long[] keys = generateConcurrently(IdGeneratorTest::workerKey);
+
+        assertUnique(keys);
+    }
+
+    @Test
+    void sequenceOverflowBorrowsNextSecond() {
+        idGenerator = IdGeneratorFixture.leased();
+        long now = System.currentTimeMillis() / 1000;
+        AtomicLong state = (AtomicLong) ReflectionTestUtils.getField(idGenerator, "state");
+        // 当前秒的序号已用到最后一个
+        state.set((now << 20) | ((1L << 20) - 1));
+
+        String borrowed = idGenerator.nextNo(PREFIX);
+
+        assertThat(epochSecond(borrowed.substring(3, 17))).isEqualTo(now + 1);
+        assertThat(borrowed).endsWith("0000000");
+    }
+
+    @Test
+    void clockRollbackKeepsIssuingAfterHighestSecond() {
+        idGenerator = IdGeneratorFixture.leased();
+        long future = System.currentTimeMillis() / 1000 + 3600;
+        AtomicLong state = (AtomicLong) ReflectionTestUtils.getField(idGenerator, "state");
+        // 模拟此前已按更晚的时钟发号
+        state.set(future << 20);
+
+        String orderNo = idGenerator.nextNo(PREFIX);
+
+        assertThat(epochSecond(orderNo.substring(3, 17))).isEqualTo(future);
+        assertThat(orderNo).endsWith("0000001");
+    }
+
+    @Test
+    void newLeaseHolderStartsAfterPreviousHolder() {
+        long previousHolderSecond = System.currentTimeMillis() / 1000 + 3600;
+        // 上一持有者借用了未来的秒，本节点从其后一秒开始发号
+        idGenerator = IdGeneratorFixture.leasedAfter(previousHolderSecond);
+
+        String orderNo = idGenerator.nextNo(PREFIX);
+
+        assertThat(epochSecond(orderNo.substring(3, 17))).isEqualTo(previousHolderSecond + 1);
+    }
+
+    @Test
+    void segmentFallbackNumbersAreUniqueAndLonger() throws Exception {
+        idGenerator = IdGeneratorFixture.segmentOnly();
+
+        assertThat(idGenerator.nextNo(PREFIX)).matches("ORD\\d{26}");
+
+        long[] keys = generateConcurrently((orderNo, secondCache) -> Long.parseLong(orderNo.substring(17)));
+
+        assertUnique(keys);
+    }
+
+    // ========== 私有方法 ==========
+
+    private interface KeyFunction {
+        long apply(String orderNo, Map<String, Long> secondCache);
+    }
+
+    /**
+     * 多线程发号，返回全部编号的数值键；同时校验每个线程内编号递增
+     */
+    private long[] generateConcurrently(KeyFunction keyFunction) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] keys = new long[PER_THREAD];
+                    Map<String, Long> secondCache = new HashMap<>();
+                    start.await();
+                    String previous = null;
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        String orderNo = idGenerator.nextNo(PREFIX);
+                        if (previous != null && orderNo.compareTo(previous) <= 0) {
+                            throw new AssertionError("编号未递增: " + previous + " -> " + orderNo);
+                        }
+                        keys[i] = keyFunction.apply(orderNo, secondCache);
+                        previous = orderNo;
+                    }
+                    return keys;
+                }));
+            }
+            start.countDown();
+
+            long[] all = new long[THREADS * PER_THREAD];
+            for (int t = 0; t < THREADS; t++) {
+                System.arraycopy(futures.get(t).get(2, TimeUnit.MINUTES), 0, all, t * PER_THREAD, PER_THREAD);
+            }
+            return all;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertUnique(long[] keys) {
+        Arrays.sort(keys);
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i] == keys[i - 1]) {
+                throw new AssertionError("重复编号，键=" + keys[i]);
+            }
+        }
+    }
+
+    /**
+     * 机器号固定，编号由 (秒, 秒内序号) 唯一确定
+     */
+    private static long workerKey(String orderNo, Map<String, Long> secondCache) {
+        long second = secondCache.computeIfAbsent(orderNo.substring(3, 17), IdGeneratorTest::epochSecond);
+        return (second << 20) | Long.parseLong(orderNo.substring(21));
+    }
+
+    private static long epochSecond(String timestamp) {
+        return LocalDateTime.parse(timestamp, TIMESTAMP).atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
\ No newline at end of file
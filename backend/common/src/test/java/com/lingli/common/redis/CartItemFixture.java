@@ -0,0 +1,80 @@
+package com.lingli.common.redis;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 序列化测试数据：与购物车缓存值结构相近的对象
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public class CartItemFixture {
+
+    private Long packageId;
+
+    private String packageName;
+
+    private BigDecimal price;
+
+    private Integer quantity;
+
+    private List<String> testItems;
+
+    private LocalDateTime addedAt;
+
+    public CartItemFixture() {
+    }
+
+    public CartItemFixture(Long packageId, String packageName, BigDecimal price, Integer quantity,
+                           List<String> testItems, LocalDateTime addedAt) {
+        this.packageId = packageId;
+        this.packageName = packageName;
+        this.price = price;
+        this.quantity = quantity;
+        this.testItems = testItems;
+        this.addedAt = addedAt;
+    }
+
+    /**
+     * 生成一个包含count件商品的购物车
+     */
+    public static ArrayList<CartItemFixture> cart(int count) {
+        ArrayList<CartItemFixture> items = new ArrayList<>(count);
+        LocalDateTime addedAt = LocalDateTime.of(2023, 11, 28, 10, 30);
+        for (int i = 0; i < count; i++) {
+            List<String> testItems = new ArrayList<>();
+            testItems.add("血常规");
+            testItems.add("尿常规");
+            testItems.add("肝功能");
+            items.add(new CartItemFixture(10000L + i, "基础体检套餐" + i, new BigDecimal("199.00"), 1 + i % 3,
+                    testItems, addedAt.plusMinutes(i)));
+        }
+        return items;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CartItemFixture)) {
+            return false;
+        }
+        CartItemFixture that = (CartItemFixture) o;
+        return Objects.equals(packageId, that.packageId)
+                && Objects.equals(packageName, that.packageName)
+                && Objects.equals(price, that.price)
+                && Objects.equals(quantity, that.quantity)
+                && Objects.equals(testItems, that.testItems)
+                && Objects.equals(addedAt, that.addedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(packageId, packageName, price, quantity, testItems, addedAt);
+    }
+}
\ No newline at end of file
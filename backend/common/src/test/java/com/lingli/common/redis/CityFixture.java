@@ -0,0 +1,78 @@
+package com.lingli.common.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 序列化测试数据：与城市列表缓存值（location-service CityVO）结构相同的对象
+ * common 不依赖 location-service，按字段复刻
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public class CityFixture {
+
+    private Long cityId;
+
+    private String cityName;
+
+    private String province;
+
+    private String cityCode;
+
+    private List<Company> companies;
+
+    private Integer distance;
+
+    private Boolean isUserCity;
+
+    private Boolean enabled;
+
+    /**
+     * 生成count个城市，每个城市两家公司
+     */
+    public static ArrayList<CityFixture> cities(int count) {
+        ArrayList<CityFixture> cities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CityFixture city = new CityFixture();
+            city.cityId = 100L + i;
+            city.cityName = "城市" + i;
+            city.province = "省份" + i % 30;
+            city.cityCode = String.valueOf(110000 + i * 100);
+            city.enabled = true;
+            city.companies = new ArrayList<>();
+            for (int j = 0; j < 2; j++) {
+                Company company = new Company();
+                company.companyId = city.cityId * 10 + j;
+                company.companyName = city.cityName + "体检中心" + j;
+                company.companyCode = city.cityCode + j;
+                company.contactPhone = "400-800-" + (1000 + j);
+                company.address = city.cityName + "人民路" + (j + 1) + "号";
+                company.isDefault = j == 0;
+                city.companies.add(company);
+            }
+            cities.add(city);
+        }
+        return cities;
+    }
+
+    /**
+     * 公司信息
+     */
+    public static class Company {
+
+        private Long companyId;
+
+        private String companyName;
+
+        private String companyCode;
+
+        private String contactPhone;
+
+        private String contactEmail;
+
+        private String address;
+
+        private Boolean isDefault;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.lingli.common.redis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis值序列化基准：旧版JSON与紧凑格式的写入/读取吞吐量，Setup阶段打印各格式的字节数
+ * 覆盖购物车商品列表与城市列表两类缓存值
+ * 不随单元测试执行，需要时运行 main 方法（test classpath）
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactRedisSerializerBenchmark {
+
+    /**
+     * cart-购物车商品列表，cities-城市列表
+     */
+    @Param({"cart", "cities"})
+    private String payload;
+
+    /**
+     * 列表元素个数
+     */
+    @Param({"1", "10", "100"})
+    private int items;
+
+    /**
+     * legacy-旧版JSON，compact-紧凑格式
+     */
+    @Param({"legacy", "compact"})
+    private String format;
+
+    private RedisSerializer<Object> serializer;
+
+    private ArrayList<?> value;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = "legacy".equals(format)
+                ? CompactRedisSerializerTest.legacySerializer() : new CompactRedisSerializer(true, 1024);
+        value = "cities".equals(payload) ? CityFixture.cities(items) : CartItemFixture.cart(items);
+        bytes = serializer.serialize(value);
+        System.out.println("\n[size] payload=" + payload + ", format=" + format + ", items=" + items
+                + ", bytes=" + bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompactRedisSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.lingli.common.redis;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 紧凑Redis值序列化器测试
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class CompactRedisSerializerTest {
+
+    private static final int THRESHOLD = 1024;
+
+    private final CompactRedisSerializer compact = new CompactRedisSerializer(true, THRESHOLD);
+
+    @Test
+    void readsValuesWrittenByLegacyJsonSerializer() {
+        ArrayList<CartItemFixture> cart = CartItemFixture.cart(3);
+        byte[] legacy = legacySerializer().serialize(cart);
+
+        assertThat(compact.deserialize(legacy)).isEqualTo(cart);
+    }
+
+    @Test
+    void jsonModeWritesBytesLegacyNodesCanRead() {
+        ArrayList<CartItemFixture> cart = CartItemFixture.cart(3);
+        byte[] bytes = new CompactRedisSerializer(false, THRESHOLD).serialize(cart);
+
+        assertThat(bytes[0]).isEqualTo((byte) '[');
+        assertThat(legacySerializer().deserialize(bytes)).isEqualTo(cart);
+        assertThat(compact.deserialize(bytes)).isEqualTo(cart);
+    }
+
+    @Test
+    void smallValueIsWrittenUncompressed() {
+        ArrayList<CartItemFixture> cart = CartItemFixture.cart(1);
+        byte[] bytes = compact.serialize(cart);
+
+        assertThat(bytes.length).isLessThanOrEqualTo(THRESHOLD + 4);
+        assertThat(bytes[0]).isEqualTo((byte) 0xFE);
+        assertThat(bytes[1]).isEqualTo((byte) 0xCA);
+        assertThat(bytes[3]).isEqualTo((byte) 0);
+        assertThat(compact.deserialize(bytes)).isEqualTo(cart);
+    }
+
+    @Test
+    void largeValueIsCompressedAndSmallerThanJson() {
+        ArrayList<CartItemFixture> cart = CartItemFixture.cart(50);
+        byte[] bytes = compact.serialize(cart);
+        byte[] legacy = legacySerializer().serialize(cart);
+
+        assertThat(bytes[3]).isEqualTo((byte) 1);
+        assertThat(bytes.length).isLessThan(legacy.length / 2);
+        assertThat(compact.deserialize(bytes)).isEqualTo(cart);
+    }
+
+    @Test
+    void nullAndEmptyValues() {
+        assertThat(compact.serialize(null)).isEmpty();
+        assertThat(compact.deserialize(null)).isNull();
+        assertThat(compact.deserialize(new byte[0])).isNull();
+    }
+
+    @Test
+    void unknownVersionIsRejected() {
+        byte[] bytes = compact.serialize(CartItemFixture.cart(1));
+        bytes[2] = 9;
+
+        assertThatThrownBy(() -> compact.deserialize(bytes)).isInstanceOf(SerializationException.class);
+    }
+
+    /**
+     * 旧版RedisConfig中的值序列化器（另注册了JavaTimeModule以便写出测试数据中的时间字段）
+     */
+    static Jackson2JsonRedisSerializer<Object> legacySerializer() {
+        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        mapper.registerModule(new JavaTimeModule());
+        serializer.setObjectMapper(mapper);
+        return serializer;
+    }
+}
\ No newline at end of file
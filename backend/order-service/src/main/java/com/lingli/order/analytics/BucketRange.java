@@ -0,0 +1,23 @@
+package com.lingli.order.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一段同粒度的时间桶：[from, to)
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+@AllArgsConstructor
+public class BucketRange {
+
+    private Integer granularity;
+
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.lingli.order.analytics;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 销售预聚合回填状态
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class RollupBackfillState {
+
+    /**
+     * 截止时间：此前下单的订单由回填计入，此后由发件箱累加
+     */
+    private LocalDateTime cutoff;
+
+    /**
+     * 回填完成时间，为空表示未回填
+     */
+    private LocalDateTime backfilledAt;
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.lingli.order.analytics;
+
+/**
+ * 销售预聚合维度
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public enum RollupDimension {
+
+    /**
+     * 全部订单，维度值为空串
+     */
+    ALL(0),
+    /**
+     * 公司，维度值为公司ID
+     */
+    COMPANY(1),
+    /**
+     * 城市，维度值为城市名称
+     */
+    CITY(2),
+    /**
+     * 套餐，维度值为套餐ID，数量为份数、金额为明细小计
+     */
+    PACKAGE(3);
+
+    private final Integer code;
+
+    RollupDimension(Integer code) {
+        this.code = code;
+    }
+
+    public Integer getCode() {
+        return code;
+    }
+}
\ No newline at end of file
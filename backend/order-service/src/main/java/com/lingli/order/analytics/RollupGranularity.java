@@ -0,0 +1,55 @@
+package com.lingli.order.analytics;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 销售预聚合时间粒度
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public enum RollupGranularity {
+
+    MINUTE(1),
+    HOUR(2),
+    DAY(3),
+    MONTH(4),
+    /**
+     * 累计：全部历史汇总在一个固定时间桶
+     */
+    TOTAL(5);
+
+    /**
+     * 累计桶的时间起点
+     */
+    public static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final Integer code;
+
+    RollupGranularity(Integer code) {
+        this.code = code;
+    }
+
+    public Integer getCode() {
+        return code;
+    }
+
+    /**
+     * 计算时间所在时间桶的起点
+     */
+    public LocalDateTime truncate(LocalDateTime time) {
+        switch (this) {
+            case MINUTE:
+                return time.truncatedTo(ChronoUnit.MINUTES);
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case DAY:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            case MONTH:
+                return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            default:
+                return EPOCH;
+        }
+    }
+}
\ No newline at end of file
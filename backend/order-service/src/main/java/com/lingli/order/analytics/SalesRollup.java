@@ -0,0 +1,49 @@
+package com.lingli.order.analytics;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 销售预聚合行
+ * 写入时为一个时间桶、维度值上的增量，查询时为合并后的汇总
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class SalesRollup {
+
+    /**
+     * 时间粒度，见 RollupGranularity
+     */
+    private Integer granularity;
+
+    /**
+     * 时间桶起点
+     */
+    private LocalDateTime bucketStart;
+
+    /**
+     * 维度，见 RollupDimension
+     */
+    private Integer dimension;
+
+    /**
+     * 维度值
+     */
+    private String dimensionKey;
+
+    private Long orderCount = 0L;
+
+    private BigDecimal orderAmount = BigDecimal.ZERO;
+
+    private Long paidCount = 0L;
+
+    private BigDecimal paidAmount = BigDecimal.ZERO;
+
+    private Long cancelledCount = 0L;
+
+    private BigDecimal cancelledAmount = BigDecimal.ZERO;
+}
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.lingli.order.analytics;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.order.mapper.OrderOutboxMapper;
+import com.lingli.order.mapper.SalesRollupMapper;
+import com.lingli.order.outbox.OrderCreatedEvent;
+import com.lingli.order.outbox.OrderStatusEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 销售预聚合历史回填
+ * 首次使用时记录截止时间：截止前下单的订单由回填计入下单数，之后的由发件箱累加；
+ * 支付、取消以发件箱事件区分，已有事件的由发件箱累加，没有事件的（旧版本产生）由回填计入，每个事实只计一次。
+ * 回填在一个事务内完成并标记，多个节点、多次执行只生效一次
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class SalesRollupBackfill {
+
+    /**
+     * 回填的粒度及时间桶起点格式，分钟桶、小时桶只保留近期数据，不回填
+     */
+    private static final Map<RollupGranularity, String> BUCKET_FORMATS = new EnumMap<>(RollupGranularity.class);
+
+    static {
+        BUCKET_FORMATS.put(RollupGranularity.DAY, "%Y-%m-%d 00:00:00");
+        BUCKET_FORMATS.put(RollupGranularity.MONTH, "%Y-%m-01 00:00:00");
+        BUCKET_FORMATS.put(RollupGranularity.TOTAL,
+                RollupGranularity.EPOCH.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+    }
+
+    @Autowired
+    private SalesRollupMapper salesRollupMapper;
+
+    @Autowired
+    private OrderOutboxMapper outboxMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 截止时间在独立事务内写入，不随调用方事务回滚
+     */
+    private TransactionTemplate initTemplate;
+
+    private volatile LocalDateTime cutoff;
+
+    private volatile boolean backfilled;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        initTemplate = new TransactionTemplate(transactionManager);
+        initTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 截止时间，不存在时初始化；各节点以最先写入的为准
+     */
+    public LocalDateTime getCutoff() {
+        LocalDateTime current = cutoff;
+        if (current == null) {
+            current = initTemplate.execute(status -> {
+                salesRollupMapper.initBackfill();
+                return salesRollupMapper.selectBackfill(false).getCutoff();
+            });
+            cutoff = current;
+        }
+        return current;
+    }
+
+    /**
+     * 定时检查并回填，完成后不再执行
+     */
+    @Scheduled(initialDelayString = "${order.rollup.backfill-delay-ms:60000}",
+            fixedDelayString = "${order.rollup.backfill-interval-ms:60000}")
+    public void backfill() {
+        if (backfilled) {
+            return;
+        }
+        try {
+            LocalDateTime until = getCutoff();
+            // 下单事件完成后才有订单明细，套餐维度依赖明细，等截止前的下单事件处理完再回填
+            int unfinished = outboxMapper.countUnfinished(OrderCreatedEvent.TYPE, until);
+            if (unfinished > 0) {
+                log.info("等待下单事件处理完成后回填销售预聚合: cutoff={}, unfinished={}", until, unfinished);
+                return;
+            }
+
+            Boolean executed = transactionTemplate.execute(status -> backfillOnce(until));
+            backfilled = true;
+            if (Boolean.TRUE.equals(executed)) {
+                log.info("销售预聚合回填完成: cutoff={}", until);
+            }
+        } catch (Exception e) {
+            log.warn("回填销售预聚合失败: {}", e.getMessage());
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 加锁读取回填状态，未回填时回填各粒度并标记完成
+     *
+     * @return 是否由本次执行回填
+     */
+    private boolean backfillOnce(LocalDateTime until) {
+        RollupBackfillState state = salesRollupMapper.selectBackfill(true);
+        if (state.getBackfilledAt() != null) {
+            return false;
+        }
+        BUCKET_FORMATS.forEach((granularity, bucketFormat) -> salesRollupMapper.backfill(
+                granularity.getCode(), bucketFormat, until, OrderStatus.CANCELLED.getCode(),
+                OrderStatusEvent.PAID_TYPE, OrderStatusEvent.CANCELLED_TYPE,
+                RollupDimension.ALL.getCode(), RollupDimension.COMPANY.getCode(),
+                RollupDimension.CITY.getCode(), RollupDimension.PACKAGE.getCode()));
+        salesRollupMapper.markBackfilled();
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,266 @@
+package com.lingli.order.analytics;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lingli.order.entity.Order;
+import com.lingli.order.entity.OrderItem;
+import com.lingli.order.mapper.OrderItemMapper;
+import com.lingli.order.mapper.OrderMapper;
+import com.lingli.order.mapper.SalesRollupMapper;
+import com.lingli.order.outbox.OrderCreatedEvent;
+import com.lingli.order.outbox.OrderStatusEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 销售预聚合存储
+ * 发件箱的下单、支付、取消事件在标记完成的同一事务内累加到分钟、小时、天、月、累计时间桶，
+ * 维度为全部、公司、城市、套餐，事件只生效一次，聚合与事件不会不一致。
+ * 统计查询合并预聚合时间桶：日期范围内完整的月份读月桶，首尾零散日期读天桶，读取行数与订单量无关
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class SalesRollupStore {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private static final String ALL_KEY = "";
+
+    @Autowired
+    private SalesRollupMapper salesRollupMapper;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private SalesRollupBackfill salesRollupBackfill;
+
+    /**
+     * 分钟桶保留时长（小时）
+     */
+    @Value("${order.rollup.minute-retention-hours:48}")
+    private long minuteRetentionHours;
+
+    /**
+     * 小时桶保留时长（天）
+     */
+    @Value("${order.rollup.hour-retention-days:90}")
+    private long hourRetentionDays;
+
+    /**
+     * 累加一批事件，需在标记事件完成的事务内调用
+     * 支付、取消事件依赖订单明细，明细尚未生成（下单事件未完成）时抛出异常，由发件箱稍后重试；
+     * 回填截止时间前下单的订单不累加下单数
+     */
+    public void record(List<OrderCreatedEvent> createdEvents, List<OrderStatusEvent> statusEvents) {
+        Set<Long> orderIds = new LinkedHashSet<>();
+        createdEvents.forEach(event -> orderIds.add(event.getOrderId()));
+        statusEvents.forEach(event -> orderIds.add(event.getOrderId()));
+        if (orderIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Order> orders = orderMapper.selectList(new LambdaQueryWrapper<Order>()
+                .select(Order::getId, Order::getCompanyId, Order::getCity, Order::getTotalAmount,
+                        Order::getPaidAmount, Order::getCreatedAt)
+                .in(Order::getId, orderIds)
+        ).stream().collect(Collectors.toMap(Order::getId, Function.identity()));
+        Map<Long, List<OrderItem>> items = orderItemMapper.selectList(new LambdaQueryWrapper<OrderItem>()
+                .select(OrderItem::getOrderId, OrderItem::getPackageId, OrderItem::getQuantity,
+                        OrderItem::getTotalPrice)
+                .in(OrderItem::getOrderId, orderIds)
+        ).stream().collect(Collectors.groupingBy(OrderItem::getOrderId));
+
+        // 按固定顺序写入，并发批次以相同顺序加锁
+        Map<String, SalesRollup> deltas = new TreeMap<>();
+        LocalDateTime cutoff = salesRollupBackfill.getCutoff();
+        for (OrderCreatedEvent event : createdEvents) {
+            Order order = requireOrder(orders, items, event.getOrderId());
+            // 截止时间前下单的订单由历史回填计入
+            if (order.getCreatedAt().isBefore(cutoff)) {
+                continue;
+            }
+            collect(deltas, order, items.get(order.getId()), OrderCreatedEvent.TYPE, order.getCreatedAt());
+        }
+        for (OrderStatusEvent event : statusEvents) {
+            Order order = requireOrder(orders, items, event.getOrderId());
+            collect(deltas, order, items.get(order.getId()), event.getType(), event.getOccurredAt());
+        }
+
+        List<SalesRollup> rows = new ArrayList<>(deltas.values());
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            salesRollupMapper.batchIncrement(rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+        log.debug("累加销售预聚合: created={}, changed={}, buckets={}",
+                createdEvents.size(), statusEvents.size(), rows.size());
+    }
+
+    /**
+     * 合并日期范围内的预聚合，按维度值汇总，按支付金额倒序
+     *
+     * @param startDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @param limit     返回条数，为空时不限制
+     */
+    public List<SalesRollup> summarize(LocalDate startDate, LocalDate endDate, RollupDimension dimension, Integer limit) {
+        if (endDate.isBefore(startDate)) {
+            return Collections.emptyList();
+        }
+        return salesRollupMapper.selectMerged(dimension.getCode(), splitRange(startDate, endDate), limit);
+    }
+
+    /**
+     * 累计预聚合，按维度值汇总，按支付金额倒序
+     */
+    public List<SalesRollup> summarizeTotal(RollupDimension dimension, Integer limit) {
+        BucketRange total = new BucketRange(RollupGranularity.TOTAL.getCode(),
+                RollupGranularity.EPOCH, RollupGranularity.EPOCH.plusSeconds(1));
+        return salesRollupMapper.selectMerged(dimension.getCode(), Collections.singletonList(total), limit);
+    }
+
+    /**
+     * 全部订单在时间范围内各时间桶的走势，没有订单的时间桶不返回
+     */
+    public List<SalesRollup> getSeries(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        return salesRollupMapper.selectSeries(granularity.getCode(), RollupDimension.ALL.getCode(), ALL_KEY,
+                granularity.truncate(from), to);
+    }
+
+    /**
+     * 定时清理过期的分钟桶和小时桶，天桶、月桶和累计桶长期保留
+     */
+    @Scheduled(fixedDelayString = "${order.rollup.purge-interval-ms:3600000}")
+    public void purge() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            int minutes = purgeBefore(RollupGranularity.MINUTE, now.minusHours(minuteRetentionHours));
+            int hours = purgeBefore(RollupGranularity.HOUR, now.minusDays(hourRetentionDays));
+            if (minutes + hours > 0) {
+                log.info("清理过期销售预聚合: minuteBuckets={}, hourBuckets={}", minutes, hours);
+            }
+        } catch (Exception e) {
+            log.warn("清理过期销售预聚合失败: {}", e.getMessage());
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    private Order requireOrder(Map<Long, Order> orders, Map<Long, List<OrderItem>> items, Long orderId) {
+        Order order = orders.get(orderId);
+        if (order == null) {
+            throw new IllegalStateException("订单不存在: orderId=" + orderId);
+        }
+        if (!items.containsKey(orderId)) {
+            throw new IllegalStateException("订单明细尚未生成: orderId=" + orderId);
+        }
+        return order;
+    }
+
+    /**
+     * 把一个事件计入所有粒度、维度的时间桶
+     */
+    private void collect(Map<String, SalesRollup> deltas, Order order, List<OrderItem> items,
+                         String type, LocalDateTime occurredAt) {
+        BigDecimal orderAmount = OrderStatusEvent.PAID_TYPE.equals(type) ? order.getPaidAmount() : order.getTotalAmount();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            LocalDateTime bucketStart = granularity.truncate(occurredAt);
+            add(deltas, granularity, bucketStart, RollupDimension.ALL, ALL_KEY, type, 1, orderAmount);
+            if (order.getCompanyId() != null) {
+                add(deltas, granularity, bucketStart, RollupDimension.COMPANY, String.valueOf(order.getCompanyId()),
+                        type, 1, orderAmount);
+            }
+            if (order.getCity() != null) {
+                add(deltas, granularity, bucketStart, RollupDimension.CITY, order.getCity(), type, 1, orderAmount);
+            }
+            for (OrderItem item : items) {
+                add(deltas, granularity, bucketStart, RollupDimension.PACKAGE, String.valueOf(item.getPackageId()),
+                        type, item.getQuantity(), item.getTotalPrice());
+            }
+        }
+    }
+
+    private void add(Map<String, SalesRollup> deltas, RollupGranularity granularity, LocalDateTime bucketStart,
+                     RollupDimension dimension, String dimensionKey, String type, long count, BigDecimal amount) {
+        String key = granularity.getCode() + "|" + dimension.getCode() + "|" + bucketStart + "|" + dimensionKey;
+        SalesRollup row = deltas.computeIfAbsent(key, k -> {
+            SalesRollup rollup = new SalesRollup();
+            rollup.setGranularity(granularity.getCode());
+            rollup.setBucketStart(bucketStart);
+            rollup.setDimension(dimension.getCode());
+            rollup.setDimensionKey(dimensionKey);
+            return rollup;
+        });
+
+        BigDecimal value = amount != null ? amount : BigDecimal.ZERO;
+        if (OrderStatusEvent.PAID_TYPE.equals(type)) {
+            row.setPaidCount(row.getPaidCount() + count);
+            row.setPaidAmount(row.getPaidAmount().add(value));
+        } else if (OrderStatusEvent.CANCELLED_TYPE.equals(type)) {
+            row.setCancelledCount(row.getCancelledCount() + count);
+            row.setCancelledAmount(row.getCancelledAmount().add(value));
+        } else {
+            row.setOrderCount(row.getOrderCount() + count);
+            row.setOrderAmount(row.getOrderAmount().add(value));
+        }
+    }
+
+    /**
+     * 拆分日期范围：完整月份读月桶，首尾零散日期读天桶
+     */
+    private List<BucketRange> splitRange(LocalDate startDate, LocalDate endDate) {
+        LocalDate endExclusive = endDate.plusDays(1);
+        LocalDate monthsFrom = startDate.getDayOfMonth() == 1 ? startDate : startDate.withDayOfMonth(1).plusMonths(1);
+        LocalDate monthsTo = endExclusive.withDayOfMonth(1);
+
+        List<BucketRange> ranges = new ArrayList<>(3);
+        if (!monthsFrom.isBefore(monthsTo)) {
+            ranges.add(dayRange(startDate, endExclusive));
+            return ranges;
+        }
+        if (startDate.isBefore(monthsFrom)) {
+            ranges.add(dayRange(startDate, monthsFrom));
+        }
+        ranges.add(new BucketRange(RollupGranularity.MONTH.getCode(), monthsFrom.atStartOfDay(), monthsTo.atStartOfDay()));
+        if (monthsTo.isBefore(endExclusive)) {
+            ranges.add(dayRange(monthsTo, endExclusive));
+        }
+        return ranges;
+    }
+
+    private BucketRange dayRange(LocalDate from, LocalDate to) {
+        return new BucketRange(RollupGranularity.DAY.getCode(), from.atStartOfDay(), to.atStartOfDay());
+    }
+
+    private int purgeBefore(RollupGranularity granularity, LocalDateTime before) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = salesRollupMapper.deleteBefore(granularity.getCode(), before, PURGE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted >= PURGE_BATCH_SIZE);
+        return total;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.lingli.order.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.lingli.common.utils.JsonUtils;
+import com.lingli.order.payment.PaymentCallbackProcessor;
+import com.lingli.order.payment.PaymentNotifyVerifier;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 支付回调控制器
+ * 验签后交给回调处理器持久化，按各渠道约定的报文应答：持久化成功应答成功，否则应答失败由渠道重试
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@RestController
+@RequestMapping("/payments/notify")
+@Tag(name = "支付回调", description = "支付渠道异步通知接口")
+public class PaymentNotifyController {
+
+    // 支付宝应答报文
+    private static final String ALIPAY_ACK = "success";
+    private static final String ALIPAY_NACK = "failure";
+
+    @Autowired
+    private PaymentCallbackProcessor paymentCallbackProcessor;
+
+    @Autowired
+    private PaymentNotifyVerifier paymentNotifyVerifier;
+
+    @PostMapping(value = "/alipay", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE,
+            produces = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(summary = "支付宝异步通知")
+    public String alipayNotify(@RequestParam Map<String, String> params) {
+        String paymentNo = params.get("out_trade_no");
+        if (!paymentNotifyVerifier.verifyAlipay(params)) {
+            log.warn("支付宝回调验签失败: paymentNo={}", paymentNo);
+            return ALIPAY_NACK;
+        }
+
+        String tradeStatus = params.get("trade_status");
+        boolean success = "TRADE_SUCCESS".equals(tradeStatus) || "TRADE_FINISHED".equals(tradeStatus);
+        if (!success && !"TRADE_CLOSED".equals(tradeStatus)) {
+            // 等待付款等中间状态无需处理
+            return ALIPAY_ACK;
+        }
+
+        boolean accepted = paymentCallbackProcessor.accept(paymentNo, params.get("trade_no"), success,
+                success ? null : "交易关闭", JsonUtils.toJson(params));
+        return accepted ? ALIPAY_ACK : ALIPAY_NACK;
+    }
+
+    @PostMapping("/wechat")
+    @Operation(summary = "微信支付异步通知")
+    public ResponseEntity<Map<String, String>> wechatNotify(
+            @RequestHeader("Wechatpay-Timestamp") String timestamp,
+            @RequestHeader("Wechatpay-Nonce") String nonce,
+            @RequestHeader("Wechatpay-Signature") String signature,
+            @RequestBody String body) {
+        if (!paymentNotifyVerifier.verifyWechat(timestamp, nonce, body, signature)) {
+            log.warn("微信支付回调验签失败: timestamp={}, nonce={}", timestamp, nonce);
+            return wechatNack(HttpStatus.UNAUTHORIZED, "签名验证失败");
+        }
+
+        Map<String, Object> notification = JsonUtils.fromJson(body, new TypeReference<Map<String, Object>>() {});
+        Object resource = notification != null ? notification.get("resource") : null;
+        if (!(resource instanceof Map)) {
+            return wechatNack(HttpStatus.BAD_REQUEST, "通知内容缺失");
+        }
+        Map<?, ?> encrypted = (Map<?, ?>) resource;
+        String plain = paymentNotifyVerifier.decryptWechat((String) encrypted.get("associated_data"),
+                (String) encrypted.get("nonce"), (String) encrypted.get("ciphertext"));
+        Map<String, Object> transaction = plain != null
+                ? JsonUtils.fromJson(plain, new TypeReference<Map<String, Object>>() {})
+                : null;
+        if (transaction == null) {
+            return wechatNack(HttpStatus.BAD_REQUEST, "通知内容解密失败");
+        }
+
+        String tradeState = (String) transaction.get("trade_state");
+        boolean success = "SUCCESS".equals(tradeState);
+        if (!success && !"CLOSED".equals(tradeState) && !"PAYERROR".equals(tradeState)
+                && !"REVOKED".equals(tradeState)) {
+            // 未支付、支付中等状态无需处理
+            return ResponseEntity.noContent().build();
+        }
+
+        boolean accepted = paymentCallbackProcessor.accept((String) transaction.get("out_trade_no"),
+                (String) transaction.get("transaction_id"), success,
+                success ? null : (String) transaction.get("trade_state_desc"), plain);
+        return accepted ? ResponseEntity.noContent().build() : wechatNack(HttpStatus.INTERNAL_SERVER_ERROR, "处理失败");
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 微信支付应答失败：非2xx状态码，报文为code和message
+     */
+    private static ResponseEntity<Map<String, String>> wechatNack(HttpStatus status, String message) {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("code", "FAIL");
+        body.put("message", message);
+        return ResponseEntity.status(status).body(body);
+    }
+}
\ No newline at end of file
@@ -121,4 +121,9 @@ public class Order extends BaseEntity {
      * 预约ID
      */
     private Long appointmentId;
+
+    /**
+     * 状态版本号，订单状态、支付状态、采样状态每次变更加1
+     */
+    private Integer version;
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.lingli.order.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.lingli.common.core.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单明细实体（下单时的套餐和采样人快照）
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("order_items")
+public class OrderItem extends BaseEntity {
+
+    /**
+     * 订单ID
+     */
+    private Long orderId;
+
+    /**
+     * 套餐ID
+     */
+    private Long packageId;
+
+    /**
+     * 套餐名称（快照）
+     */
+    private String packageName;
+
+    /**
+     * 套餐单价（快照）
+     */
+    private BigDecimal packagePrice;
+
+    /**
+     * 数量
+     */
+    private Integer quantity;
+
+    /**
+     * 小计
+     */
+    private BigDecimal totalPrice;
+
+    /**
+     * 采样人姓名
+     */
+    private String samplerName;
+
+    /**
+     * 采样人身份证
+     */
+    private String samplerIdCard;
+
+    /**
+     * 采样人电话
+     */
+    private String samplerPhone;
+
+    /**
+     * 采样人地址
+     */
+    private String samplerAddress;
+}
\ No newline at end of file
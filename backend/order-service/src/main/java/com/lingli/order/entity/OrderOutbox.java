@@ -0,0 +1,60 @@
+package com.lingli.order.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.lingli.common.core.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单事务发件箱实体
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("order_outbox")
+public class OrderOutbox extends BaseEntity {
+
+    /**
+     * 订单号
+     */
+    private String orderNo;
+
+    /**
+     * 事件类型
+     */
+    private String eventType;
+
+    /**
+     * 事件内容(JSON)
+     */
+    private String payload;
+
+    /**
+     * 状态：0-待处理，1-处理中，2-已完成，3-失败
+     */
+    private Integer status;
+
+    /**
+     * 重试次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 下次可处理时间（处理中时为租约到期时间）
+     */
+    private LocalDateTime nextRetryAt;
+
+    /**
+     * 领取批次标识
+     */
+    private String claimToken;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String lastError;
+}
\ No newline at end of file
@@ -4,11 +4,21 @@ import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.lingli.common.core.PageCursor;
 import com.lingli.common.core.PageResult;
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.common.enums.PayStatus;
+import com.lingli.common.enums.SamplingStatus;
 import com.lingli.common.exception.BusinessException;
+import com.lingli.common.id.IdGenerator;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.location.entity.PaymentRecord;
 import com.lingli.location.service.LocationService;
 import com.lingli.location.vo.location.UserLocationVO;
 import com.lingli.order.dto.cart.AddCartDTO;
@@ -16,27 +26,59 @@ import com.lingli.order.dto.cart.UpdateCartDTO;
 import com.lingli.order.dto.order.CreateOrderDTO;
 import com.lingli.order.dto.order.SamplingInfoDTO;
 import com.lingli.order.entity.Order;
+import com.lingli.order.entity.OrderItem;
 import com.lingli.order.entity.ShoppingCart;
+import com.lingli.order.mapper.OrderItemMapper;
 import com.lingli.order.mapper.OrderMapper;
+import com.lingli.order.mapper.PaymentRecordMapper;
 import com.lingli.order.mapper.ShoppingCartMapper;
+import com.lingli.order.outbox.OrderCreatedEvent;
+import com.lingli.order.outbox.OrderOutboxDispatcher;
+import com.lingli.order.outbox.OrderStatusEvent;
+import com.lingli.order.state.OrderTransition;
+import com.lingli.order.stats.OrderStatsCounter;
+import com.lingli.order.state.TransitionResult;
+import com.lingli.order.timeout.OrderTimeoutScheduler;
+import com.lingli.order.view.OrderView;
+import com.lingli.order.view.OrderViewStore;
 import com.lingli.order.service.OrderService;
 import com.lingli.order.vo.cart.CartItemVO;
 import com.lingli.order.vo.order.OrderDetailVO;
 import com.lingli.order.vo.order.OrderListVO;
 import com.lingli.order.vo.order.OrderVO;
+import com.lingli.product.inventory.PackageInventory;
+import com.lingli.product.service.ProductService;
+import com.lingli.product.vo.PackageVO;
 import com.lingli.user.entity.Sampler;
+import com.lingli.user.mapper.SamplerMapper;
 import com.lingli.user.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -65,10 +107,69 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
-    // Redis键前缀
-    private static final String GUEST_CART_KEY = "cart:guest:";
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private OrderOutboxDispatcher orderOutboxDispatcher;
+
+    @Autowired
+    private PackageInventory packageInventory;
+
+    @Autowired
+    private OrderTimeoutScheduler orderTimeoutScheduler;
+
+    @Autowired
+    private PaymentRecordMapper paymentRecordMapper;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private SamplerMapper samplerMapper;
+
+    @Autowired
+    private OrderViewStore orderViewStore;
+
+    @Autowired
+    private OrderStatsCounter orderStatsCounter;
+
+    // Redis键前缀（游客购物车：套餐ID -> 数量；套餐ID:s/m -> 采样人/采样方式）
+    private static final String GUEST_CART_KEY = "cart:guest:items:";
+    private static final String GUEST_CART_ATTR_KEY = "cart:guest:attrs:";
     private static final String ORDER_NO_PREFIX = "ORD";
 
+    /**
+     * 单条状态变更UPDATE的最大订单数
+     */
+    private static final int TRANSIT_CHUNK_SIZE = 500;
+
+    /**
+     * 单条INSERT写入的最大订单明细数
+     */
+    private static final int ORDER_ITEM_CHUNK_SIZE = 500;
+
+    private static final long GUEST_CART_EXPIRE_SECONDS = TimeUnit.DAYS.toSeconds(7);
+
+    /**
+     * 游客购物车加购：数量累加，采样人和采样方式有值时覆盖，并续期，一次往返原子完成
+     * KEYS[1] 数量哈希，KEYS[2] 属性哈希；ARGV[1] 套餐ID，ARGV[2] 数量，ARGV[3] 采样人ID，ARGV[4] 采样方式，ARGV[5] 过期秒数
+     */
+    private static final DefaultRedisScript<Long> GUEST_CART_ADD_SCRIPT = new DefaultRedisScript<>(
+            "local quantity = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "if ARGV[3] ~= '' then redis.call('HSET', KEYS[2], ARGV[1] .. ':s', ARGV[3]) end\n" +
+            "if ARGV[4] ~= '' then redis.call('HSET', KEYS[2], ARGV[1] .. ':m', ARGV[4]) end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[5])\n" +
+            "redis.call('EXPIRE', KEYS[2], ARGV[5])\n" +
+            "return quantity",
+            Long.class);
+
     // ========== 购物车核心功能 ==========
 
     @Override
@@ -92,13 +193,10 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
     @Override
     public List<CartItemVO> getCartList(Long userId) {
-        if (userId == null || userId <= 0) {
-            // 未登录用户，获取游客购物车
-            return getGuestCart();
-        }
-        
-        // 已登录用户，获取数据库中的购物车
-        return getLoggedInUserCart(userId);
+        // 未登录用户取游客购物车，已登录用户取数据库中的购物车
+        List<CartItemVO> cartItems = userId == null || userId <= 0 ? getGuestCart() : getLoggedInUserCart(userId);
+        fillPackageInfo(cartItems);
+        return cartItems;
     }
 
     @Override
@@ -186,22 +284,24 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             return;
         }
 
-        // 获取游客购物车数据
+        // 获取游客购物车数据（一次往返读取数量和属性）
         List<CartItemVO> guestCartItems = getGuestCartItems(guestCartToken);
         if (guestCartItems.isEmpty()) {
             return;
         }
 
-        // 合并到已登录用户的购物车
-        for (CartItemVO item : guestCartItems) {
-            AddCartDTO addCartDTO = new AddCartDTO();
-            addCartDTO.setPackageId(item.getPackageId());
-            addCartDTO.setQuantity(item.getQuantity());
-            addCartDTO.setSamplerId(item.getSamplerId());
-            addCartDTO.setSamplingMethod(item.getSamplingMethod());
-            
-            addToLoggedInUserCart(userId, addCartDTO);
-        }
+        // 批量合并到已登录用户的购物车
+        List<AddCartDTO> cartDTOs = guestCartItems.stream()
+                .map(item -> {
+                    AddCartDTO addCartDTO = new AddCartDTO();
+                    addCartDTO.setPackageId(item.getPackageId());
+                    addCartDTO.setQuantity(item.getQuantity());
+                    addCartDTO.setSamplerId(item.getSamplerId());
+                    addCartDTO.setSamplingMethod(item.getSamplingMethod());
+                    return addCartDTO;
+                })
+                .collect(Collectors.toList());
+        mergeIntoLoggedInUserCart(userId, cartDTOs);
 
         // 清除游客购物车
         clearGuestCartItems(guestCartToken);
@@ -228,8 +328,20 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             throw new BusinessException(40004, "购物车为空");
         }
 
+        // 批量回填套餐名称和价格作为下单快照，并校验套餐可购买
+        checkPackagesAvailable(cartItems, fillPackageInfo(cartItems));
+
+        // 在下单事务内删除本次购买的购物车记录，重复提交的请求删除不到记录而整体回滚
+        claimCartItems(userId, cartItems);
+
         // 生成订单号
         String orderNo = generateOrderNo();
+
+        // 预占库存，下单事务回滚时释放
+        Map<Long, Integer> quantities = cartItems.stream()
+                .collect(Collectors.toMap(CartItemVO::getPackageId, CartItemVO::getQuantity, Integer::sum));
+        packageInventory.reserve(orderNo, quantities);
+        packageInventory.releaseAfterRollback(orderNo);
         
         // 计算订单总金额
         BigDecimal totalAmount = calculateTotalAmount(cartItems);
@@ -245,8 +357,8 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         order.setCompanyId(companyId);
         order.setTotalAmount(totalAmount);
         order.setPaidAmount(BigDecimal.ZERO);
-        order.setStatus(com.lingli.common.enums.OrderStatus.PENDING_PAYMENT);
-        order.setPayStatus(com.lingli.common.enums.PayStatus.PENDING);
+        order.setStatus(OrderStatus.PENDING_PAYMENT);
+        order.setPayStatus(PayStatus.PENDING);
         order.setShippingType(orderDTO.getShippingType());
         order.setShippingAddress(orderDTO.getShippingAddress());
         order.setContactName(orderDTO.getContactName());
@@ -255,16 +367,19 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         order.setProvince(userLocation.getProvince());
         order.setCity(userLocation.getCity());
         order.setDistrict(userLocation.getDistrict());
-        order.setSamplingStatus(1); // 待采样
+        order.setSamplingStatus(SamplingStatus.PENDING.getCode());
 
         orderMapper.insert(order);
 
-        // 创建订单详情
-        createOrderItems(order.getId(), cartItems);
-
-        // 清空购物车
-        shoppingCartMapper.delete(new LambdaQueryWrapper<ShoppingCart>()
-                .eq(ShoppingCart::getUserId, userId));
+        // 写入发件箱事件，订单明细快照由后台批量生成
+        OrderCreatedEvent event = new OrderCreatedEvent();
+        event.setOrderId(order.getId());
+        event.setOrderNo(orderNo);
+        event.setUserId(userId);
+        event.setItems(cartItems);
+        orderOutboxDispatcher.append(orderNo, OrderCreatedEvent.TYPE, event);
+        orderTimeoutScheduler.scheduleAfterCommit(order.getId());
+        orderStatsCounter.onCreatedAfterCommit(order);
 
         log.info("创建订单成功: orderNo={}, userId={}, amount={}", orderNo, userId, totalAmount);
         
@@ -277,23 +392,60 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             throw new BusinessException(40001, "获取订单列表需要登录");
         }
 
+        // 索引只取订单ID，订单内容从读模型批量读取
         Page<Order> pageRequest = new Page<>(page, size);
         LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Order::getUserId, userId);
+        wrapper.select(Order::getId)
+               .eq(Order::getUserId, userId);
         
         if (status != null) {
-            wrapper.eq(Order::getStatus, status);
+            wrapper.eq(Order::getStatus, toOrderStatus(status));
         }
         
-        wrapper.orderByDesc(Order::getCreatedAt);
+        wrapper.orderByDesc(Order::getCreatedAt)
+               .orderByDesc(Order::getId);
         
         IPage<Order> result = orderMapper.selectPage(pageRequest, wrapper);
-        
-        List<OrderListVO> orderListVOs = result.getRecords().stream()
-                .map(this::convertToOrderListVO)
-                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
 
-        return PageResult.of(orderListVOs, result.getTotal(), page, size);
+        return PageResult.of(loadOrderListVOs(result.getRecords()), result.getTotal(), page, size);
+    }
+
+    @Override
+    public PageResult<OrderListVO> getOrderFeed(Long userId, Integer status, String cursor, Integer size) {
+        if (userId == null || userId <= 0) {
+            throw new BusinessException(40001, "获取订单列表需要登录");
+        }
+
+        PageCursor position = PageCursor.decode(cursor);
+
+        LambdaQueryWrapper<Order> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Order::getId, Order::getCreatedAt)
+               .eq(Order::getUserId, userId)
+               .eq(status != null, Order::getStatus, toOrderStatus(status));
+        if (position != null) {
+            // (created_at, id) < (上一页最后一条)
+            LocalDateTime lastCreatedAt = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(position.getSortKey()), ZoneId.systemDefault());
+            long lastId = position.getId();
+            wrapper.and(w -> w.lt(Order::getCreatedAt, lastCreatedAt)
+                    .or(o -> o.eq(Order::getCreatedAt, lastCreatedAt).lt(Order::getId, lastId)));
+        }
+        // 多取一条判断是否还有下一页
+        wrapper.orderByDesc(Order::getCreatedAt)
+               .orderByDesc(Order::getId)
+               .last("LIMIT " + (size + 1));
+
+        List<Order> orders = orderMapper.selectList(wrapper);
+
+        PageCursor nextCursor = null;
+        if (orders.size() > size) {
+            orders = orders.subList(0, size);
+            Order last = orders.get(size - 1);
+            nextCursor = new PageCursor(
+                    last.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), last.getId());
+        }
+
+        return PageResult.ofCursor(loadOrderListVOs(orders), nextCursor, (long) size);
     }
 
     @Override
@@ -302,13 +454,13 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             throw new BusinessException(40001, "获取订单详情需要登录");
         }
 
-        Order order = orderMapper.selectById(orderId);
-        if (order == null || !order.getUserId().equals(userId)) {
+        // 读模型一次读取订单、明细、支付和采样预约
+        OrderView view = orderViewStore.get(orderId);
+        if (view == null || !view.getUserId().equals(userId)) {
             throw new BusinessException(40005, "订单不存在");
         }
 
-        // TODO: 获取订单详情，包括订单项、物流信息、支付信息等
-        return convertToOrderDetailVO(order);
+        return convertToOrderDetailVO(view);
     }
 
     // ========== 统计功能 ==========
@@ -366,53 +518,74 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
     // ========== 私有方法 ==========
 
+    /**
+     * 删除本次下单的购物车记录（行锁持有到下单事务结束），
+     * 删除行数不足说明记录已被并发的下单请求删除，不能再次下单
+     */
+    private void claimCartItems(Long userId, List<CartItemVO> cartItems) {
+        List<Long> cartIds = cartItems.stream()
+                .map(CartItemVO::getId)
+                .collect(Collectors.toList());
+        int deleted = shoppingCartMapper.delete(new LambdaQueryWrapper<ShoppingCart>()
+                .eq(ShoppingCart::getUserId, userId)
+                .in(ShoppingCart::getId, cartIds));
+        if (deleted != cartIds.size()) {
+            throw new BusinessException(40012, "订单已提交，请勿重复下单");
+        }
+    }
+
     /**
      * 保存游客购物车
      */
     private void saveGuestCart(AddCartDTO cartDTO) {
         // 这里简化实现，实际中应该生成唯一的游客token
         String guestToken = getCurrentGuestToken();
-        String key = GUEST_CART_KEY + guestToken;
+        int quantity = cartDTO.getQuantity() != null ? cartDTO.getQuantity() : 1;
         
-        List<CartItemVO> guestCart = getGuestCartItems(guestToken);
-        
-        // 检查是否已存在相同商品
-        boolean found = false;
-        for (CartItemVO item : guestCart) {
-            if (item.getPackageId().equals(cartDTO.getPackageId())) {
-                item.setQuantity(item.getQuantity() + cartDTO.getQuantity());
-                found = true;
-                break;
-            }
-        }
-        
-        if (!found) {
-            CartItemVO newItem = convertToCartItemVO(cartDTO);
-            guestCart.add(newItem);
-        }
-        
-        redisTemplate.opsForValue().set(key, guestCart, 7, TimeUnit.DAYS);
+        stringRedisTemplate.execute(GUEST_CART_ADD_SCRIPT,
+                Arrays.asList(GUEST_CART_KEY + guestToken, GUEST_CART_ATTR_KEY + guestToken),
+                String.valueOf(cartDTO.getPackageId()),
+                String.valueOf(quantity),
+                cartDTO.getSamplerId() != null ? String.valueOf(cartDTO.getSamplerId()) : "",
+                cartDTO.getSamplingMethod() != null ? String.valueOf(cartDTO.getSamplingMethod()) : "",
+                String.valueOf(GUEST_CART_EXPIRE_SECONDS));
     }
 
     /**
      * 为已登录用户添加购物车
      */
     private void addToLoggedInUserCart(Long userId, AddCartDTO cartDTO) {
-        // 检查是否已存在相同商品
-        ShoppingCart existing = shoppingCartMapper.selectOne(
-            new LambdaQueryWrapper<ShoppingCart>()
-                .eq(ShoppingCart::getUserId, userId)
-                .eq(ShoppingCart::getPackageId, cartDTO.getPackageId())
-        );
+        mergeIntoLoggedInUserCart(userId, Collections.singletonList(cartDTO));
+    }
 
-        if (existing != null) {
-            // 更新数量
-            existing.setQuantity(existing.getQuantity() + cartDTO.getQuantity());
-            shoppingCartMapper.updateById(existing);
-        } else {
-            // 创建新记录
-            ShoppingCart shoppingCart = convertToShoppingCart(userId, cartDTO);
-            shoppingCartMapper.insert(shoppingCart);
+    /**
+     * 批量合并到已登录用户购物车：一条INSERT ... ON DUPLICATE KEY UPDATE完成，
+     * 已存在的累加数量，不存在的新增，不先查询也不持有读锁
+     */
+    private void mergeIntoLoggedInUserCart(Long userId, List<AddCartDTO> cartDTOs) {
+        // 同一套餐先在内存中合并，按套餐ID排序保证并发合并时加锁顺序一致
+        Map<Long, ShoppingCart> rows = new TreeMap<>();
+        for (AddCartDTO cartDTO : cartDTOs) {
+            int quantity = cartDTO.getQuantity() != null ? cartDTO.getQuantity() : 1;
+            ShoppingCart row = rows.get(cartDTO.getPackageId());
+            if (row == null) {
+                row = convertToShoppingCart(userId, cartDTO);
+                row.setId(IdWorker.getId());
+                row.setQuantity(quantity);
+                rows.put(cartDTO.getPackageId(), row);
+                continue;
+            }
+            row.setQuantity(row.getQuantity() + quantity);
+            if (cartDTO.getSamplerId() != null) {
+                row.setSamplerId(cartDTO.getSamplerId());
+            }
+            if (cartDTO.getSamplingMethod() != null) {
+                row.setSamplingMethod(cartDTO.getSamplingMethod());
+            }
+        }
+
+        if (!rows.isEmpty()) {
+            shoppingCartMapper.batchUpsert(new ArrayList<>(rows.values()));
         }
     }
 
@@ -443,34 +616,61 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
      */
     @SuppressWarnings("unchecked")
     private List<CartItemVO> getGuestCartItems(String guestToken) {
-        String key = GUEST_CART_KEY + guestToken;
-        List<CartItemVO> guestCart = (List<CartItemVO>) redisTemplate.opsForValue().get(key);
-        return guestCart != null ? guestCart : new ArrayList<>();
+        String quantityKey = GUEST_CART_KEY + guestToken;
+        String attributeKey = GUEST_CART_ATTR_KEY + guestToken;
+        
+        // 管道一次读取数量和属性
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.hGetAll(quantityKey);
+            stringConnection.hGetAll(attributeKey);
+            return null;
+        });
+        Map<String, String> quantities = (Map<String, String>) results.get(0);
+        Map<String, String> attributes = (Map<String, String>) results.get(1);
+        if (quantities == null || quantities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<Long, CartItemVO> items = new LinkedHashMap<>();
+        quantities.forEach((packageId, quantity) -> {
+            CartItemVO item = new CartItemVO();
+            item.setPackageId(Long.valueOf(packageId));
+            item.setQuantity(Integer.valueOf(quantity));
+            if (attributes != null) {
+                String samplerId = attributes.get(packageId + ":s");
+                String samplingMethod = attributes.get(packageId + ":m");
+                item.setSamplerId(samplerId != null ? Long.valueOf(samplerId) : null);
+                item.setSamplingMethod(samplingMethod != null ? Integer.valueOf(samplingMethod) : null);
+            }
+            items.put(item.getPackageId(), item);
+        });
+        
+        return items.values().stream()
+                .sorted(Comparator.comparing(CartItemVO::getPackageId))
+                .collect(Collectors.toList());
     }
 
     /**
      * 清除游客购物车数据
      */
     private void clearGuestCartItems(String guestToken) {
-        String key = GUEST_CART_KEY + guestToken;
-        redisTemplate.delete(key);
+        stringRedisTemplate.delete(Arrays.asList(GUEST_CART_KEY + guestToken, GUEST_CART_ATTR_KEY + guestToken));
     }
 
     /**
      * 获取游客购物车数量
      */
     private Integer getGuestCartItemCount() {
-        List<CartItemVO> guestCart = getGuestCart();
-        return guestCart.size();
+        Long count = stringRedisTemplate.opsForHash().size(GUEST_CART_KEY + getCurrentGuestToken());
+        return count != null ? count.intValue() : 0;
     }
 
     /**
      * 清除游客购物车
      */
     private void clearGuestCart() {
-        String guestToken = getCurrentGuestToken();
-        String key = GUEST_CART_KEY + guestToken;
-        redisTemplate.delete(key);
+        clearGuestCartItems(getCurrentGuestToken());
     }
 
     /**
@@ -485,9 +685,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
      * 生成订单号
      */
     private String generateOrderNo() {
-        String timestamp = LocalDateTime.now().toString().replaceAll("[-:]", "").substring(0, 14);
-        String random = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-        return ORDER_NO_PREFIX + timestamp + random;
+        return idGenerator.nextNo(ORDER_NO_PREFIX);
     }
 
     /**
@@ -495,7 +693,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
      */
     private BigDecimal calculateTotalAmount(List<CartItemVO> cartItems) {
         return cartItems.stream()
-                .map(item -> item.getPackagePrice().multiply(new java.math.BigDecimal(item.getQuantity())))
+                .map(item -> item.getPackagePrice().multiply(BigDecimal.valueOf(item.getQuantity())))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
@@ -509,9 +707,15 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
     // ========== 转换方法 ==========
 
+    /**
+     * 转换为购物车项，套餐名称和价格由 fillPackageInfo 批量回填
+     */
     private CartItemVO convertToCartItemVO(AddCartDTO cartDTO) {
         CartItemVO cartItemVO = new CartItemVO();
-        // TODO: 从套餐服务获取套餐详情
+        cartItemVO.setPackageId(cartDTO.getPackageId());
+        cartItemVO.setQuantity(cartDTO.getQuantity());
+        cartItemVO.setSamplerId(cartDTO.getSamplerId());
+        cartItemVO.setSamplingMethod(cartDTO.getSamplingMethod());
         return cartItemVO;
     }
 
@@ -533,7 +737,6 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         cartItemVO.setQuantity(shoppingCart.getQuantity());
         cartItemVO.setSamplerId(shoppingCart.getSamplerId());
         cartItemVO.setSamplingMethod(shoppingCart.getSamplingMethod());
-        // TODO: 填充套餐信息
         return cartItemVO;
     }
 
@@ -548,28 +751,148 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         return orderVO;
     }
 
-    private OrderListVO convertToOrderListVO(Order order) {
+    /**
+     * 按索引查出的订单顺序从读模型批量读取列表项，跳过读取期间被删除的订单
+     */
+    private List<OrderListVO> loadOrderListVOs(List<Order> orders) {
+        List<Long> orderIds = orders.stream().map(Order::getId).collect(Collectors.toList());
+        Map<Long, OrderView> views = orderViewStore.getAll(orderIds);
+        return orderIds.stream()
+                .map(views::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToOrderListVO)
+                .collect(Collectors.toList());
+    }
+
+    private OrderListVO convertToOrderListVO(OrderView view) {
         OrderListVO orderListVO = new OrderListVO();
-        orderListVO.setId(order.getId());
-        orderListVO.setOrderNo(order.getOrderNo());
-        orderListVO.setTotalAmount(order.getTotalAmount());
-        orderListVO.setStatus(order.getStatus());
-        orderListVO.setCreatedAt(order.getCreatedAt());
+        orderListVO.setId(view.getId());
+        orderListVO.setOrderNo(view.getOrderNo());
+        orderListVO.setTotalAmount(view.getTotalAmount());
+        orderListVO.setStatus(view.getStatus());
+        orderListVO.setCreatedAt(view.getCreatedAt());
         return orderListVO;
     }
 
-    private OrderDetailVO convertToOrderDetailVO(Order order) {
-        OrderDetailVO orderDetailVO = new OrderDetailVO();
-        // TODO: 填充详细的订单信息
-        return orderDetailVO;
+    private OrderDetailVO convertToOrderDetailVO(OrderView view) {
+        return BeanUtil.copyProperties(view, OrderDetailVO.class);
     }
 
-    private void createOrderItems(Long orderId, List<CartItemVO> cartItems) {
-        // TODO: 创建订单详情记录
+    /**
+     * 批量回填购物车项的套餐名称和价格，所有套餐一次查询（优先读取本地缓存）
+     *
+     * @return 套餐ID到详情的映射，不存在的套餐不包含在内
+     */
+    private Map<Long, PackageVO> fillPackageInfo(List<CartItemVO> cartItems) {
+        if (cartItems.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, PackageVO> packages = productService.getPackagesByIds(cartItems.stream()
+                .map(CartItemVO::getPackageId)
+                .collect(Collectors.toSet()));
+        for (CartItemVO item : cartItems) {
+            PackageVO packageVO = packages.get(item.getPackageId());
+            if (packageVO != null) {
+                item.setPackageName(packageVO.getName());
+                item.setPackagePrice(packageVO.getPrice());
+            }
+        }
+        return packages;
+    }
+
+    private void checkPackagesAvailable(List<CartItemVO> cartItems, Map<Long, PackageVO> packages) {
+        for (CartItemVO item : cartItems) {
+            PackageVO packageVO = packages.get(item.getPackageId());
+            if (packageVO == null) {
+                throw new BusinessException(20011, "套餐不存在");
+            }
+            if (!Boolean.TRUE.equals(packageVO.getOnShelf())) {
+                throw new BusinessException(20012, "套餐已下架：" + packageVO.getName());
+            }
+        }
+    }
+
+    /**
+     * 批量写入订单明细快照：价格取下单时的快照，采样人一次查询，多行INSERT写入
+     * 同一订单同一套餐已存在的明细保持不变，重复处理同一事件不会产生重复明细
+     */
+    private void createOrderItems(List<OrderCreatedEvent> events) {
+        List<CartItemVO> unpriced = events.stream()
+                .flatMap(event -> event.getItems().stream())
+                .filter(item -> item.getPackagePrice() == null)
+                .collect(Collectors.toList());
+        fillPackageInfo(unpriced);
+
+        Set<Long> samplerIds = events.stream()
+                .flatMap(event -> event.getItems().stream())
+                .map(CartItemVO::getSamplerId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Sampler> samplers = samplerIds.isEmpty() ? Collections.emptyMap()
+                : samplerMapper.selectBatchIds(samplerIds).stream()
+                        .collect(Collectors.toMap(Sampler::getId, sampler -> sampler));
+
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (OrderCreatedEvent event : events) {
+            for (CartItemVO item : event.getItems()) {
+                orderItems.add(convertToOrderItem(event.getOrderId(), item, samplers.get(item.getSamplerId())));
+            }
+        }
+        for (int from = 0; from < orderItems.size(); from += ORDER_ITEM_CHUNK_SIZE) {
+            orderItemMapper.batchInsert(orderItems.subList(from, Math.min(from + ORDER_ITEM_CHUNK_SIZE, orderItems.size())));
+        }
+    }
+
+    private OrderItem convertToOrderItem(Long orderId, CartItemVO item, Sampler sampler) {
+        if (item.getPackagePrice() == null) {
+            throw new BusinessException(20011, "套餐不存在");
+        }
+        OrderItem orderItem = new OrderItem();
+        orderItem.setId(IdWorker.getId());
+        orderItem.setOrderId(orderId);
+        orderItem.setPackageId(item.getPackageId());
+        orderItem.setPackageName(item.getPackageName());
+        orderItem.setPackagePrice(item.getPackagePrice());
+        orderItem.setQuantity(item.getQuantity());
+        orderItem.setTotalPrice(item.getPackagePrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        if (sampler != null) {
+            orderItem.setSamplerName(sampler.getName());
+            orderItem.setSamplerIdCard(sampler.getIdCard());
+            orderItem.setSamplerPhone(sampler.getPhone());
+            orderItem.setSamplerAddress(sampler.getAddress());
+        }
+        return orderItem;
     }
 
     // ========== 接口实现 ==========
 
+    @Override
+    public void completeCreatedOrders(List<OrderCreatedEvent> events) {
+        createOrderItems(events);
+
+        List<Long> cartIds = new ArrayList<>();
+        for (OrderCreatedEvent event : events) {
+            for (CartItemVO item : event.getItems()) {
+                if (item.getId() != null) {
+                    cartIds.add(item.getId());
+                }
+            }
+        }
+
+        // 下单事务已删除购物车记录，这里兜底处理升级前写入的事件（已删除的记录不受影响），下单后新加购的套餐保留
+        if (!cartIds.isEmpty()) {
+            shoppingCartMapper.deleteBatchIds(cartIds);
+        }
+        orderViewStore.refreshAfterCommit(events.stream().map(OrderCreatedEvent::getOrderId).collect(Collectors.toList()));
+        log.info("订单后续处理完成: orders={}, cartItems={}", events.size(), cartIds.size());
+    }
+
+    @Override
+    public int cancelTimeoutOrders(List<Long> orderIds) {
+        // 条件UPDATE取消仍待支付的订单，已支付的订单作为冲突跳过
+        return transitOrders(orderIds, OrderTransition.CANCEL_UNPAID).getSucceeded().size();
+    }
+
     @Override
     public Order getOrderByOrderNo(String orderNo) {
         return orderMapper.selectOne(new LambdaQueryWrapper<Order>()
@@ -578,12 +901,89 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
     @Override
     public void handlePaymentSuccess(String paymentNo, String tradeNo) {
-        // TODO: 实现支付成功处理逻辑
+        PaymentRecord paymentRecord = getPaymentRecord(paymentNo);
+        LocalDateTime paidAt = LocalDateTime.now();
+
+        // 支付记录：待支付/支付中/支付失败 -> 支付成功，已处理过的回调不会再次生效
+        // 渠道先通知失败（如超时关单）后又确认扣款时，以成功为准，不能把已扣款的支付留在失败状态
+        int recordUpdated = paymentRecordMapper.update(null, new LambdaUpdateWrapper<PaymentRecord>()
+                .set(PaymentRecord::getStatus, PayStatus.PAID.getCode())
+                .set(PaymentRecord::getTradeNo, tradeNo)
+                .set(PaymentRecord::getPaidAt, paidAt)
+                .eq(PaymentRecord::getPaymentNo, paymentNo)
+                .in(PaymentRecord::getStatus, PayStatus.PENDING.getCode(),
+                        PayStatus.PAYING.getCode(), PayStatus.PAYMENT_FAILED.getCode()));
+        if (recordUpdated > 0 && PayStatus.PAYMENT_FAILED.getCode().equals(paymentRecord.getStatus())) {
+            log.warn("支付记录由失败改为成功，需对账: paymentNo={}, tradeNo={}", paymentNo, tradeNo);
+        }
+        if (recordUpdated == 0) {
+            log.info("支付成功回调已处理: paymentNo={}", paymentNo);
+            return;
+        }
+
+        // 订单：待支付 -> 已支付
+        int orderUpdated = orderMapper.update(null, new LambdaUpdateWrapper<Order>()
+                .set(Order::getStatus, OrderStatus.PAID)
+                .set(Order::getPayStatus, PayStatus.PAID)
+                .set(Order::getPaidAmount, paymentRecord.getAmount())
+                .set(Order::getPayType, paymentRecord.getPaymentType())
+                .set(Order::getPayTime, paidAt)
+                .set(Order::getPaymentId, paymentRecord.getId())
+                .setSql("version = version + 1")
+                .eq(Order::getId, paymentRecord.getOrderId())
+                .eq(Order::getStatus, OrderStatus.PENDING_PAYMENT));
+        if (orderUpdated == 0) {
+            // 订单已超时取消或已由其他支付单支付，支付记录保留为成功，需退款处理
+            log.error("支付成功但订单不是待支付状态，需退款: paymentNo={}, orderId={}", paymentNo, paymentRecord.getOrderId());
+            return;
+        }
+
+        // 事务提交后确认库存预占并移除超时登记
+        Order order = orderMapper.selectById(paymentRecord.getOrderId());
+        String orderNo = order.getOrderNo();
+        orderOutboxDispatcher.append(orderNo, OrderStatusEvent.PAID_TYPE,
+                OrderStatusEvent.of(OrderStatusEvent.PAID_TYPE, order.getId(), orderNo, paidAt));
+        TransactionUtils.afterCommit(() -> packageInventory.confirm(orderNo));
+        orderTimeoutScheduler.removeAfterCommit(order.getId());
+        orderViewStore.refreshAfterCommit(Collections.singletonList(order.getId()));
+        orderStatsCounter.onPaidAfterCommit(order);
+        log.info("支付成功: orderNo={}, paymentNo={}, tradeNo={}", orderNo, paymentNo, tradeNo);
     }
 
     @Override
     public void handlePaymentFailure(String paymentNo, String reason) {
-        // TODO: 实现支付失败处理逻辑
+        PaymentRecord paymentRecord = getPaymentRecord(paymentNo);
+
+        // 支付记录：待支付/支付中 -> 支付失败
+        int recordUpdated = paymentRecordMapper.update(null, new LambdaUpdateWrapper<PaymentRecord>()
+                .set(PaymentRecord::getStatus, PayStatus.PAYMENT_FAILED.getCode())
+                .eq(PaymentRecord::getPaymentNo, paymentNo)
+                .in(PaymentRecord::getStatus, PayStatus.PENDING.getCode(),
+                        PayStatus.PAYING.getCode()));
+        if (recordUpdated == 0) {
+            log.info("支付失败回调已处理: paymentNo={}", paymentNo);
+            return;
+        }
+
+        // 订单仍待支付，用户可重新发起支付，超时后自动取消
+        orderMapper.update(null, new LambdaUpdateWrapper<Order>()
+                .set(Order::getPayStatus, PayStatus.PAYMENT_FAILED)
+                .setSql("version = version + 1")
+                .eq(Order::getId, paymentRecord.getOrderId())
+                .eq(Order::getStatus, OrderStatus.PENDING_PAYMENT)
+                .in(Order::getPayStatus, PayStatus.PENDING,
+                        PayStatus.PAYING));
+        orderViewStore.refreshAfterCommit(Collections.singletonList(paymentRecord.getOrderId()));
+        log.info("支付失败: paymentNo={}, orderId={}, reason={}", paymentNo, paymentRecord.getOrderId(), reason);
+    }
+
+    private PaymentRecord getPaymentRecord(String paymentNo) {
+        PaymentRecord paymentRecord = paymentRecordMapper.selectOne(new LambdaQueryWrapper<PaymentRecord>()
+                .eq(PaymentRecord::getPaymentNo, paymentNo));
+        if (paymentRecord == null) {
+            throw new BusinessException(40007, "支付记录不存在");
+        }
+        return paymentRecord;
     }
 
     @Override
@@ -609,40 +1009,125 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
     @Override
     public void updateOrderStatus(Long orderId, Integer status) {
-        Order order = orderMapper.selectById(orderId);
-        if (order != null) {
-            order.setStatus(com.lingli.common.enums.OrderStatus.valueOf(status));
-            orderMapper.updateById(order);
-        }
+        transitOrder(orderId, resolveTransition(OrderTransition.Field.STATUS, status), null);
     }
 
     @Override
     public void updatePayStatus(Long orderId, Integer payStatus) {
-        Order order = orderMapper.selectById(orderId);
-        if (order != null) {
-            order.setPayStatus(com.lingli.common.enums.PayStatus.valueOf(payStatus));
-            orderMapper.updateById(order);
-        }
+        transitOrder(orderId, resolveTransition(OrderTransition.Field.PAY_STATUS, payStatus), null);
     }
 
     @Override
     public void updateSamplingStatus(Long orderId, Integer samplingStatus) {
-        Order order = orderMapper.selectById(orderId);
-        if (order != null) {
-            order.setSamplingStatus(samplingStatus);
-            orderMapper.updateById(order);
+        transitOrder(orderId, resolveTransition(OrderTransition.Field.SAMPLING_STATUS, samplingStatus), null);
+    }
+
+    @Override
+    public void transitOrder(Long orderId, OrderTransition transition, Integer expectedVersion) {
+        OrderTransition.Field field = transition.getField();
+        int updated = orderMapper.transit(field.getColumn(), transition.getTo(), transition.getFrom(),
+                Collections.singletonList(orderId), expectedVersion);
+        if (updated == 0) {
+            Order current = selectStates(Collections.singletonList(orderId)).get(orderId);
+            if (current == null) {
+                throw new BusinessException(40005, "订单不存在");
+            }
+            Integer state = field.read(current);
+            // 未指定版本号时重复变更到同一状态视为成功
+            if (expectedVersion == null && transition.getTo().equals(state)) {
+                return;
+            }
+            if (transition.getFrom().contains(state)) {
+                throw new BusinessException(40009, "订单已被修改，请刷新后重试");
+            }
+            log.info("订单状态不允许变更: orderId={}, transition={}, current={}", orderId, transition, state);
+            throw new BusinessException(40008, "订单当前状态不允许该操作");
         }
+        afterTransit(transition, Collections.singletonList(orderId), true);
+    }
+
+    @Override
+    public TransitionResult transitOrders(List<Long> orderIds, OrderTransition transition) {
+        TransitionResult result = new TransitionResult(transition);
+        List<Long> ids = orderIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        OrderTransition.Field field = transition.getField();
+
+        // 整块变更成功的订单确定由本次转换变更；回查判定成功的可能是此前已到达目标状态
+        List<Long> transited = new ArrayList<>();
+        List<Long> reached = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += TRANSIT_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + TRANSIT_CHUNK_SIZE, ids.size()));
+            int updated = orderMapper.transit(field.getColumn(), transition.getTo(), transition.getFrom(), chunk, null);
+            if (updated == chunk.size()) {
+                result.getSucceeded().addAll(chunk);
+                transited.addAll(chunk);
+                continue;
+            }
+
+            // 部分订单未变更时回查当前状态区分冲突和不存在
+            Map<Long, Order> states = selectStates(chunk);
+            for (Long id : chunk) {
+                Order current = states.get(id);
+                if (current == null) {
+                    result.getNotFound().add(id);
+                } else if (transition.getTo().equals(field.read(current))) {
+                    result.getSucceeded().add(id);
+                    reached.add(id);
+                } else {
+                    result.getConflicts().put(id, field.read(current));
+                }
+            }
+        }
+
+        if (!transited.isEmpty()) {
+            afterTransit(transition, transited, true);
+        }
+        if (!reached.isEmpty()) {
+            afterTransit(transition, reached, false);
+        }
+        log.info("批量变更订单状态: transition={}, total={}, succeeded={}, conflicts={}, notFound={}",
+                transition, ids.size(), result.getSucceeded().size(), result.getConflicts().size(),
+                result.getNotFound().size());
+        return result;
     }
 
     @Override
     public OrderStatisticsVO getOrderStatistics(Long userId) {
-        // TODO: 实现订单统计
-        return new OrderStatisticsVO();
+        if (userId == null || userId <= 0) {
+            throw new BusinessException(40001, "获取订单统计需要登录");
+        }
+        return orderStatsCounter.get(userId);
+    }
+
+    @Override
+    public Map<Integer, Long> countOrdersByStatus(Collection<Integer> statuses) {
+        Map<Integer, Long> counts = new HashMap<>();
+        orderMapper.selectMaps(new QueryWrapper<Order>()
+                .select("status", "COUNT(*) AS order_count")
+                .in("status", statuses)
+                .groupBy("status")
+        ).forEach(row -> counts.put(((Number) row.get("status")).intValue(),
+                ((Number) row.get("order_count")).longValue()));
+        return counts;
     }
 
     @Override
     public void cancelOrder(Long userId, Long orderId, String reason) {
-        // TODO: 实现取消订单
+        if (userId == null || userId <= 0) {
+            throw new BusinessException(40001, "取消订单需要登录");
+        }
+
+        Order order = orderMapper.selectById(orderId);
+        if (order == null || !order.getUserId().equals(userId)) {
+            throw new BusinessException(40005, "订单不存在");
+        }
+
+        // 仅待支付订单可取消，条件更新避免与支付回调并发覆盖；提交后释放预占库存
+        TransitionResult result = transitOrders(Collections.singletonList(orderId), OrderTransition.CANCEL_UNPAID);
+        if (result.getSucceeded().isEmpty()) {
+            throw new BusinessException(40006, "订单当前状态不可取消");
+        }
+        log.info("取消订单: orderNo={}, userId={}, reason={}", order.getOrderNo(), userId, reason);
     }
 
     @Override
@@ -653,4 +1138,79 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     private void clearGuestCart() {
         clearGuestCart();
     }
+
+    /**
+     * 查询条件中的订单状态码转为枚举，与实体字段类型一致，由枚举类型处理器按code绑定
+     */
+    private OrderStatus toOrderStatus(Integer status) {
+        if (status == null) {
+            return null;
+        }
+        OrderStatus orderStatus = OrderStatus.getByCode(status);
+        if (orderStatus == null) {
+            throw new BusinessException(40011, "订单状态不存在");
+        }
+        return orderStatus;
+    }
+
+    private OrderTransition resolveTransition(OrderTransition.Field field, Integer to) {
+        // 目标状态对应多个转换时（如取消）来源状态不同，不能按目标状态推断，需调用对应的操作接口
+        if (OrderTransition.resolveAll(field, to).size() > 1) {
+            throw new BusinessException(40010, "该状态需通过对应的操作变更");
+        }
+        OrderTransition transition = OrderTransition.resolve(field, to);
+        if (transition == null) {
+            throw new BusinessException(40008, "订单当前状态不允许该操作");
+        }
+        return transition;
+    }
+
+    /**
+     * 查询订单当前的状态字段
+     */
+    private Map<Long, Order> selectStates(List<Long> orderIds) {
+        return orderMapper.selectList(new LambdaQueryWrapper<Order>()
+                .select(Order::getId, Order::getStatus, Order::getPayStatus, Order::getSamplingStatus,
+                        Order::getVersion)
+                .in(Order::getId, orderIds)
+        ).stream().collect(Collectors.toMap(Order::getId, order -> order));
+    }
+
+    /**
+     * 状态变更的后续处理：事务提交后刷新订单读模型和用户订单统计；取消的订单释放预占库存并移除超时登记
+     * 已取消过的订单重复释放无影响
+     *
+     * @param exact 订单是否确定由本次转换变更，否则用户订单统计按用户重算；
+     *              只有确定由本次转换取消的订单写入取消事件，其余由实际取消的事务写入
+     */
+    private void afterTransit(OrderTransition transition, List<Long> orderIds, boolean exact) {
+        orderViewStore.refreshAfterCommit(orderIds);
+        if (transition.getField() == OrderTransition.Field.PAY_STATUS) {
+            return;
+        }
+
+        List<Order> orders = orderMapper.selectList(new LambdaQueryWrapper<Order>()
+                .select(Order::getId, Order::getOrderNo, Order::getUserId, Order::getTotalAmount,
+                        Order::getPaidAmount, Order::getStatus, Order::getSamplingStatus)
+                .in(Order::getId, orderIds));
+        if (exact) {
+            orderStatsCounter.onTransitedAfterCommit(transition, orders);
+        } else {
+            orderStatsCounter.rebuildAfterCommit(orders);
+        }
+
+        if (transition.getField() != OrderTransition.Field.STATUS
+                || !OrderStatus.CANCELLED.getCode().equals(transition.getTo())) {
+            return;
+        }
+        List<String> orderNos = orders.stream().map(Order::getOrderNo).collect(Collectors.toList());
+        TransactionUtils.afterCommit(() -> orderNos.forEach(packageInventory::release));
+        orderTimeoutScheduler.removeAfterCommit(orderIds);
+        if (exact) {
+            LocalDateTime cancelledAt = LocalDateTime.now();
+            orderOutboxDispatcher.appendAll(OrderStatusEvent.CANCELLED_TYPE, orders.stream().collect(Collectors.toMap(
+                    Order::getOrderNo, order -> OrderStatusEvent.of(OrderStatusEvent.CANCELLED_TYPE,
+                            order.getId(), order.getOrderNo(), cancelledAt))));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.lingli.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lingli.order.entity.OrderItem;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 订单明细Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface OrderItemMapper extends BaseMapper<OrderItem> {
+
+    /**
+     * 多行INSERT批量写入订单明细，同一订单同一套餐已存在时忽略
+     *
+     * @return 影响行数
+     */
+    int batchInsert(@Param("items") List<OrderItem> items);
+}
\ No newline at end of file
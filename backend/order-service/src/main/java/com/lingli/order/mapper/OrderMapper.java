@@ -0,0 +1,54 @@
+package com.lingli.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lingli.order.entity.Order;
+import com.lingli.order.stats.UserOrderStats;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface OrderMapper extends BaseMapper<Order> {
+
+    /**
+     * 条件变更状态字段：仅当前状态在来源状态中（且版本号匹配）的订单被修改，版本号加1
+     *
+     * @param column          状态列名，只能取自 OrderTransition.Field
+     * @param to              目标状态值
+     * @param from            允许的来源状态值
+     * @param ids             订单ID
+     * @param expectedVersion 期望的版本号，为空时不校验
+     * @return 变更条数
+     */
+    int transit(@Param("column") String column, @Param("to") Integer to, @Param("from") Collection<Integer> from,
+                @Param("ids") Collection<Long> ids, @Param("expectedVersion") Integer expectedVersion);
+
+    /**
+     * 按用户、订单状态分组统计订单数、金额和待采样订单数
+     *
+     * @param cancelled       已取消的订单状态，不计入金额和待采样
+     * @param pendingSampling 视为待采样的采样状态
+     */
+    List<UserOrderStats> selectUserStats(@Param("userIds") Collection<Long> userIds,
+                                         @Param("cancelled") Integer cancelled,
+                                         @Param("pendingSampling") Collection<Integer> pendingSampling);
+
+    /**
+     * 查询指定时间后有订单变化的用户，按用户ID分页
+     *
+     * @param since       起始更新时间
+     * @param afterUserId 上一页最后一个用户ID，第一页为0
+     * @param limit       每页数量
+     */
+    List<Long> selectUserIdsUpdatedSince(@Param("since") LocalDateTime since, @Param("afterUserId") Long afterUserId,
+                                         @Param("limit") int limit);
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.lingli.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lingli.order.entity.OrderOutbox;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单事务发件箱Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface OrderOutboxMapper extends BaseMapper<OrderOutbox> {
+
+    /**
+     * 批量写入事件（需预先分配ID）
+     */
+    int batchInsert(@Param("rows") Collection<OrderOutbox> rows);
+
+    /**
+     * 领取一批到期事件（含租约已过期的处理中事件），标记为处理中并写入批次标识
+     *
+     * @param claimToken 批次标识
+     * @param now        当前时间
+     * @param leaseUntil 租约到期时间，到期未完成的事件可被重新领取
+     * @param limit      批次大小
+     * @return 领取条数
+     */
+    int claimBatch(@Param("claimToken") String claimToken, @Param("now") LocalDateTime now,
+                   @Param("leaseUntil") LocalDateTime leaseUntil, @Param("limit") int limit);
+
+    /**
+     * 查询批次已领取的事件
+     */
+    List<OrderOutbox> selectClaimed(@Param("claimToken") String claimToken);
+
+    /**
+     * 标记批次事件完成（仅批次标识仍匹配的事件）
+     *
+     * @return 更新条数
+     */
+    int markDone(@Param("claimToken") String claimToken, @Param("ids") Collection<Long> ids);
+
+    /**
+     * 统计指定时间前下单、尚未处理完的事件数
+     */
+    int countUnfinished(@Param("eventType") String eventType, @Param("before") LocalDateTime before);
+
+    /**
+     * 标记事件处理失败，记录原因并设置下次处理时间或置为失败
+     */
+    int markRetry(@Param("claimToken") String claimToken, @Param("id") Long id, @Param("status") int status,
+                  @Param("nextRetryAt") LocalDateTime nextRetryAt, @Param("lastError") String lastError);
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.lingli.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lingli.location.entity.PaymentRecord;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 支付记录Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface PaymentRecordMapper extends BaseMapper<PaymentRecord> {
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.lingli.order.mapper;
+
+import com.lingli.order.analytics.BucketRange;
+import com.lingli.order.analytics.RollupBackfillState;
+import com.lingli.order.analytics.SalesRollup;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 销售预聚合Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface SalesRollupMapper {
+
+    /**
+     * 批量累加增量，时间桶不存在时插入
+     */
+    int batchIncrement(@Param("rows") Collection<SalesRollup> rows);
+
+    /**
+     * 合并多段时间桶，按维度值汇总，按支付金额倒序
+     *
+     * @param dimension 维度
+     * @param ranges    时间桶范围（可混合粒度，不能重叠）
+     * @param limit     返回条数，为空时不限制
+     */
+    List<SalesRollup> selectMerged(@Param("dimension") Integer dimension,
+                                   @Param("ranges") Collection<BucketRange> ranges,
+                                   @Param("limit") Integer limit);
+
+    /**
+     * 查询一个维度值在时间范围内的各时间桶
+     */
+    List<SalesRollup> selectSeries(@Param("granularity") Integer granularity, @Param("dimension") Integer dimension,
+                                   @Param("dimensionKey") String dimensionKey, @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to);
+
+    /**
+     * 初始化回填状态，已存在时不修改
+     */
+    int initBackfill();
+
+    /**
+     * 查询回填状态
+     *
+     * @param forUpdate 是否加锁，回填事务内加锁保证只回填一次
+     */
+    RollupBackfillState selectBackfill(@Param("forUpdate") boolean forUpdate);
+
+    /**
+     * 标记回填完成
+     */
+    int markBackfilled();
+
+    /**
+     * 按订单表回填一个粒度的时间桶，累加到已有时间桶
+     *
+     * @param bucketFormat    时间桶起点的DATE_FORMAT格式
+     * @param cutoff          截止时间，此前下单的订单计入下单数
+     * @param cancelledStatus 已取消的订单状态
+     * @param paidType        支付事件类型，已有该事件的支付由发件箱累加
+     * @param cancelledType   取消事件类型，已有该事件的取消由发件箱累加
+     */
+    int backfill(@Param("granularity") Integer granularity, @Param("bucketFormat") String bucketFormat,
+                 @Param("cutoff") LocalDateTime cutoff, @Param("cancelledStatus") Integer cancelledStatus,
+                 @Param("paidType") String paidType, @Param("cancelledType") String cancelledType,
+                 @Param("allDimension") Integer allDimension, @Param("companyDimension") Integer companyDimension,
+                 @Param("cityDimension") Integer cityDimension, @Param("packageDimension") Integer packageDimension);
+
+    /**
+     * 删除指定粒度下早于给定时间的时间桶
+     *
+     * @return 删除条数
+     */
+    int deleteBefore(@Param("granularity") Integer granularity, @Param("before") LocalDateTime before,
+                     @Param("limit") int limit);
+}
\ No newline at end of file
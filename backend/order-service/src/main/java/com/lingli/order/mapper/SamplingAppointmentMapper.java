@@ -0,0 +1,15 @@
+package com.lingli.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lingli.location.entity.SamplingAppointment;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 采样预约Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface SamplingAppointmentMapper extends BaseMapper<SamplingAppointment> {
+}
\ No newline at end of file
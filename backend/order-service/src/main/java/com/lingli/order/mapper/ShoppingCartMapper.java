@@ -0,0 +1,27 @@
+package com.lingli.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lingli.order.entity.ShoppingCart;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 购物车Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface ShoppingCartMapper extends BaseMapper<ShoppingCart> {
+
+    /**
+     * 批量加购：按uk_user_package唯一键插入或累加数量，一条语句完成
+     * 已逻辑删除的记录视为新加购，数量和采样信息重置为本次值
+     *
+     * @param items 购物车记录（需预先分配ID，同一用户同一套餐不可重复）
+     * @return 影响行数
+     */
+    int batchUpsert(@Param("items") List<ShoppingCart> items);
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.lingli.order.outbox;
+
+import com.lingli.order.vo.cart.CartItemVO;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 订单已创建事件
+ * 携带下单时的购物车快照，后台据此生成订单明细并清理购物车
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class OrderCreatedEvent {
+
+    public static final String TYPE = "ORDER_CREATED";
+
+    /**
+     * 订单ID
+     */
+    private Long orderId;
+
+    /**
+     * 订单号（幂等键）
+     */
+    private String orderNo;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 下单时的购物车商品
+     */
+    private List<CartItemVO> items;
+}
\ No newline at end of file
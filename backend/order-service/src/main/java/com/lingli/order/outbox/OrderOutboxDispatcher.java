@@ -0,0 +1,372 @@
+package com.lingli.order.outbox;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.lingli.common.utils.JsonUtils;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.order.analytics.SalesRollupStore;
+import com.lingli.order.entity.OrderOutbox;
+import com.lingli.order.mapper.OrderOutboxMapper;
+import com.lingli.order.service.OrderService;
+import com.lingli.order.state.OrderTransition;
+import com.lingli.order.state.TransitionResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 订单事务发件箱调度
+ * 下单事务内写入事件，提交后唤醒调度线程；调度线程按批领取事件交给工作线程池处理。
+ * 每批在一个事务内完成业务处理并标记完成，标记时校验领取批次，租约过期被他人重新领取的批次整体回滚，
+ * 因此同一订单号的事件只会生效一次。批次失败时逐条重试以隔离异常事件，超过重试次数置为失败；
+ * 下单事件失败时订单没有明细无法履约，取消仍待支付的订单并释放预占库存。
+ * 支付回调事件在同一事务内应用支付结果，回调接收节点宕机后由定时调度重新领取
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class OrderOutboxDispatcher {
+
+    /**
+     * 订单事件广播频道，消息内容为逗号分隔的订单号，订阅方按订单号幂等处理
+     */
+    public static final String ORDER_CREATED_CHANNEL = "order:created";
+
+    // 事件状态
+    private static final int STATUS_PENDING = 0;
+    private static final int STATUS_FAILED = 3;
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final int APPEND_BATCH_SIZE = 500;
+
+    @Autowired
+    private OrderOutboxMapper outboxMapper;
+
+    @Lazy
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SalesRollupStore salesRollupStore;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${order.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${order.outbox.workers:4}")
+    private int workers;
+
+    /**
+     * 领取租约时长（秒），超时未完成的批次可被重新领取
+     */
+    @Value("${order.outbox.lease-seconds:30}")
+    private int leaseSeconds;
+
+    @Value("${order.outbox.max-retries:10}")
+    private int maxRetries;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ExecutorService poller;
+
+    private ExecutorService workerPool;
+
+    /**
+     * 限制同时处理的批次数，调度线程拿不到许可时停止领取
+     */
+    private Semaphore inFlight;
+
+    private final AtomicBoolean pollPending = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        inFlight = new Semaphore(workers);
+        poller = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("order-outbox-poller"));
+        workerPool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("order-outbox-worker"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        poller.shutdownNow();
+        workerPool.shutdown();
+        try {
+            workerPool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 在当前事务中写入事件，事务提交后唤醒调度
+     */
+    public void append(String orderNo, String eventType, Object payload) {
+        outboxMapper.insert(newOutbox(orderNo, eventType, payload, LocalDateTime.now()));
+
+        TransactionUtils.afterCommit(this::wakeUp);
+    }
+
+    /**
+     * 在当前事务中批量写入同类事件，事务提交后唤醒调度
+     *
+     * @param payloads 订单号 -> 事件内容
+     */
+    public void appendAll(String eventType, Map<String, ?> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderOutbox> rows = new ArrayList<>(payloads.size());
+        payloads.forEach((orderNo, payload) -> {
+            OrderOutbox outbox = newOutbox(orderNo, eventType, payload, now);
+            outbox.setId(IdWorker.getId());
+            rows.add(outbox);
+        });
+        for (int from = 0; from < rows.size(); from += APPEND_BATCH_SIZE) {
+            outboxMapper.batchInsert(rows.subList(from, Math.min(from + APPEND_BATCH_SIZE, rows.size())));
+        }
+
+        TransactionUtils.afterCommit(this::wakeUp);
+    }
+
+    /**
+     * 唤醒调度线程，已有待执行的调度时合并
+     */
+    public void wakeUp() {
+        if (pollPending.compareAndSet(false, true)) {
+            poller.execute(() -> {
+                pollPending.set(false);
+                poll();
+            });
+        }
+    }
+
+    /**
+     * 定时调度，兜底唤醒丢失、重试到期和租约过期的事件
+     */
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval:1000}")
+    public void scheduledPoll() {
+        wakeUp();
+    }
+
+    // ========== 私有方法 ==========
+
+    private OrderOutbox newOutbox(String orderNo, String eventType, Object payload, LocalDateTime now) {
+        OrderOutbox outbox = new OrderOutbox();
+        outbox.setOrderNo(orderNo);
+        outbox.setEventType(eventType);
+        outbox.setPayload(JsonUtils.toJson(payload));
+        outbox.setStatus(STATUS_PENDING);
+        outbox.setRetryCount(0);
+        outbox.setNextRetryAt(now);
+        return outbox;
+    }
+
+    private void poll() {
+        while (inFlight.tryAcquire()) {
+            List<OrderOutbox> batch;
+            String claimToken = UUID.randomUUID().toString();
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                int claimed = outboxMapper.claimBatch(claimToken, now, now.plusSeconds(leaseSeconds), batchSize);
+                batch = claimed > 0 ? outboxMapper.selectClaimed(claimToken) : Collections.emptyList();
+            } catch (Exception e) {
+                inFlight.release();
+                log.warn("领取订单事件失败: {}", e.getMessage());
+                return;
+            }
+
+            if (batch.isEmpty()) {
+                inFlight.release();
+                return;
+            }
+
+            workerPool.execute(() -> {
+                try {
+                    process(claimToken, batch);
+                } finally {
+                    inFlight.release();
+                    // 批次处理完后可能还有积压，继续领取
+                    if (batch.size() >= batchSize) {
+                        wakeUp();
+                    }
+                }
+            });
+        }
+    }
+
+    private void process(String claimToken, List<OrderOutbox> batch) {
+        try {
+            complete(claimToken, batch);
+            return;
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                scheduleRetry(claimToken, batch.get(0), e);
+                return;
+            }
+            log.warn("订单事件批量处理失败，逐条重试: size={}, error={}", batch.size(), e.getMessage());
+        }
+
+        for (OrderOutbox outbox : batch) {
+            try {
+                complete(claimToken, Collections.singletonList(outbox));
+            } catch (Exception e) {
+                scheduleRetry(claimToken, outbox, e);
+            }
+        }
+    }
+
+    /**
+     * 在一个事务内处理事件、累加销售预聚合并标记完成，批次已被他人重新领取时回滚
+     */
+    private void complete(String claimToken, List<OrderOutbox> batch) {
+        List<OrderCreatedEvent> events = batch.stream()
+                .filter(outbox -> OrderCreatedEvent.TYPE.equals(outbox.getEventType()))
+                .map(outbox -> JsonUtils.fromJson(outbox.getPayload(), OrderCreatedEvent.class))
+                .collect(Collectors.toList());
+        List<OrderStatusEvent> statusEvents = batch.stream()
+                .filter(outbox -> OrderStatusEvent.PAID_TYPE.equals(outbox.getEventType())
+                        || OrderStatusEvent.CANCELLED_TYPE.equals(outbox.getEventType()))
+                .map(outbox -> JsonUtils.fromJson(outbox.getPayload(), OrderStatusEvent.class))
+                .collect(Collectors.toList());
+        List<OrderOutbox> payments = batch.stream()
+                .filter(outbox -> PaymentNotifyEvent.SUCCESS_TYPE.equals(outbox.getEventType())
+                        || PaymentNotifyEvent.FAILURE_TYPE.equals(outbox.getEventType()))
+                .collect(Collectors.toList());
+        List<Long> ids = batch.stream().map(OrderOutbox::getId).collect(Collectors.toList());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!events.isEmpty()) {
+                orderService.completeCreatedOrders(events);
+            }
+            payments.forEach(this::applyPayment);
+            // 下单事件先生成明细，同一批次的支付、取消事件可直接按明细计入套餐维度
+            salesRollupStore.record(events, statusEvents);
+            int done = outboxMapper.markDone(claimToken, ids);
+            if (done != ids.size()) {
+                throw new IllegalStateException("订单事件租约已过期: expected=" + ids.size() + ", actual=" + done);
+            }
+            TransactionUtils.afterCommit(() -> notifyCreated(events));
+        });
+    }
+
+    /**
+     * 应用支付结果，支付记录和订单均为条件更新，重复处理不会生效两次
+     */
+    private void applyPayment(OrderOutbox outbox) {
+        PaymentNotifyEvent event = JsonUtils.fromJson(outbox.getPayload(), PaymentNotifyEvent.class);
+        if (PaymentNotifyEvent.SUCCESS_TYPE.equals(outbox.getEventType())) {
+            orderService.handlePaymentSuccess(event.getPaymentNo(), event.getTradeNo());
+        } else {
+            orderService.handlePaymentFailure(event.getPaymentNo(), event.getReason());
+        }
+    }
+
+    private void scheduleRetry(String claimToken, OrderOutbox outbox, Exception cause) {
+        int attempts = outbox.getRetryCount() + 1;
+        boolean exhausted = attempts >= maxRetries;
+        // 指数退避，最长约17分钟
+        long delaySeconds = 1L << Math.min(attempts, 10);
+        String error = String.valueOf(cause.getMessage());
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+
+        try {
+            outboxMapper.markRetry(claimToken, outbox.getId(), exhausted ? STATUS_FAILED : STATUS_PENDING,
+                    LocalDateTime.now().plusSeconds(delaySeconds), error);
+        } catch (Exception e) {
+            // 标记失败时等待租约过期后重新领取
+            log.warn("记录订单事件失败状态失败: orderNo={}, error={}", outbox.getOrderNo(), e.getMessage());
+        }
+
+        if (exhausted) {
+            log.error("订单事件处理失败，已停止重试: orderNo={}, type={}, error={}",
+                    outbox.getOrderNo(), outbox.getEventType(), error, cause);
+            compensate(outbox);
+        } else {
+            log.warn("订单事件处理失败，{}秒后重试: orderNo={}, attempts={}, error={}",
+                    delaySeconds, outbox.getOrderNo(), attempts, error);
+        }
+    }
+
+    /**
+     * 下单事件重试耗尽时取消订单：取消事务提交后释放预占库存、移除超时登记并写入取消事件。
+     * 订单已不是待支付状态（用户已支付）时只能人工处理；取消失败时由支付超时兜底取消
+     */
+    private void compensate(OrderOutbox outbox) {
+        if (!OrderCreatedEvent.TYPE.equals(outbox.getEventType())) {
+            return;
+        }
+        try {
+            OrderCreatedEvent event = JsonUtils.fromJson(outbox.getPayload(), OrderCreatedEvent.class);
+            TransitionResult result = orderService.transitOrders(
+                    Collections.singletonList(event.getOrderId()), OrderTransition.CANCEL_UNPAID);
+            if (result.getSucceeded().isEmpty()) {
+                log.error("下单事件处理失败且订单无法取消，需人工处理: orderNo={}, conflicts={}, notFound={}",
+                        outbox.getOrderNo(), result.getConflicts(), result.getNotFound());
+            } else {
+                log.warn("下单事件处理失败，已取消订单并释放库存: orderNo={}", outbox.getOrderNo());
+            }
+        } catch (Exception e) {
+            log.error("下单事件补偿取消失败，等待支付超时取消: orderNo={}, error={}", outbox.getOrderNo(), e.getMessage());
+        }
+    }
+
+    /**
+     * 广播订单已创建，通知失败不影响事件完成
+     */
+    private void notifyCreated(List<OrderCreatedEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        String orderNos = events.stream().map(OrderCreatedEvent::getOrderNo).collect(Collectors.joining(","));
+        try {
+            stringRedisTemplate.convertAndSend(ORDER_CREATED_CHANNEL, orderNos);
+        } catch (Exception e) {
+            log.warn("广播订单创建事件失败: orderNos={}, error={}", orderNos, e.getMessage());
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.lingli.order.outbox;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单支付、取消事件
+ * 与状态变更在同一事务内写入发件箱，后台据此累加销售预聚合；同一订单同类事件只有一条
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class OrderStatusEvent {
+
+    public static final String PAID_TYPE = "ORDER_PAID";
+
+    public static final String CANCELLED_TYPE = "ORDER_CANCELLED";
+
+    /**
+     * 事件类型：ORDER_PAID、ORDER_CANCELLED
+     */
+    private String type;
+
+    private Long orderId;
+
+    private String orderNo;
+
+    /**
+     * 发生时间，决定计入的时间桶
+     */
+    private LocalDateTime occurredAt;
+
+    public static OrderStatusEvent of(String type, Long orderId, String orderNo, LocalDateTime occurredAt) {
+        OrderStatusEvent event = new OrderStatusEvent();
+        event.setType(type);
+        event.setOrderId(orderId);
+        event.setOrderNo(orderNo);
+        event.setOccurredAt(occurredAt);
+        return event;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.lingli.order.outbox;
+
+import lombok.Data;
+
+/**
+ * 支付回调事件
+ * 回调接收时与原始报文在同一事务内写入发件箱（订单号列为支付单号），提交后即可应答支付渠道，
+ * 由发件箱调度应用支付结果；同一支付单同类回调只有一条，重复回调插入冲突即视为已接收
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class PaymentNotifyEvent {
+
+    public static final String SUCCESS_TYPE = "PAYMENT_SUCCEEDED";
+
+    public static final String FAILURE_TYPE = "PAYMENT_FAILED";
+
+    private String paymentNo;
+
+    /**
+     * 第三方交易号（支付成功时）
+     */
+    private String tradeNo;
+
+    /**
+     * 失败原因（支付失败时）
+     */
+    private String reason;
+
+    public static PaymentNotifyEvent of(String paymentNo, String tradeNo, String reason) {
+        PaymentNotifyEvent event = new PaymentNotifyEvent();
+        event.setPaymentNo(paymentNo);
+        event.setTradeNo(tradeNo);
+        event.setReason(reason);
+        return event;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.lingli.order.payment;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.lingli.common.utils.JsonUtils;
+import com.lingli.location.entity.PaymentRecord;
+import com.lingli.order.mapper.PaymentRecordMapper;
+import com.lingli.order.outbox.OrderOutboxDispatcher;
+import com.lingli.order.outbox.PaymentNotifyEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支付回调处理
+ * 回调线程只做持久化即可应答：Redis按支付单号和回调类型记录已接收的回调，重复回调直接应答；
+ * 去重粒度与发件箱唯一键（支付单号、事件类型）一致，失败通知之后的成功通知不会被当作重复回调；
+ * 新回调在一个事务内保存原始报文并写入发件箱，提交后才应答，写入失败时不应答，由支付渠道稍后重试。
+ * 支付结果由发件箱工作线程应用，节点宕机后由定时调度重新领取，状态变更均为条件更新，重复处理不会生效两次
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class PaymentCallbackProcessor {
+
+    // Redis键前缀，后接支付单号和回调类型（值：已接收的回调）
+    private static final String NOTIFY_DEDUPE_KEY = "payment:notify:";
+
+    private static final String STATE_ACCEPTED = "accepted";
+
+    @Autowired
+    private PaymentRecordMapper paymentRecordMapper;
+
+    @Autowired
+    private OrderOutboxDispatcher orderOutboxDispatcher;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 已接收标记的有效期（小时），覆盖渠道的重试周期
+     */
+    @Value("${order.payment.done-ttl-hours:48}")
+    private long doneTtlHours;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 接收支付回调，回调已持久化后才返回true
+     *
+     * @param paymentNo  支付单号
+     * @param tradeNo    第三方交易号
+     * @param success    是否支付成功
+     * @param reason     失败原因
+     * @param notifyData 原始回调报文
+     * @return 是否可以向支付渠道应答成功；返回false时渠道会重试
+     */
+    public boolean accept(String paymentNo, String tradeNo, boolean success, String reason, String notifyData) {
+        String eventType = success ? PaymentNotifyEvent.SUCCESS_TYPE : PaymentNotifyEvent.FAILURE_TYPE;
+        String dedupeKey = NOTIFY_DEDUPE_KEY + paymentNo + ":" + eventType;
+        if (isAccepted(dedupeKey)) {
+            log.debug("重复支付回调: paymentNo={}, type={}", paymentNo, eventType);
+            return true;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                orderOutboxDispatcher.append(paymentNo, eventType,
+                        PaymentNotifyEvent.of(paymentNo, tradeNo, reason));
+                saveNotifyData(paymentNo, notifyData);
+            });
+        } catch (DuplicateKeyException e) {
+            // 同一回调已由其他请求写入
+            log.debug("重复支付回调: paymentNo={}, type={}", paymentNo, eventType);
+        } catch (Exception e) {
+            log.error("保存支付回调失败，等待渠道重试: paymentNo={}, success={}, error={}",
+                    paymentNo, success, e.getMessage(), e);
+            return false;
+        }
+
+        markAccepted(dedupeKey);
+        return true;
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 保存原始回调报文，非JSON报文（如表单格式）按JSON字符串保存
+     */
+    private void saveNotifyData(String paymentNo, String notifyData) {
+        if (notifyData == null || notifyData.isEmpty()) {
+            return;
+        }
+        String trimmed = notifyData.trim();
+        String json = trimmed.startsWith("{") || trimmed.startsWith("[") ? trimmed : JsonUtils.toJson(notifyData);
+        paymentRecordMapper.update(null, new LambdaUpdateWrapper<PaymentRecord>()
+                .set(PaymentRecord::getNotifyData, json)
+                .eq(PaymentRecord::getPaymentNo, paymentNo));
+    }
+
+    private boolean isAccepted(String dedupeKey) {
+        try {
+            return STATE_ACCEPTED.equals(stringRedisTemplate.opsForValue().get(dedupeKey));
+        } catch (Exception e) {
+            // Redis不可用时跳过快速去重，由发件箱唯一键保证幂等
+            log.warn("支付回调去重失败: key={}, error={}", dedupeKey, e.getMessage());
+            return false;
+        }
+    }
+
+    private void markAccepted(String dedupeKey) {
+        try {
+            stringRedisTemplate.opsForValue().set(dedupeKey, STATE_ACCEPTED, doneTtlHours, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("记录支付回调去重标记失败: key={}, error={}", dedupeKey, e.getMessage());
+        }
+    }
+}
\ No newline at end of file
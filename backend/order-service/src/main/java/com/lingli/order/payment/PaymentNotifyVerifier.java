@@ -0,0 +1,172 @@
+package com.lingli.order.payment;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 支付回调验签
+ * 支付宝：除sign、sign_type外的参数按名称排序拼接后以支付宝公钥做RSA2验签；
+ * 微信支付V3：应答时间戳、随机串、报文拼接后以平台公钥做SHA256withRSA验签，通知内容以APIv3密钥AES-GCM解密。
+ * 未配置密钥的渠道拒绝全部回调
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class PaymentNotifyVerifier {
+
+    private static final String SIGN_ALGORITHM = "SHA256withRSA";
+
+    private static final int GCM_TAG_BITS = 128;
+
+    /**
+     * 支付宝公钥（Base64编码的X.509公钥）
+     */
+    @Value("${order.payment.alipay.public-key:}")
+    private String alipayPublicKey;
+
+    /**
+     * 微信支付平台公钥（Base64编码的X.509公钥）
+     */
+    @Value("${order.payment.wechat.platform-public-key:}")
+    private String wechatPlatformPublicKey;
+
+    /**
+     * 微信支付APIv3密钥（32字节）
+     */
+    @Value("${order.payment.wechat.api-v3-key:}")
+    private String wechatApiV3Key;
+
+    /**
+     * 微信回调时间戳允许的最大偏差（秒），防止重放
+     */
+    @Value("${order.payment.wechat.max-clock-skew-seconds:300}")
+    private long maxClockSkewSeconds;
+
+    private PublicKey alipayKey;
+
+    private PublicKey wechatKey;
+
+    @PostConstruct
+    public void init() {
+        alipayKey = parsePublicKey(alipayPublicKey, "alipay");
+        wechatKey = parsePublicKey(wechatPlatformPublicKey, "wechat");
+    }
+
+    /**
+     * 支付宝回调验签
+     *
+     * @param params 回调参数
+     */
+    public boolean verifyAlipay(Map<String, String> params) {
+        String sign = params.get("sign");
+        if (alipayKey == null || sign == null || sign.isEmpty()) {
+            return false;
+        }
+
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(params).entrySet()) {
+            String name = entry.getKey();
+            if ("sign".equals(name) || "sign_type".equals(name)
+                    || entry.getValue() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+            if (content.length() > 0) {
+                content.append('&');
+            }
+            content.append(name).append('=').append(entry.getValue());
+        }
+        return verify(alipayKey, content.toString(), sign);
+    }
+
+    /**
+     * 微信支付V3回调验签
+     *
+     * @param timestamp 请求头Wechatpay-Timestamp（秒）
+     * @param nonce     请求头Wechatpay-Nonce
+     * @param body      请求报文
+     * @param signature 请求头Wechatpay-Signature
+     */
+    public boolean verifyWechat(String timestamp, String nonce, String body, String signature) {
+        if (wechatKey == null || timestamp == null || nonce == null || signature == null) {
+            return false;
+        }
+        try {
+            long skew = Math.abs(System.currentTimeMillis() / 1000 - Long.parseLong(timestamp));
+            if (skew > maxClockSkewSeconds) {
+                log.warn("微信支付回调时间戳过期: timestamp={}", timestamp);
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return verify(wechatKey, timestamp + "\n" + nonce + "\n" + body + "\n", signature);
+    }
+
+    /**
+     * 解密微信支付V3通知内容
+     *
+     * @return 明文，解密失败时返回null
+     */
+    public String decryptWechat(String associatedData, String nonce, String ciphertext) {
+        if (wechatApiV3Key == null || wechatApiV3Key.isEmpty() || nonce == null || ciphertext == null) {
+            return null;
+        }
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE,
+                    new SecretKeySpec(wechatApiV3Key.getBytes(StandardCharsets.UTF_8), "AES"),
+                    new GCMParameterSpec(GCM_TAG_BITS, nonce.getBytes(StandardCharsets.UTF_8)));
+            if (associatedData != null) {
+                cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] plain = cipher.doFinal(Base64.getDecoder().decode(ciphertext));
+            return new String(plain, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.warn("解密微信支付回调失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    private boolean verify(PublicKey key, String content, String sign) {
+        try {
+            Signature signature = Signature.getInstance(SIGN_ALGORITHM);
+            signature.initVerify(key);
+            signature.update(content.getBytes(StandardCharsets.UTF_8));
+            return signature.verify(Base64.getDecoder().decode(sign));
+        } catch (Exception e) {
+            log.warn("支付回调验签异常: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static PublicKey parsePublicKey(String encoded, String channel) {
+        if (encoded == null || encoded.trim().isEmpty()) {
+            log.warn("未配置支付渠道公钥，该渠道回调将被拒绝: channel={}", channel);
+            return null;
+        }
+        try {
+            byte[] der = Base64.getMimeDecoder().decode(encoded.trim());
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(der));
+        } catch (Exception e) {
+            throw new IllegalStateException("支付渠道公钥格式错误: channel=" + channel, e);
+        }
+    }
+}
\ No newline at end of file
@@ -6,12 +6,19 @@ import com.lingli.order.dto.cart.UpdateCartDTO;
 import com.lingli.order.dto.order.CreateOrderDTO;
 import com.lingli.order.dto.order.SamplingInfoDTO;
 import com.lingli.order.entity.Order;
+import com.lingli.order.outbox.OrderCreatedEvent;
+import com.lingli.order.state.OrderTransition;
+import com.lingli.order.state.TransitionResult;
 import com.lingli.order.vo.cart.CartItemVO;
 import com.lingli.order.vo.order.OrderDetailVO;
 import com.lingli.order.vo.order.OrderListVO;
 import com.lingli.order.vo.order.OrderVO;
+import lombok.Data;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 订单服务接口
@@ -70,6 +77,13 @@ public interface OrderService {
      */
     PageResult<OrderListVO> getOrderList(Long userId, Integer status, Integer page, Integer size);
 
+    /**
+     * 游标分页获取订单列表（按下单时间倒序，不统计总数）
+     *
+     * @param cursor 上一页返回的游标，第一页为空
+     */
+    PageResult<OrderListVO> getOrderFeed(Long userId, Integer status, String cursor, Integer size);
+
     /**
      * 获取订单详情
      */
@@ -139,6 +153,33 @@ public interface OrderService {
      */
     void updateSamplingStatus(Long orderId, Integer samplingStatus);
 
+    /**
+     * 按状态机变更单个订单状态
+     *
+     * @param expectedVersion 读取订单时的版本号，为空时不校验
+     */
+    void transitOrder(Long orderId, OrderTransition transition, Integer expectedVersion);
+
+    /**
+     * 按状态机批量变更订单状态，每批一条条件UPDATE，不满足来源状态的订单作为冲突返回
+     */
+    TransitionResult transitOrders(List<Long> orderIds, OrderTransition transition);
+
+    // ========== 订单流水线 ==========
+
+    /**
+     * 完成已创建订单的后续处理：生成订单明细快照，兜底清理已下单的购物车商品（下单事务中已删除）
+     * 由发件箱工作线程按批调用，与事件完成标记在同一事务中
+     */
+    void completeCreatedOrders(List<OrderCreatedEvent> events);
+
+    /**
+     * 批量取消支付超时的订单，仅取消仍待支付的订单并释放其预占库存
+     *
+     * @return 取消的订单数
+     */
+    int cancelTimeoutOrders(List<Long> orderIds);
+
     // ========== 统计相关 ==========
 
     /**
@@ -146,6 +187,13 @@ public interface OrderService {
      */
     OrderStatisticsVO getOrderStatistics(Long userId);
 
+    /**
+     * 按订单状态统计订单数（走状态索引，用于统计进行中的状态）
+     *
+     * @return 订单状态 -> 订单数，没有订单的状态不包含在内
+     */
+    Map<Integer, Long> countOrdersByStatus(Collection<Integer> statuses);
+
     /**
      * 获取购物车商品数量
      */
@@ -164,6 +212,7 @@ public interface OrderService {
     /**
      * 订单统计VO
      */
+    @Data
     class OrderStatisticsVO {
         private Integer totalOrders;
         private Integer pendingOrders;
@@ -171,10 +220,9 @@ public interface OrderService {
         private Integer shippedOrders;
         private Integer completedOrders;
         private Integer cancelledOrders;
+        private Integer pendingSamplingOrders;
         private BigDecimal totalAmount;
         private BigDecimal paidAmount;
-
-        // getters and setters
     }
 
     /**
@@ -0,0 +1,135 @@
+package com.lingli.order.state;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.common.enums.PayStatus;
+import com.lingli.common.enums.SamplingStatus;
+import com.lingli.order.entity.Order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 订单状态机
+ * 声明订单状态、支付状态、采样状态允许的转换：每个转换只修改一个状态字段，
+ * 由一条 UPDATE ... WHERE 状态 IN (允许的来源状态) 完成校验和变更，不满足来源状态的订单即为冲突
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public enum OrderTransition {
+
+    // ========== 订单状态 ==========
+
+    PAY(Field.STATUS, OrderStatus.PAID.getCode(), OrderStatus.PENDING_PAYMENT.getCode()),
+    PREPARE_SHIPMENT(Field.STATUS, OrderStatus.PENDING_SHIPMENT.getCode(), OrderStatus.PAID.getCode()),
+    SHIP(Field.STATUS, OrderStatus.SHIPPED.getCode(),
+            OrderStatus.PAID.getCode(), OrderStatus.PENDING_SHIPMENT.getCode()),
+    COMPLETE(Field.STATUS, OrderStatus.COMPLETED.getCode(), OrderStatus.SHIPPED.getCode()),
+    /**
+     * 管理员取消，未发货的订单均可取消
+     */
+    CANCEL(Field.STATUS, OrderStatus.CANCELLED.getCode(), OrderStatus.PENDING_PAYMENT.getCode(),
+            OrderStatus.PAID.getCode(), OrderStatus.PENDING_SHIPMENT.getCode()),
+    /**
+     * 用户取消、支付超时取消，仅限待支付订单
+     */
+    CANCEL_UNPAID(Field.STATUS, OrderStatus.CANCELLED.getCode(), OrderStatus.PENDING_PAYMENT.getCode()),
+
+    // ========== 支付状态 ==========
+
+    START_PAYING(Field.PAY_STATUS, PayStatus.PAYING.getCode(),
+            PayStatus.PENDING.getCode(), PayStatus.PAYMENT_FAILED.getCode()),
+    PAY_SUCCESS(Field.PAY_STATUS, PayStatus.PAID.getCode(),
+            PayStatus.PENDING.getCode(), PayStatus.PAYING.getCode(), PayStatus.PAYMENT_FAILED.getCode()),
+    PAY_FAIL(Field.PAY_STATUS, PayStatus.PAYMENT_FAILED.getCode(),
+            PayStatus.PENDING.getCode(), PayStatus.PAYING.getCode()),
+
+    // ========== 采样状态 ==========
+
+    APPOINT_SAMPLING(Field.SAMPLING_STATUS, SamplingStatus.APPOINTED.getCode(), SamplingStatus.PENDING.getCode()),
+    COLLECT_SAMPLE(Field.SAMPLING_STATUS, SamplingStatus.COLLECTED.getCode(),
+            SamplingStatus.PENDING.getCode(), SamplingStatus.APPOINTED.getCode()),
+    SUBMIT_SAMPLE(Field.SAMPLING_STATUS, SamplingStatus.SUBMITTED.getCode(), SamplingStatus.COLLECTED.getCode());
+
+    private final Field field;
+    private final Integer to;
+    private final List<Integer> from;
+
+    OrderTransition(Field field, Integer to, Integer... from) {
+        this.field = field;
+        this.to = to;
+        this.from = Collections.unmodifiableList(Arrays.asList(from));
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public Integer getTo() {
+        return to;
+    }
+
+    public List<Integer> getFrom() {
+        return from;
+    }
+
+    /**
+     * 根据目标状态查找转换
+     * 同一目标状态有多个转换时（如已取消对应管理员取消和待支付取消，来源状态不同）无法确定调用方意图，
+     * 返回null，调用方需直接指定转换
+     *
+     * @return 不存在或不唯一时返回null
+     */
+    public static OrderTransition resolve(Field field, Integer to) {
+        List<OrderTransition> candidates = resolveAll(field, to);
+        return candidates.size() == 1 ? candidates.get(0) : null;
+    }
+
+    /**
+     * 目标状态对应的全部转换
+     */
+    public static List<OrderTransition> resolveAll(Field field, Integer to) {
+        List<OrderTransition> candidates = new ArrayList<>();
+        for (OrderTransition transition : OrderTransition.values()) {
+            if (transition.field == field && transition.to.equals(to)) {
+                candidates.add(transition);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 状态字段
+     */
+    public enum Field {
+
+        STATUS("status", order -> order.getStatus() == null ? null : order.getStatus().getCode()),
+        PAY_STATUS("pay_status", order -> order.getPayStatus() == null ? null : order.getPayStatus().getCode()),
+        SAMPLING_STATUS("sampling_status", Order::getSamplingStatus);
+
+        /**
+         * 数据库列名，直接拼接到SQL中，只能来自本枚举
+         */
+        private final String column;
+        private final Function<Order, Integer> reader;
+
+        Field(String column, Function<Order, Integer> reader) {
+            this.column = column;
+            this.reader = reader;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * 读取订单当前的状态值
+         */
+        public Integer read(Order order) {
+            return reader.apply(order);
+        }
+    }
+}
\ No newline at end of file
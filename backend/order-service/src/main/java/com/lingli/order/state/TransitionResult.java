@@ -0,0 +1,45 @@
+package com.lingli.order.state;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量状态变更结果
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class TransitionResult {
+
+    /**
+     * 状态转换
+     */
+    private OrderTransition transition;
+
+    /**
+     * 变更成功的订单ID（含已处于目标状态的订单）
+     */
+    private List<Long> succeeded = new ArrayList<>();
+
+    /**
+     * 当前状态不允许变更的订单：订单ID -> 当前状态值
+     */
+    private Map<Long, Integer> conflicts = new LinkedHashMap<>();
+
+    /**
+     * 不存在的订单ID
+     */
+    private List<Long> notFound = new ArrayList<>();
+
+    public TransitionResult() {
+    }
+
+    public TransitionResult(OrderTransition transition) {
+        this.transition = transition;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,356 @@
+package com.lingli.order.stats;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.common.enums.SamplingStatus;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.order.entity.Order;
+import com.lingli.order.mapper.OrderMapper;
+import com.lingli.order.service.OrderService.OrderStatisticsVO;
+import com.lingli.order.state.OrderTransition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 用户订单统计计数器
+ * 每个用户一个Redis哈希：订单总数、各状态订单数、订单金额、已付金额（分）和待采样订单数，个人中心一次HGETALL读取。
+ * 下单、支付、状态变更在事务提交后原子累加；来源状态不唯一的转换无法确定增量，改为按用户回源重算。
+ * 累加只作用于已存在的哈希，缺失的哈希在读取时回源重建；定时对账重算最近有订单变化的用户，修复漂移
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class OrderStatsCounter {
+
+    // Redis键
+    private static final String STATS_KEY = "order:stats:";
+    private static final String RECONCILE_LOCK_KEY = "order:stats:reconcile:lock";
+    private static final String RECONCILE_WATERMARK_KEY = "order:stats:reconcile:watermark";
+
+    // 哈希字段
+    private static final String FIELD_TOTAL = "total";
+    private static final String FIELD_STATUS_PREFIX = "s:";
+    private static final String FIELD_AMOUNT = "amount";
+    private static final String FIELD_PAID = "paid";
+    private static final String FIELD_SAMPLING = "sampling";
+
+    /**
+     * 计入待采样的采样状态
+     */
+    private static final List<Integer> PENDING_SAMPLING =
+            Arrays.asList(SamplingStatus.PENDING.getCode(), SamplingStatus.APPOINTED.getCode());
+
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    /**
+     * 哈希存在时累加各字段并续期
+     * KEYS[1] 统计键；ARGV[1] 过期秒数，其后为字段、增量交替
+     */
+    private static final String INCREMENT_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end\n" +
+            "for i = 2, #ARGV, 2 do\n" +
+            "  redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "return 1";
+
+    /**
+     * 整体替换统计哈希
+     * KEYS[1] 统计键；ARGV[1] 过期秒数，其后为字段、值交替
+     */
+    private static final DefaultRedisScript<Long> REPLACE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1])\n" +
+            "redis.call('HSET', KEYS[1], unpack(ARGV, 2))\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "return 1",
+            Long.class);
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 统计哈希过期时间（天），长期不活跃的用户下次访问时回源重建
+     */
+    @Value("${order.stats.ttl-days:7}")
+    private long ttlDays;
+
+    /**
+     * 对账时向前多扫描的秒数，覆盖事务提交晚于更新时间的订单
+     */
+    @Value("${order.stats.reconcile-overlap-seconds:120}")
+    private long reconcileOverlapSeconds;
+
+    /**
+     * 读取用户订单统计，哈希不存在时回源重建
+     */
+    public OrderStatisticsVO get(Long userId) {
+        Map<Object, Object> hash = stringRedisTemplate.opsForHash().entries(STATS_KEY + userId);
+        Map<String, Long> counters = new HashMap<>();
+        if (hash.isEmpty()) {
+            counters = rebuild(Collections.singletonList(userId)).get(userId);
+        } else {
+            for (Map.Entry<Object, Object> entry : hash.entrySet()) {
+                counters.put(entry.getKey().toString(), Long.parseLong(entry.getValue().toString()));
+            }
+        }
+        return toStatistics(counters);
+    }
+
+    /**
+     * 事务提交后累加新订单
+     */
+    public void onCreatedAfterCommit(Order order) {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        deltas.put(FIELD_TOTAL, 1L);
+        deltas.put(FIELD_STATUS_PREFIX + order.getStatus().getCode(), 1L);
+        deltas.put(FIELD_AMOUNT, toCents(order.getTotalAmount()));
+        if (PENDING_SAMPLING.contains(order.getSamplingStatus())) {
+            deltas.put(FIELD_SAMPLING, 1L);
+        }
+        incrementAfterCommit(Collections.singletonMap(order.getUserId(), deltas));
+    }
+
+    /**
+     * 事务提交后累加支付成功的订单：待支付 -> 已支付
+     */
+    public void onPaidAfterCommit(Order order) {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        deltas.put(FIELD_STATUS_PREFIX + OrderStatus.PENDING_PAYMENT.getCode(), -1L);
+        deltas.put(FIELD_STATUS_PREFIX + OrderStatus.PAID.getCode(), 1L);
+        deltas.put(FIELD_PAID, toCents(order.getPaidAmount()));
+        incrementAfterCommit(Collections.singletonMap(order.getUserId(), deltas));
+    }
+
+    /**
+     * 事务提交后按状态转换累加
+     *
+     * @param orders 确定由本次转换变更的订单（变更后的状态），需包含用户、状态、金额和采样状态
+     */
+    public void onTransitedAfterCommit(OrderTransition transition, List<Order> orders) {
+        if (orders.isEmpty() || transition.getField() == OrderTransition.Field.PAY_STATUS) {
+            return;
+        }
+
+        boolean samplingField = transition.getField() == OrderTransition.Field.SAMPLING_STATUS;
+        long pendingBefore = transition.getFrom().stream().filter(PENDING_SAMPLING::contains).count();
+        boolean ambiguous = samplingField
+                ? pendingBefore != 0 && pendingBefore != transition.getFrom().size()
+                : transition.getFrom().size() != 1;
+        if (ambiguous) {
+            rebuildAfterCommit(orders);
+            return;
+        }
+
+        Map<Long, Map<String, Long>> deltasByUser = new HashMap<>();
+        for (Order order : orders) {
+            Map<String, Long> deltas = deltasByUser.computeIfAbsent(order.getUserId(), key -> new LinkedHashMap<>());
+            if (samplingField) {
+                // 已取消的订单不计入待采样
+                if (order.getStatus() != OrderStatus.CANCELLED) {
+                    long change = (PENDING_SAMPLING.contains(transition.getTo()) ? 1 : 0) - (pendingBefore > 0 ? 1 : 0);
+                    deltas.merge(FIELD_SAMPLING, change, Long::sum);
+                }
+                continue;
+            }
+
+            deltas.merge(FIELD_STATUS_PREFIX + transition.getFrom().get(0), -1L, Long::sum);
+            deltas.merge(FIELD_STATUS_PREFIX + transition.getTo(), 1L, Long::sum);
+            if (OrderStatus.CANCELLED.getCode().equals(transition.getTo())) {
+                deltas.merge(FIELD_AMOUNT, -toCents(order.getTotalAmount()), Long::sum);
+                deltas.merge(FIELD_PAID, -toCents(order.getPaidAmount()), Long::sum);
+                if (PENDING_SAMPLING.contains(order.getSamplingStatus())) {
+                    deltas.merge(FIELD_SAMPLING, -1L, Long::sum);
+                }
+            }
+        }
+        incrementAfterCommit(deltasByUser);
+    }
+
+    /**
+     * 事务提交后按用户回源重算（无法确定增量的变更）
+     */
+    public void rebuildAfterCommit(List<Order> orders) {
+        List<Long> userIds = orders.stream().map(Order::getUserId).distinct().collect(Collectors.toList());
+        TransactionUtils.afterCommit(() -> {
+            try {
+                rebuild(userIds);
+            } catch (Exception e) {
+                log.warn("重算用户订单统计失败: userIds={}, error={}", userIds, e.getMessage());
+                evict(userIds);
+            }
+        });
+    }
+
+    /**
+     * 定时对账：重算上次对账以来有订单变化的用户，修复累加漂移
+     */
+    @Scheduled(fixedDelayString = "${order.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(RECONCILE_LOCK_KEY, "1", 10, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            String watermark = stringRedisTemplate.opsForValue().get(RECONCILE_WATERMARK_KEY);
+            LocalDateTime since = (watermark != null
+                    ? LocalDateTime.parse(watermark, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                    : startedAt.minusDays(1)).minusSeconds(reconcileOverlapSeconds);
+
+            int reconciled = 0;
+            long afterUserId = 0L;
+            List<Long> userIds;
+            do {
+                userIds = orderMapper.selectUserIdsUpdatedSince(since, afterUserId, RECONCILE_BATCH_SIZE);
+                if (!userIds.isEmpty()) {
+                    rebuild(userIds);
+                    reconciled += userIds.size();
+                    afterUserId = userIds.get(userIds.size() - 1);
+                }
+            } while (userIds.size() >= RECONCILE_BATCH_SIZE);
+
+            stringRedisTemplate.opsForValue().set(RECONCILE_WATERMARK_KEY,
+                    startedAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            log.debug("用户订单统计对账完成: since={}, users={}", since, reconciled);
+        } catch (Exception e) {
+            log.warn("用户订单统计对账失败: {}", e.getMessage());
+        } finally {
+            stringRedisTemplate.delete(RECONCILE_LOCK_KEY);
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    private void incrementAfterCommit(Map<Long, Map<String, Long>> deltasByUser) {
+        String ttl = String.valueOf(TimeUnit.DAYS.toSeconds(ttlDays));
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    deltasByUser.forEach((userId, deltas) -> {
+                        List<String> keysAndArgs = new ArrayList<>();
+                        keysAndArgs.add(STATS_KEY + userId);
+                        keysAndArgs.add(ttl);
+                        deltas.forEach((field, delta) -> {
+                            keysAndArgs.add(field);
+                            keysAndArgs.add(String.valueOf(delta));
+                        });
+                        stringConnection.eval(INCREMENT_SCRIPT, ReturnType.INTEGER, 1, keysAndArgs.toArray(new String[0]));
+                    });
+                    return null;
+                });
+            } catch (Exception e) {
+                // 累加失败的用户删除统计，下次读取时回源重建
+                log.warn("累加用户订单统计失败: userIds={}, error={}", deltasByUser.keySet(), e.getMessage());
+                evict(deltasByUser.keySet());
+            }
+        });
+    }
+
+    /**
+     * 一次分组查询重算多个用户的统计并整体替换
+     */
+    private Map<Long, Map<String, Long>> rebuild(List<Long> userIds) {
+        Map<Long, Map<String, Long>> countersByUser = new HashMap<>();
+        for (Long userId : userIds) {
+            countersByUser.put(userId, emptyCounters());
+        }
+        for (UserOrderStats row : orderMapper.selectUserStats(userIds, OrderStatus.CANCELLED.getCode(), PENDING_SAMPLING)) {
+            Map<String, Long> counters = countersByUser.get(row.getUserId());
+            counters.merge(FIELD_TOTAL, row.getOrderCount(), Long::sum);
+            counters.put(FIELD_STATUS_PREFIX + row.getStatus(), row.getOrderCount());
+            counters.merge(FIELD_AMOUNT, toCents(row.getTotalAmount()), Long::sum);
+            counters.merge(FIELD_PAID, toCents(row.getPaidAmount()), Long::sum);
+            counters.merge(FIELD_SAMPLING, row.getPendingSamplingCount(), Long::sum);
+        }
+
+        String ttl = String.valueOf(TimeUnit.DAYS.toSeconds(ttlDays));
+        countersByUser.forEach((userId, counters) -> {
+            List<String> args = new ArrayList<>();
+            args.add(ttl);
+            counters.forEach((field, value) -> {
+                args.add(field);
+                args.add(String.valueOf(value));
+            });
+            try {
+                stringRedisTemplate.execute(REPLACE_SCRIPT, Collections.singletonList(STATS_KEY + userId),
+                        args.toArray());
+            } catch (Exception e) {
+                log.warn("写入用户订单统计失败: userId={}, error={}", userId, e.getMessage());
+            }
+        });
+        return countersByUser;
+    }
+
+    private Map<String, Long> emptyCounters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put(FIELD_TOTAL, 0L);
+        for (OrderStatus status : OrderStatus.values()) {
+            counters.put(FIELD_STATUS_PREFIX + status.getCode(), 0L);
+        }
+        counters.put(FIELD_AMOUNT, 0L);
+        counters.put(FIELD_PAID, 0L);
+        counters.put(FIELD_SAMPLING, 0L);
+        return counters;
+    }
+
+    private void evict(Collection<Long> userIds) {
+        try {
+            stringRedisTemplate.delete(userIds.stream()
+                    .map(userId -> STATS_KEY + userId)
+                    .collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.warn("删除用户订单统计失败: userIds={}, error={}", userIds, e.getMessage());
+        }
+    }
+
+    private OrderStatisticsVO toStatistics(Map<String, Long> counters) {
+        OrderStatisticsVO statistics = new OrderStatisticsVO();
+        statistics.setTotalOrders(count(counters, FIELD_TOTAL));
+        statistics.setPendingOrders(count(counters, FIELD_STATUS_PREFIX + OrderStatus.PENDING_PAYMENT.getCode()));
+        statistics.setPaidOrders(count(counters, FIELD_STATUS_PREFIX + OrderStatus.PAID.getCode()));
+        statistics.setShippedOrders(count(counters, FIELD_STATUS_PREFIX + OrderStatus.SHIPPED.getCode()));
+        statistics.setCompletedOrders(count(counters, FIELD_STATUS_PREFIX + OrderStatus.COMPLETED.getCode()));
+        statistics.setCancelledOrders(count(counters, FIELD_STATUS_PREFIX + OrderStatus.CANCELLED.getCode()));
+        statistics.setPendingSamplingOrders(count(counters, FIELD_SAMPLING));
+        statistics.setTotalAmount(BigDecimal.valueOf(counters.getOrDefault(FIELD_AMOUNT, 0L), 2));
+        statistics.setPaidAmount(BigDecimal.valueOf(counters.getOrDefault(FIELD_PAID, 0L), 2));
+        return statistics;
+    }
+
+    private static Integer count(Map<String, Long> counters, String field) {
+        return Math.max(0, counters.getOrDefault(field, 0L).intValue());
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0L : amount.movePointRight(2).longValue();
+    }
+}
\ No newline at end of file
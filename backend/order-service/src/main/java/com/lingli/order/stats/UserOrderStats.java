@@ -0,0 +1,33 @@
+package com.lingli.order.stats;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 用户订单按状态分组的统计行
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class UserOrderStats {
+
+    private Long userId;
+
+    /**
+     * 订单状态
+     */
+    private Integer status;
+
+    private Long orderCount;
+
+    private BigDecimal totalAmount;
+
+    private BigDecimal paidAmount;
+
+    /**
+     * 待采样（待采样、已预约）的订单数
+     */
+    private Long pendingSamplingCount;
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.lingli.order.timeout;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮
+ * 按到期时间将任务散列到环形槽位，工作线程每个刻度只处理当前槽位，添加和到期均为O(1)。
+ * 添加任务只写入无锁队列，由工作线程在下一个刻度转入槽位；同一刻度到期的任务合并为一批回调，
+ * 回调在工作线程执行，耗时操作应交给其他线程
+ *
+ * @param <T> 任务内容
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+public class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Entry<T>>> buckets;
+    private final Queue<Entry<T>> incoming = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> expiryHandler;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread worker;
+
+    private volatile boolean running;
+
+    private long startTime;
+
+    private long tick;
+
+    /**
+     * @param name          工作线程名
+     * @param tickMillis    刻度时长
+     * @param wheelSize     槽位数（向上取整为2的幂）
+     * @param expiryHandler 到期回调，参数为同一刻度到期的全部任务
+     */
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize, Consumer<List<T>> expiryHandler) {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.expiryHandler = expiryHandler;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * 添加任务，到期时间已过的任务在下一个刻度到期
+     *
+     * @param item           任务内容
+     * @param deadlineMillis 到期时间（毫秒时间戳）
+     */
+    public void add(T item, long deadlineMillis) {
+        incoming.add(new Entry<>(item, deadlineMillis));
+        pending.incrementAndGet();
+    }
+
+    /**
+     * 尚未到期的任务数
+     */
+    public int size() {
+        return pending.get();
+    }
+
+    // ========== 私有方法 ==========
+
+    private void run() {
+        startTime = System.currentTimeMillis();
+        while (running) {
+            long sleepMillis = startTime + (tick + 1) * tickMillis - System.currentTimeMillis();
+            if (sleepMillis > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+
+            transferIncoming();
+            List<T> expired = expireBucket(buckets.get((int) (tick & mask)));
+            tick++;
+            if (!expired.isEmpty()) {
+                pending.addAndGet(-expired.size());
+                try {
+                    expiryHandler.accept(expired);
+                } catch (Exception e) {
+                    log.error("时间轮到期回调失败: size={}", expired.size(), e);
+                }
+            }
+        }
+    }
+
+    private void transferIncoming() {
+        Entry<T> entry;
+        while ((entry = incoming.poll()) != null) {
+            long ticks = Math.max((entry.deadline - startTime) / tickMillis, tick);
+            entry.remainingRounds = (ticks - tick) / buckets.size();
+            buckets.get((int) (ticks & mask)).add(entry);
+        }
+    }
+
+    private List<T> expireBucket(List<Entry<T>> bucket) {
+        List<T> expired = new ArrayList<>();
+        Iterator<Entry<T>> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Entry<T> entry = iterator.next();
+            if (entry.remainingRounds <= 0) {
+                expired.add(entry.item);
+                iterator.remove();
+            } else {
+                entry.remainingRounds--;
+            }
+        }
+        return expired;
+    }
+
+    private static class Entry<T> {
+
+        private final T item;
+        private final long deadline;
+        private long remainingRounds;
+
+        Entry(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.lingli.order.timeout;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.order.entity.Order;
+import com.lingli.order.mapper.OrderMapper;
+import com.lingli.order.service.OrderService;
+import com.lingli.order.state.OrderTransition;
+import com.lingli.order.state.TransitionResult;
+import com.lingli.product.inventory.PackageInventory;
+import com.lingli.product.inventory.ReservationExpiryHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 库存预占到期处理
+ * 订单超时登记丢失或超时取消失败时兜底：待支付订单按支付超时取消（与超时调度走同一条件UPDATE，
+ * 与支付成功并发时只有一方生效），取消后释放预占；已支付订单确认预占；已取消或不存在的订单释放预占
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class OrderReservationExpiryHandler implements ReservationExpiryHandler {
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Lazy
+    @Autowired
+    private OrderService orderService;
+
+    @Lazy
+    @Autowired
+    private PackageInventory packageInventory;
+
+    @Override
+    public void onExpired(List<String> orderNos) {
+        Map<String, Order> orders = orderMapper.selectList(new LambdaQueryWrapper<Order>()
+                .select(Order::getId, Order::getOrderNo, Order::getStatus)
+                .in(Order::getOrderNo, orderNos)
+        ).stream().collect(Collectors.toMap(Order::getOrderNo, Function.identity()));
+
+        List<Long> unpaidIds = new ArrayList<>();
+        for (String orderNo : orderNos) {
+            Order order = orders.get(orderNo);
+            if (order == null || order.getStatus() == OrderStatus.CANCELLED) {
+                packageInventory.release(orderNo);
+            } else if (order.getStatus() == OrderStatus.PENDING_PAYMENT) {
+                unpaidIds.add(order.getId());
+            } else {
+                packageInventory.confirm(orderNo);
+            }
+        }
+
+        if (!unpaidIds.isEmpty()) {
+            // 取消成功的订单在事务提交后释放预占，冲突的订单（刚支付）下次按新状态处理
+            TransitionResult result = orderService.transitOrders(unpaidIds, OrderTransition.CANCEL_UNPAID);
+            log.warn("预占到期兜底取消订单: expired={}, cancelled={}, conflicts={}",
+                    unpaidIds.size(), result.getSucceeded().size(), result.getConflicts().keySet());
+        }
+    }
+}
\ No newline at end of file
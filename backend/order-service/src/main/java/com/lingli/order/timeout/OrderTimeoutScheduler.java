@@ -0,0 +1,211 @@
+package com.lingli.order.timeout;
+
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.order.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 待支付订单超时取消调度
+ * 订单创建后按支付截止时间写入Redis有序集合（重启不丢失）；各节点定时领取即将到期的订单放入本地时间轮，
+ * 领取时转入已领取集合并带租约，节点宕机后租约到期由其他节点重新领取。
+ * 时间轮同一刻度到期的订单合并为一批，通过一条条件UPDATE取消仍待支付的订单
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class OrderTimeoutScheduler {
+
+    // Redis键
+    private static final String TIMEOUT_KEY = "order:timeout";
+    private static final String CLAIMED_KEY = "order:timeout:claimed";
+
+    /**
+     * 单条UPDATE取消的最大订单数
+     */
+    private static final int CANCEL_CHUNK_SIZE = 500;
+
+    /**
+     * 领取到期时间在窗口内的订单，以及租约已过期（领取节点宕机）的订单
+     * 返回订单ID与到期时间交替的列表；租约过期的订单到期时间为当前时间
+     * KEYS[1] 待领取集合，KEYS[2] 已领取集合；ARGV[1] 领取窗口截止时间，ARGV[2] 当前时间，ARGV[3] 租约到期时间，ARGV[4] 单次上限
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local result = {}\n" +
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'WITHSCORES', 'LIMIT', 0, ARGV[4])\n" +
+            "for i = 1, #due, 2 do\n" +
+            "  redis.call('ZREM', KEYS[1], due[i])\n" +
+            "  redis.call('ZADD', KEYS[2], ARGV[3], due[i])\n" +
+            "  table.insert(result, due[i])\n" +
+            "  table.insert(result, due[i + 1])\n" +
+            "end\n" +
+            "local orphans = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[2], 'LIMIT', 0, ARGV[4])\n" +
+            "for i = 1, #orphans do\n" +
+            "  redis.call('ZADD', KEYS[2], ARGV[3], orphans[i])\n" +
+            "  table.insert(result, orphans[i])\n" +
+            "  table.insert(result, ARGV[2])\n" +
+            "end\n" +
+            "return result",
+            List.class);
+
+    @Lazy
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 支付超时时长（分钟）
+     */
+    @Value("${order.timeout.payment-minutes:30}")
+    private long paymentMinutes;
+
+    /**
+     * 领取窗口（秒），只把即将到期的订单放入本地时间轮
+     */
+    @Value("${order.timeout.lookahead-seconds:60}")
+    private long lookaheadSeconds;
+
+    @Value("${order.timeout.claim-batch-size:1000}")
+    private int claimBatchSize;
+
+    private HashedTimingWheel<Long> timingWheel;
+
+    private ExecutorService cancelExecutor;
+
+    @PostConstruct
+    public void init() {
+        cancelExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-timeout-cancel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 1秒一个刻度，一圈约8.5分钟，覆盖领取窗口
+        timingWheel = new HashedTimingWheel<>("order-timeout-wheel", 1000, 512,
+                orderIds -> cancelExecutor.execute(() -> cancelExpired(orderIds)));
+        timingWheel.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timingWheel.stop();
+        cancelExecutor.shutdown();
+    }
+
+    /**
+     * 事务提交后登记订单支付截止时间
+     */
+    public void scheduleAfterCommit(Long orderId) {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(paymentMinutes);
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.opsForZSet().add(TIMEOUT_KEY, String.valueOf(orderId), deadline);
+            } catch (Exception e) {
+                // 库存预占到期后由预占到期处理兜底取消
+                log.error("登记订单超时失败: orderId={}, error={}", orderId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 事务提交后移除订单超时登记（已支付或已取消）
+     */
+    public void removeAfterCommit(Long orderId) {
+        TransactionUtils.afterCommit(() -> remove(Collections.singletonList(orderId)));
+    }
+
+    /**
+     * 事务提交后批量移除订单超时登记
+     */
+    public void removeAfterCommit(List<Long> orderIds) {
+        List<Long> members = new ArrayList<>(orderIds);
+        TransactionUtils.afterCommit(() -> remove(members));
+    }
+
+    /**
+     * 定时领取即将到期的订单放入时间轮
+     */
+    @Scheduled(fixedDelayString = "${order.timeout.claim-interval-ms:5000}")
+    public void claimDue() {
+        try {
+            int claimed;
+            do {
+                claimed = claimBatch();
+            } while (claimed >= claimBatchSize);
+        } catch (Exception e) {
+            log.warn("领取超时订单失败: {}", e.getMessage());
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    @SuppressWarnings("unchecked")
+    private int claimBatch() {
+        long now = System.currentTimeMillis();
+        long horizon = now + TimeUnit.SECONDS.toMillis(lookaheadSeconds);
+        // 租约覆盖领取窗口和取消耗时，期间本节点负责取消
+        long leaseUntil = horizon + TimeUnit.SECONDS.toMillis(lookaheadSeconds);
+        List<Object> result = stringRedisTemplate.execute(CLAIM_SCRIPT, Arrays.asList(TIMEOUT_KEY, CLAIMED_KEY),
+                String.valueOf(horizon), String.valueOf(now), String.valueOf(leaseUntil), String.valueOf(claimBatchSize));
+        if (result == null || result.isEmpty()) {
+            return 0;
+        }
+
+        for (int i = 0; i + 1 < result.size(); i += 2) {
+            long deadline = (long) Double.parseDouble(result.get(i + 1).toString());
+            timingWheel.add(Long.valueOf(result.get(i).toString()), deadline);
+        }
+        log.debug("领取超时订单: count={}, wheelSize={}", result.size() / 2, timingWheel.size());
+        return result.size() / 2;
+    }
+
+    private void cancelExpired(List<Long> orderIds) {
+        for (int from = 0; from < orderIds.size(); from += CANCEL_CHUNK_SIZE) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + CANCEL_CHUNK_SIZE, orderIds.size()));
+            try {
+                int cancelled = orderService.cancelTimeoutOrders(chunk);
+                remove(chunk);
+                log.info("超时取消订单: expired={}, cancelled={}", chunk.size(), cancelled);
+            } catch (Exception e) {
+                // 保留已领取记录，租约到期后重新领取
+                log.warn("超时取消订单失败: size={}, error={}", chunk.size(), e.getMessage());
+            }
+        }
+    }
+
+    private void remove(List<Long> orderIds) {
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                String[] members = orderIds.stream().map(String::valueOf).toArray(String[]::new);
+                stringConnection.zRem(TIMEOUT_KEY, members);
+                stringConnection.zRem(CLAIMED_KEY, members);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("移除订单超时登记失败: orderIds={}, error={}", orderIds, e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package com.lingli.order.view;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.common.enums.PayStatus;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单读模型文档
+ * 订单、明细、支付、采样预约汇总为一个文档，订单列表和详情直接读取，不再联表查询
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class OrderView {
+
+    private Long id;
+
+    private String orderNo;
+
+    private Long userId;
+
+    private Long companyId;
+
+    private BigDecimal totalAmount;
+
+    private BigDecimal paidAmount;
+
+    private OrderStatus status;
+
+    private PayStatus payStatus;
+
+    private String payType;
+
+    private LocalDateTime payTime;
+
+    /**
+     * 配送方式：1-自邮寄，2-上门取样
+     */
+    private Integer shippingType;
+
+    private String shippingAddress;
+
+    private String contactName;
+
+    private String contactPhone;
+
+    private String remark;
+
+    private String province;
+
+    private String city;
+
+    private String district;
+
+    /**
+     * 采样状态：1-待采样，2-已预约，3-已采样，4-已送检
+     */
+    private Integer samplingStatus;
+
+    /**
+     * 订单状态版本号，写入时版本号较旧的文档不会覆盖较新的文档
+     */
+    private Integer version;
+
+    private LocalDateTime createdAt;
+
+    /**
+     * 订单明细快照
+     */
+    private List<Item> items;
+
+    /**
+     * 最近一次支付记录
+     */
+    private Payment payment;
+
+    /**
+     * 采样预约
+     */
+    private List<Appointment> appointments;
+
+    @Data
+    public static class Item {
+
+        private Long id;
+
+        private Long packageId;
+
+        private String packageName;
+
+        private BigDecimal packagePrice;
+
+        private Integer quantity;
+
+        private BigDecimal totalPrice;
+
+        private String samplerName;
+
+        private String samplerPhone;
+    }
+
+    @Data
+    public static class Payment {
+
+        private String paymentNo;
+
+        private BigDecimal amount;
+
+        private String paymentType;
+
+        private String paymentChannel;
+
+        /**
+         * 支付状态：1-待支付，2-支付中，3-已支付，4-支付失败
+         */
+        private Integer status;
+
+        private String tradeNo;
+
+        private LocalDateTime paidAt;
+    }
+
+    @Data
+    public static class Appointment {
+
+        private Long id;
+
+        private Long orderItemId;
+
+        private LocalDate appointmentDate;
+
+        private String appointmentTimeSlot;
+
+        private String appointmentAddress;
+
+        private String contactName;
+
+        private String contactPhone;
+
+        private Integer status;
+
+        private LocalDateTime sampledAt;
+    }
+}
\ No newline at end of file
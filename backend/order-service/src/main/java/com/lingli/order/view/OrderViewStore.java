@@ -0,0 +1,261 @@
+package com.lingli.order.view;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lingli.common.utils.JsonUtils;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.location.entity.PaymentRecord;
+import com.lingli.location.entity.SamplingAppointment;
+import com.lingli.order.entity.Order;
+import com.lingli.order.entity.OrderItem;
+import com.lingli.order.mapper.OrderItemMapper;
+import com.lingli.order.mapper.OrderMapper;
+import com.lingli.order.mapper.PaymentRecordMapper;
+import com.lingli.order.mapper.SamplingAppointmentMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 订单读模型存储
+ * 每个订单一个Redis哈希（v-版本号，d-文档JSON），详情一次HGET、列表一次管道读取。
+ * 订单创建、状态变更、支付结果等事件在事务提交后异步重建文档；写入时比较版本号，
+ * 先开始但后完成的重建不会用旧状态覆盖新文档。读取未命中（过期、重建失败）时同步回源重建
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class OrderViewStore {
+
+    // Redis键前缀（哈希字段：v-版本号，d-文档JSON）
+    private static final String ORDER_VIEW_KEY = "order:view:";
+
+    private static final String FIELD_DOCUMENT = "d";
+
+    /**
+     * 版本号不低于已有文档时写入并设置过期时间
+     * KEYS[1] 文档键；ARGV[1] 版本号，ARGV[2] 文档JSON，ARGV[3] 过期秒数
+     */
+    private static final String WRITE_SCRIPT =
+            "local current = redis.call('HGET', KEYS[1], 'v')\n" +
+            "if current and tonumber(current) > tonumber(ARGV[1]) then return 0 end\n" +
+            "redis.call('HSET', KEYS[1], 'v', ARGV[1], 'd', ARGV[2])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[3])\n" +
+            "return 1";
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private PaymentRecordMapper paymentRecordMapper;
+
+    @Autowired
+    private SamplingAppointmentMapper samplingAppointmentMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 文档过期时间（小时），过期后读取时回源重建
+     */
+    @Value("${order.view.ttl-hours:72}")
+    private long ttlHours;
+
+    private ExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-view-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdown();
+    }
+
+    /**
+     * 读取单个订单文档，未命中时回源重建
+     *
+     * @return 订单不存在时返回null
+     */
+    public OrderView get(Long orderId) {
+        return getAll(Collections.singletonList(orderId)).get(orderId);
+    }
+
+    /**
+     * 批量读取订单文档，一次管道读取，未命中的订单一次批量回源重建
+     *
+     * @return 订单ID到文档的映射，不存在的订单不包含在内
+     */
+    public Map<Long, OrderView> getAll(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, OrderView> views = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        List<Object> documents = readDocuments(orderIds);
+        for (int i = 0; i < orderIds.size(); i++) {
+            OrderView view = documents == null ? null : parse(documents.get(i));
+            if (view != null) {
+                views.put(orderIds.get(i), view);
+            } else {
+                missing.add(orderIds.get(i));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            views.putAll(rebuild(missing));
+        }
+        return views;
+    }
+
+    /**
+     * 事务提交后异步重建订单文档，重建失败时删除文档，下次读取回源
+     */
+    public void refreshAfterCommit(Collection<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        TransactionUtils.afterCommit(() -> refreshExecutor.execute(() -> {
+            try {
+                rebuild(ids);
+            } catch (Exception e) {
+                log.warn("重建订单读模型失败: orderIds={}, error={}", ids, e.getMessage());
+                evict(ids);
+            }
+        }));
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 从数据库批量重建文档并写入Redis，每张表一次查询
+     */
+    private Map<Long, OrderView> rebuild(List<Long> orderIds) {
+        List<Order> orders = orderMapper.selectBatchIds(orderIds);
+        if (orders.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = orders.stream().map(Order::getId).collect(Collectors.toList());
+
+        Map<Long, List<OrderItem>> items = orderItemMapper.selectList(new LambdaQueryWrapper<OrderItem>()
+                .in(OrderItem::getOrderId, ids)
+                .orderByAsc(OrderItem::getId)
+        ).stream().collect(Collectors.groupingBy(OrderItem::getOrderId));
+
+        // 同一订单多次发起支付时取最近一条
+        Map<Long, PaymentRecord> payments = new HashMap<>();
+        paymentRecordMapper.selectList(new LambdaQueryWrapper<PaymentRecord>()
+                .in(PaymentRecord::getOrderId, ids)
+                .orderByAsc(PaymentRecord::getId)
+        ).forEach(payment -> payments.put(payment.getOrderId(), payment));
+
+        Map<Long, List<SamplingAppointment>> appointments = samplingAppointmentMapper.selectList(
+                new LambdaQueryWrapper<SamplingAppointment>()
+                        .in(SamplingAppointment::getOrderId, ids)
+                        .orderByAsc(SamplingAppointment::getId)
+        ).stream().collect(Collectors.groupingBy(SamplingAppointment::getOrderId));
+
+        Map<Long, OrderView> views = new HashMap<>();
+        for (Order order : orders) {
+            OrderView view = BeanUtil.copyProperties(order, OrderView.class, "items", "payment", "appointments");
+            view.setItems(BeanUtil.copyToList(items.getOrDefault(order.getId(), Collections.emptyList()),
+                    OrderView.Item.class));
+            PaymentRecord payment = payments.get(order.getId());
+            view.setPayment(payment != null ? BeanUtil.copyProperties(payment, OrderView.Payment.class) : null);
+            view.setAppointments(BeanUtil.copyToList(appointments.getOrDefault(order.getId(), Collections.emptyList()),
+                    OrderView.Appointment.class));
+            views.put(order.getId(), view);
+        }
+
+        write(views.values());
+        return views;
+    }
+
+    private List<Object> readDocuments(List<Long> orderIds) {
+        try {
+            return stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (Long orderId : orderIds) {
+                    stringConnection.hGet(ORDER_VIEW_KEY + orderId, FIELD_DOCUMENT);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("读取订单读模型失败: orderIds={}, error={}", orderIds, e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(Collection<OrderView> views) {
+        String ttl = String.valueOf(TimeUnit.HOURS.toSeconds(ttlHours));
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (OrderView view : views) {
+                    String version = String.valueOf(view.getVersion() != null ? view.getVersion() : 0);
+                    stringConnection.eval(WRITE_SCRIPT, ReturnType.INTEGER, 1,
+                            ORDER_VIEW_KEY + view.getId(), version, JsonUtils.toJson(view), ttl);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("写入订单读模型失败: size={}, error={}", views.size(), e.getMessage());
+        }
+    }
+
+    private void evict(List<Long> orderIds) {
+        try {
+            stringRedisTemplate.delete(orderIds.stream()
+                    .map(id -> ORDER_VIEW_KEY + id)
+                    .collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.warn("删除订单读模型失败: orderIds={}, error={}", orderIds, e.getMessage());
+        }
+    }
+
+    /**
+     * 解析文档，格式不兼容（如字段变更）时按未命中处理
+     */
+    private OrderView parse(Object document) {
+        if (document == null) {
+            return null;
+        }
+        try {
+            return JsonUtils.fromJson(document.toString(), OrderView.class);
+        } catch (Exception e) {
+            log.debug("订单读模型格式不兼容，重新构建: {}", e.getMessage());
+            return null;
+        }
+    }
+}
\ No newline at end of file
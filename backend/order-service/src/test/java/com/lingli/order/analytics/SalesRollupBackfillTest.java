@@ -0,0 +1,124 @@
+package com.lingli.order.analytics;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.order.mapper.OrderOutboxMapper;
+import com.lingli.order.mapper.SalesRollupMapper;
+import com.lingli.order.outbox.OrderCreatedEvent;
+import com.lingli.order.outbox.OrderStatusEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 销售预聚合回填测试：截止时间只初始化一次，等截止前的下单事件处理完才回填，
+ * 回填按枚举传入状态码和事件类型，已回填的不重复执行
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class SalesRollupBackfillTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2023, 11, 28, 10, 0);
+
+    @Mock
+    private SalesRollupMapper salesRollupMapper;
+
+    @Mock
+    private OrderOutboxMapper outboxMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SalesRollupBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        backfill = new SalesRollupBackfill();
+        ReflectionTestUtils.setField(backfill, "salesRollupMapper", salesRollupMapper);
+        ReflectionTestUtils.setField(backfill, "outboxMapper", outboxMapper);
+        ReflectionTestUtils.setField(backfill, "transactionManager", transactionManager);
+        backfill.init();
+        when(salesRollupMapper.selectBackfill(false)).thenReturn(state(null));
+    }
+
+    @Test
+    void cutoffIsInitializedOnce() {
+        assertThat(backfill.getCutoff()).isEqualTo(CUTOFF);
+        assertThat(backfill.getCutoff()).isEqualTo(CUTOFF);
+
+        verify(salesRollupMapper).initBackfill();
+        verify(salesRollupMapper).selectBackfill(false);
+    }
+
+    @Test
+    void waitsForUnfinishedCreatedEvents() {
+        when(outboxMapper.countUnfinished(OrderCreatedEvent.TYPE, CUTOFF)).thenReturn(2, 0);
+        when(salesRollupMapper.selectBackfill(true)).thenReturn(state(null));
+
+        backfill.backfill();
+        verify(salesRollupMapper, never()).selectBackfill(true);
+
+        backfill.backfill();
+        verify(salesRollupMapper).markBackfilled();
+    }
+
+    @Test
+    void backfillsDayMonthAndTotalBucketsOnce() {
+        when(outboxMapper.countUnfinished(OrderCreatedEvent.TYPE, CUTOFF)).thenReturn(0);
+        when(salesRollupMapper.selectBackfill(true)).thenReturn(state(null));
+
+        backfill.backfill();
+        backfill.backfill();
+
+        for (RollupGranularity granularity : new RollupGranularity[]{
+                RollupGranularity.DAY, RollupGranularity.MONTH, RollupGranularity.TOTAL}) {
+            verify(salesRollupMapper).backfill(eq(granularity.getCode()), anyString(), eq(CUTOFF),
+                    eq(OrderStatus.CANCELLED.getCode()), eq(OrderStatusEvent.PAID_TYPE),
+                    eq(OrderStatusEvent.CANCELLED_TYPE), eq(RollupDimension.ALL.getCode()),
+                    eq(RollupDimension.COMPANY.getCode()), eq(RollupDimension.CITY.getCode()),
+                    eq(RollupDimension.PACKAGE.getCode()));
+        }
+        verify(salesRollupMapper, times(3)).backfill(anyInt(), anyString(), any(), anyInt(), anyString(),
+                anyString(), anyInt(), anyInt(), anyInt(), anyInt());
+        verify(salesRollupMapper).markBackfilled();
+        verify(outboxMapper, times(1)).countUnfinished(OrderCreatedEvent.TYPE, CUTOFF);
+    }
+
+    @Test
+    void skipsWhenAnotherNodeBackfilled() {
+        when(outboxMapper.countUnfinished(OrderCreatedEvent.TYPE, CUTOFF)).thenReturn(0);
+        when(salesRollupMapper.selectBackfill(true)).thenReturn(state(CUTOFF.plusMinutes(1)));
+
+        backfill.backfill();
+
+        verify(salesRollupMapper, never()).backfill(anyInt(), anyString(), any(), anyInt(), anyString(),
+                anyString(), anyInt(), anyInt(), anyInt(), anyInt());
+        verify(salesRollupMapper, never()).markBackfilled();
+    }
+
+    // ========== 私有方法 ==========
+
+    private static RollupBackfillState state(LocalDateTime backfilledAt) {
+        RollupBackfillState state = new RollupBackfillState();
+        state.setCutoff(CUTOFF);
+        state.setBackfilledAt(backfilledAt);
+        return state;
+    }
+}
\ No newline at end of file
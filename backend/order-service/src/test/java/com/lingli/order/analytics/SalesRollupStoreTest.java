@@ -0,0 +1,75 @@
+package com.lingli.order.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 销售预聚合时间桶测试：日期范围拆分为完整月份的月桶和首尾零散日期的天桶，时间截断到所在时间桶起点
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class SalesRollupStoreTest {
+
+    private final SalesRollupStore store = new SalesRollupStore();
+
+    @Test
+    void rangeWithinOneMonthReadsDayBuckets() {
+        List<BucketRange> ranges = split(LocalDate.of(2023, 11, 3), LocalDate.of(2023, 11, 20));
+
+        assertThat(ranges).containsExactly(day("2023-11-03", "2023-11-21"));
+    }
+
+    @Test
+    void rangeAcrossMonthsReadsWholeMonthsFromMonthBuckets() {
+        List<BucketRange> ranges = split(LocalDate.of(2023, 9, 15), LocalDate.of(2023, 11, 28));
+
+        assertThat(ranges).containsExactly(
+                day("2023-09-15", "2023-10-01"),
+                month("2023-10-01", "2023-11-01"),
+                day("2023-11-01", "2023-11-29"));
+    }
+
+    @Test
+    void alignedRangeReadsOnlyMonthBuckets() {
+        List<BucketRange> ranges = split(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31));
+
+        assertThat(ranges).containsExactly(month("2023-01-01", "2024-01-01"));
+    }
+
+    @Test
+    void granularityTruncatesToBucketStart() {
+        LocalDateTime time = LocalDateTime.of(2023, 11, 28, 10, 30, 21);
+
+        assertThat(RollupGranularity.MINUTE.truncate(time)).isEqualTo(LocalDateTime.of(2023, 11, 28, 10, 30));
+        assertThat(RollupGranularity.HOUR.truncate(time)).isEqualTo(LocalDateTime.of(2023, 11, 28, 10, 0));
+        assertThat(RollupGranularity.DAY.truncate(time)).isEqualTo(LocalDateTime.of(2023, 11, 28, 0, 0));
+        assertThat(RollupGranularity.MONTH.truncate(time)).isEqualTo(LocalDateTime.of(2023, 11, 1, 0, 0));
+        assertThat(RollupGranularity.TOTAL.truncate(time)).isEqualTo(RollupGranularity.EPOCH);
+    }
+
+    // ========== 私有方法 ==========
+
+    private List<BucketRange> split(LocalDate startDate, LocalDate endDate) {
+        return ReflectionTestUtils.invokeMethod(store, "splitRange", startDate, endDate);
+    }
+
+    private static BucketRange day(String from, String to) {
+        return range(RollupGranularity.DAY, from, to);
+    }
+
+    private static BucketRange month(String from, String to) {
+        return range(RollupGranularity.MONTH, from, to);
+    }
+
+    private static BucketRange range(RollupGranularity granularity, String from, String to) {
+        return new BucketRange(granularity.getCode(), LocalDate.parse(from).atStartOfDay(),
+                LocalDate.parse(to).atStartOfDay());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.lingli.order.controller;
+
+import com.lingli.order.payment.PaymentCallbackProcessor;
+import com.lingli.order.payment.PaymentNotifyVerifier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 支付回调控制器测试：回调处理结果映射为各渠道的应答报文
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentNotifyControllerTest {
+
+    private static final String WECHAT_BODY = "{\"resource\":{\"associated_data\":\"transaction\","
+            + "\"nonce\":\"abcdefghijkl\",\"ciphertext\":\"Y2lwaGVy\"}}";
+
+    @Mock
+    private PaymentCallbackProcessor paymentCallbackProcessor;
+
+    @Mock
+    private PaymentNotifyVerifier paymentNotifyVerifier;
+
+    private PaymentNotifyController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new PaymentNotifyController();
+        ReflectionTestUtils.setField(controller, "paymentCallbackProcessor", paymentCallbackProcessor);
+        ReflectionTestUtils.setField(controller, "paymentNotifyVerifier", paymentNotifyVerifier);
+    }
+
+    @Test
+    void alipayAcksOnlyAfterCallbackIsAccepted() {
+        Map<String, String> params = alipayParams("TRADE_SUCCESS");
+        when(paymentNotifyVerifier.verifyAlipay(params)).thenReturn(true);
+        when(paymentCallbackProcessor.accept(eq("PAY001"), eq("2023112822001"), eq(true), isNull(), anyString()))
+                .thenReturn(true, false);
+
+        assertThat(controller.alipayNotify(params)).isEqualTo("success");
+        assertThat(controller.alipayNotify(params)).isEqualTo("failure");
+    }
+
+    @Test
+    void alipayClosedTradeIsFailure() {
+        Map<String, String> params = alipayParams("TRADE_CLOSED");
+        when(paymentNotifyVerifier.verifyAlipay(params)).thenReturn(true);
+        when(paymentCallbackProcessor.accept(eq("PAY001"), any(), eq(false), eq("交易关闭"), anyString()))
+                .thenReturn(true);
+
+        assertThat(controller.alipayNotify(params)).isEqualTo("success");
+    }
+
+    @Test
+    void alipayIntermediateStatusIsAckedWithoutProcessing() {
+        Map<String, String> params = alipayParams("WAIT_BUYER_PAY");
+        when(paymentNotifyVerifier.verifyAlipay(params)).thenReturn(true);
+
+        assertThat(controller.alipayNotify(params)).isEqualTo("success");
+        verifyNoInteractions(paymentCallbackProcessor);
+    }
+
+    @Test
+    void alipayBadSignatureIsRejected() {
+        Map<String, String> params = alipayParams("TRADE_SUCCESS");
+        when(paymentNotifyVerifier.verifyAlipay(params)).thenReturn(false);
+
+        assertThat(controller.alipayNotify(params)).isEqualTo("failure");
+        verifyNoInteractions(paymentCallbackProcessor);
+    }
+
+    @Test
+    void wechatAcksWithNoContentAfterCallbackIsAccepted() {
+        String plain = "{\"out_trade_no\":\"PAY001\",\"transaction_id\":\"4200001\",\"trade_state\":\"SUCCESS\"}";
+        when(paymentNotifyVerifier.verifyWechat("1701138000", "nonce", WECHAT_BODY, "sig")).thenReturn(true);
+        when(paymentNotifyVerifier.decryptWechat("transaction", "abcdefghijkl", "Y2lwaGVy")).thenReturn(plain);
+        when(paymentCallbackProcessor.accept("PAY001", "4200001", true, null, plain)).thenReturn(true, false);
+
+        ResponseEntity<Map<String, String>> acked = controller.wechatNotify("1701138000", "nonce", "sig", WECHAT_BODY);
+        ResponseEntity<Map<String, String>> nacked = controller.wechatNotify("1701138000", "nonce", "sig", WECHAT_BODY);
+
+        assertThat(acked.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(nacked.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(nacked.getBody()).containsEntry("code", "FAIL");
+    }
+
+    @Test
+    void wechatBadSignatureIsRejected() {
+        when(paymentNotifyVerifier.verifyWechat("1701138000", "nonce", WECHAT_BODY, "sig")).thenReturn(false);
+
+        ResponseEntity<Map<String, String>> response = controller.wechatNotify("1701138000", "nonce", "sig", WECHAT_BODY);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(paymentNotifyVerifier, never()).decryptWechat(any(), any(), any());
+        verifyNoInteractions(paymentCallbackProcessor);
+    }
+
+    @Test
+    void wechatUndecryptableResourceIsRejected() {
+        when(paymentNotifyVerifier.verifyWechat("1701138000", "nonce", WECHAT_BODY, "sig")).thenReturn(true);
+
+        ResponseEntity<Map<String, String>> response = controller.wechatNotify("1701138000", "nonce", "sig", WECHAT_BODY);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(paymentCallbackProcessor);
+    }
+
+    // ========== 私有方法 ==========
+
+    private static Map<String, String> alipayParams(String tradeStatus) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("out_trade_no", "PAY001");
+        params.put("trade_no", "2023112822001");
+        params.put("trade_status", tradeStatus);
+        params.put("sign", "c2lnbg==");
+        params.put("sign_type", "RSA2");
+        return params;
+    }
+}
\ No newline at end of file
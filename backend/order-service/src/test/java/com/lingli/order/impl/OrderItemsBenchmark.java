@@ -0,0 +1,188 @@
+package com.lingli.order.service.impl;
+
+import com.lingli.order.entity.OrderItem;
+import com.lingli.order.mapper.OrderItemMapper;
+import com.lingli.order.outbox.OrderCreatedEvent;
+import com.lingli.order.vo.cart.CartItemVO;
+import com.lingli.product.service.ProductService;
+import com.lingli.product.vo.PackageVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+
+/**
+ * 订单明细生成基准：购物车1、10、100件商品时，逐件查询套餐并逐行插入与批量查询、多行INSERT的耗时
+ * 套餐查询和写入为模拟的远程调用，每次调用固定耗时 roundTripMicros，结果主要反映往返次数；
+ * 不随单元测试执行，需要时运行 main 方法（test classpath）
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderItemsBenchmark {
+
+    private static final Long ORDER_ID = 1001L;
+
+    @Param({"1", "10", "100"})
+    public int items;
+
+    /**
+     * 模拟一次数据库或缓存往返的耗时（微秒）
+     */
+    @Param({"200"})
+    public long roundTripMicros;
+
+    private OrderServiceImpl orderService;
+
+    private ProductService productService;
+
+    private OrderItemMapper orderItemMapper;
+
+    private List<OrderCreatedEvent> events;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        productService = remote(ProductService.class, roundTripNanos, (method, args) -> {
+            if ("getPackagesByIds".equals(method)) {
+                Map<Long, PackageVO> packages = new HashMap<>();
+                for (Object packageId : (Collection<?>) args[0]) {
+                    packages.put((Long) packageId, packageOf((Long) packageId));
+                }
+                return packages;
+            }
+            if ("getPackageDetail".equals(method)) {
+                return packageOf((Long) args[0]);
+            }
+            throw new UnsupportedOperationException(method);
+        });
+        orderItemMapper = remote(OrderItemMapper.class, roundTripNanos, (method, args) -> {
+            if ("batchInsert".equals(method)) {
+                return ((List<?>) args[0]).size();
+            }
+            if ("insert".equals(method)) {
+                return 1;
+            }
+            throw new UnsupportedOperationException(method);
+        });
+
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "productService", productService);
+        ReflectionTestUtils.setField(orderService, "orderItemMapper", orderItemMapper);
+    }
+
+    /**
+     * 每次调用前重建未回填价格的购物车快照，批量路径会回填价格
+     */
+    @Setup(Level.Invocation)
+    public void resetCart() {
+        List<CartItemVO> cartItems = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            CartItemVO item = new CartItemVO();
+            item.setPackageId((long) (i + 1));
+            item.setQuantity(1);
+            cartItems.add(item);
+        }
+        OrderCreatedEvent event = new OrderCreatedEvent();
+        event.setOrderId(ORDER_ID);
+        event.setItems(cartItems);
+        events = Collections.singletonList(event);
+    }
+
+    /**
+     * 逐件查询套餐、逐行插入：2N次往返
+     */
+    @Benchmark
+    public int perItem() {
+        int rows = 0;
+        for (CartItemVO item : events.get(0).getItems()) {
+            PackageVO packageVO = productService.getPackageDetail(item.getPackageId());
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrderId(ORDER_ID);
+            orderItem.setPackageId(item.getPackageId());
+            orderItem.setPackageName(packageVO.getName());
+            orderItem.setPackagePrice(packageVO.getPrice());
+            orderItem.setQuantity(item.getQuantity());
+            orderItem.setTotalPrice(packageVO.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            rows += orderItemMapper.insert(orderItem);
+        }
+        return rows;
+    }
+
+    /**
+     * 当前实现：一次批量查询套餐、多行INSERT写入，往返次数与件数无关
+     */
+    @Benchmark
+    public List<OrderCreatedEvent> batched() {
+        ReflectionTestUtils.invokeMethod(orderService, "createOrderItems", events);
+        return events;
+    }
+
+    // ========== 私有方法 ==========
+
+    private static PackageVO packageOf(Long packageId) {
+        PackageVO packageVO = new PackageVO();
+        packageVO.setId(packageId);
+        packageVO.setName("套餐" + packageId);
+        packageVO.setPrice(BigDecimal.valueOf(199));
+        packageVO.setOnShelf(true);
+        return packageVO;
+    }
+
+    /**
+     * 模拟远程接口：每次调用阻塞固定耗时后按方法名应答
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T remote(Class<T> type, long roundTripNanos, BiFunction<String, Object[], Object> answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    break;
+            }
+            LockSupport.parkNanos(roundTripNanos);
+            return answer.apply(method.getName(), args);
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OrderItemsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
\ No newline at end of file
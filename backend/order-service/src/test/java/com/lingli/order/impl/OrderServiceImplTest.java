@@ -0,0 +1,102 @@
+package com.lingli.order.service.impl;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.common.exception.BusinessException;
+import com.lingli.order.mapper.OrderMapper;
+import com.lingli.order.mapper.ShoppingCartMapper;
+import com.lingli.order.vo.cart.CartItemVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 订单状态更新测试：目标状态不唯一或不存在时直接拒绝，不访问数据库
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderServiceImplTest {
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private ShoppingCartMapper shoppingCartMapper;
+
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "orderMapper", orderMapper);
+        ReflectionTestUtils.setField(orderService, "shoppingCartMapper", shoppingCartMapper);
+    }
+
+    @Test
+    void cancelledStatusMustUseCancelOperation() {
+        assertThatThrownBy(() -> orderService.updateOrderStatus(1L, OrderStatus.CANCELLED.getCode()))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(40010);
+        verifyNoInteractions(orderMapper);
+    }
+
+    @Test
+    void statusWithoutTransitionIsRejected() {
+        assertThatThrownBy(() -> orderService.updateOrderStatus(1L, OrderStatus.PENDING_PAYMENT.getCode()))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(40008);
+        verifyNoInteractions(orderMapper);
+    }
+
+    @Test
+    void unknownStatusFilterIsRejected() {
+        assertThatThrownBy(() -> orderService.getOrderList(1L, 99, 1, 10))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(40011);
+        verifyNoInteractions(orderMapper);
+    }
+
+    @Test
+    void cartItemsAreClaimedByTheCreatingTransaction() {
+        when(shoppingCartMapper.delete(any())).thenReturn(2);
+
+        assertThatCode(() -> ReflectionTestUtils.invokeMethod(orderService, "claimCartItems", 1L, cartItems(11L, 12L)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void resubmittedCartIsRejected() {
+        // 并发的下单请求已删除其中一条购物车记录
+        when(shoppingCartMapper.delete(any())).thenReturn(1);
+
+        assertThatThrownBy(() -> ReflectionTestUtils.invokeMethod(orderService, "claimCartItems", 1L, cartItems(11L, 12L)))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(40012);
+    }
+
+    // ========== 私有方法 ==========
+
+    private static List<CartItemVO> cartItems(Long... cartIds) {
+        CartItemVO[] items = new CartItemVO[cartIds.length];
+        for (int i = 0; i < cartIds.length; i++) {
+            items[i] = new CartItemVO();
+            items[i].setId(cartIds[i]);
+            items[i].setPackageId(100L + i);
+            items[i].setQuantity(1);
+        }
+        return Arrays.asList(items);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.lingli.order.outbox;
+
+import com.lingli.common.utils.JsonUtils;
+import com.lingli.order.analytics.SalesRollupStore;
+import com.lingli.order.entity.OrderOutbox;
+import com.lingli.order.mapper.OrderOutboxMapper;
+import com.lingli.order.service.OrderService;
+import com.lingli.order.state.OrderTransition;
+import com.lingli.order.state.TransitionResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 订单事务发件箱调度测试：重试耗尽后的补偿
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderOutboxDispatcherTest {
+
+    private static final int MAX_RETRIES = 3;
+    private static final String CLAIM_TOKEN = "claim";
+    private static final Long ORDER_ID = 1001L;
+    private static final String ORDER_NO = "ORD2023112810302100120000001";
+
+    @Mock
+    private OrderOutboxMapper outboxMapper;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private SalesRollupStore salesRollupStore;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new OrderOutboxDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "outboxMapper", outboxMapper);
+        ReflectionTestUtils.setField(dispatcher, "orderService", orderService);
+        ReflectionTestUtils.setField(dispatcher, "salesRollupStore", salesRollupStore);
+        ReflectionTestUtils.setField(dispatcher, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(dispatcher, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 100);
+        ReflectionTestUtils.setField(dispatcher, "workers", 1);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 30);
+        ReflectionTestUtils.setField(dispatcher, "maxRetries", MAX_RETRIES);
+        dispatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.destroy();
+    }
+
+    @Test
+    void exhaustedCreatedEventCancelsOrder() {
+        doThrow(new IllegalStateException("套餐不存在")).when(orderService).completeCreatedOrders(anyList());
+        TransitionResult cancelled = new TransitionResult(OrderTransition.CANCEL_UNPAID);
+        cancelled.getSucceeded().add(ORDER_ID);
+        when(orderService.transitOrders(Collections.singletonList(ORDER_ID), OrderTransition.CANCEL_UNPAID))
+                .thenReturn(cancelled);
+
+        process(createdOutbox(MAX_RETRIES - 1));
+
+        verify(outboxMapper).markRetry(eq(CLAIM_TOKEN), anyLong(), eq(3), any(), anyString());
+        verify(orderService).transitOrders(Collections.singletonList(ORDER_ID), OrderTransition.CANCEL_UNPAID);
+    }
+
+    @Test
+    void retryableCreatedEventKeepsOrder() {
+        doThrow(new IllegalStateException("数据库超时")).when(orderService).completeCreatedOrders(anyList());
+
+        process(createdOutbox(0));
+
+        verify(outboxMapper).markRetry(eq(CLAIM_TOKEN), anyLong(), eq(0), any(), anyString());
+        verify(orderService, never()).transitOrders(anyList(), any());
+    }
+
+    @Test
+    void exhaustedStatusEventDoesNotCancelOrder() {
+        doThrow(new IllegalStateException("预聚合写入失败")).when(salesRollupStore).record(anyList(), anyList());
+        OrderOutbox outbox = outbox(OrderStatusEvent.PAID_TYPE,
+                OrderStatusEvent.of(OrderStatusEvent.PAID_TYPE, ORDER_ID, ORDER_NO, LocalDateTime.now()),
+                MAX_RETRIES - 1);
+
+        process(outbox);
+
+        verify(outboxMapper).markRetry(eq(CLAIM_TOKEN), anyLong(), eq(3), any(), anyString());
+        verify(orderService, never()).transitOrders(anyList(), any());
+    }
+
+    @Test
+    void paymentEventsApplyPaymentResult() {
+        when(outboxMapper.markDone(eq(CLAIM_TOKEN), anyList())).thenReturn(2);
+        OrderOutbox succeeded = outbox(PaymentNotifyEvent.SUCCESS_TYPE,
+                PaymentNotifyEvent.of("PAY001", "T001", null), 0);
+        OrderOutbox failed = outbox(PaymentNotifyEvent.FAILURE_TYPE,
+                PaymentNotifyEvent.of("PAY002", null, "交易关闭"), 0);
+
+        ReflectionTestUtils.invokeMethod(dispatcher, "process", CLAIM_TOKEN, Arrays.asList(succeeded, failed));
+
+        verify(orderService).handlePaymentSuccess("PAY001", "T001");
+        verify(orderService).handlePaymentFailure("PAY002", "交易关闭");
+        verify(outboxMapper, never()).markRetry(anyString(), anyLong(), anyInt(), any(), anyString());
+    }
+
+    @Test
+    void failedPaymentEventIsRetried() {
+        doThrow(new IllegalStateException("支付记录不存在")).when(orderService).handlePaymentSuccess("PAY001", "T001");
+
+        process(outbox(PaymentNotifyEvent.SUCCESS_TYPE, PaymentNotifyEvent.of("PAY001", "T001", null), 0));
+
+        verify(outboxMapper).markRetry(eq(CLAIM_TOKEN), anyLong(), eq(0), any(), anyString());
+        verify(orderService, never()).transitOrders(anyList(), any());
+    }
+
+    // ========== 私有方法 ==========
+
+    private void process(OrderOutbox outbox) {
+        List<OrderOutbox> batch = Collections.singletonList(outbox);
+        ReflectionTestUtils.invokeMethod(dispatcher, "process", CLAIM_TOKEN, batch);
+    }
+
+    private static OrderOutbox createdOutbox(int retryCount) {
+        OrderCreatedEvent event = new OrderCreatedEvent();
+        event.setOrderId(ORDER_ID);
+        event.setOrderNo(ORDER_NO);
+        event.setUserId(3001L);
+        event.setItems(Collections.emptyList());
+        return outbox(OrderCreatedEvent.TYPE, event, retryCount);
+    }
+
+    private static OrderOutbox outbox(String eventType, Object payload, int retryCount) {
+        OrderOutbox outbox = new OrderOutbox();
+        outbox.setId(1L);
+        outbox.setOrderNo(ORDER_NO);
+        outbox.setEventType(eventType);
+        outbox.setPayload(JsonUtils.toJson(payload));
+        outbox.setRetryCount(retryCount);
+        return outbox;
+    }
+}
\ No newline at end of file
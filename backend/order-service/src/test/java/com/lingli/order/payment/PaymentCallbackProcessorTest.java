@@ -0,0 +1,157 @@
+package com.lingli.order.payment;
+
+import com.lingli.order.mapper.PaymentRecordMapper;
+import com.lingli.order.outbox.OrderOutboxDispatcher;
+import com.lingli.order.outbox.PaymentNotifyEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 支付回调处理测试：回调写入发件箱并保存报文后才应答成功
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentCallbackProcessorTest {
+
+    private static final String PAYMENT_NO = "PAY2023112810302100120000001";
+    private static final String DEDUPE_KEY = "payment:notify:" + PAYMENT_NO + ":" + PaymentNotifyEvent.SUCCESS_TYPE;
+    private static final String FAILURE_DEDUPE_KEY =
+            "payment:notify:" + PAYMENT_NO + ":" + PaymentNotifyEvent.FAILURE_TYPE;
+
+    @Mock
+    private PaymentRecordMapper paymentRecordMapper;
+
+    @Mock
+    private OrderOutboxDispatcher orderOutboxDispatcher;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PaymentCallbackProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        processor = new PaymentCallbackProcessor();
+        ReflectionTestUtils.setField(processor, "paymentRecordMapper", paymentRecordMapper);
+        ReflectionTestUtils.setField(processor, "orderOutboxDispatcher", orderOutboxDispatcher);
+        ReflectionTestUtils.setField(processor, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(processor, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(processor, "doneTtlHours", 48L);
+        processor.init();
+        lenient().when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void successCallbackIsPersistedBeforeAck() {
+        boolean ack = processor.accept(PAYMENT_NO, "T001", true, null, "{\"trade_status\":\"TRADE_SUCCESS\"}");
+
+        assertThat(ack).isTrue();
+        ArgumentCaptor<PaymentNotifyEvent> event = ArgumentCaptor.forClass(PaymentNotifyEvent.class);
+        InOrder order = inOrder(orderOutboxDispatcher, paymentRecordMapper, transactionManager, valueOperations);
+        order.verify(orderOutboxDispatcher).append(eq(PAYMENT_NO), eq(PaymentNotifyEvent.SUCCESS_TYPE), event.capture());
+        order.verify(paymentRecordMapper).update(any(), any());
+        order.verify(transactionManager).commit(any());
+        order.verify(valueOperations).set(DEDUPE_KEY, "accepted", 48L, TimeUnit.HOURS);
+        assertThat(event.getValue().getTradeNo()).isEqualTo("T001");
+    }
+
+    @Test
+    void failureCallbackUsesFailureEvent() {
+        boolean ack = processor.accept(PAYMENT_NO, null, false, "交易关闭", null);
+
+        assertThat(ack).isTrue();
+        ArgumentCaptor<PaymentNotifyEvent> event = ArgumentCaptor.forClass(PaymentNotifyEvent.class);
+        verify(orderOutboxDispatcher).append(eq(PAYMENT_NO), eq(PaymentNotifyEvent.FAILURE_TYPE), event.capture());
+        assertThat(event.getValue().getReason()).isEqualTo("交易关闭");
+        verifyNoInteractions(paymentRecordMapper);
+        verify(valueOperations).set(FAILURE_DEDUPE_KEY, "accepted", 48L, TimeUnit.HOURS);
+    }
+
+    @Test
+    void successAfterFailureIsNotTreatedAsDuplicate() {
+        lenient().when(valueOperations.get(FAILURE_DEDUPE_KEY)).thenReturn("accepted");
+
+        boolean ack = processor.accept(PAYMENT_NO, "T001", true, null, "{}");
+
+        assertThat(ack).isTrue();
+        verify(orderOutboxDispatcher).append(eq(PAYMENT_NO), eq(PaymentNotifyEvent.SUCCESS_TYPE), any());
+        verify(valueOperations).set(DEDUPE_KEY, "accepted", 48L, TimeUnit.HOURS);
+    }
+
+    @Test
+    void persistFailureIsNotAcked() {
+        doThrow(new QueryTimeoutException("数据库超时"))
+                .when(orderOutboxDispatcher).append(anyString(), anyString(), any());
+
+        boolean ack = processor.accept(PAYMENT_NO, "T001", true, null, "{}");
+
+        assertThat(ack).isFalse();
+        verify(transactionManager).rollback(any());
+        verify(valueOperations, never()).set(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void duplicateCallbackIsAckedWithoutSecondEvent() {
+        doThrow(new DuplicateKeyException("uk_order_no_event"))
+                .when(orderOutboxDispatcher).append(anyString(), anyString(), any());
+
+        boolean ack = processor.accept(PAYMENT_NO, "T001", true, null, "{}");
+
+        assertThat(ack).isTrue();
+        verify(valueOperations).set(DEDUPE_KEY, "accepted", 48L, TimeUnit.HOURS);
+    }
+
+    @Test
+    void acceptedCallbackShortCircuits() {
+        when(valueOperations.get(DEDUPE_KEY)).thenReturn("accepted");
+
+        boolean ack = processor.accept(PAYMENT_NO, "T001", true, null, "{}");
+
+        assertThat(ack).isTrue();
+        verifyNoInteractions(orderOutboxDispatcher, paymentRecordMapper, transactionManager);
+    }
+
+    @Test
+    void redisOutageFallsBackToDatabase() {
+        when(stringRedisTemplate.opsForValue()).thenThrow(new IllegalStateException("连接失败"));
+
+        boolean ack = processor.accept(PAYMENT_NO, "T001", true, null, "{}");
+
+        assertThat(ack).isTrue();
+        verify(orderOutboxDispatcher).append(eq(PAYMENT_NO), eq(PaymentNotifyEvent.SUCCESS_TYPE), any());
+    }
+}
\ No newline at end of file
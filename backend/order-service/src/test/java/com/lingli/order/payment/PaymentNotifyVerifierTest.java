@@ -0,0 +1,133 @@
+package com.lingli.order.payment;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 支付回调验签测试
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class PaymentNotifyVerifierTest {
+
+    private static final String API_V3_KEY = "0123456789abcdef0123456789abcdef";
+
+    private PaymentNotifyVerifier verifier;
+
+    private PrivateKey alipayPrivateKey;
+
+    private PrivateKey wechatPrivateKey;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair alipay = generator.generateKeyPair();
+        KeyPair wechat = generator.generateKeyPair();
+        alipayPrivateKey = alipay.getPrivate();
+        wechatPrivateKey = wechat.getPrivate();
+
+        verifier = new PaymentNotifyVerifier();
+        ReflectionTestUtils.setField(verifier, "alipayPublicKey",
+                Base64.getEncoder().encodeToString(alipay.getPublic().getEncoded()));
+        ReflectionTestUtils.setField(verifier, "wechatPlatformPublicKey",
+                Base64.getEncoder().encodeToString(wechat.getPublic().getEncoded()));
+        ReflectionTestUtils.setField(verifier, "wechatApiV3Key", API_V3_KEY);
+        ReflectionTestUtils.setField(verifier, "maxClockSkewSeconds", 300L);
+        verifier.init();
+    }
+
+    @Test
+    void alipaySignatureCoversSortedNonEmptyParams() throws Exception {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("trade_status", "TRADE_SUCCESS");
+        params.put("out_trade_no", "PAY001");
+        params.put("trade_no", "2023112822001");
+        params.put("passback_params", "");
+        params.put("sign", sign(alipayPrivateKey, "out_trade_no=PAY001&trade_no=2023112822001&trade_status=TRADE_SUCCESS"));
+        params.put("sign_type", "RSA2");
+
+        assertThat(verifier.verifyAlipay(params)).isTrue();
+
+        params.put("trade_status", "TRADE_CLOSED");
+        assertThat(verifier.verifyAlipay(params)).isFalse();
+    }
+
+    @Test
+    void alipayWithoutSignIsRejected() {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("out_trade_no", "PAY001");
+
+        assertThat(verifier.verifyAlipay(params)).isFalse();
+    }
+
+    @Test
+    void wechatSignatureCoversTimestampNonceAndBody() throws Exception {
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String body = "{\"id\":\"EV-001\"}";
+        String signature = sign(wechatPrivateKey, timestamp + "\nnonce-1\n" + body + "\n");
+
+        assertThat(verifier.verifyWechat(timestamp, "nonce-1", body, signature)).isTrue();
+        assertThat(verifier.verifyWechat(timestamp, "nonce-2", body, signature)).isFalse();
+        assertThat(verifier.verifyWechat(timestamp, "nonce-1", "{\"id\":\"EV-002\"}", signature)).isFalse();
+    }
+
+    @Test
+    void staleWechatTimestampIsRejected() throws Exception {
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000 - 3600);
+        String signature = sign(wechatPrivateKey, timestamp + "\nnonce-1\n{}\n");
+
+        assertThat(verifier.verifyWechat(timestamp, "nonce-1", "{}", signature)).isFalse();
+    }
+
+    @Test
+    void wechatResourceIsDecrypted() throws Exception {
+        String plain = "{\"out_trade_no\":\"PAY001\",\"trade_state\":\"SUCCESS\"}";
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(API_V3_KEY.getBytes(StandardCharsets.UTF_8), "AES"),
+                new GCMParameterSpec(128, "abcdefghijkl".getBytes(StandardCharsets.UTF_8)));
+        cipher.updateAAD("transaction".getBytes(StandardCharsets.UTF_8));
+        String ciphertext = Base64.getEncoder().encodeToString(cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(verifier.decryptWechat("transaction", "abcdefghijkl", ciphertext)).isEqualTo(plain);
+        assertThat(verifier.decryptWechat("certificate", "abcdefghijkl", ciphertext)).isNull();
+    }
+
+    @Test
+    void unconfiguredChannelRejectsAll() throws Exception {
+        PaymentNotifyVerifier unconfigured = new PaymentNotifyVerifier();
+        ReflectionTestUtils.setField(unconfigured, "alipayPublicKey", "");
+        ReflectionTestUtils.setField(unconfigured, "wechatPlatformPublicKey", "");
+        unconfigured.init();
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("out_trade_no", "PAY001");
+        params.put("sign", sign(alipayPrivateKey, "out_trade_no=PAY001"));
+
+        assertThat(unconfigured.verifyAlipay(params)).isFalse();
+    }
+
+    // ========== 私有方法 ==========
+
+    private static String sign(PrivateKey key, String content) throws Exception {
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(key);
+        signature.update(content.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(signature.sign());
+    }
+}
\ No newline at end of file
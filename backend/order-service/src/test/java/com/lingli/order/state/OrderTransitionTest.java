@@ -0,0 +1,56 @@
+package com.lingli.order.state;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.common.enums.PayStatus;
+import com.lingli.common.enums.SamplingStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 订单状态机测试：按目标状态查找转换只在唯一时返回，已取消等多来源的目标状态必须由调用方指定转换
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class OrderTransitionTest {
+
+    @Test
+    void cancelledTargetIsAmbiguous() {
+        List<OrderTransition> candidates =
+                OrderTransition.resolveAll(OrderTransition.Field.STATUS, OrderStatus.CANCELLED.getCode());
+
+        assertThat(candidates).containsExactlyInAnyOrder(OrderTransition.CANCEL, OrderTransition.CANCEL_UNPAID);
+        assertThat(OrderTransition.resolve(OrderTransition.Field.STATUS, OrderStatus.CANCELLED.getCode())).isNull();
+    }
+
+    @Test
+    void uniqueTargetsResolveToTheirTransition() {
+        for (OrderTransition transition : OrderTransition.values()) {
+            if (OrderTransition.resolveAll(transition.getField(), transition.getTo()).size() == 1) {
+                assertThat(OrderTransition.resolve(transition.getField(), transition.getTo())).isSameAs(transition);
+            }
+        }
+        assertThat(OrderTransition.resolve(OrderTransition.Field.STATUS, OrderStatus.PAID.getCode()))
+                .isSameAs(OrderTransition.PAY);
+        assertThat(OrderTransition.resolve(OrderTransition.Field.PAY_STATUS, PayStatus.PAYMENT_FAILED.getCode()))
+                .isSameAs(OrderTransition.PAY_FAIL);
+        assertThat(OrderTransition.resolve(OrderTransition.Field.SAMPLING_STATUS, SamplingStatus.SUBMITTED.getCode()))
+                .isSameAs(OrderTransition.SUBMIT_SAMPLE);
+    }
+
+    @Test
+    void unknownTargetResolvesToNull() {
+        assertThat(OrderTransition.resolve(OrderTransition.Field.STATUS, OrderStatus.PENDING_PAYMENT.getCode())).isNull();
+        assertThat(OrderTransition.resolve(OrderTransition.Field.SAMPLING_STATUS, 99)).isNull();
+        assertThat(OrderTransition.resolveAll(OrderTransition.Field.PAY_STATUS, 99)).isEmpty();
+    }
+
+    @Test
+    void onlyAdminCancelCoversPaidOrders() {
+        assertThat(OrderTransition.CANCEL_UNPAID.getFrom()).containsExactly(OrderStatus.PENDING_PAYMENT.getCode());
+        assertThat(OrderTransition.CANCEL.getFrom()).contains(OrderStatus.PAID.getCode());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.lingli.order.stats;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.common.enums.SamplingStatus;
+import com.lingli.order.entity.Order;
+import com.lingli.order.mapper.OrderMapper;
+import com.lingli.order.service.OrderService.OrderStatisticsVO;
+import com.lingli.order.state.OrderTransition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用户订单统计计数器测试：回源重算按枚举传入状态码，唯一来源的取消按增量累加，多来源的取消按用户重算
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderStatsCounterTest {
+
+    private static final Long USER_ID = 7L;
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private StringRedisConnection connection;
+
+    private OrderStatsCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new OrderStatsCounter();
+        ReflectionTestUtils.setField(counter, "orderMapper", orderMapper);
+        ReflectionTestUtils.setField(counter, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(counter, "ttlDays", 7L);
+    }
+
+    @Test
+    void missingHashIsRebuiltWithEnumCodes() {
+        when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries("order:stats:" + USER_ID)).thenReturn(Collections.emptyMap());
+        when(orderMapper.selectUserStats(anyList(), any(), anyList())).thenReturn(Arrays.asList(
+                row(OrderStatus.PAID, 2, "30.00", "30.00", 1),
+                row(OrderStatus.CANCELLED, 1, "0.00", "0.00", 0)));
+
+        OrderStatisticsVO statistics = counter.get(USER_ID);
+
+        verify(orderMapper).selectUserStats(Collections.singletonList(USER_ID), OrderStatus.CANCELLED.getCode(),
+                Arrays.asList(SamplingStatus.PENDING.getCode(), SamplingStatus.APPOINTED.getCode()));
+        assertThat(statistics.getTotalOrders()).isEqualTo(3);
+        assertThat(statistics.getPaidOrders()).isEqualTo(2);
+        assertThat(statistics.getCancelledOrders()).isEqualTo(1);
+        assertThat(statistics.getPendingSamplingOrders()).isEqualTo(1);
+        assertThat(statistics.getTotalAmount()).isEqualByComparingTo("30.00");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unpaidCancelIsAppliedAsDelta() {
+        Order order = order(OrderStatus.CANCELLED, "12.50", SamplingStatus.PENDING);
+
+        counter.onTransitedAfterCommit(OrderTransition.CANCEL_UNPAID, Collections.singletonList(order));
+
+        ArgumentCaptor<RedisCallback<Object>> callback = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(stringRedisTemplate).executePipelined(callback.capture());
+        callback.getValue().doInRedis(connection);
+
+        ArgumentCaptor<String> keysAndArgs = ArgumentCaptor.forClass(String.class);
+        verify(connection).eval(anyString(), eq(ReturnType.INTEGER), eq(1), keysAndArgs.capture());
+        List<String> values = keysAndArgs.getAllValues();
+        assertThat(values.get(0)).isEqualTo("order:stats:" + USER_ID);
+        assertThat(values.subList(2, values.size())).containsExactly(
+                "s:" + OrderStatus.PENDING_PAYMENT.getCode(), "-1",
+                "s:" + OrderStatus.CANCELLED.getCode(), "1",
+                "amount", "-1250",
+                "paid", "0",
+                "sampling", "-1");
+        verify(orderMapper, never()).selectUserStats(anyList(), any(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void adminCancelRebuildsUser() {
+        Order order = order(OrderStatus.CANCELLED, "12.50", SamplingStatus.COLLECTED);
+        when(orderMapper.selectUserStats(anyList(), any(), anyList())).thenReturn(Collections.emptyList());
+
+        counter.onTransitedAfterCommit(OrderTransition.CANCEL, Collections.singletonList(order));
+
+        verify(orderMapper).selectUserStats(eq(Collections.singletonList(USER_ID)),
+                eq(OrderStatus.CANCELLED.getCode()), anyList());
+        verify(stringRedisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void payStatusTransitionIsIgnored() {
+        counter.onTransitedAfterCommit(OrderTransition.PAY_FAIL,
+                Collections.singletonList(order(OrderStatus.PENDING_PAYMENT, "1.00", SamplingStatus.PENDING)));
+
+        verify(orderMapper, never()).selectUserStats(anyList(), any(), anyList());
+        verify(stringRedisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    // ========== 私有方法 ==========
+
+    private static Order order(OrderStatus status, String totalAmount, SamplingStatus samplingStatus) {
+        Order order = new Order();
+        order.setId(1L);
+        order.setUserId(USER_ID);
+        order.setStatus(status);
+        order.setTotalAmount(new BigDecimal(totalAmount));
+        order.setSamplingStatus(samplingStatus.getCode());
+        return order;
+    }
+
+    private static UserOrderStats row(OrderStatus status, long count, String totalAmount, String paidAmount,
+                                      long pendingSampling) {
+        UserOrderStats row = new UserOrderStats();
+        row.setUserId(USER_ID);
+        row.setStatus(status.getCode());
+        row.setOrderCount(count);
+        row.setTotalAmount(new BigDecimal(totalAmount));
+        row.setPaidAmount(new BigDecimal(paidAmount));
+        row.setPendingSamplingCount(pendingSampling);
+        return row;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.lingli.order.timeout;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 哈希时间轮测试：不提前到期、同刻度合并、跨圈到期、回调异常不影响后续刻度
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class HashedTimingWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    /**
+     * 等待回调的上限，远大于刻度，避免机器繁忙时误判
+     */
+    private static final long WAIT_MILLIS = 2000;
+
+    private final BlockingQueue<Expiry> expiries = new LinkedBlockingQueue<>();
+
+    private HashedTimingWheel<Long> wheel;
+
+    @AfterEach
+    void tearDown() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void sameTickItemsExpireTogetherNotBeforeDeadline() throws InterruptedException {
+        startWheel(64, this::record);
+        long deadline = System.currentTimeMillis() + 100;
+        wheel.add(1L, deadline);
+        wheel.add(2L, deadline);
+        wheel.add(3L, deadline);
+        assertThat(wheel.size()).isEqualTo(3);
+
+        Expiry expiry = next();
+        assertThat(expiry.items).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(expiry.firedAt).isGreaterThanOrEqualTo(deadline);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void pastDeadlineExpiresOnNextTick() throws InterruptedException {
+        startWheel(64, this::record);
+        wheel.add(1L, System.currentTimeMillis() - 60_000);
+
+        assertThat(next().items).containsExactly(1L);
+    }
+
+    @Test
+    void deadlineBeyondOneRoundWaitsForRemainingRounds() throws InterruptedException {
+        // 4个槽位一圈40毫秒，任务需转多圈才到期
+        startWheel(4, this::record);
+        long now = System.currentTimeMillis();
+        wheel.add(1L, now + 25);
+        wheel.add(2L, now + 165);
+
+        Expiry first = next();
+        Expiry second = next();
+        assertThat(first.items).containsExactly(1L);
+        assertThat(second.items).containsExactly(2L);
+        assertThat(first.firedAt).isGreaterThanOrEqualTo(now + 25);
+        assertThat(second.firedAt).isGreaterThanOrEqualTo(now + 165);
+    }
+
+    @Test
+    void failedCallbackDoesNotStopWheel() throws InterruptedException {
+        startWheel(64, items -> {
+            if (items.contains(1L)) {
+                throw new IllegalStateException("回调失败");
+            }
+            record(items);
+        });
+        long now = System.currentTimeMillis();
+        wheel.add(1L, now + 20);
+        wheel.add(2L, now + 80);
+
+        assertThat(next().items).containsExactly(2L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void wheelSizeIsRoundedUpToPowerOfTwo() throws InterruptedException {
+        // 3个槽位取整为4，跨圈任务仍按到期时间回调
+        startWheel(3, this::record);
+        List<Long> items = new ArrayList<>(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        long now = System.currentTimeMillis();
+        for (Long item : items) {
+            wheel.add(item, now + item * 15);
+        }
+
+        List<Long> expired = new ArrayList<>();
+        while (expired.size() < items.size()) {
+            expired.addAll(next().items);
+        }
+        assertThat(expired).containsExactlyElementsOf(items);
+    }
+
+    // ========== 私有方法 ==========
+
+    private void startWheel(int wheelSize, Consumer<List<Long>> handler) {
+        wheel = new HashedTimingWheel<>("test-wheel", TICK_MILLIS, wheelSize, handler);
+        wheel.start();
+    }
+
+    private void record(List<Long> items) {
+        expiries.add(new Expiry(new ArrayList<>(items), System.currentTimeMillis()));
+    }
+
+    private Expiry next() throws InterruptedException {
+        Expiry expiry = expiries.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        assertThat(expiry).as("等待时间轮回调超时").isNotNull();
+        return expiry;
+    }
+
+    private static class Expiry {
+
+        private final List<Long> items;
+        private final long firedAt;
+
+        Expiry(List<Long> items, long firedAt) {
+            this.items = items;
+            this.firedAt = firedAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.lingli.order.timeout;
+
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.order.entity.Order;
+import com.lingli.order.mapper.OrderMapper;
+import com.lingli.order.service.OrderService;
+import com.lingli.order.state.OrderTransition;
+import com.lingli.order.state.TransitionResult;
+import com.lingli.product.inventory.PackageInventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 库存预占到期处理测试：按订单状态取消、确认或释放，不直接释放已支付订单的预占
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderReservationExpiryHandlerTest {
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private PackageInventory packageInventory;
+
+    private OrderReservationExpiryHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new OrderReservationExpiryHandler();
+        ReflectionTestUtils.setField(handler, "orderMapper", orderMapper);
+        ReflectionTestUtils.setField(handler, "orderService", orderService);
+        ReflectionTestUtils.setField(handler, "packageInventory", packageInventory);
+    }
+
+    @Test
+    void unpaidOrdersAreCancelledInsteadOfReleased() {
+        when(orderMapper.selectList(any())).thenReturn(Collections.singletonList(order(1L, "ORD1", OrderStatus.PENDING_PAYMENT)));
+        when(orderService.transitOrders(Collections.singletonList(1L), OrderTransition.CANCEL_UNPAID))
+                .thenReturn(new TransitionResult(OrderTransition.CANCEL_UNPAID));
+
+        handler.onExpired(Collections.singletonList("ORD1"));
+
+        verify(orderService).transitOrders(Collections.singletonList(1L), OrderTransition.CANCEL_UNPAID);
+        verify(packageInventory, never()).release(anyString());
+        verify(packageInventory, never()).confirm(anyString());
+    }
+
+    @Test
+    void paidOrdersConfirmReservation() {
+        when(orderMapper.selectList(any())).thenReturn(Arrays.asList(
+                order(1L, "ORD1", OrderStatus.PAID),
+                order(2L, "ORD2", OrderStatus.COMPLETED)));
+
+        handler.onExpired(Arrays.asList("ORD1", "ORD2"));
+
+        verify(packageInventory).confirm("ORD1");
+        verify(packageInventory).confirm("ORD2");
+        verifyNoMoreInteractions(packageInventory);
+        verify(orderService, never()).transitOrders(any(), any());
+    }
+
+    @Test
+    void cancelledOrMissingOrdersReleaseReservation() {
+        when(orderMapper.selectList(any())).thenReturn(Collections.singletonList(order(1L, "ORD1", OrderStatus.CANCELLED)));
+
+        handler.onExpired(Arrays.asList("ORD1", "ORD2"));
+
+        verify(packageInventory).release("ORD1");
+        verify(packageInventory).release("ORD2");
+        verifyNoMoreInteractions(packageInventory);
+        verify(orderService, never()).transitOrders(any(), any());
+    }
+
+    // ========== 私有方法 ==========
+
+    private static Order order(Long id, String orderNo, OrderStatus status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderNo(orderNo);
+        order.setStatus(status);
+        return order;
+    }
+}
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.lingli.product;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 /**
@@ -11,8 +12,9 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
  * @author lingli
  * @since 2023-11-28
  */
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = {"com.lingli.product", "com.lingli.common"})
 @EnableTransactionManagement
+@EnableScheduling
 @MapperScan("com.lingli.product.mapper")
 public class ProductServiceApplication {
 
@@ -0,0 +1,164 @@
+package com.lingli.product.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.lingli.product.vo.CategoryVO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分类快照（只读）
+ * 一次加载后预先计算好树形结构、父子索引和ID索引，发布后不再修改；
+ * 对外返回的分类均为副本（列表不可修改），调用方修改不影响快照
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public final class CategorySnapshot {
+
+    /**
+     * 顶级分类的父ID
+     */
+    public static final Long ROOT_PARENT_ID = 0L;
+
+    /**
+     * 快照版本号
+     */
+    private final long version;
+
+    /**
+     * 分类ID -> 分类（包含禁用分类，不含子节点）
+     */
+    private final Map<Long, CategoryVO> categoryById;
+
+    /**
+     * 父分类ID -> 启用的子分类（不含子节点，按排序字段排序）
+     */
+    private final Map<Long, List<CategoryVO>> childrenByParentId;
+
+    /**
+     * 启用分类的树形结构
+     */
+    private final List<CategoryVO> tree;
+
+    private CategorySnapshot(long version, Map<Long, CategoryVO> categoryById,
+                             Map<Long, List<CategoryVO>> childrenByParentId, List<CategoryVO> tree) {
+        this.version = version;
+        this.categoryById = categoryById;
+        this.childrenByParentId = childrenByParentId;
+        this.tree = tree;
+    }
+
+    /**
+     * 构建快照，O(n)
+     *
+     * @param version    版本号
+     * @param categories 全部分类，需已按排序字段排序
+     */
+    public static CategorySnapshot build(long version, List<CategoryVO> categories) {
+        Map<Long, CategoryVO> categoryById = new HashMap<>(categories.size() * 2);
+        Map<Long, List<CategoryVO>> childrenByParentId = new HashMap<>();
+        Map<Long, List<CategoryVO>> treeChildrenByParentId = new HashMap<>();
+        Map<Long, CategoryVO> treeNodeById = new LinkedHashMap<>();
+
+        for (CategoryVO category : categories) {
+            categoryById.put(category.getId(), category);
+            if (!Boolean.TRUE.equals(category.getEnabled())) {
+                continue;
+            }
+
+            Long parentId = category.getParentId() != null ? category.getParentId() : ROOT_PARENT_ID;
+            childrenByParentId.computeIfAbsent(parentId, key -> new ArrayList<>()).add(category);
+
+            CategoryVO treeNode = BeanUtil.copyProperties(category, CategoryVO.class);
+            treeNodeById.put(treeNode.getId(), treeNode);
+            treeChildrenByParentId.computeIfAbsent(parentId, key -> new ArrayList<>()).add(treeNode);
+        }
+
+        // 一次遍历挂载子节点
+        for (CategoryVO treeNode : treeNodeById.values()) {
+            List<CategoryVO> children = treeChildrenByParentId.get(treeNode.getId());
+            if (children != null) {
+                treeNode.setChildren(Collections.unmodifiableList(children));
+            }
+        }
+
+        Map<Long, List<CategoryVO>> readOnlyChildren = new HashMap<>(childrenByParentId.size() * 2);
+        childrenByParentId.forEach((parentId, children) ->
+                readOnlyChildren.put(parentId, Collections.unmodifiableList(children)));
+
+        List<CategoryVO> tree = treeChildrenByParentId.getOrDefault(ROOT_PARENT_ID, new ArrayList<>());
+
+        return new CategorySnapshot(version,
+                Collections.unmodifiableMap(categoryById),
+                Collections.unmodifiableMap(readOnlyChildren),
+                Collections.unmodifiableList(tree));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 启用分类的树形结构
+     */
+    public List<CategoryVO> getTree() {
+        return copyAll(tree);
+    }
+
+    /**
+     * 指定父分类下启用的子分类
+     */
+    public List<CategoryVO> getChildren(Long parentId) {
+        return copyAll(childrenByParentId.getOrDefault(parentId, Collections.emptyList()));
+    }
+
+    /**
+     * 全部分类（包含禁用分类）
+     */
+    public Collection<CategoryVO> getCategories() {
+        return copyAll(categoryById.values());
+    }
+
+    /**
+     * 根据ID获取分类，不存在返回null
+     */
+    public CategoryVO getCategory(Long categoryId) {
+        CategoryVO category = categoryById.get(categoryId);
+        return category != null ? copy(category) : null;
+    }
+
+    /**
+     * 根据ID获取分类名称，不存在返回null
+     */
+    public String getCategoryName(Long categoryId) {
+        CategoryVO category = categoryById.get(categoryId);
+        return category != null ? category.getName() : null;
+    }
+
+    // ========== 私有方法 ==========
+
+    private static List<CategoryVO> copyAll(Collection<CategoryVO> categories) {
+        List<CategoryVO> copies = new ArrayList<>(categories.size());
+        for (CategoryVO category : categories) {
+            copies.add(copy(category));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    /**
+     * 复制分类，子节点一并复制
+     */
+    private static CategoryVO copy(CategoryVO category) {
+        CategoryVO copy = BeanUtil.copyProperties(category, CategoryVO.class, "children");
+        if (category.getChildren() != null) {
+            copy.setChildren(copyAll(category.getChildren()));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,198 @@
+package com.lingli.product.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.product.entity.PackageCategory;
+import com.lingli.product.mapper.PackageCategoryMapper;
+import com.lingli.product.vo.CategoryVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 分类树本地缓存
+ * 持有不可变的分类快照，读请求不访问数据库；分类变更后在事务提交时整体替换快照，
+ * 并通过Redis版本号 + 发布订阅通知其他商品服务节点重新加载
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class CategoryTreeCache implements MessageListener {
+
+    // Redis键
+    private static final String CATEGORY_VERSION_KEY = "product:category:version";
+    private static final String CATEGORY_CHANGED_CHANNEL = "product:category:changed";
+
+    private static final Map<String, String> DEFAULT_ICONS = Map.of(
+            "BASIC", "🩺",
+            "PRE_EMPLOYMENT", "💼",
+            "ANNUAL_CHECKUP", "📅",
+            "OCCUPATIONAL_HEALTH", "🏭",
+            "PREMIUM", "⭐",
+            "ELITE", "👑",
+            "VIP", "💎",
+            "SPECIALIZED", "🔬",
+            "CARDIOVASCULAR", "❤️",
+            "CANCER_SCREENING", "🎯"
+    );
+
+    @Autowired
+    private PackageCategoryMapper categoryMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private volatile CategorySnapshot snapshot;
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CATEGORY_CHANGED_CHANNEL));
+    }
+
+    /**
+     * 获取当前快照，首次访问时加载
+     */
+    public CategorySnapshot getSnapshot() {
+        CategorySnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = reload(currentVersion());
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 分类变更后调用：事务提交后递增版本号、重建本地快照并通知其他节点
+     */
+    public void invalidateAfterCommit() {
+        TransactionUtils.afterCommit(this::publishChange);
+    }
+
+    /**
+     * 分类实体转换为VO
+     */
+    public CategoryVO convertToCategoryVO(PackageCategory category) {
+        CategoryVO categoryVO = BeanUtil.copyProperties(category, CategoryVO.class);
+        categoryVO.setEnabled(category.getStatus() == 1);
+
+        // 添加默认图标
+        categoryVO.setIcon(DEFAULT_ICONS.getOrDefault(category.getCode(), "📋"));
+
+        return categoryVO;
+    }
+
+    /**
+     * 接收其他节点的变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        long version = parseVersion(new String(message.getBody(), StandardCharsets.UTF_8));
+        reloadIfStale(version);
+    }
+
+    /**
+     * 定时校验版本号，兜底发布订阅消息丢失的情况
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void checkVersion() {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            reloadIfStale(currentVersion());
+        } catch (Exception e) {
+            log.warn("校验分类缓存版本失败: {}", e.getMessage());
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    private void publishChange() {
+        long version = 0L;
+        try {
+            Long newVersion = stringRedisTemplate.opsForValue().increment(CATEGORY_VERSION_KEY);
+            version = newVersion != null ? newVersion : 0L;
+        } catch (Exception e) {
+            log.warn("递增分类缓存版本失败，仅刷新本地缓存: {}", e.getMessage());
+        }
+
+        reload(version);
+
+        try {
+            stringRedisTemplate.convertAndSend(CATEGORY_CHANGED_CHANNEL, String.valueOf(version));
+        } catch (Exception e) {
+            log.warn("广播分类缓存变更失败: {}", e.getMessage());
+        }
+    }
+
+    private void reloadIfStale(long version) {
+        CategorySnapshot current = snapshot;
+        if (current == null || current.getVersion() == version) {
+            return;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && current.getVersion() != version) {
+                reload(version);
+            }
+        }
+    }
+
+    private synchronized CategorySnapshot reload(long version) {
+        LambdaQueryWrapper<PackageCategory> wrapper = new LambdaQueryWrapper<>();
+        wrapper.orderByAsc(PackageCategory::getSortOrder)
+               .orderByAsc(PackageCategory::getId);
+
+        List<CategoryVO> categories = categoryMapper.selectList(wrapper).stream()
+                .map(this::convertToCategoryVO)
+                .collect(Collectors.toList());
+
+        CategorySnapshot loaded = CategorySnapshot.build(version, categories);
+        snapshot = loaded;
+
+        log.info("分类缓存已加载: version={}, size={}", version, categories.size());
+        return loaded;
+    }
+
+    private long currentVersion() {
+        try {
+            return parseVersion(stringRedisTemplate.opsForValue().get(CATEGORY_VERSION_KEY));
+        } catch (Exception e) {
+            log.warn("读取分类缓存版本失败: {}", e.getMessage());
+            return 0L;
+        }
+    }
+
+    private long parseVersion(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.lingli.product.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.product.vo.CacheStatsVO;
+import com.lingli.product.vo.PackageVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 套餐详情两级缓存
+ * L1为本地Caffeine缓存（按容量和TTL淘汰），L2为Redis；未命中时同一套餐只允许一个线程回源加载，
+ * 其余线程等待同一个加载结果。套餐变更后在事务提交时删除两级缓存，并广播通知其他节点清理L1。
+ * 删除L2时写入短期的删除标记，回源结果只在键不存在时写入（SET NX），变更前已开始的回源无法把旧值写回L2；
+ * 回源期间收到删除通知时，加载结果只返回给本次调用，不放入L1。
+ * 返回给调用方的PackageVO均为副本，调用方修改不影响缓存
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class PackageDetailCache implements MessageListener {
+
+    // Redis键
+    private static final String PACKAGE_DETAIL_KEY = "product:package:detail:";
+
+    /**
+     * L2删除标记，存在期间回源结果不能写入
+     */
+    private static final String EVICTED_MARKER = "evicted";
+    public static final String PACKAGE_EVICT_CHANNEL = "product:package:evict";
+
+    @Value("${product.cache.package-detail.l1-max-size:10000}")
+    private long l1MaxSize;
+
+    @Value("${product.cache.package-detail.l1-ttl-seconds:300}")
+    private long l1TtlSeconds;
+
+    @Value("${product.cache.package-detail.l2-ttl-seconds:1800}")
+    private long l2TtlSeconds;
+
+    /**
+     * 删除标记的有效期（秒），需大于回源加载的最长耗时
+     */
+    @Value("${product.cache.package-detail.evicted-marker-seconds:10}")
+    private long evictedMarkerSeconds;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private Cache<Long, PackageVO> localCache;
+
+    /**
+     * 进行中的回源加载，用于合并并发请求
+     */
+    private final ConcurrentMap<Long, CompletableFuture<PackageVO>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /**
+     * 本地删除次数，回源前后不一致说明期间有套餐变更，结果不放入L1
+     */
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    // L2及回源统计
+    private final LongAdder l2HitCount = new LongAdder();
+    private final LongAdder l2MissCount = new LongAdder();
+    private final LongAdder l2ReadNanos = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder coalescedLoadCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(l1TtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(PACKAGE_EVICT_CHANNEL));
+    }
+
+    /**
+     * 读取套餐详情：L1 -> L2 -> 回源加载
+     *
+     * @param packageId 套餐ID
+     * @param loader    回源加载方法，套餐不存在时应抛出业务异常
+     */
+    public PackageVO get(Long packageId, Function<Long, PackageVO> loader) {
+        PackageVO cached = localCache.getIfPresent(packageId);
+        if (cached != null) {
+            return copy(cached);
+        }
+
+        CompletableFuture<PackageVO> future = new CompletableFuture<>();
+        CompletableFuture<PackageVO> existing = inFlightLoads.putIfAbsent(packageId, future);
+        if (existing != null) {
+            coalescedLoadCount.increment();
+            return copy(await(existing));
+        }
+
+        try {
+            long evictions = evictionCount.get();
+            PackageVO packageVO = readFromRedis(packageId);
+            if (packageVO == null) {
+                packageVO = loadFromSource(packageId, loader);
+                writeToRedis(packageId, packageVO);
+            }
+            if (evictionCount.get() == evictions) {
+                localCache.put(packageId, packageVO);
+            }
+            future.complete(packageVO);
+            return copy(packageVO);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(packageId, future);
+        }
+    }
+
+    /**
+     * 批量读取套餐详情：L1一次取出已缓存的套餐，其余MGET读取L2，仍未命中的一次批量回源并管道回写L2
+     * 批量回源不与单个读取的并发加载合并，适用于下单等一次需要多个套餐的场景
+     *
+     * @param packageIds 套餐ID
+     * @param loader     批量回源加载方法，返回套餐ID到详情的映射，不存在的套餐不返回
+     * @return 套餐ID到详情的映射，不存在的套餐不包含在内
+     */
+    public Map<Long, PackageVO> getAll(Collection<Long> packageIds,
+                                       Function<Collection<Long>, Map<Long, PackageVO>> loader) {
+        Map<Long, PackageVO> result = new HashMap<>(localCache.getAllPresent(packageIds));
+        List<Long> missing = new ArrayList<>();
+        for (Long packageId : new LinkedHashSet<>(packageIds)) {
+            if (!result.containsKey(packageId)) {
+                missing.add(packageId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return copyAll(result);
+        }
+
+        long evictions = evictionCount.get();
+        Map<Long, PackageVO> fromRedis = readAllFromRedis(missing);
+        result.putAll(fromRedis);
+        missing.removeAll(fromRedis.keySet());
+        if (missing.isEmpty()) {
+            cacheLocally(fromRedis, evictions);
+            return copyAll(result);
+        }
+
+        long start = System.nanoTime();
+        Map<Long, PackageVO> loaded;
+        try {
+            loaded = loader.apply(missing);
+            loadCount.add(missing.size());
+        } catch (RuntimeException e) {
+            loadFailureCount.increment();
+            throw e;
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+        }
+        writeAllToRedis(loaded);
+        result.putAll(loaded);
+        cacheLocally(fromRedis, evictions);
+        cacheLocally(loaded, evictions);
+        return copyAll(result);
+    }
+
+    /**
+     * 事务提交后删除单个套餐的缓存
+     */
+    public void evictAfterCommit(Long packageId) {
+        evictAfterCommit(Collections.singletonList(packageId));
+    }
+
+    /**
+     * 事务提交后批量删除套餐缓存，只广播一次
+     */
+    public void evictAfterCommit(Collection<Long> packageIds) {
+        if (packageIds == null || packageIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(packageIds);
+        TransactionUtils.afterCommit(() -> evict(ids));
+    }
+
+    /**
+     * 接收其他节点的删除通知，仅清理本地缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evictionCount.incrementAndGet();
+        localCache.invalidateAll(parsePackageIds(message));
+    }
+
+    /**
+     * 解析套餐变更广播中的套餐ID（逗号分隔），供其他订阅方复用
+     */
+    public static List<Long> parsePackageIds(Message message) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<Long> packageIds = new ArrayList<>();
+        for (String id : body.split(",")) {
+            if (!id.trim().isEmpty()) {
+                try {
+                    packageIds.add(Long.parseLong(id.trim()));
+                } catch (NumberFormatException e) {
+                    log.warn("忽略无效的套餐变更消息: {}", body);
+                }
+            }
+        }
+        return packageIds;
+    }
+
+    /**
+     * 获取各级缓存统计
+     */
+    public CacheStatsVO getStats() {
+        CacheStats l1Stats = localCache.stats();
+        long l2Hits = l2HitCount.sum();
+        long l2Misses = l2MissCount.sum();
+        long loads = loadCount.sum();
+
+        CacheStatsVO statsVO = new CacheStatsVO();
+        statsVO.setName("packageDetail");
+        statsVO.setL1HitCount(l1Stats.hitCount());
+        statsVO.setL1MissCount(l1Stats.missCount());
+        statsVO.setL1HitRate(l1Stats.hitRate());
+        statsVO.setL1EvictionCount(l1Stats.evictionCount());
+        statsVO.setL1Size(localCache.estimatedSize());
+        statsVO.setL2HitCount(l2Hits);
+        statsVO.setL2MissCount(l2Misses);
+        statsVO.setL2HitRate(l2Hits + l2Misses == 0 ? 1.0 : (double) l2Hits / (l2Hits + l2Misses));
+        statsVO.setL2AverageReadMillis(l2Hits + l2Misses == 0 ? 0.0 : l2ReadNanos.sum() / 1_000_000.0 / (l2Hits + l2Misses));
+        statsVO.setLoadCount(loads);
+        statsVO.setLoadFailureCount(loadFailureCount.sum());
+        statsVO.setAverageLoadMillis(loads == 0 ? 0.0 : loadNanos.sum() / 1_000_000.0 / loads);
+        statsVO.setCoalescedLoadCount(coalescedLoadCount.sum());
+        return statsVO;
+    }
+
+    // ========== 私有方法 ==========
+
+    private void evict(List<Long> packageIds) {
+        evictionCount.incrementAndGet();
+        localCache.invalidateAll(packageIds);
+        try {
+            // 以删除标记代替删除，标记有效期内旧的回源结果无法写入
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    for (Long packageId : packageIds) {
+                        operations.opsForValue().set(PACKAGE_DETAIL_KEY + packageId, EVICTED_MARKER,
+                                evictedMarkerSeconds, TimeUnit.SECONDS);
+                    }
+                    return null;
+                }
+            });
+            stringRedisTemplate.convertAndSend(PACKAGE_EVICT_CHANNEL, packageIds.stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(",")));
+        } catch (Exception e) {
+            log.warn("删除套餐详情缓存失败: packageIds={}, error={}", packageIds, e.getMessage());
+        }
+    }
+
+    private PackageVO loadFromSource(Long packageId, Function<Long, PackageVO> loader) {
+        long start = System.nanoTime();
+        try {
+            PackageVO packageVO = loader.apply(packageId);
+            loadCount.increment();
+            return packageVO;
+        } catch (RuntimeException e) {
+            loadFailureCount.increment();
+            throw e;
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private PackageVO readFromRedis(Long packageId) {
+        long start = System.nanoTime();
+        try {
+            Object value = redisTemplate.opsForValue().get(PACKAGE_DETAIL_KEY + packageId);
+            if (value instanceof PackageVO) {
+                l2HitCount.increment();
+                return (PackageVO) value;
+            }
+        } catch (Exception e) {
+            log.warn("读取套餐详情缓存失败: packageId={}, error={}", packageId, e.getMessage());
+        } finally {
+            l2ReadNanos.add(System.nanoTime() - start);
+        }
+        l2MissCount.increment();
+        return null;
+    }
+
+    private void writeToRedis(Long packageId, PackageVO packageVO) {
+        // TTL增加随机抖动，避免大量键同时过期
+        long ttl = l2TtlSeconds + ThreadLocalRandom.current().nextLong(Math.max(1, l2TtlSeconds / 10));
+        try {
+            redisTemplate.opsForValue().setIfAbsent(PACKAGE_DETAIL_KEY + packageId, packageVO, ttl, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入套餐详情缓存失败: packageId={}, error={}", packageId, e.getMessage());
+        }
+    }
+
+    private Map<Long, PackageVO> readAllFromRedis(List<Long> packageIds) {
+        Map<Long, PackageVO> found = new HashMap<>();
+        long start = System.nanoTime();
+        try {
+            List<Object> values = redisTemplate.opsForValue().multiGet(packageIds.stream()
+                    .map(id -> PACKAGE_DETAIL_KEY + id)
+                    .collect(Collectors.toList()));
+            if (values != null) {
+                for (int i = 0; i < packageIds.size(); i++) {
+                    if (values.get(i) instanceof PackageVO) {
+                        found.put(packageIds.get(i), (PackageVO) values.get(i));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("批量读取套餐详情缓存失败: packageIds={}, error={}", packageIds, e.getMessage());
+        } finally {
+            l2ReadNanos.add(System.nanoTime() - start);
+        }
+        l2HitCount.add(found.size());
+        l2MissCount.add(packageIds.size() - found.size());
+        return found;
+    }
+
+    private void writeAllToRedis(Map<Long, PackageVO> packages) {
+        if (packages.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    packages.forEach((packageId, packageVO) -> {
+                        long ttl = l2TtlSeconds + ThreadLocalRandom.current().nextLong(Math.max(1, l2TtlSeconds / 10));
+                        operations.opsForValue().setIfAbsent(PACKAGE_DETAIL_KEY + packageId, packageVO, ttl, TimeUnit.SECONDS);
+                    });
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("批量写入套餐详情缓存失败: packageIds={}, error={}", packages.keySet(), e.getMessage());
+        }
+    }
+
+    /**
+     * 期间没有删除时才放入L1
+     */
+    private void cacheLocally(Map<Long, PackageVO> packages, long evictions) {
+        if (!packages.isEmpty() && evictionCount.get() == evictions) {
+            localCache.putAll(packages);
+        }
+    }
+
+    private static Map<Long, PackageVO> copyAll(Map<Long, PackageVO> packages) {
+        Map<Long, PackageVO> copies = new HashMap<>(packages.size() * 2);
+        packages.forEach((packageId, packageVO) -> copies.put(packageId, copy(packageVO)));
+        return copies;
+    }
+
+    /**
+     * 复制缓存中的套餐详情，列表字段一并复制
+     */
+    private static PackageVO copy(PackageVO packageVO) {
+        PackageVO copy = BeanUtil.copyProperties(packageVO, PackageVO.class);
+        copy.setDetailImages(copyList(packageVO.getDetailImages()));
+        copy.setTestItems(copyList(packageVO.getTestItems()));
+        copy.setTags(copyList(packageVO.getTags()));
+        return copy;
+    }
+
+    private static List<String> copyList(List<String> values) {
+        return values != null ? new ArrayList<>(values) : null;
+    }
+
+    private PackageVO await(CompletableFuture<PackageVO> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -5,8 +5,10 @@ import com.lingli.common.core.Result;
 import com.lingli.product.dto.category.CategoryDTO;
 import com.lingli.product.dto.packageinfo.PackageDTO;
 import com.lingli.product.service.ProductService;
+import com.lingli.product.vo.CacheStatsVO;
 import com.lingli.product.vo.CategoryVO;
 import com.lingli.product.vo.PackageVO;
+import com.lingli.product.vo.SuggestionVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +17,8 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.List;
 
@@ -100,6 +104,18 @@ public class ProductController {
         return Result.success(packages);
     }
 
+    @GetMapping("/packages/feed")
+    @Operation(summary = "游标分页获取套餐列表")
+    public Result<PageResult<PackageVO>> getPackageFeed(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "每页数量不能小于1")
+            @Max(value = 100, message = "每页数量不能超过100") Integer size) {
+        
+        PageResult<PackageVO> packages = productService.getPackageFeed(categoryId, cursor, size);
+        return Result.success(packages);
+    }
+
     @GetMapping("/packages/{packageId}")
     @Operation(summary = "获取套餐详情")
     public Result<PackageVO> getPackageDetail(@PathVariable Long packageId) {
@@ -107,17 +123,26 @@ public class ProductController {
         return Result.success(packageInfo);
     }
 
+    @GetMapping("/packages/cache/stats")
+    @Operation(summary = "获取套餐详情缓存统计")
+    public Result<CacheStatsVO> getPackageDetailCacheStats() {
+        CacheStatsVO stats = productService.getPackageDetailCacheStats();
+        return Result.success(stats);
+    }
+
     @GetMapping("/packages/hot")
     @Operation(summary = "获取热门套餐")
-    public Result<List<PackageVO>> getHotPackages(@RequestParam(defaultValue = "10") Integer limit) {
-        List<PackageVO> packages = productService.getHotPackages(limit);
+    public Result<List<PackageVO>> getHotPackages(@RequestParam(defaultValue = "10") Integer limit,
+                                                  @RequestParam(required = false) String city) {
+        List<PackageVO> packages = productService.getHotPackages(limit, city);
         return Result.success(packages);
     }
 
     @GetMapping("/packages/recommended")
     @Operation(summary = "获取推荐套餐")
-    public Result<List<PackageVO>> getRecommendedPackages(@RequestParam(defaultValue = "10") Integer limit) {
-        List<PackageVO> packages = productService.getRecommendedPackages(limit);
+    public Result<List<PackageVO>> getRecommendedPackages(@RequestParam(defaultValue = "10") Integer limit,
+                                                          @RequestParam(required = false) String city) {
+        List<PackageVO> packages = productService.getRecommendedPackages(limit, city);
         return Result.success(packages);
     }
 
@@ -132,6 +157,16 @@ public class ProductController {
         return Result.success(packages);
     }
 
+    @GetMapping("/suggestions")
+    @Operation(summary = "搜索联想")
+    public Result<List<SuggestionVO>> getSuggestions(
+            @RequestParam @NotNull(message = "输入内容不能为空") String prefix,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        
+        List<SuggestionVO> suggestions = productService.getSuggestions(prefix, limit);
+        return Result.success(suggestions);
+    }
+
     @PostMapping("/packages")
     @Operation(summary = "创建套餐")
     public Result<PackageVO> createPackage(@Valid @RequestBody PackageDTO packageDTO) {
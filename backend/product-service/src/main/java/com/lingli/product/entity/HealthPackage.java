@@ -1,7 +1,9 @@
 package com.lingli.product.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
 import com.lingli.common.core.BaseEntity;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -17,7 +19,7 @@ import java.util.List;
  */
 @Data
 @EqualsAndHashCode(callSuper = true)
-@TableName("health_packages")
+@TableName(value = "health_packages", autoResultMap = true)
 public class HealthPackage extends BaseEntity {
 
     /**
@@ -56,15 +58,15 @@ public class HealthPackage extends BaseEntity {
     private String coverImage;
 
     /**
-     * 详情图片列表
+     * 详情图片列表（JSON列）
      */
-    @TableField(exist = false)
+    @TableField(typeHandler = JacksonTypeHandler.class)
     private List<String> detailImages;
 
     /**
-     * 检测项目列表
+     * 检测项目列表（JSON列）
      */
-    @TableField(exist = false)
+    @TableField(typeHandler = JacksonTypeHandler.class)
     private List<String> testItems;
 
     /**
@@ -79,7 +81,9 @@ public class HealthPackage extends BaseEntity {
 
     /**
      * 库存数量
+     * 只由库存写回（stock = stock + 变化量）修改，updateById不写该列，避免用读到的旧值覆盖并发写回
      */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
     private Integer stock;
 
     /**
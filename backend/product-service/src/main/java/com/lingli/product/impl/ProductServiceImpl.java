@@ -1,31 +1,50 @@
 package com.lingli.product.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.util.ObjectUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.lingli.common.config.MybatisPlusConfig;
+import com.lingli.common.core.PageCursor;
 import com.lingli.common.core.PageResult;
 import com.lingli.common.exception.BusinessException;
-import com.lingli.common.utils.JsonUtils;
+import com.lingli.product.cache.CategorySnapshot;
+import com.lingli.product.cache.CategoryTreeCache;
+import com.lingli.product.cache.PackageDetailCache;
 import com.lingli.product.entity.PackageCategory;
 import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.inventory.PackageInventory;
 import com.lingli.product.mapper.PackageCategoryMapper;
 import com.lingli.product.mapper.HealthPackageMapper;
+import com.lingli.product.ranking.PackageRankingCache;
+import com.lingli.product.ranking.PackageViewCounter;
 import com.lingli.product.dto.category.CategoryDTO;
 import com.lingli.product.dto.packageinfo.PackageDTO;
+import com.lingli.product.search.PackageSearchIndex;
+import com.lingli.product.search.PackageSuggestionIndex;
+import com.lingli.product.search.SearchHits;
 import com.lingli.product.service.ProductService;
+import com.lingli.product.support.CategoryNameResolver;
+import com.lingli.product.vo.CacheStatsVO;
 import com.lingli.product.vo.CategoryVO;
+import com.lingli.product.vo.PackageBatchResultVO;
 import com.lingli.product.vo.PackageVO;
+import com.lingli.product.vo.SuggestionVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -39,66 +58,65 @@ import java.util.stream.Collectors;
 @Transactional
 public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, PackageCategory> implements ProductService {
 
+    /**
+     * 批量操作每条SQL的套餐数
+     */
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     @Autowired
     private PackageCategoryMapper categoryMapper;
 
     @Autowired
     private HealthPackageMapper packageMapper;
 
+    @Autowired
+    private CategoryNameResolver categoryNameResolver;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private PackageDetailCache packageDetailCache;
+
+    @Autowired
+    private PackageSearchIndex packageSearchIndex;
+
+    @Autowired
+    private PackageSuggestionIndex packageSuggestionIndex;
+
+    @Autowired
+    private PackageRankingCache packageRankingCache;
+
+    @Autowired
+    private PackageInventory packageInventory;
+
+    @Autowired
+    private PackageViewCounter packageViewCounter;
+
     @Override
     public List<CategoryVO> getCategoryTree() {
-        // 获取所有启用的分类
-        LambdaQueryWrapper<PackageCategory> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(PackageCategory::getStatus, 1)
-               .orderByAsc(PackageCategory::getSortOrder);
-        
-        List<PackageCategory> categories = categoryMapper.selectList(wrapper);
-        
-        // 转换为VO
-        List<CategoryVO> categoryVOs = categories.stream()
-                .map(this::convertToCategoryVO)
-                .collect(Collectors.toList());
-        
-        // 构建树形结构
-        return buildCategoryTree(categoryVOs, 0L);
+        // 返回预先构建好的分类树快照（副本）
+        return categoryTreeCache.getSnapshot().getTree();
     }
 
     @Override
     public List<CategoryVO> getTopCategories() {
-        LambdaQueryWrapper<PackageCategory> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(PackageCategory::getStatus, 1)
-               .eq(PackageCategory::getParentId, 0)
-               .orderByAsc(PackageCategory::getSortOrder);
-        
-        List<PackageCategory> categories = categoryMapper.selectList(wrapper);
-        
-        return categories.stream()
-                .map(this::convertToCategoryVO)
-                .collect(Collectors.toList());
+        return categoryTreeCache.getSnapshot().getChildren(CategorySnapshot.ROOT_PARENT_ID);
     }
 
     @Override
     public List<CategoryVO> getCategoriesByParentId(Long parentId) {
-        LambdaQueryWrapper<PackageCategory> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(PackageCategory::getStatus, 1)
-               .eq(PackageCategory::getParentId, parentId)
-               .orderByAsc(PackageCategory::getSortOrder);
-        
-        List<PackageCategory> categories = categoryMapper.selectList(wrapper);
-        
-        return categories.stream()
-                .map(this::convertToCategoryVO)
-                .collect(Collectors.toList());
+        return categoryTreeCache.getSnapshot().getChildren(parentId);
     }
 
     @Override
     public CategoryVO getCategoryDetail(Long categoryId) {
-        PackageCategory category = categoryMapper.selectById(categoryId);
+        CategoryVO category = categoryTreeCache.getSnapshot().getCategory(categoryId);
         if (category == null) {
             throw new BusinessException(20001, "分类不存在");
         }
         
-        return convertToCategoryVO(category);
+        return category;
     }
 
     @Override
@@ -114,6 +132,7 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
         // 创建分类
         PackageCategory category = BeanUtil.copyProperties(categoryDTO, PackageCategory.class);
         categoryMapper.insert(category);
+        categoryTreeCache.invalidateAfterCommit();
         
         log.info("创建分类成功: categoryId={}, name={}", category.getId(), category.getName());
         return convertToCategoryVO(category);
@@ -139,6 +158,7 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
         BeanUtil.copyProperties(categoryDTO, category);
         category.setId(categoryId);
         categoryMapper.updateById(category);
+        categoryTreeCache.invalidateAfterCommit();
         
         log.info("更新分类成功: categoryId={}, name={}", categoryId, category.getName());
         return convertToCategoryVO(category);
@@ -168,6 +188,7 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
         }
         
         categoryMapper.deleteById(categoryId);
+        categoryTreeCache.invalidateAfterCommit();
         log.info("删除分类成功: categoryId={}, name={}", categoryId, category.getName());
     }
 
@@ -179,7 +200,7 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
         if (categoryId != null && categoryId > 0) {
             result = packageMapper.selectByCategoryId(pageRequest, categoryId);
         } else if (keyword != null && !keyword.trim().isEmpty()) {
-            result = packageMapper.searchPackages(pageRequest, keyword.trim());
+            return searchPackagePage(keyword.trim(), page, size);
         } else {
             // 获取所有启用的套餐
             LambdaQueryWrapper<HealthPackage> wrapper = new LambdaQueryWrapper<>();
@@ -188,45 +209,75 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
             result = packageMapper.selectPage(pageRequest, wrapper);
         }
         
-        List<PackageVO> packageVOs = result.getRecords().stream()
-                .map(this::convertToPackageVO)
-                .collect(Collectors.toList());
+        List<PackageVO> packageVOs = convertToPackageVOs(result.getRecords());
         
         return PageResult.of(packageVOs, result.getTotal(), page, size);
     }
 
     @Override
-    public PackageVO getPackageDetail(Long packageId) {
-        HealthPackage healthPackage = packageMapper.selectById(packageId);
-        if (healthPackage == null) {
-            throw new BusinessException(20011, "套餐不存在");
+    public PageResult<PackageVO> getPackageFeed(Long categoryId, String cursor, Integer size) {
+        PageCursor position = PageCursor.decode(cursor);
+        
+        LambdaQueryWrapper<HealthPackage> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(HealthPackage::getStatus, 1)
+               .eq(categoryId != null && categoryId > 0, HealthPackage::getCategoryId, categoryId);
+        if (position != null) {
+            // (sort_order, id) > (上一页最后一条)
+            int lastSortOrder = (int) position.getSortKey();
+            long lastId = position.getId();
+            wrapper.and(w -> w.gt(HealthPackage::getSortOrder, lastSortOrder)
+                    .or(o -> o.eq(HealthPackage::getSortOrder, lastSortOrder).gt(HealthPackage::getId, lastId)));
+        }
+        // 多取一条判断是否还有下一页
+        wrapper.orderByAsc(HealthPackage::getSortOrder)
+               .orderByAsc(HealthPackage::getId)
+               .last("LIMIT " + (size + 1));
+        
+        List<HealthPackage> packages = packageMapper.selectList(wrapper);
+        
+        PageCursor nextCursor = null;
+        if (packages.size() > size) {
+            packages = packages.subList(0, size);
+            HealthPackage last = packages.get(size - 1);
+            nextCursor = new PageCursor(last.getSortOrder() != null ? last.getSortOrder() : 0, last.getId());
         }
         
-        if (healthPackage.getStatus() == 0) {
+        return PageResult.ofCursor(convertToPackageVOs(packages), nextCursor, (long) size);
+    }
+
+    @Override
+    public PackageVO getPackageDetail(Long packageId) {
+        PackageVO packageVO = packageDetailCache.get(packageId, this::loadPackageDetail);
+        
+        if (!Boolean.TRUE.equals(packageVO.getOnShelf())) {
             throw new BusinessException(20012, "套餐已下架");
         }
         
-        return convertToPackageVO(healthPackage);
+        packageViewCounter.record(packageId);
+        return packageVO;
     }
 
     @Override
-    public List<PackageVO> getHotPackages(Integer limit) {
-        Page<HealthPackage> pageRequest = new Page<>(1, limit);
-        IPage<HealthPackage> result = packageMapper.selectHotPackages(pageRequest);
-        
-        return result.getRecords().stream()
-                .map(this::convertToPackageVO)
-                .collect(Collectors.toList());
+    public Map<Long, PackageVO> getPackagesByIds(Collection<Long> packageIds) {
+        if (packageIds == null || packageIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return packageDetailCache.getAll(packageIds, this::loadPackageDetails);
     }
 
     @Override
-    public List<PackageVO> getRecommendedPackages(Integer limit) {
-        Page<HealthPackage> pageRequest = new Page<>(1, limit);
-        IPage<HealthPackage> result = packageMapper.selectRecommendedPackages(pageRequest);
-        
-        return result.getRecords().stream()
-                .map(this::convertToPackageVO)
-                .collect(Collectors.toList());
+    public CacheStatsVO getPackageDetailCacheStats() {
+        return packageDetailCache.getStats();
+    }
+
+    @Override
+    public List<PackageVO> getHotPackages(Integer limit, String city) {
+        return loadRankedPackages(packageRankingCache.getHotPackageIds(city), limit);
+    }
+
+    @Override
+    public List<PackageVO> getRecommendedPackages(Integer limit, String city) {
+        return loadRankedPackages(packageRankingCache.getRecommendedPackageIds(city), limit);
     }
 
     @Override
@@ -235,14 +286,24 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
             throw new BusinessException(40001, "搜索关键词不能为空");
         }
         
-        Page<HealthPackage> pageRequest = new Page<>(page, size);
-        IPage<HealthPackage> result = packageMapper.searchPackages(pageRequest, keyword.trim());
+        return searchPackagePage(keyword.trim(), page, size);
+    }
+
+    @Override
+    public List<SuggestionVO> getSuggestions(String prefix, Integer limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
         
-        List<PackageVO> packageVOs = result.getRecords().stream()
-                .map(this::convertToPackageVO)
+        return packageSuggestionIndex.suggest(prefix, limit).stream()
+                .map(suggestion -> {
+                    SuggestionVO suggestionVO = new SuggestionVO();
+                    suggestionVO.setText(suggestion.getText());
+                    suggestionVO.setType(suggestion.getType());
+                    suggestionVO.setTargetId(suggestion.getTargetId());
+                    return suggestionVO;
+                })
                 .collect(Collectors.toList());
-        
-        return PageResult.of(packageVOs, result.getTotal(), page, size);
     }
 
     @Override
@@ -261,15 +322,16 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
         // 创建套餐
         HealthPackage healthPackage = BeanUtil.copyProperties(packageDTO, HealthPackage.class);
         
-        // 处理JSON字段
-        if (packageDTO.getDetailImages() != null) {
-            healthPackage.setDetailImages(JsonUtils.toJson(packageDTO.getDetailImages()));
-        }
-        if (packageDTO.getTestItems() != null) {
-            healthPackage.setTestItems(JsonUtils.toJson(packageDTO.getTestItems()));
+        // 未指定状态时默认上架，与表默认值一致
+        if (healthPackage.getStatus() == null) {
+            healthPackage.setStatus(1);
         }
         
         packageMapper.insert(healthPackage);
+        packageSearchIndex.indexAfterCommit(healthPackage);
+        packageSuggestionIndex.updateAfterCommit(healthPackage);
+        // 广播套餐变更，其他节点据此更新搜索索引
+        packageDetailCache.evictAfterCommit(healthPackage.getId());
         
         log.info("创建套餐成功: packageId={}, name={}", healthPackage.getId(), healthPackage.getName());
         return convertToPackageVO(healthPackage);
@@ -297,15 +359,13 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
         BeanUtil.copyProperties(packageDTO, healthPackage);
         healthPackage.setId(packageId);
         
-        // 处理JSON字段
-        if (packageDTO.getDetailImages() != null) {
-            healthPackage.setDetailImages(JsonUtils.toJson(packageDTO.getDetailImages()));
-        }
-        if (packageDTO.getTestItems() != null) {
-            healthPackage.setTestItems(JsonUtils.toJson(packageDTO.getTestItems()));
-        }
-        
         packageMapper.updateById(healthPackage);
+        packageDetailCache.evictAfterCommit(packageId);
+        packageSearchIndex.indexAfterCommit(healthPackage);
+        packageSuggestionIndex.updateAfterCommit(healthPackage);
+        if (packageDTO.getStock() != null) {
+            packageInventory.setStockAfterCommit(packageId, packageDTO.getStock());
+        }
         
         log.info("更新套餐成功: packageId={}, name={}", packageId, healthPackage.getName());
         return convertToPackageVO(healthPackage);
@@ -319,6 +379,9 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
         }
         
         packageMapper.deleteById(packageId);
+        packageDetailCache.evictAfterCommit(packageId);
+        packageSearchIndex.removeAfterCommit(packageId);
+        packageSuggestionIndex.removeAfterCommit(packageId);
         log.info("删除套餐成功: packageId={}, name={}", packageId, healthPackage.getName());
     }
 
@@ -331,11 +394,80 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
         
         healthPackage.setStatus(status);
         packageMapper.updateById(healthPackage);
+        packageDetailCache.evictAfterCommit(packageId);
+        packageSearchIndex.indexAfterCommit(healthPackage);
+        packageSuggestionIndex.updateAfterCommit(healthPackage);
         
         log.info("更新套餐状态成功: packageId={}, status={}", packageId, status);
         return convertToPackageVO(healthPackage);
     }
 
+    @Override
+    public PackageBatchResultVO batchUpdatePackageStatus(List<Long> packageIds, Integer status) {
+        PackageBatchResultVO result = new PackageBatchResultVO();
+        List<Long> ids = packageIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        for (int from = 0; from < ids.size(); from += BATCH_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BATCH_CHUNK_SIZE, ids.size()));
+            int matched = packageMapper.batchUpdateStatus(chunk, status, MybatisPlusConfig.SYSTEM_OPERATOR);
+            if (matched == chunk.size()) {
+                result.getSucceeded().addAll(chunk);
+                continue;
+            }
+
+            // 部分套餐未匹配时回查哪些不存在
+            Set<Long> existing = selectExistingIds(chunk);
+            for (Long id : chunk) {
+                if (existing.contains(id)) {
+                    result.getSucceeded().add(id);
+                } else {
+                    result.getNotFound().add(id);
+                }
+            }
+        }
+
+        // 只广播一次，各节点按ID回查后更新详情缓存和索引；下架的套餐先从本节点索引中移除
+        packageDetailCache.evictAfterCommit(result.getSucceeded());
+        if (!Integer.valueOf(1).equals(status)) {
+            packageSearchIndex.removeAfterCommit(result.getSucceeded());
+            packageSuggestionIndex.removeAfterCommit(result.getSucceeded());
+        }
+
+        log.info("批量更新套餐状态: status={}, total={}, succeeded={}, notFound={}",
+                status, ids.size(), result.getSucceeded().size(), result.getNotFound().size());
+        return result;
+    }
+
+    @Override
+    public PackageBatchResultVO batchDeletePackages(List<Long> packageIds) {
+        PackageBatchResultVO result = new PackageBatchResultVO();
+        List<Long> ids = packageIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        for (int from = 0; from < ids.size(); from += BATCH_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BATCH_CHUNK_SIZE, ids.size()));
+            // 逻辑删除后无法区分不存在的套餐，先查出存在的ID
+            Set<Long> existing = selectExistingIds(chunk);
+            List<Long> deleting = new ArrayList<>(existing.size());
+            for (Long id : chunk) {
+                if (existing.contains(id)) {
+                    deleting.add(id);
+                } else {
+                    result.getNotFound().add(id);
+                }
+            }
+            if (!deleting.isEmpty()) {
+                packageMapper.deleteBatchIds(deleting);
+                result.getSucceeded().addAll(deleting);
+            }
+        }
+
+        packageDetailCache.evictAfterCommit(result.getSucceeded());
+        packageSearchIndex.removeAfterCommit(result.getSucceeded());
+        packageSuggestionIndex.removeAfterCommit(result.getSucceeded());
+
+        log.info("批量删除套餐: total={}, succeeded={}, notFound={}",
+                ids.size(), result.getSucceeded().size(), result.getNotFound().size());
+        return result;
+    }
+
     @Override
     public boolean isPackageCodeAvailable(String code, Long excludeId) {
         LambdaQueryWrapper<HealthPackage> wrapper = new LambdaQueryWrapper<>();
@@ -351,45 +483,137 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
     // ===== 私有方法 =====
 
     /**
-     * 转换为分类VO
+     * 回源加载套餐详情（缓存未命中时调用）
      */
-    private CategoryVO convertToCategoryVO(PackageCategory category) {
-        CategoryVO categoryVO = BeanUtil.copyProperties(category, CategoryVO.class);
-        categoryVO.setEnabled(category.getStatus() == 1);
+    private PackageVO loadPackageDetail(Long packageId) {
+        HealthPackage healthPackage = packageMapper.selectById(packageId);
+        if (healthPackage == null) {
+            throw new BusinessException(20011, "套餐不存在");
+        }
+        
+        return convertToPackageVO(healthPackage);
+    }
+
+    /**
+     * 批量回源加载套餐详情，一次查询套餐和分类名称
+     */
+    private Map<Long, PackageVO> loadPackageDetails(Collection<Long> packageIds) {
+        return convertToPackageVOs(packageMapper.selectBatchIds(packageIds)).stream()
+                .collect(Collectors.toMap(PackageVO::getId, Function.identity()));
+    }
+
+    /**
+     * 关键词搜索分页：从倒排索引取当前页套餐ID，再按ID批量查询
+     */
+    private PageResult<PackageVO> searchPackagePage(String keyword, Integer page, Integer size) {
+        int pageNum = Math.max(page, 1);
+        SearchHits hits = packageSearchIndex.search(keyword, (long) (pageNum - 1) * size, size);
         
-        // 添加默认图标
-        categoryVO.setIcon(getDefaultIcon(category.getCode()));
+        List<PackageVO> packageVOs = convertToPackageVOs(selectPackagesInOrder(hits.getPackageIds()));
         
-        return categoryVO;
+        return PageResult.of(packageVOs, hits.getTotal(), page, size);
+    }
+
+    /**
+     * 按榜单顺序从详情缓存批量取套餐，跳过快照生成后已下架或删除的套餐
+     * 每次批量读取还差的条数，通常一次即可取满
+     */
+    private List<PackageVO> loadRankedPackages(List<Long> packageIds, Integer limit) {
+        List<PackageVO> packageVOs = new ArrayList<>();
+        int offset = 0;
+        while (packageVOs.size() < limit && offset < packageIds.size()) {
+            List<Long> batch = packageIds.subList(offset,
+                    Math.min(offset + limit - packageVOs.size(), packageIds.size()));
+            offset += batch.size();
+
+            Map<Long, PackageVO> found = packageDetailCache.getAll(batch, this::loadPackageDetails);
+            for (Long packageId : batch) {
+                PackageVO packageVO = found.get(packageId);
+                if (packageVO != null && Boolean.TRUE.equals(packageVO.getOnShelf())) {
+                    packageVOs.add(packageVO);
+                }
+            }
+        }
+        return packageVOs;
+    }
+
+    /**
+     * 按ID批量查询套餐，保持传入顺序
+     */
+    private List<HealthPackage> selectPackagesInOrder(List<Long> packageIds) {
+        if (packageIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, HealthPackage> packageMap = packageMapper.selectBatchIds(packageIds).stream()
+                .collect(Collectors.toMap(HealthPackage::getId, Function.identity()));
+
+        return packageIds.stream()
+                .map(packageMap::get)
+                .filter(healthPackage -> healthPackage != null)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 查询一批ID中未删除的套餐ID，只读主键
+     */
+    private Set<Long> selectExistingIds(List<Long> packageIds) {
+        return packageMapper.selectList(new LambdaQueryWrapper<HealthPackage>()
+                        .select(HealthPackage::getId)
+                        .in(HealthPackage::getId, packageIds))
+                .stream()
+                .map(HealthPackage::getId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 转换为分类VO
+     */
+    private CategoryVO convertToCategoryVO(PackageCategory category) {
+        return categoryTreeCache.convertToCategoryVO(category);
+    }
+
+    /**
+     * 批量转换为套餐VO（整页分类名称一次查询）
+     */
+    private List<PackageVO> convertToPackageVOs(List<HealthPackage> packages) {
+        if (packages.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, String> categoryNames = categoryNameResolver.resolveNames(packages.stream()
+                .map(HealthPackage::getCategoryId)
+                .collect(Collectors.toSet()));
+
+        return packages.stream()
+                .map(healthPackage -> convertToPackageVO(healthPackage, categoryNames))
+                .collect(Collectors.toList());
     }
 
     /**
      * 转换为套餐VO
      */
     private PackageVO convertToPackageVO(HealthPackage healthPackage) {
+        return convertToPackageVO(healthPackage,
+                categoryNameResolver.resolveNames(Collections.singleton(healthPackage.getCategoryId())));
+    }
+
+    /**
+     * 转换为套餐VO（分类名称从已解析的映射中读取）
+     */
+    private PackageVO convertToPackageVO(HealthPackage healthPackage, Map<Long, String> categoryNames) {
         PackageVO packageVO = BeanUtil.copyProperties(healthPackage, PackageVO.class);
         
         // 设置分类名称
         if (healthPackage.getCategoryId() != null) {
-            PackageCategory category = categoryMapper.selectById(healthPackage.getCategoryId());
-            if (category != null) {
-                packageVO.setCategoryName(category.getName());
-            }
-        }
-        
-        // 处理JSON字段
-        if (healthPackage.getDetailImages() != null) {
-            packageVO.setDetailImages(JsonUtils.fromJson(healthPackage.getDetailImages(), List.class));
-        }
-        if (healthPackage.getTestItems() != null) {
-            packageVO.setTestItems(JsonUtils.fromJson(healthPackage.getTestItems(), List.class));
+            packageVO.setCategoryName(categoryNames.get(healthPackage.getCategoryId()));
         }
         
         // 计算折扣百分比
         if (healthPackage.getOriginalPrice() != null && healthPackage.getOriginalPrice().compareTo(healthPackage.getPrice()) > 0) {
             BigDecimal discount = healthPackage.getOriginalPrice().subtract(healthPackage.getPrice())
                     .divide(healthPackage.getOriginalPrice(), 2, BigDecimal.ROUND_HALF_UP);
-            packageVO.setDiscountPercent(discount.multiply(new java.math.BigDecimal("100")).intValue());
+            packageVO.setDiscountPercent(discount.multiply(new BigDecimal("100")).intValue());
         }
         
         // 设置采样方式描述
@@ -403,40 +627,6 @@ public class ProductServiceImpl extends ServiceImpl<PackageCategoryMapper, Packa
         return packageVO;
     }
 
-    /**
-     * 构建分类树形结构
-     */
-    private List<CategoryVO> buildCategoryTree(List<CategoryVO> categories, Long parentId) {
-        return categories.stream()
-                .filter(category -> ObjectUtil.equal(category.getParentId(), parentId))
-                .peek(category -> {
-                    List<CategoryVO> children = buildCategoryTree(categories, category.getId());
-                    if (!children.isEmpty()) {
-                        category.setChildren(children);
-                    }
-                })
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * 获取默认图标
-     */
-    private String getDefaultIcon(String code) {
-        Map<String, String> iconMap = Map.of(
-                "BASIC", "🩺",
-                "PRE_EMPLOYMENT", "💼",
-                "ANNUAL_CHECKUP", "📅",
-                "OCCUPATIONAL_HEALTH", "🏭",
-                "PREMIUM", "⭐",
-                "ELITE", "👑",
-                "VIP", "💎",
-                "SPECIALIZED", "🔬",
-                "CARDIOVASCULAR", "❤️",
-                "CANCER_SCREENING", "🎯"
-        );
-        return iconMap.getOrDefault(code, "📋");
-    }
-
     /**
      * 获取采样方式描述
      */
@@ -0,0 +1,494 @@
+package com.lingli.product.inventory;
+
+import com.lingli.common.exception.BusinessException;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.mapper.HealthPackageMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 套餐库存
+ * 可售库存镜像到Redis，下单时由Lua脚本原子校验并扣减，扣减记录为订单预占（带有效期），
+ * 取消订单或支付超时释放预占，支付成功确认预占，到期未处理的预占交由订单侧按订单状态处理。
+ * 库存变化同时累加到待同步哈希，定时按块合并为一条UPDATE写回health_packages.stock，
+ * 每块写回后即从同步中哈希删除，数据库库存与Redis可售库存最终一致。后台修改库存也换算为变化量写回，
+ * health_packages.stock 只由写回修改
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class PackageInventory {
+
+    // Redis键
+    private static final String STOCK_KEY = "product:stock:";
+    private static final String PENDING_KEY = "product:stock:pending";
+    private static final String FLUSHING_KEY = "product:stock:flushing";
+    private static final String FLUSH_LOCK_KEY = "product:stock:flush:lock";
+    private static final String RESERVATION_KEY = "product:stock:reservation:";
+    private static final String RESERVATION_EXPIRY_KEY = "product:stock:reservations";
+
+    /**
+     * 单条UPDATE合并的最大套餐数
+     */
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    /**
+     * 释放预占时预占内容与读取的不一致的重试次数
+     */
+    private static final int RELEASE_ATTEMPTS = 3;
+
+    /**
+     * 写回锁租约（秒），每写回一块续期一次
+     */
+    private static final long FLUSH_LOCK_SECONDS = 30;
+
+    /**
+     * 加载、设置库存时等待写回锁的次数和间隔（毫秒）
+     */
+    private static final int LOCK_WAIT_ATTEMPTS = 40;
+    private static final long LOCK_WAIT_INTERVAL_MS = 50;
+
+    /**
+     * 初始化库存镜像：可售 = 数据库库存 + 尚未写回的变化量
+     * 调用方持有写回锁，同步中哈希只包含尚未写回数据库的变化量
+     * KEYS[1] 库存键，KEYS[2] 待同步哈希，KEYS[3] 同步中哈希；ARGV[1] 套餐ID，ARGV[2] 数据库库存
+     */
+    private static final DefaultRedisScript<Long> INIT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end\n" +
+            "local delta = tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')\n" +
+            "  + tonumber(redis.call('HGET', KEYS[3], ARGV[1]) or '0')\n" +
+            "redis.call('SET', KEYS[1], tonumber(ARGV[2]) + delta)\n" +
+            "return 1",
+            Long.class);
+
+    /**
+     * 预占库存：全部套餐库存充足时一起扣减，否则不扣减。已预占的订单直接返回成功
+     * 返回0成功，正数i表示第i个套餐库存不足，负数-i表示第i个套餐库存尚未加载
+     * KEYS[1] 预占哈希，KEYS[2] 待同步哈希，KEYS[3] 预占有效期集合，KEYS[4..] 库存键；
+     * ARGV[1] 订单号，ARGV[2] 到期时间，ARGV[2j+1]、ARGV[2j+2] 第j个套餐的ID和数量
+     */
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end\n" +
+            "for i = 4, #KEYS do\n" +
+            "  local stock = redis.call('GET', KEYS[i])\n" +
+            "  if not stock then return -(i - 3) end\n" +
+            "  if tonumber(stock) < tonumber(ARGV[2 * (i - 3) + 2]) then return i - 3 end\n" +
+            "end\n" +
+            "for i = 4, #KEYS do\n" +
+            "  local packageId = ARGV[2 * (i - 3) + 1]\n" +
+            "  local quantity = tonumber(ARGV[2 * (i - 3) + 2])\n" +
+            "  redis.call('DECRBY', KEYS[i], quantity)\n" +
+            "  redis.call('HSET', KEYS[1], packageId, quantity)\n" +
+            "  redis.call('HINCRBY', KEYS[2], packageId, -quantity)\n" +
+            "end\n" +
+            "redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1])\n" +
+            "return 0",
+            Long.class);
+
+    /**
+     * 释放预占：库存加回并记入待同步，返回释放的套餐数（预占不存在时为0）
+     * 库存键全部通过KEYS传入；预占中的套餐与传入的不一致时不释放，返回-1
+     * KEYS[1] 预占哈希，KEYS[2] 待同步哈希，KEYS[3] 预占有效期集合，KEYS[4..] 库存键；
+     * ARGV[1] 订单号，ARGV[2..] 与库存键对应的套餐ID
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then\n" +
+            "  redis.call('ZREM', KEYS[3], ARGV[1])\n" +
+            "  return 0\n" +
+            "end\n" +
+            "if redis.call('HLEN', KEYS[1]) ~= #KEYS - 3 then return -1 end\n" +
+            "local quantities = {}\n" +
+            "for i = 4, #KEYS do\n" +
+            "  quantities[i] = redis.call('HGET', KEYS[1], ARGV[i - 2])\n" +
+            "  if not quantities[i] then return -1 end\n" +
+            "end\n" +
+            "for i = 4, #KEYS do\n" +
+            "  if redis.call('EXISTS', KEYS[i]) == 1 then redis.call('INCRBY', KEYS[i], quantities[i]) end\n" +
+            "  redis.call('HINCRBY', KEYS[2], ARGV[i - 2], quantities[i])\n" +
+            "end\n" +
+            "redis.call('DEL', KEYS[1])\n" +
+            "redis.call('ZREM', KEYS[3], ARGV[1])\n" +
+            "return #KEYS - 3",
+            Long.class);
+
+    /**
+     * 确认预占：库存保持扣减，删除预占记录
+     * KEYS[1] 预占哈希，KEYS[2] 预占有效期集合；ARGV[1] 订单号
+     */
+    private static final DefaultRedisScript<Long> CONFIRM_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZREM', KEYS[2], ARGV[1])\n" +
+            "return redis.call('DEL', KEYS[1])",
+            Long.class);
+
+    /**
+     * 设置可售库存（后台直接修改库存时）：换算为相对当前可售库存的变化量记入待同步，返回变化量。
+     * 未加载镜像时当前可售 = 数据库库存 + 尚未写回的变化量；调用方持有写回锁
+     * KEYS[1] 库存键，KEYS[2] 待同步哈希，KEYS[3] 同步中哈希；ARGV[1] 套餐ID，ARGV[2] 数据库库存，ARGV[3] 目标库存
+     */
+    private static final DefaultRedisScript<Long> SET_STOCK_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1])\n" +
+            "if not current then\n" +
+            "  current = tonumber(ARGV[2]) + tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')\n" +
+            "    + tonumber(redis.call('HGET', KEYS[3], ARGV[1]) or '0')\n" +
+            "end\n" +
+            "local delta = tonumber(ARGV[3]) - tonumber(current)\n" +
+            "if delta ~= 0 then\n" +
+            "  if redis.call('EXISTS', KEYS[1]) == 1 then redis.call('INCRBY', KEYS[1], delta) end\n" +
+            "  redis.call('HINCRBY', KEYS[2], ARGV[1], delta)\n" +
+            "end\n" +
+            "return delta",
+            Long.class);
+
+    /**
+     * 取出待同步的变化量：上次同步未完成时继续使用同步中哈希，否则将待同步哈希整体转为同步中
+     * KEYS[1] 待同步哈希，KEYS[2] 同步中哈希
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TAKE_PENDING_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 0 then\n" +
+            "  if redis.call('EXISTS', KEYS[1]) == 0 then return {} end\n" +
+            "  redis.call('RENAME', KEYS[1], KEYS[2])\n" +
+            "end\n" +
+            "return redis.call('HGETALL', KEYS[2])",
+            List.class);
+
+    /**
+     * 续期写回锁，锁已被他人持有时返回0
+     * KEYS[1] 锁键；ARGV[1] 持有者，ARGV[2] 租约秒数
+     */
+    private static final DefaultRedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end\n" +
+            "return redis.call('EXPIRE', KEYS[1], ARGV[2])",
+            Long.class);
+
+    /**
+     * 释放写回锁，只删除自己持有的锁
+     * KEYS[1] 锁键；ARGV[1] 持有者
+     */
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end\n" +
+            "return redis.call('DEL', KEYS[1])",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private HealthPackageMapper packageMapper;
+
+    /**
+     * 到期预占的处理方（订单服务），未部署订单服务时不处理
+     */
+    @Autowired(required = false)
+    private ReservationExpiryHandler expiryHandler;
+
+    /**
+     * 预占有效期（分钟），与订单支付超时一致
+     */
+    @Value("${product.inventory.reservation-minutes:30}")
+    private long reservationMinutes;
+
+    /**
+     * 预占到期后的宽限时间（秒），优先由订单超时取消释放，宽限期后兜底释放
+     */
+    @Value("${product.inventory.expiry-grace-seconds:120}")
+    private long expiryGraceSeconds;
+
+    @Value("${product.inventory.expired-batch-size:200}")
+    private int expiredBatchSize;
+
+    /**
+     * 为订单预占库存，任一套餐库存不足时全部不扣减
+     *
+     * @param orderNo    订单号（幂等键，重复预占直接返回）
+     * @param quantities 套餐ID -> 数量
+     */
+    public void reserve(String orderNo, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        // 按套餐ID排序，脚本参数顺序与库存键一致
+        Map<Long, Integer> items = new TreeMap<>(quantities);
+        List<Long> packageIds = new ArrayList<>(items.keySet());
+        List<String> keys = new ArrayList<>(packageIds.size() + 3);
+        keys.add(RESERVATION_KEY + orderNo);
+        keys.add(PENDING_KEY);
+        keys.add(RESERVATION_EXPIRY_KEY);
+        List<String> args = new ArrayList<>(packageIds.size() * 2 + 2);
+        args.add(orderNo);
+        args.add(String.valueOf(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(reservationMinutes)));
+        items.forEach((packageId, quantity) -> {
+            keys.add(STOCK_KEY + packageId);
+            args.add(String.valueOf(packageId));
+            args.add(String.valueOf(quantity));
+        });
+
+        // 库存未加载时从数据库加载后重试，每个套餐最多加载一次
+        for (int attempt = 0; attempt <= packageIds.size(); attempt++) {
+            Long result = stringRedisTemplate.execute(RESERVE_SCRIPT, keys, args.toArray());
+            if (result == null) {
+                throw new BusinessException(500, "库存预占失败，请稍后重试");
+            }
+            if (result == 0) {
+                return;
+            }
+            Long packageId = packageIds.get((int) Math.abs(result) - 1);
+            if (result > 0) {
+                log.info("库存不足: orderNo={}, packageId={}", orderNo, packageId);
+                throw new BusinessException(20031, "套餐库存不足");
+            }
+            loadStock(packageId);
+        }
+        throw new BusinessException(500, "库存预占失败，请稍后重试");
+    }
+
+    /**
+     * 释放订单预占的库存（取消订单、支付超时），预占不存在时忽略
+     *
+     * @return 是否释放了预占
+     */
+    public boolean release(String orderNo) {
+        String reservationKey = RESERVATION_KEY + orderNo;
+        // 预占创建后内容不变，先读出套餐ID以便脚本声明全部库存键；脚本内再次校验
+        for (int attempt = 0; attempt < RELEASE_ATTEMPTS; attempt++) {
+            List<String> keys = new ArrayList<>(Arrays.asList(reservationKey, PENDING_KEY, RESERVATION_EXPIRY_KEY));
+            List<String> args = new ArrayList<>();
+            args.add(orderNo);
+            for (Object packageId : stringRedisTemplate.opsForHash().keys(reservationKey)) {
+                keys.add(STOCK_KEY + packageId);
+                args.add(packageId.toString());
+            }
+
+            Long released = stringRedisTemplate.execute(RELEASE_SCRIPT, keys, args.toArray());
+            if (released == null || released >= 0) {
+                if (released != null && released > 0) {
+                    log.info("释放库存预占: orderNo={}, packages={}", orderNo, released);
+                    return true;
+                }
+                return false;
+            }
+        }
+        log.warn("释放库存预占失败，预占内容不一致: orderNo={}", orderNo);
+        return false;
+    }
+
+    /**
+     * 事务回滚后释放预占（下单事务失败时）
+     */
+    public void releaseAfterRollback(String orderNo) {
+        TransactionUtils.afterRollback(() -> release(orderNo));
+    }
+
+    /**
+     * 确认订单预占（支付成功），库存不再加回
+     */
+    public void confirm(String orderNo) {
+        stringRedisTemplate.execute(CONFIRM_SCRIPT,
+                Arrays.asList(RESERVATION_KEY + orderNo, RESERVATION_EXPIRY_KEY), orderNo);
+    }
+
+    /**
+     * 事务提交后将可售库存设为指定值（后台修改库存时）
+     * 换算为变化量后与其他变化量一样由写回合并写入数据库，尚未写回的变化量不丢失；
+     * 未释放的预占不计入可售库存，释放后在新库存上加回
+     */
+    public void setStockAfterCommit(Long packageId, Integer stock) {
+        TransactionUtils.afterCommit(() -> setStock(packageId, stock));
+    }
+
+    /**
+     * 定时将库存变化合并写回数据库
+     * 每块UPDATE提交后立即删除该块的同步中字段，中途失败时下次只写回剩余的块
+     */
+    @Scheduled(fixedDelayString = "${product.inventory.flush-interval-ms:2000}")
+    public void flush() {
+        String owner = UUID.randomUUID().toString();
+        if (!tryLock(owner)) {
+            return;
+        }
+
+        try {
+            Map<Long, Integer> deltas = takePending();
+            List<Object> settled = new ArrayList<>();
+            List<Long> packageIds = new ArrayList<>();
+            deltas.forEach((packageId, delta) -> {
+                if (delta == 0) {
+                    settled.add(String.valueOf(packageId));
+                } else {
+                    packageIds.add(packageId);
+                }
+            });
+            if (!settled.isEmpty()) {
+                stringRedisTemplate.opsForHash().delete(FLUSHING_KEY, settled.toArray());
+            }
+
+            for (int from = 0; from < packageIds.size(); from += FLUSH_CHUNK_SIZE) {
+                // 锁已过期并被他人持有时停止，剩余的块由持有者写回
+                if (from > 0 && !renewLock(owner)) {
+                    log.warn("库存写回锁已失效，停止写回: written={}, total={}", from, packageIds.size());
+                    return;
+                }
+                List<Long> chunkIds = packageIds.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, packageIds.size()));
+                Map<Long, Integer> chunk = new LinkedHashMap<>();
+                for (Long packageId : chunkIds) {
+                    chunk.put(packageId, deltas.get(packageId));
+                }
+                packageMapper.batchAdjustStock(chunk);
+                stringRedisTemplate.opsForHash().delete(FLUSHING_KEY,
+                        chunkIds.stream().map(String::valueOf).toArray());
+            }
+            if (!packageIds.isEmpty()) {
+                log.debug("库存写回数据库: packages={}", packageIds.size());
+            }
+        } catch (Exception e) {
+            // 未写回的块保留在同步中哈希，下次继续写回
+            log.warn("库存写回数据库失败: {}", e.getMessage());
+        } finally {
+            unlock(owner);
+        }
+    }
+
+    /**
+     * 兜底处理过期未释放的预占：交由订单侧按订单状态取消、确认或释放，
+     * 不按时间直接释放，避免已支付但确认失败的订单库存被加回
+     */
+    @Scheduled(fixedDelayString = "${product.inventory.expire-interval-ms:10000}")
+    public void releaseExpired() {
+        if (expiryHandler == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(expiryGraceSeconds);
+        try {
+            Set<String> expired = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(RESERVATION_EXPIRY_KEY, 0, deadline, 0, expiredBatchSize);
+            if (expired == null || expired.isEmpty()) {
+                return;
+            }
+            expiryHandler.onExpired(new ArrayList<>(expired));
+        } catch (Exception e) {
+            log.warn("处理过期库存预占失败: {}", e.getMessage());
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 持有写回锁时加载库存，保证读取的数据库库存与同步中哈希不重叠
+     */
+    private void loadStock(Long packageId) {
+        String owner = UUID.randomUUID().toString();
+        if (!awaitLock(owner)) {
+            throw new BusinessException(500, "库存预占失败，请稍后重试");
+        }
+
+        try {
+            HealthPackage healthPackage = packageMapper.selectById(packageId);
+            if (healthPackage == null) {
+                throw new BusinessException(20011, "套餐不存在");
+            }
+            int stock = healthPackage.getStock() != null ? healthPackage.getStock() : 0;
+            stringRedisTemplate.execute(INIT_SCRIPT,
+                    Arrays.asList(STOCK_KEY + packageId, PENDING_KEY, FLUSHING_KEY),
+                    String.valueOf(packageId), String.valueOf(stock));
+        } finally {
+            unlock(owner);
+        }
+    }
+
+    /**
+     * 持有写回锁时设置库存，理由同加载库存
+     */
+    private void setStock(Long packageId, int stock) {
+        String owner = UUID.randomUUID().toString();
+        if (!awaitLock(owner)) {
+            throw new BusinessException(500, "库存调整失败，请稍后重试");
+        }
+
+        try {
+            HealthPackage healthPackage = packageMapper.selectById(packageId);
+            if (healthPackage == null) {
+                return;
+            }
+            int databaseStock = healthPackage.getStock() != null ? healthPackage.getStock() : 0;
+            Long delta = stringRedisTemplate.execute(SET_STOCK_SCRIPT,
+                    Arrays.asList(STOCK_KEY + packageId, PENDING_KEY, FLUSHING_KEY),
+                    String.valueOf(packageId), String.valueOf(databaseStock), String.valueOf(stock));
+            log.info("调整套餐库存: packageId={}, stock={}, delta={}", packageId, stock, delta);
+        } finally {
+            unlock(owner);
+        }
+    }
+
+    /**
+     * 等待获取写回锁
+     */
+    private boolean awaitLock(String owner) {
+        for (int attempt = 0; !tryLock(owner); attempt++) {
+            if (attempt >= LOCK_WAIT_ATTEMPTS) {
+                return false;
+            }
+            try {
+                Thread.sleep(LOCK_WAIT_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tryLock(String owner) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(FLUSH_LOCK_KEY, owner, FLUSH_LOCK_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private boolean renewLock(String owner) {
+        Long renewed = stringRedisTemplate.execute(RENEW_LOCK_SCRIPT,
+                Collections.singletonList(FLUSH_LOCK_KEY), owner, String.valueOf(FLUSH_LOCK_SECONDS));
+        return renewed != null && renewed > 0;
+    }
+
+    private void unlock(String owner) {
+        try {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(FLUSH_LOCK_KEY), owner);
+        } catch (Exception e) {
+            // 锁到期后自动释放
+            log.warn("释放库存写回锁失败: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Integer> takePending() {
+        List<Object> fields = stringRedisTemplate.execute(TAKE_PENDING_SCRIPT,
+                Arrays.asList(PENDING_KEY, FLUSHING_KEY));
+        if (fields == null || fields.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (int i = 0; i + 1 < fields.size(); i += 2) {
+            deltas.put(Long.valueOf(fields.get(i).toString()), Integer.parseInt(fields.get(i + 1).toString()));
+        }
+        return deltas;
+    }
+}
\ No newline at end of file
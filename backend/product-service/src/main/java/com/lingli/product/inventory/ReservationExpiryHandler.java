@@ -0,0 +1,21 @@
+package com.lingli.product.inventory;
+
+import java.util.List;
+
+/**
+ * 库存预占到期处理
+ * 预占到期（含宽限期）仍未释放或确认时调用，由订单侧按订单状态处理：
+ * 待支付订单走超时取消（取消后释放预占），已支付订单确认预占，已取消或不存在的订单释放预占
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public interface ReservationExpiryHandler {
+
+    /**
+     * 处理到期的预占，未处理的订单号下次继续回调
+     *
+     * @param orderNos 预占到期的订单号
+     */
+    void onExpired(List<String> orderNos);
+}
\ No newline at end of file
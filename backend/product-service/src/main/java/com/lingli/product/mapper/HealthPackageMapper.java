@@ -7,6 +7,9 @@ import com.lingli.product.entity.HealthPackage;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 体检套餐Mapper接口
  *
@@ -22,17 +25,18 @@ public interface HealthPackageMapper extends BaseMapper<HealthPackage> {
     IPage<HealthPackage> selectByCategoryId(Page<HealthPackage> page, @Param("categoryId") Long categoryId);
 
     /**
-     * 搜索套餐（按名称和描述）
-     */
-    IPage<HealthPackage> searchPackages(Page<HealthPackage> page, @Param("keyword") String keyword);
-
-    /**
-     * 获取热门套餐（按销量或排序）
+     * 批量调整库存
+     *
+     * @param deltas 套餐ID -> 库存变化量
      */
-    IPage<HealthPackage> selectHotPackages(Page<HealthPackage> page);
+    int batchAdjustStock(@Param("deltas") Map<Long, Integer> deltas);
 
     /**
-     * 获取推荐套餐
+     * 批量更新套餐状态，已删除的套餐不更新
+     *
+     * @param updatedBy 更新人，与单条更新的自动填充一致
+     * @return 匹配的行数
      */
-    IPage<HealthPackage> selectRecommendedPackages(Page<HealthPackage> page);
+    int batchUpdateStatus(@Param("packageIds") List<Long> packageIds, @Param("status") Integer status,
+                          @Param("updatedBy") String updatedBy);
 }
\ No newline at end of file
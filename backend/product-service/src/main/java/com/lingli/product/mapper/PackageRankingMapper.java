@@ -0,0 +1,32 @@
+package com.lingli.product.mapper;
+
+import com.lingli.product.ranking.PackageSignal;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 套餐排行统计Mapper接口
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Mapper
+public interface PackageRankingMapper {
+
+    /**
+     * 按城市统计已支付订单中各套餐的销量
+     *
+     * @param statuses 计入销量的订单状态
+     */
+    List<PackageSignal> selectSalesByCity(@Param("since") LocalDateTime since,
+                                          @Param("statuses") Collection<Integer> statuses);
+
+    /**
+     * 统计各套餐的加购次数
+     */
+    List<PackageSignal> selectCartAdds(@Param("since") LocalDateTime since);
+}
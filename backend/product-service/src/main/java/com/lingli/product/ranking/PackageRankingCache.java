@@ -0,0 +1,356 @@
+package com.lingli.product.ranking;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lingli.common.enums.OrderStatus;
+import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.mapper.HealthPackageMapper;
+import com.lingli.product.mapper.PackageRankingMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * 套餐排行缓存
+ * 定时根据销量（已支付订单）、加购次数和浏览量计算热门榜和推荐榜，生成不可变快照：
+ * 热门榜按加权热度排序，推荐榜按平滑后的购买转化率排序（可选价格区间）。
+ * 集群内通过Redis锁保证每个周期只有一个节点计算，结果发布到Redis，其他节点加载同一份快照。
+ * 销量按订单城市区分，可生成城市榜单；没有城市榜单时使用全站榜单。
+ * 启动完成后预热快照，请求线程不做计算；预热失败时读取已发布的快照，仍没有时返回空榜单，等待定时刷新
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class PackageRankingCache {
+
+    // Redis键
+    private static final String RANKING_SNAPSHOT_KEY = "product:ranking:snapshot";
+    private static final String RANKING_LOCK_KEY = "product:ranking:lock";
+
+    /**
+     * 推荐榜转化率平滑使用的先验浏览量
+     */
+    private static final double PRIOR_VIEWS = 50.0;
+
+    /**
+     * 计入销量的订单状态：已支付至已完成
+     */
+    private static final List<Integer> SOLD_STATUSES = Arrays.asList(OrderStatus.PAID.getCode(),
+            OrderStatus.PENDING_SHIPMENT.getCode(), OrderStatus.SHIPPED.getCode(), OrderStatus.COMPLETED.getCode());
+
+    @Value("${product.ranking.refresh-interval-ms:300000}")
+    private long refreshIntervalMs;
+
+    @Value("${product.ranking.window-days:30}")
+    private int windowDays;
+
+    @Value("${product.ranking.max-size:100}")
+    private int maxSize;
+
+    @Value("${product.ranking.sales-weight:10}")
+    private double salesWeight;
+
+    @Value("${product.ranking.cart-weight:3}")
+    private double cartWeight;
+
+    @Value("${product.ranking.view-weight:0.2}")
+    private double viewWeight;
+
+    /**
+     * 单独生成榜单的城市，为空时取销量最高的前max-cities个城市
+     */
+    @Value("${product.ranking.cities:}")
+    private String[] cities;
+
+    @Value("${product.ranking.max-cities:50}")
+    private int maxCities;
+
+    @Value("${product.ranking.recommended.min-price:#{null}}")
+    private BigDecimal recommendedMinPrice;
+
+    @Value("${product.ranking.recommended.max-price:#{null}}")
+    private BigDecimal recommendedMaxPrice;
+
+    @Autowired
+    private HealthPackageMapper packageMapper;
+
+    @Autowired
+    private PackageRankingMapper rankingMapper;
+
+    @Autowired
+    private PackageViewCounter viewCounter;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private volatile RankingSnapshot snapshot;
+
+    /**
+     * 热门套餐ID（按热度降序）
+     *
+     * @param city 城市，为空或无城市榜单时返回全站榜单
+     */
+    public List<Long> getHotPackageIds(String city) {
+        RankingSnapshot current = currentSnapshot();
+        return select(current.getHotByCity(), current.getHot(), city);
+    }
+
+    /**
+     * 推荐套餐ID（按转化率降序）
+     *
+     * @param city 城市，为空或无城市榜单时返回全站榜单
+     */
+    public List<Long> getRecommendedPackageIds(String city) {
+        RankingSnapshot current = currentSnapshot();
+        return select(current.getRecommendedByCity(), current.getRecommended(), city);
+    }
+
+    /**
+     * 启动预热：加载已发布的快照，没有时由本节点计算并发布
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            RankingSnapshot published = readPublished();
+            if (published != null) {
+                snapshot = published;
+            } else {
+                publish(compute());
+            }
+        } catch (Exception e) {
+            log.warn("预热套餐排行失败，等待定时刷新: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时刷新：抢到锁的节点重新计算并发布，其余节点加载已发布的快照
+     */
+    @Scheduled(fixedDelayString = "${product.ranking.refresh-interval-ms:300000}",
+            initialDelayString = "${product.ranking.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            if (tryLock()) {
+                publish(compute());
+            } else {
+                RankingSnapshot published = readPublished();
+                if (published != null && isNewer(published)) {
+                    snapshot = published;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("刷新套餐排行失败: {}", e.getMessage());
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    private RankingSnapshot currentSnapshot() {
+        RankingSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        // 预热未完成或失败：只读取已发布的快照，不在请求线程计算
+        RankingSnapshot published = readPublished();
+        if (published == null) {
+            return RankingSnapshot.EMPTY;
+        }
+        if (isNewer(published)) {
+            snapshot = published;
+        }
+        return published;
+    }
+
+    private List<Long> select(Map<String, List<Long>> byCity, List<Long> global, String city) {
+        if (city != null && !city.trim().isEmpty()) {
+            List<Long> cityRanking = byCity.get(city.trim());
+            if (cityRanking != null && !cityRanking.isEmpty()) {
+                return cityRanking;
+            }
+        }
+        return global;
+    }
+
+    private RankingSnapshot compute() {
+        long start = System.currentTimeMillis();
+        LocalDateTime since = LocalDateTime.now().minusDays(windowDays);
+
+        LambdaQueryWrapper<HealthPackage> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(HealthPackage::getStatus, 1);
+        List<HealthPackage> packages = packageMapper.selectList(wrapper);
+        List<HealthPackage> recommendable = packages.stream()
+                .filter(this::inRecommendedPriceRange)
+                .collect(Collectors.toList());
+
+        Map<Long, Long> cartAdds = toMap(rankingMapper.selectCartAdds(since));
+        Map<Long, Long> views = viewCounter.sumViews(windowDays);
+
+        Map<Long, Long> totalSales = new HashMap<>();
+        Map<String, Map<Long, Long>> salesByCity = new HashMap<>();
+        for (PackageSignal signal : rankingMapper.selectSalesByCity(since, SOLD_STATUSES)) {
+            totalSales.merge(signal.getPackageId(), signal.getValue(), Long::sum);
+            if (signal.getCity() != null && !signal.getCity().isEmpty()) {
+                salesByCity.computeIfAbsent(signal.getCity(), key -> new HashMap<>())
+                        .merge(signal.getPackageId(), signal.getValue(), Long::sum);
+            }
+        }
+
+        Map<String, List<Long>> hotByCity = new HashMap<>();
+        Map<String, List<Long>> recommendedByCity = new HashMap<>();
+        for (String city : selectCities(salesByCity)) {
+            Map<Long, Long> citySales = salesByCity.getOrDefault(city, Collections.emptyMap());
+            hotByCity.put(city, rankHot(packages, citySales, cartAdds, views));
+            recommendedByCity.put(city, rankRecommended(recommendable, citySales, views));
+        }
+        RankingSnapshot computed = new RankingSnapshot(System.currentTimeMillis(),
+                rankHot(packages, totalSales, cartAdds, views),
+                rankRecommended(recommendable, totalSales, views),
+                hotByCity, recommendedByCity);
+
+        log.info("套餐排行已计算: packages={}, cities={}, cost={}ms",
+                packages.size(), computed.getHotByCity().size(), System.currentTimeMillis() - start);
+        return computed;
+    }
+
+    /**
+     * 热度 = 销量 * 销量权重 + 加购 * 加购权重 + 浏览 * 浏览权重
+     */
+    private List<Long> rankHot(List<HealthPackage> packages, Map<Long, Long> sales,
+                               Map<Long, Long> cartAdds, Map<Long, Long> views) {
+        return rank(packages, pkg -> sales.getOrDefault(pkg.getId(), 0L) * salesWeight
+                + cartAdds.getOrDefault(pkg.getId(), 0L) * cartWeight
+                + views.getOrDefault(pkg.getId(), 0L) * viewWeight);
+    }
+
+    /**
+     * 转化率 = (销量 + 平均转化率 * 先验浏览量) / (浏览量 + 先验浏览量)
+     * 浏览量不区分城市，城市榜单中各套餐除以相同口径的浏览量，榜内排序仍可比
+     */
+    private List<Long> rankRecommended(List<HealthPackage> packages, Map<Long, Long> sales, Map<Long, Long> views) {
+        long salesSum = 0L;
+        long viewsSum = 0L;
+        for (HealthPackage healthPackage : packages) {
+            salesSum += sales.getOrDefault(healthPackage.getId(), 0L);
+            viewsSum += views.getOrDefault(healthPackage.getId(), 0L);
+        }
+        double averageRate = viewsSum == 0 ? 0.0 : (double) salesSum / viewsSum;
+
+        return rank(packages, pkg -> (sales.getOrDefault(pkg.getId(), 0L) + averageRate * PRIOR_VIEWS)
+                / (views.getOrDefault(pkg.getId(), 0L) + PRIOR_VIEWS));
+    }
+
+    /**
+     * 按得分降序取前maxSize个，得分相同按排序号、ID升序
+     */
+    private List<Long> rank(List<HealthPackage> packages, ToDoubleFunction<HealthPackage> scorer) {
+        Map<Long, Double> scores = new HashMap<>(packages.size() * 2);
+        for (HealthPackage healthPackage : packages) {
+            scores.put(healthPackage.getId(), scorer.applyAsDouble(healthPackage));
+        }
+
+        Comparator<HealthPackage> ranking = Comparator
+                .comparingDouble((HealthPackage pkg) -> scores.get(pkg.getId())).reversed()
+                .thenComparingInt(pkg -> pkg.getSortOrder() != null ? pkg.getSortOrder() : Integer.MAX_VALUE)
+                .thenComparingLong(HealthPackage::getId);
+
+        return packages.stream()
+                .sorted(ranking)
+                .limit(maxSize)
+                .map(HealthPackage::getId)
+                .collect(Collectors.toList());
+    }
+
+    private List<String> selectCities(Map<String, Map<Long, Long>> salesByCity) {
+        if (cities != null && cities.length > 0) {
+            return Arrays.stream(cities)
+                    .map(String::trim)
+                    .filter(city -> !city.isEmpty())
+                    .collect(Collectors.toList());
+        }
+
+        return salesByCity.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Map<Long, Long>> entry) ->
+                        entry.getValue().values().stream().mapToLong(Long::longValue).sum()).reversed())
+                .limit(maxCities)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private boolean inRecommendedPriceRange(HealthPackage healthPackage) {
+        BigDecimal price = healthPackage.getPrice();
+        if (price == null) {
+            return recommendedMinPrice == null && recommendedMaxPrice == null;
+        }
+        return (recommendedMinPrice == null || price.compareTo(recommendedMinPrice) >= 0)
+                && (recommendedMaxPrice == null || price.compareTo(recommendedMaxPrice) <= 0);
+    }
+
+    private Map<Long, Long> toMap(List<PackageSignal> signals) {
+        Map<Long, Long> values = new HashMap<>(signals.size() * 2);
+        for (PackageSignal signal : signals) {
+            values.merge(signal.getPackageId(), signal.getValue(), Long::sum);
+        }
+        return values;
+    }
+
+    private void publish(RankingSnapshot computed) {
+        snapshot = computed;
+        try {
+            // 保留两个周期，计算节点异常时其他节点仍可读取上一份
+            redisTemplate.opsForValue().set(RANKING_SNAPSHOT_KEY, computed, refreshIntervalMs * 2, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("发布套餐排行失败: {}", e.getMessage());
+        }
+    }
+
+    private RankingSnapshot readPublished() {
+        try {
+            Object value = redisTemplate.opsForValue().get(RANKING_SNAPSHOT_KEY);
+            if (value instanceof RankingSnapshot) {
+                return RankingSnapshot.copyOf((RankingSnapshot) value);
+            }
+        } catch (Exception e) {
+            log.warn("读取套餐排行失败: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private boolean tryLock() {
+        try {
+            // 锁随周期自然过期，保证每个周期只计算一次
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(RANKING_LOCK_KEY, "1", refreshIntervalMs * 4 / 5, TimeUnit.MILLISECONDS);
+            return Boolean.TRUE.equals(locked);
+        } catch (Exception e) {
+            log.warn("获取套餐排行计算锁失败，本节点自行计算: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    private boolean isNewer(RankingSnapshot published) {
+        RankingSnapshot current = snapshot;
+        return current == null || published.getGeneratedAt() > current.getGeneratedAt();
+    }
+}
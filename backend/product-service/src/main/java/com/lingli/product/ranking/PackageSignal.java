@@ -0,0 +1,28 @@
+package com.lingli.product.ranking;
+
+import lombok.Data;
+
+/**
+ * 套餐排行信号（销量、加购次数等聚合结果）
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class PackageSignal {
+
+    /**
+     * 城市（按城市聚合时有值）
+     */
+    private String city;
+
+    /**
+     * 套餐ID
+     */
+    private Long packageId;
+
+    /**
+     * 信号值
+     */
+    private Long value;
+}
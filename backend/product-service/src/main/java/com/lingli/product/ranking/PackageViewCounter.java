@@ -0,0 +1,102 @@
+package com.lingli.product.ranking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 套餐浏览计数
+ * 详情页浏览先在本地累加，定时批量写入Redis按天分片的哈希，避免每次浏览都访问Redis
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class PackageViewCounter {
+
+    // Redis键前缀（按天）
+    private static final String PACKAGE_VIEWS_KEY = "product:package:views:";
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Value("${product.ranking.window-days:30}")
+    private int windowDays;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final ConcurrentMap<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次浏览
+     */
+    public void record(Long packageId) {
+        pendingViews.computeIfAbsent(packageId, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * 定时将本地计数批量写入Redis
+     */
+    @Scheduled(fixedDelay = 10000)
+    @PreDestroy
+    public void flush() {
+        Map<String, Long> increments = new HashMap<>();
+        pendingViews.forEach((packageId, adder) -> {
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                increments.put(String.valueOf(packageId), count);
+            }
+        });
+        if (increments.isEmpty()) {
+            return;
+        }
+
+        String key = PACKAGE_VIEWS_KEY + LocalDate.now().format(DAY_FORMATTER);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                increments.forEach((packageId, count) -> stringConnection.hIncrBy(key, packageId, count));
+                stringConnection.expire(key, TimeUnit.DAYS.toSeconds(windowDays + 1L));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("写入套餐浏览计数失败: size={}, error={}", increments.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 统计最近若干天各套餐的浏览量
+     */
+    public Map<Long, Long> sumViews(int days) {
+        Map<Long, Long> views = new HashMap<>();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < days; i++) {
+            String key = PACKAGE_VIEWS_KEY + today.minusDays(i).format(DAY_FORMATTER);
+            Map<Object, Object> dayViews = stringRedisTemplate.opsForHash().entries(key);
+            dayViews.forEach((packageId, count) -> {
+                try {
+                    views.merge(Long.parseLong(packageId.toString()), Long.parseLong(count.toString()), Long::sum);
+                } catch (NumberFormatException e) {
+                    log.warn("忽略无效的浏览计数: key={}, field={}", key, packageId);
+                }
+            });
+        }
+        return views;
+    }
+}
@@ -0,0 +1,90 @@
+package com.lingli.product.ranking;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 套餐排行快照（不可变）
+ * 由定时任务计算后发布到Redis，各节点加载到本地后共享同一实例，榜单均为只读集合
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Getter
+public class RankingSnapshot {
+
+    /**
+     * 尚未加载到排行时使用的空快照
+     */
+    public static final RankingSnapshot EMPTY = new RankingSnapshot(0L, Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap());
+
+    /**
+     * 生成时间（毫秒时间戳）
+     */
+    private final Long generatedAt;
+
+    /**
+     * 全站热门套餐ID（按热度降序）
+     */
+    private final List<Long> hot;
+
+    /**
+     * 全站推荐套餐ID（按转化率降序）
+     */
+    private final List<Long> recommended;
+
+    /**
+     * 城市 -> 热门套餐ID
+     */
+    private final Map<String, List<Long>> hotByCity;
+
+    /**
+     * 城市 -> 推荐套餐ID
+     */
+    private final Map<String, List<Long>> recommendedByCity;
+
+    /**
+     * 供反序列化使用，字段由Redis中的值填充
+     */
+    private RankingSnapshot() {
+        this(0L, Collections.emptyList(), Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    public RankingSnapshot(Long generatedAt, List<Long> hot, List<Long> recommended,
+                           Map<String, List<Long>> hotByCity, Map<String, List<Long>> recommendedByCity) {
+        this.generatedAt = generatedAt;
+        this.hot = freeze(hot);
+        this.recommended = freeze(recommended);
+        this.hotByCity = freeze(hotByCity);
+        this.recommendedByCity = freeze(recommendedByCity);
+    }
+
+    /**
+     * 复制为只读快照，用于从Redis读取的快照（旧版本节点发布的快照中为可变集合）
+     */
+    public static RankingSnapshot copyOf(RankingSnapshot snapshot) {
+        return new RankingSnapshot(snapshot.generatedAt, snapshot.hot, snapshot.recommended,
+                snapshot.hotByCity, snapshot.recommendedByCity);
+    }
+
+    // ========== 私有方法 ==========
+
+    private static List<Long> freeze(List<Long> packageIds) {
+        return packageIds == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(packageIds));
+    }
+
+    private static Map<String, List<Long>> freeze(Map<String, List<Long>> byCity) {
+        if (byCity == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<Long>> frozen = new LinkedHashMap<>(byCity.size() * 2);
+        byCity.forEach((city, packageIds) -> frozen.put(city, freeze(packageIds)));
+        return Collections.unmodifiableMap(frozen);
+    }
+}
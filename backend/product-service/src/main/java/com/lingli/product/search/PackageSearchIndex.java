@@ -0,0 +1,382 @@
+package com.lingli.product.search;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.product.cache.PackageDetailCache;
+import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.mapper.HealthPackageMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 套餐搜索倒排索引
+ * 对上架套餐的名称、代码、检测项目和描述建立内存倒排索引，按BM25计算相关度（字段加权），
+ * 查询词之间为"与"关系。套餐新增、修改、删除、上下架后在事务提交时增量更新，
+ * 其他节点通过套餐变更广播按ID重新加载，另有定时全量重建兜底
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class PackageSearchIndex implements MessageListener {
+
+    // BM25参数
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // 字段权重
+    private static final int NAME_WEIGHT = 3;
+    private static final int CODE_WEIGHT = 3;
+    private static final int TEST_ITEM_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    /**
+     * 相关度降序，相同时按排序号、ID升序
+     */
+    private static final Comparator<ScoredDocument> RANKING = Comparator
+            .comparingDouble((ScoredDocument doc) -> doc.score).reversed()
+            .thenComparingInt(doc -> doc.sortOrder)
+            .thenComparingLong(doc -> doc.packageId);
+
+    @Autowired
+    private HealthPackageMapper packageMapper;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndexData data = new IndexData();
+
+    private volatile boolean built;
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(PackageDetailCache.PACKAGE_EVICT_CHANNEL));
+    }
+
+    /**
+     * 搜索套餐
+     *
+     * @param keyword 关键词
+     * @param offset  起始位置
+     * @param limit   返回条数
+     */
+    public SearchHits search(String keyword, long offset, int limit) {
+        List<String> terms = SearchTokenizer.tokenizeForQuery(keyword);
+        if (terms.isEmpty()) {
+            return SearchHits.empty();
+        }
+        ensureBuilt();
+
+        List<ScoredDocument> matches;
+        lock.readLock().lock();
+        try {
+            matches = data.match(terms);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (offset >= matches.size() || limit <= 0) {
+            return new SearchHits(Collections.emptyList(), matches.size());
+        }
+        matches.sort(RANKING);
+        List<Long> packageIds = matches.subList((int) offset, (int) Math.min(matches.size(), offset + limit)).stream()
+                .map(doc -> doc.packageId)
+                .collect(Collectors.toList());
+        return new SearchHits(packageIds, matches.size());
+    }
+
+    /**
+     * 事务提交后更新套餐索引，未上架的套餐从索引中移除
+     */
+    public void indexAfterCommit(HealthPackage healthPackage) {
+        Long packageId = healthPackage.getId();
+        if (!isSearchable(healthPackage)) {
+            removeAfterCommit(packageId);
+            return;
+        }
+        IndexedDocument document = toDocument(healthPackage);
+        TransactionUtils.afterCommit(() -> apply(packageId, document));
+    }
+
+    /**
+     * 事务提交后从索引中移除套餐
+     */
+    public void removeAfterCommit(Long packageId) {
+        TransactionUtils.afterCommit(() -> apply(packageId, null));
+    }
+
+    /**
+     * 事务提交后从索引中批量移除套餐，只加一次写锁
+     */
+    public void removeAfterCommit(Collection<Long> packageIds) {
+        if (packageIds == null || packageIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(packageIds);
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                ids.forEach(data::remove);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 接收套餐变更广播，按ID重新加载并更新索引
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!built) {
+            return;
+        }
+
+        List<Long> packageIds = PackageDetailCache.parsePackageIds(message);
+        if (packageIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            Set<Long> remaining = new HashSet<>(packageIds);
+            for (HealthPackage healthPackage : packageMapper.selectBatchIds(packageIds)) {
+                remaining.remove(healthPackage.getId());
+                apply(healthPackage.getId(), isSearchable(healthPackage) ? toDocument(healthPackage) : null);
+            }
+            // 已删除的套餐
+            for (Long packageId : remaining) {
+                apply(packageId, null);
+            }
+        } catch (Exception e) {
+            log.warn("增量更新搜索索引失败: packageIds={}, error={}", packageIds, e.getMessage());
+        }
+    }
+
+    /**
+     * 定时全量重建，兜底广播丢失的情况
+     */
+    @Scheduled(fixedDelay = 600000, initialDelay = 600000)
+    public void scheduledRebuild() {
+        if (!built) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("重建搜索索引失败: {}", e.getMessage());
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    private void ensureBuilt() {
+        if (!built) {
+            synchronized (this) {
+                if (!built) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private synchronized void rebuild() {
+        LambdaQueryWrapper<HealthPackage> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(HealthPackage::getStatus, 1);
+        List<HealthPackage> packages = packageMapper.selectList(wrapper);
+
+        IndexData loaded = new IndexData();
+        for (HealthPackage healthPackage : packages) {
+            loaded.add(toDocument(healthPackage));
+        }
+
+        lock.writeLock().lock();
+        try {
+            data = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        built = true;
+
+        log.info("搜索索引已重建: documents={}, terms={}", loaded.documents.size(), loaded.postings.size());
+    }
+
+    /**
+     * 替换单个套餐的索引，document为null时仅删除
+     */
+    private void apply(Long packageId, IndexedDocument document) {
+        lock.writeLock().lock();
+        try {
+            data.remove(packageId);
+            if (document != null) {
+                data.add(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isSearchable(HealthPackage healthPackage) {
+        return healthPackage.getStatus() != null && healthPackage.getStatus() == 1;
+    }
+
+    private IndexedDocument toDocument(HealthPackage healthPackage) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        int length = addField(termFrequencies, healthPackage.getName(), NAME_WEIGHT)
+                + addField(termFrequencies, healthPackage.getCode(), CODE_WEIGHT)
+                + addField(termFrequencies, healthPackage.getDescription(), DESCRIPTION_WEIGHT);
+        if (healthPackage.getTestItems() != null) {
+            for (String testItem : healthPackage.getTestItems()) {
+                length += addField(termFrequencies, testItem, TEST_ITEM_WEIGHT);
+            }
+        }
+
+        int sortOrder = healthPackage.getSortOrder() != null ? healthPackage.getSortOrder() : Integer.MAX_VALUE;
+        return new IndexedDocument(healthPackage.getId(), termFrequencies, length, sortOrder);
+    }
+
+    private int addField(Map<String, Integer> termFrequencies, String text, int weight) {
+        List<String> tokens = SearchTokenizer.tokenizeForIndex(text);
+        for (String token : tokens) {
+            termFrequencies.merge(token, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    /**
+     * 索引数据：倒排表 + 正排表，读写由外层锁保护
+     */
+    private static class IndexData {
+
+        /**
+         * 词 -> (套餐ID -> 加权词频)
+         */
+        private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+        /**
+         * 套餐ID -> 文档，用于删除旧词和计算文档长度
+         */
+        private final Map<Long, IndexedDocument> documents = new HashMap<>();
+
+        private long totalLength;
+
+        void add(IndexedDocument document) {
+            documents.put(document.packageId, document);
+            totalLength += document.length;
+            for (Map.Entry<String, Integer> entry : document.termFrequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), key -> new HashMap<>())
+                        .put(document.packageId, entry.getValue());
+            }
+        }
+
+        void remove(Long packageId) {
+            IndexedDocument document = documents.remove(packageId);
+            if (document == null) {
+                return;
+            }
+            totalLength -= document.length;
+            for (String term : document.termFrequencies.keySet()) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(packageId);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 返回包含全部查询词的文档及BM25得分，从最短的倒排链开始求交集
+         */
+        List<ScoredDocument> match(List<String> terms) {
+            List<Map<Long, Integer>> termPostings = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    return new ArrayList<>();
+                }
+                termPostings.add(posting);
+            }
+            termPostings.sort(Comparator.comparingInt(Map::size));
+
+            int documentCount = documents.size();
+            double averageLength = documentCount == 0 ? 1.0 : Math.max(1.0, (double) totalLength / documentCount);
+            double[] idf = new double[termPostings.size()];
+            for (int i = 0; i < idf.length; i++) {
+                int df = termPostings.get(i).size();
+                idf[i] = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            }
+
+            List<ScoredDocument> matches = new ArrayList<>();
+            for (Map.Entry<Long, Integer> entry : termPostings.get(0).entrySet()) {
+                IndexedDocument document = documents.get(entry.getKey());
+                double norm = K1 * (1 - B + B * document.length / averageLength);
+
+                double score = 0;
+                boolean matchedAll = true;
+                for (int i = 0; i < idf.length; i++) {
+                    Integer tf = i == 0 ? entry.getValue() : termPostings.get(i).get(document.packageId);
+                    if (tf == null) {
+                        matchedAll = false;
+                        break;
+                    }
+                    score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                }
+                if (matchedAll) {
+                    matches.add(new ScoredDocument(document.packageId, score, document.sortOrder));
+                }
+            }
+            return matches;
+        }
+    }
+
+    private static class IndexedDocument {
+
+        private final Long packageId;
+        private final Map<String, Integer> termFrequencies;
+        private final int length;
+        private final int sortOrder;
+
+        IndexedDocument(Long packageId, Map<String, Integer> termFrequencies, int length, int sortOrder) {
+            this.packageId = packageId;
+            this.termFrequencies = termFrequencies;
+            this.length = length;
+            this.sortOrder = sortOrder;
+        }
+    }
+
+    private static class ScoredDocument {
+
+        private final Long packageId;
+        private final double score;
+        private final int sortOrder;
+
+        ScoredDocument(Long packageId, double score, int sortOrder) {
+            this.packageId = packageId;
+            this.score = score;
+            this.sortOrder = sortOrder;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.lingli.product.search;
+
+import cn.hutool.extra.pinyin.PinyinUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lingli.common.utils.TransactionUtils;
+import com.lingli.product.cache.CategorySnapshot;
+import com.lingli.product.cache.CategoryTreeCache;
+import com.lingli.product.cache.PackageDetailCache;
+import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.mapper.HealthPackageMapper;
+import com.lingli.product.ranking.PackageRankingCache;
+import com.lingli.product.search.SuggestionTrie.Suggestion;
+import com.lingli.product.vo.CategoryVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 搜索联想索引
+ * 以套餐名称、分类名称、检测项目为联想词，原文、全拼、拼音首字母均可作为前缀检索。
+ * 套餐变更只更新内存中的套餐条目，由后台线程用内存条目重建联想树（不访问数据库），重建期间查询继续使用旧树，
+ * 重建过程中的多次变更合并为下一次重建；分类变更通过分类快照版本感知。
+ * 套餐按热门榜名次加权，分类按其下套餐的权重之和加权，检测项目按包含该项目的套餐数量加权
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Slf4j
+@Component
+public class PackageSuggestionIndex implements MessageListener {
+
+    /**
+     * 单次返回的最大联想条数（即每个节点预存的条数）
+     */
+    public static final int MAX_SUGGESTIONS = 20;
+
+    // 联想词类型
+    public static final String TYPE_PACKAGE = "PACKAGE";
+    public static final String TYPE_CATEGORY = "CATEGORY";
+    public static final String TYPE_TEST_ITEM = "TEST_ITEM";
+
+    @Autowired
+    private HealthPackageMapper packageMapper;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private PackageRankingCache packageRankingCache;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 上架套餐条目，增量维护
+     */
+    private final Map<Long, PackageEntry> packageEntries = new ConcurrentHashMap<>();
+
+    private volatile SuggestionTrie trie;
+
+    /**
+     * 构建当前联想树时使用的分类快照
+     */
+    private volatile CategorySnapshot builtFromCategories;
+
+    private volatile boolean dirty = true;
+
+    private volatile boolean loaded;
+
+    /**
+     * 是否已有排队等待执行的重建
+     */
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    private ExecutorService rebuildExecutor;
+
+    @PostConstruct
+    public void init() {
+        rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "package-suggestion-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        listenerContainer.addMessageListener(this, new ChannelTopic(PackageDetailCache.PACKAGE_EVICT_CHANNEL));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        rebuildExecutor.shutdown();
+    }
+
+    /**
+     * 前缀联想
+     *
+     * @param prefix 用户输入
+     * @param limit  返回条数
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        return currentTrie().lookup(key, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    /**
+     * 事务提交后更新套餐条目，未上架的套餐移除
+     */
+    public void updateAfterCommit(HealthPackage healthPackage) {
+        Long packageId = healthPackage.getId();
+        PackageEntry entry = isSuggestable(healthPackage) ? toEntry(healthPackage) : null;
+        TransactionUtils.afterCommit(() -> apply(packageId, entry));
+    }
+
+    /**
+     * 事务提交后移除套餐条目
+     */
+    public void removeAfterCommit(Long packageId) {
+        TransactionUtils.afterCommit(() -> apply(packageId, null));
+    }
+
+    /**
+     * 事务提交后批量移除套餐条目
+     */
+    public void removeAfterCommit(Collection<Long> packageIds) {
+        if (packageIds == null || packageIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(packageIds);
+        TransactionUtils.afterCommit(() -> ids.forEach(packageId -> apply(packageId, null)));
+    }
+
+    /**
+     * 接收套餐变更广播，按ID重新加载套餐条目
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!loaded) {
+            return;
+        }
+
+        List<Long> packageIds = PackageDetailCache.parsePackageIds(message);
+        if (packageIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            Set<Long> remaining = new HashSet<>(packageIds);
+            for (HealthPackage healthPackage : packageMapper.selectBatchIds(packageIds)) {
+                remaining.remove(healthPackage.getId());
+                apply(healthPackage.getId(), isSuggestable(healthPackage) ? toEntry(healthPackage) : null);
+            }
+            for (Long packageId : remaining) {
+                apply(packageId, null);
+            }
+        } catch (Exception e) {
+            log.warn("增量更新联想索引失败: packageIds={}, error={}", packageIds, e.getMessage());
+        }
+    }
+
+    /**
+     * 定时全量加载套餐条目并重建（同时带入最新的热门榜），兜底广播丢失的情况
+     */
+    @Scheduled(fixedDelay = 600000, initialDelay = 600000)
+    public void scheduledReload() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            reloadEntries();
+            scheduleRebuild();
+        } catch (Exception e) {
+            log.warn("重新加载联想索引失败: {}", e.getMessage());
+        }
+    }
+
+    // ========== 私有方法 ==========
+
+    private SuggestionTrie currentTrie() {
+        SuggestionTrie current = trie;
+        if (current == null) {
+            // 首次查询同步构建，之后只在后台重建
+            synchronized (this) {
+                if (trie == null) {
+                    if (!loaded) {
+                        reloadEntries();
+                    }
+                    rebuildNow();
+                }
+                return trie;
+            }
+        }
+
+        if (dirty || builtFromCategories != categoryTreeCache.getSnapshot()) {
+            scheduleRebuild();
+        }
+        return current;
+    }
+
+    /**
+     * 提交后台重建，已有排队的重建时不重复提交
+     */
+    private void scheduleRebuild() {
+        if (trie == null || !rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        rebuildExecutor.execute(() -> {
+            // 先清除排队标记，重建期间的新变更会再排一次
+            rebuildQueued.set(false);
+            try {
+                rebuildNow();
+            } catch (Exception e) {
+                log.warn("重建联想索引失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private synchronized void rebuildNow() {
+        // 先清除标记再重建，重建期间的新变更会再次置位
+        dirty = false;
+        CategorySnapshot categories = categoryTreeCache.getSnapshot();
+        trie = rebuild(categories, packageWeights());
+        builtFromCategories = categories;
+    }
+
+    /**
+     * 套餐权重：热门榜第一名最高，未上榜为0；排行不可用时全部为0
+     */
+    private Map<Long, Long> packageWeights() {
+        try {
+            List<Long> hot = packageRankingCache.getHotPackageIds(null);
+            Map<Long, Long> weights = new HashMap<>(hot.size() * 2);
+            for (int i = 0; i < hot.size(); i++) {
+                weights.put(hot.get(i), (long) (hot.size() - i));
+            }
+            return weights;
+        } catch (Exception e) {
+            log.warn("读取热门榜失败，联想词不按热度加权: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    private synchronized void reloadEntries() {
+        LambdaQueryWrapper<HealthPackage> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(HealthPackage::getStatus, 1);
+
+        Map<Long, PackageEntry> entries = new HashMap<>();
+        for (HealthPackage healthPackage : packageMapper.selectList(wrapper)) {
+            entries.put(healthPackage.getId(), toEntry(healthPackage));
+        }
+
+        packageEntries.keySet().retainAll(entries.keySet());
+        packageEntries.putAll(entries);
+        loaded = true;
+        dirty = true;
+    }
+
+    private void apply(Long packageId, PackageEntry entry) {
+        if (entry != null) {
+            packageEntries.put(packageId, entry);
+        } else {
+            packageEntries.remove(packageId);
+        }
+        dirty = true;
+        scheduleRebuild();
+    }
+
+    private SuggestionTrie rebuild(CategorySnapshot categories, Map<Long, Long> packageWeights) {
+        List<Map.Entry<String, Suggestion>> entries = new ArrayList<>();
+        Map<String, Integer> testItemCounts = new HashMap<>();
+        Map<Long, Long> categoryWeights = new HashMap<>();
+
+        for (Map.Entry<Long, PackageEntry> packageEntry : packageEntries.entrySet()) {
+            PackageEntry entry = packageEntry.getValue();
+            long weight = packageWeights.getOrDefault(packageEntry.getKey(), 0L);
+            addKeys(entries, new Suggestion(entry.name, TYPE_PACKAGE, packageEntry.getKey(), weight, entry.sortOrder));
+            for (String testItem : entry.testItems) {
+                testItemCounts.merge(testItem, 1, Integer::sum);
+            }
+            if (entry.categoryId != null) {
+                categoryWeights.merge(entry.categoryId, weight, Long::sum);
+            }
+        }
+
+        // 检测项目按包含该项目的套餐数量加权
+        testItemCounts.forEach((testItem, count) ->
+                addKeys(entries, new Suggestion(testItem, TYPE_TEST_ITEM, null, count, Integer.MAX_VALUE)));
+
+        for (CategoryVO category : categories.getCategories()) {
+            if (Boolean.TRUE.equals(category.getEnabled())) {
+                int sortOrder = category.getSortOrder() != null ? category.getSortOrder() : Integer.MAX_VALUE;
+                addKeys(entries, new Suggestion(category.getName(), TYPE_CATEGORY, category.getId(),
+                        categoryWeights.getOrDefault(category.getId(), 0L), sortOrder));
+            }
+        }
+
+        SuggestionTrie built = SuggestionTrie.build(entries, MAX_SUGGESTIONS);
+        log.info("联想索引已重建: packages={}, keys={}", packageEntries.size(), entries.size());
+        return built;
+    }
+
+    /**
+     * 为联想词生成检索键：原文、全拼、拼音首字母
+     */
+    private void addKeys(List<Map.Entry<String, Suggestion>> entries, Suggestion suggestion) {
+        String text = suggestion.getText();
+        if (text == null || text.trim().isEmpty()) {
+            return;
+        }
+
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(normalize(text));
+        keys.add(normalize(PinyinUtil.getPinyin(text, "")));
+        keys.add(normalize(PinyinUtil.getFirstLetter(text, "")));
+        for (String key : keys) {
+            if (!key.isEmpty()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(key, suggestion));
+            }
+        }
+    }
+
+    private boolean isSuggestable(HealthPackage healthPackage) {
+        return healthPackage.getStatus() != null && healthPackage.getStatus() == 1;
+    }
+
+    private PackageEntry toEntry(HealthPackage healthPackage) {
+        List<String> testItems = new ArrayList<>();
+        if (healthPackage.getTestItems() != null) {
+            for (String testItem : healthPackage.getTestItems()) {
+                if (testItem != null && !testItem.trim().isEmpty()) {
+                    testItems.add(testItem.trim());
+                }
+            }
+        }
+        int sortOrder = healthPackage.getSortOrder() != null ? healthPackage.getSortOrder() : Integer.MAX_VALUE;
+        return new PackageEntry(healthPackage.getName(), healthPackage.getCategoryId(), sortOrder, testItems);
+    }
+
+    /**
+     * 规范化：去除空白并转小写
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                builder.append(Character.toLowerCase(c));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static class PackageEntry {
+
+        private final String name;
+        private final Long categoryId;
+        private final int sortOrder;
+        private final List<String> testItems;
+
+        PackageEntry(String name, Long categoryId, int sortOrder, List<String> testItems) {
+            this.name = name;
+            this.categoryId = categoryId;
+            this.sortOrder = sortOrder;
+            this.testItems = testItems;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.lingli.product.search;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 搜索命中结果（当前页套餐ID + 命中总数）
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public final class SearchHits {
+
+    private static final SearchHits EMPTY = new SearchHits(Collections.emptyList(), 0L);
+
+    private final List<Long> packageIds;
+
+    private final long total;
+
+    public SearchHits(List<Long> packageIds, long total) {
+        this.packageIds = Collections.unmodifiableList(packageIds);
+        this.total = total;
+    }
+
+    public static SearchHits empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 当前页套餐ID，按相关度降序
+     */
+    public List<Long> getPackageIds() {
+        return packageIds;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+}
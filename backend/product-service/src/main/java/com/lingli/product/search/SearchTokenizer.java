@@ -0,0 +1,86 @@
+package com.lingli.product.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 搜索分词器
+ * 中文按连续汉字切分为二元词（单字片段保留单字），英文和数字按连续字母数字切分并转小写，其余字符视为分隔符。
+ * 建索引时额外保留每个汉字的单字词，使单字查询也能命中
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public final class SearchTokenizer {
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 索引分词：汉字二元词 + 单字词，字母数字整词
+     */
+    public static List<String> tokenizeForIndex(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens, true);
+        return tokens;
+    }
+
+    /**
+     * 查询分词：汉字二元词（单字片段为单字），字母数字整词，结果去重
+     */
+    public static List<String> tokenizeForQuery(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens, false);
+        return new ArrayList<>(new LinkedHashSet<>(tokens));
+    }
+
+    // ========== 私有方法 ==========
+
+    private static void tokenize(String text, List<String> tokens, boolean withUnigrams) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                emitCjkRun(text, start, i, tokens, withUnigrams);
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i).toLowerCase());
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static void emitCjkRun(String text, int start, int end, List<String> tokens, boolean withUnigrams) {
+        if (end - start == 1) {
+            tokens.add(text.substring(start, end));
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            if (withUnigrams) {
+                tokens.add(text.substring(i, i + 1));
+            }
+            if (i + 1 < end) {
+                tokens.add(text.substring(i, i + 2));
+            }
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN;
+    }
+}
@@ -0,0 +1,168 @@
+package com.lingli.product.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 不可变的前缀联想树
+ * 每个节点预先保存该前缀下权重最高的前K条联想词，查询只需沿前缀走到对应节点，耗时只与前缀长度有关；
+ * 子节点使用有序字符数组 + 二分查找，节省内存
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+public final class SuggestionTrie {
+
+    /**
+     * 权重降序，相同时按排序号升序、文本长度升序
+     */
+    public static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong(Suggestion::getWeight).reversed()
+            .thenComparingInt(Suggestion::getSortOrder)
+            .thenComparingInt(suggestion -> suggestion.getText().length())
+            .thenComparing(Suggestion::getText);
+
+    private final Node root;
+
+    private SuggestionTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * 构建联想树
+     *
+     * @param entries 检索键 -> 联想词（同一联想词可对应多个检索键，如原文、全拼、首字母）
+     * @param topK    每个节点保留的联想条数
+     */
+    public static SuggestionTrie build(List<Map.Entry<String, Suggestion>> entries, int topK) {
+        BuildNode buildRoot = new BuildNode();
+        for (Map.Entry<String, Suggestion> entry : entries) {
+            BuildNode node = buildRoot;
+            for (char c : entry.getKey().toCharArray()) {
+                node = node.children.computeIfAbsent(c, key -> new BuildNode());
+            }
+            node.terminals.add(entry.getValue());
+        }
+        return new SuggestionTrie(freeze(buildRoot, topK));
+    }
+
+    /**
+     * 前缀查询
+     *
+     * @param prefix 已规范化的前缀
+     * @param limit  返回条数，不超过构建时的topK
+     */
+    public List<Suggestion> lookup(String prefix, int limit) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        List<Suggestion> top = Arrays.asList(node.top);
+        return limit < top.size() ? top.subList(0, limit) : top;
+    }
+
+    // ========== 私有方法 ==========
+
+    private static Node freeze(BuildNode buildNode, int topK) {
+        char[] labels = new char[buildNode.children.size()];
+        Node[] children = new Node[buildNode.children.size()];
+
+        // 候选 = 本节点的联想词 + 各子节点的前K条，按文本去重后取前K
+        List<Suggestion> candidates = new ArrayList<>(buildNode.terminals);
+        int i = 0;
+        for (Map.Entry<Character, BuildNode> entry : buildNode.children.entrySet()) {
+            labels[i] = entry.getKey();
+            children[i] = freeze(entry.getValue(), topK);
+            candidates.addAll(Arrays.asList(children[i].top));
+            i++;
+        }
+        candidates.sort(RANKING);
+
+        List<Suggestion> top = new ArrayList<>(Math.min(topK, candidates.size()));
+        Set<String> seen = new HashSet<>();
+        for (Suggestion candidate : candidates) {
+            if (top.size() >= topK) {
+                break;
+            }
+            if (seen.add(candidate.getText())) {
+                top.add(candidate);
+            }
+        }
+        return new Node(labels, children, top.toArray(new Suggestion[0]));
+    }
+
+    private static class BuildNode {
+
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+
+        private final List<Suggestion> terminals = new ArrayList<>(1);
+    }
+
+    private static class Node {
+
+        private final char[] labels;
+        private final Node[] children;
+        private final Suggestion[] top;
+
+        Node(char[] labels, Node[] children, Suggestion[] top) {
+            this.labels = labels;
+            this.children = children;
+            this.top = top;
+        }
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    /**
+     * 联想词
+     */
+    public static final class Suggestion {
+
+        private final String text;
+        private final String type;
+        private final Long targetId;
+        private final long weight;
+        private final int sortOrder;
+
+        public Suggestion(String text, String type, Long targetId, long weight, int sortOrder) {
+            this.text = text;
+            this.type = type;
+            this.targetId = targetId;
+            this.weight = weight;
+            this.sortOrder = sortOrder;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Long getTargetId() {
+            return targetId;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        public int getSortOrder() {
+            return sortOrder;
+        }
+    }
+}
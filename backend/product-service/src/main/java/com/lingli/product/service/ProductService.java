@@ -5,10 +5,15 @@ import com.lingli.product.dto.category.CategoryDTO;
 import com.lingli.product.dto.packageinfo.PackageDTO;
 import com.lingli.product.entity.PackageCategory;
 import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.vo.CacheStatsVO;
 import com.lingli.product.vo.CategoryVO;
+import com.lingli.product.vo.PackageBatchResultVO;
 import com.lingli.product.vo.PackageVO;
+import com.lingli.product.vo.SuggestionVO;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品服务接口
@@ -62,26 +67,54 @@ public interface ProductService {
      */
     PageResult<PackageVO> getPackageList(Long categoryId, String keyword, Integer page, Integer size);
 
+    /**
+     * 游标分页获取套餐列表（移动端下拉加载，不统计总数）
+     *
+     * @param cursor 上一页返回的游标，第一页为空
+     */
+    PageResult<PackageVO> getPackageFeed(Long categoryId, String cursor, Integer size);
+
     /**
      * 获取套餐详情
      */
     PackageVO getPackageDetail(Long packageId);
 
+    /**
+     * 批量获取套餐详情（含已下架套餐，优先读取缓存），用于下单时的价格快照
+     *
+     * @return 套餐ID到详情的映射，不存在的套餐不包含在内
+     */
+    Map<Long, PackageVO> getPackagesByIds(Collection<Long> packageIds);
+
+    /**
+     * 获取套餐详情缓存统计
+     */
+    CacheStatsVO getPackageDetailCacheStats();
+
     /**
      * 获取热门套餐
+     *
+     * @param city 城市，为空时返回全站榜单
      */
-    List<PackageVO> getHotPackages(Integer limit);
+    List<PackageVO> getHotPackages(Integer limit, String city);
 
     /**
      * 获取推荐套餐
+     *
+     * @param city 城市，为空时返回全站榜单
      */
-    List<PackageVO> getRecommendedPackages(Integer limit);
+    List<PackageVO> getRecommendedPackages(Integer limit, String city);
 
     /**
      * 搜索套餐
      */
     PageResult<PackageVO> searchPackages(String keyword, Integer page, Integer size);
 
+    /**
+     * 搜索联想（套餐、分类、检测项目，支持拼音和首字母）
+     */
+    List<SuggestionVO> getSuggestions(String prefix, Integer limit);
+
     /**
      * 创建套餐
      */
@@ -102,6 +135,16 @@ public interface ProductService {
      */
     PackageVO updatePackageStatus(Long packageId, Integer status);
 
+    /**
+     * 批量上下架套餐，每批一条UPDATE，不存在的套餐单独返回
+     */
+    PackageBatchResultVO batchUpdatePackageStatus(List<Long> packageIds, Integer status);
+
+    /**
+     * 批量删除套餐，每批一条UPDATE，不存在的套餐单独返回
+     */
+    PackageBatchResultVO batchDeletePackages(List<Long> packageIds);
+
     /**
      * 检查套餐代码是否可用
      */
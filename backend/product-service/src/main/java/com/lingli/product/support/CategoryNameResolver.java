@@ -0,0 +1,75 @@
+package com.lingli.product.support;
+
+import com.lingli.product.cache.CategorySnapshot;
+import com.lingli.product.cache.CategoryTreeCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 分类名称批量解析器
+ * 列表接口先收集整页的分类ID，从本地分类快照中批量取名后在内存中回填，避免逐行查询
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Component
+public class CategoryNameResolver {
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    /**
+     * 批量解析分类名称（读取本地分类快照，不访问数据库）
+     */
+    public Map<Long, String> resolveNames(Collection<Long> categoryIds) {
+        if (categoryIds == null || categoryIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        CategorySnapshot snapshot = categoryTreeCache.getSnapshot();
+        Map<Long, String> categoryNames = new HashMap<>();
+        for (Long categoryId : categoryIds) {
+            if (categoryId == null) {
+                continue;
+            }
+            String name = snapshot.getCategoryName(categoryId);
+            if (name != null) {
+                categoryNames.put(categoryId, name);
+            }
+        }
+        return categoryNames;
+    }
+
+    /**
+     * 为任意列表回填分类名称
+     *
+     * @param items      待回填的列表
+     * @param idGetter   分类ID读取方法
+     * @param nameSetter 分类名称写入方法
+     */
+    public <T> void fillCategoryNames(List<T> items, Function<T, Long> idGetter, BiConsumer<T, String> nameSetter) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+
+        Map<Long, String> categoryNames = resolveNames(items.stream()
+                .map(idGetter)
+                .collect(Collectors.toSet()));
+
+        for (T item : items) {
+            Long categoryId = idGetter.apply(item);
+            if (categoryId != null && categoryNames.containsKey(categoryId)) {
+                nameSetter.accept(item, categoryNames.get(categoryId));
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.lingli.product.vo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 缓存统计VO
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CacheStatsVO {
+
+    /**
+     * 缓存名称
+     */
+    private String name;
+
+    /**
+     * 本地缓存（L1）命中次数
+     */
+    private Long l1HitCount;
+
+    /**
+     * 本地缓存（L1）未命中次数
+     */
+    private Long l1MissCount;
+
+    /**
+     * 本地缓存（L1）命中率
+     */
+    private Double l1HitRate;
+
+    /**
+     * 本地缓存（L1）淘汰次数
+     */
+    private Long l1EvictionCount;
+
+    /**
+     * 本地缓存（L1）当前条目数
+     */
+    private Long l1Size;
+
+    /**
+     * Redis缓存（L2）命中次数
+     */
+    private Long l2HitCount;
+
+    /**
+     * Redis缓存（L2）未命中次数
+     */
+    private Long l2MissCount;
+
+    /**
+     * Redis缓存（L2）命中率
+     */
+    private Double l2HitRate;
+
+    /**
+     * Redis缓存（L2）平均读取耗时（毫秒）
+     */
+    private Double l2AverageReadMillis;
+
+    /**
+     * 数据库加载次数
+     */
+    private Long loadCount;
+
+    /**
+     * 数据库加载失败次数
+     */
+    private Long loadFailureCount;
+
+    /**
+     * 数据库平均加载耗时（毫秒）
+     */
+    private Double averageLoadMillis;
+
+    /**
+     * 合并到进行中加载的请求次数
+     */
+    private Long coalescedLoadCount;
+}
@@ -0,0 +1,26 @@
+package com.lingli.product.vo;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 套餐批量操作结果
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+public class PackageBatchResultVO {
+
+    /**
+     * 操作成功的套餐ID（含已处于目标状态的套餐）
+     */
+    private List<Long> succeeded = new ArrayList<>();
+
+    /**
+     * 不存在或已删除的套餐ID
+     */
+    private List<Long> notFound = new ArrayList<>();
+}
\ No newline at end of file
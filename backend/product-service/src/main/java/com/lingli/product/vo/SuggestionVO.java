@@ -0,0 +1,30 @@
+package com.lingli.product.vo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 搜索联想VO
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SuggestionVO {
+
+    /**
+     * 联想文本
+     */
+    private String text;
+
+    /**
+     * 类型：PACKAGE-套餐，CATEGORY-分类，TEST_ITEM-检测项目
+     */
+    private String type;
+
+    /**
+     * 关联ID（套餐ID或分类ID，检测项目为空）
+     */
+    private Long targetId;
+}
@@ -0,0 +1,56 @@
+package com.lingli.product.cache;
+
+import com.lingli.product.vo.CategoryVO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 分类快照测试：调用方拿到的是副本，修改不影响快照
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class CategorySnapshotTest {
+
+    private final CategorySnapshot snapshot = CategorySnapshot.build(1L, Arrays.asList(
+            category(1L, 0L, "常规体检"), category(2L, 1L, "入职体检"), category(3L, 0L, "专项检测")));
+
+    @Test
+    void treeCopiesCannotChangeSnapshot() {
+        List<CategoryVO> tree = snapshot.getTree();
+        tree.get(0).setName("已修改");
+        tree.get(0).getChildren().get(0).setName("已修改");
+
+        assertThatThrownBy(() -> tree.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> tree.get(0).getChildren().clear()).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(snapshot.getTree()).extracting(CategoryVO::getName).containsExactly("常规体检", "专项检测");
+        assertThat(snapshot.getTree().get(0).getChildren()).extracting(CategoryVO::getName).containsExactly("入职体检");
+    }
+
+    @Test
+    void categoryAndChildrenCopiesCannotChangeSnapshot() {
+        snapshot.getCategory(2L).setName("已修改");
+        snapshot.getChildren(0L).get(1).setName("已修改");
+
+        assertThat(snapshot.getCategory(2L).getName()).isEqualTo("入职体检");
+        assertThat(snapshot.getCategoryName(3L)).isEqualTo("专项检测");
+        assertThat(snapshot.getChildren(0L)).extracting(CategoryVO::getName).containsExactly("常规体检", "专项检测");
+    }
+
+    // ========== 私有方法 ==========
+
+    private static CategoryVO category(Long id, Long parentId, String name) {
+        CategoryVO category = new CategoryVO();
+        category.setId(id);
+        category.setParentId(parentId);
+        category.setName(name);
+        category.setSortOrder(id.intValue());
+        category.setEnabled(true);
+        return category;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package com.lingli.product.cache;
+
+import com.lingli.product.vo.PackageVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 套餐详情两级缓存测试：返回副本，删除后旧的回源结果不会写回缓存
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class PackageDetailCacheTest {
+
+    private static final String DETAIL_KEY = "product:package:detail:1";
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    private PackageDetailCache packageDetailCache;
+
+    @BeforeEach
+    void setUp() {
+        packageDetailCache = new PackageDetailCache();
+        ReflectionTestUtils.setField(packageDetailCache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(packageDetailCache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(packageDetailCache, "listenerContainer", listenerContainer);
+        ReflectionTestUtils.setField(packageDetailCache, "l1MaxSize", 100L);
+        ReflectionTestUtils.setField(packageDetailCache, "l1TtlSeconds", 300L);
+        ReflectionTestUtils.setField(packageDetailCache, "l2TtlSeconds", 1800L);
+        ReflectionTestUtils.setField(packageDetailCache, "evictedMarkerSeconds", 10L);
+        packageDetailCache.init();
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void callersReceiveCopies() {
+        AtomicInteger loads = new AtomicInteger();
+
+        PackageVO first = packageDetailCache.get(1L, packageId -> {
+            loads.incrementAndGet();
+            return packageVO(packageId, "基础体检套餐");
+        });
+        first.setName("已修改");
+        first.getTestItems().add("已修改");
+
+        PackageVO second = packageDetailCache.get(1L, packageId -> packageVO(packageId, "不应回源"));
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getName()).isEqualTo("基础体检套餐");
+        assertThat(second.getTestItems()).containsExactly("血常规");
+        assertThat(loads).hasValue(1);
+
+        PackageVO batched = packageDetailCache.getAll(Collections.singletonList(1L), ids -> Collections.emptyMap())
+                .get(1L);
+        assertThat(batched).isNotSameAs(second);
+        assertThat(batched.getName()).isEqualTo("基础体检套餐");
+    }
+
+    @Test
+    void loadFromSourceNeverOverwritesL2() {
+        packageDetailCache.get(1L, packageId -> packageVO(packageId, "基础体检套餐"));
+
+        verify(valueOperations).setIfAbsent(eq(DETAIL_KEY), any(PackageVO.class), anyLong(), eq(TimeUnit.SECONDS));
+        verify(valueOperations, never()).set(eq(DETAIL_KEY), any(), anyLong(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void evictionWritesMarkerInsteadOfDeleting() {
+        ValueOperations<String, Object> pipelined = mock(ValueOperations.class);
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        when(operations.opsForValue()).thenReturn(pipelined);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<Object>>getArgument(0).execute(operations);
+            return new ArrayList<>();
+        });
+
+        packageDetailCache.evictAfterCommit(Arrays.asList(1L, 2L));
+
+        verify(pipelined).set(DETAIL_KEY, "evicted", 10L, TimeUnit.SECONDS);
+        verify(pipelined).set("product:package:detail:2", "evicted", 10L, TimeUnit.SECONDS);
+        verify(redisTemplate, never()).delete(anyCollection());
+        verify(stringRedisTemplate).convertAndSend(PackageDetailCache.PACKAGE_EVICT_CHANNEL, "1,2");
+    }
+
+    @Test
+    void loadOverlappingEvictionIsNotCachedLocally() {
+        byte[] channel = PackageDetailCache.PACKAGE_EVICT_CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+        PackageVO stale = packageDetailCache.get(1L, packageId -> {
+            // 回源期间其他节点提交了变更
+            packageDetailCache.onMessage(new DefaultMessage(channel, "1".getBytes(StandardCharsets.UTF_8)), null);
+            return packageVO(packageId, "旧名称");
+        });
+
+        PackageVO fresh = packageDetailCache.get(1L, packageId -> packageVO(packageId, "新名称"));
+        assertThat(stale.getName()).isEqualTo("旧名称");
+        assertThat(fresh.getName()).isEqualTo("新名称");
+    }
+
+    // ========== 私有方法 ==========
+
+    private static PackageVO packageVO(Long packageId, String name) {
+        PackageVO packageVO = new PackageVO();
+        packageVO.setId(packageId);
+        packageVO.setName(name);
+        packageVO.setTestItems(new ArrayList<>(Collections.singletonList("血常规")));
+        packageVO.setOnShelf(true);
+        return packageVO;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package com.lingli.product.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.lingli.common.config.MybatisPlusConfig;
+import com.lingli.product.cache.PackageDetailCache;
+import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.mapper.HealthPackageMapper;
+import com.lingli.product.search.PackageSearchIndex;
+import com.lingli.product.search.PackageSuggestionIndex;
+import com.lingli.product.vo.PackageBatchResultVO;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 套餐批量操作测试：每批一条语句，只有部分未匹配时才回查，缓存和索引按成功的ID一次处理
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductServiceImplBatchTest {
+
+    private static final String OPERATOR = MybatisPlusConfig.SYSTEM_OPERATOR;
+
+    @Mock
+    private HealthPackageMapper packageMapper;
+
+    @Mock
+    private PackageDetailCache packageDetailCache;
+
+    @Mock
+    private PackageSearchIndex packageSearchIndex;
+
+    @Mock
+    private PackageSuggestionIndex packageSuggestionIndex;
+
+    private ProductServiceImpl productService;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // 回查存在的ID使用Lambda条件，需要实体表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), HealthPackage.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        productService = new ProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "packageMapper", packageMapper);
+        ReflectionTestUtils.setField(productService, "packageDetailCache", packageDetailCache);
+        ReflectionTestUtils.setField(productService, "packageSearchIndex", packageSearchIndex);
+        ReflectionTestUtils.setField(productService, "packageSuggestionIndex", packageSuggestionIndex);
+    }
+
+    @Test
+    void fullyMatchedChunkSkipsLookup() {
+        when(packageMapper.batchUpdateStatus(Arrays.asList(1L, 2L, 3L), 1, OPERATOR)).thenReturn(3);
+
+        PackageBatchResultVO result = productService.batchUpdatePackageStatus(Arrays.asList(1L, 2L, null, 2L, 3L), 1);
+
+        assertThat(result.getSucceeded()).containsExactly(1L, 2L, 3L);
+        assertThat(result.getNotFound()).isEmpty();
+        verify(packageMapper, never()).selectList(any());
+        verify(packageDetailCache).evictAfterCommit(Arrays.asList(1L, 2L, 3L));
+        verify(packageSearchIndex, never()).removeAfterCommit(anyCollection());
+    }
+
+    @Test
+    void partiallyMatchedChunkReportsMissingIds() {
+        when(packageMapper.batchUpdateStatus(Arrays.asList(1L, 2L, 3L), 0, OPERATOR)).thenReturn(2);
+        when(packageMapper.selectList(any())).thenReturn(Arrays.asList(healthPackage(1L), healthPackage(3L)));
+
+        PackageBatchResultVO result = productService.batchUpdatePackageStatus(Arrays.asList(1L, 2L, 3L), 0);
+
+        assertThat(result.getSucceeded()).containsExactly(1L, 3L);
+        assertThat(result.getNotFound()).containsExactly(2L);
+        // 下架的套餐从本节点索引中移除
+        verify(packageSearchIndex).removeAfterCommit(Arrays.asList(1L, 3L));
+        verify(packageSuggestionIndex).removeAfterCommit(Arrays.asList(1L, 3L));
+    }
+
+    @Test
+    void largeBatchIsSplitIntoChunks() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 1200; id++) {
+            ids.add(id);
+        }
+        when(packageMapper.batchUpdateStatus(anyList(), eq(1), eq(OPERATOR))).thenAnswer(invocation ->
+                ((List<?>) invocation.getArgument(0)).size());
+
+        PackageBatchResultVO result = productService.batchUpdatePackageStatus(ids, 1);
+
+        assertThat(result.getSucceeded()).hasSize(1200);
+        verify(packageMapper, times(3)).batchUpdateStatus(anyList(), eq(1), eq(OPERATOR));
+        verify(packageDetailCache, times(1)).evictAfterCommit(anyCollection());
+    }
+
+    @Test
+    void deleteRemovesOnlyExistingPackages() {
+        when(packageMapper.selectList(any())).thenReturn(Collections.singletonList(healthPackage(2L)));
+
+        PackageBatchResultVO result = productService.batchDeletePackages(Arrays.asList(1L, 2L));
+
+        assertThat(result.getSucceeded()).containsExactly(2L);
+        assertThat(result.getNotFound()).containsExactly(1L);
+        verify(packageMapper).deleteBatchIds(Collections.singletonList(2L));
+        verify(packageDetailCache).evictAfterCommit(Collections.singletonList(2L));
+        verify(packageSearchIndex).removeAfterCommit(Collections.singletonList(2L));
+    }
+
+    @Test
+    void deleteOfMissingPackagesIssuesNoDelete() {
+        when(packageMapper.selectList(any())).thenReturn(Collections.emptyList());
+
+        PackageBatchResultVO result = productService.batchDeletePackages(Arrays.asList(1L, 2L));
+
+        assertThat(result.getSucceeded()).isEmpty();
+        assertThat(result.getNotFound()).containsExactly(1L, 2L);
+        verify(packageMapper, never()).deleteBatchIds(anyCollection());
+    }
+
+    // ========== 私有方法 ==========
+
+    private static HealthPackage healthPackage(Long id) {
+        HealthPackage healthPackage = new HealthPackage();
+        healthPackage.setId(id);
+        return healthPackage;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,236 @@
+package com.lingli.product.service.impl;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.lingli.common.core.PageResult;
+import com.lingli.product.cache.CategoryTreeCache;
+import com.lingli.product.mapper.HealthPackageMapper;
+import com.lingli.product.mapper.PackageCategoryMapper;
+import com.lingli.product.support.CategoryNameResolver;
+import com.lingli.product.vo.PackageVO;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 套餐列表查询次数测试：在内存数据库上统计实际发出的SQL，
+ * 一页套餐只有计数和分页两条套餐查询，分类名称从本地快照回填，不逐行查分类
+ * 以H2的MySQL兼容模式代替MySQL；管理端套餐列表（AdminServiceImpl.getPackages）直接调用 getPackageList，查询次数与此相同
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class ProductServiceImplQueryCountTest {
+
+    private static final int CATEGORY_COUNT = 3;
+
+    private static final int PACKAGE_COUNT = 60;
+
+    private static final String[] MAPPER_LOCATIONS = {
+            "mapper/HealthPackageMapper.xml", "mapper/PackageCategoryMapper.xml"};
+
+    /**
+     * 实际发往数据库的SQL
+     */
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    private JdbcDataSource dataSource;
+
+    private SqlSession sqlSession;
+
+    private ProductServiceImpl productService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:product-query-count;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        createTables(dataSource);
+
+        sqlSession = sqlSessionFactory(recording(dataSource)).openSession(true);
+
+        CategoryTreeCache categoryTreeCache = new CategoryTreeCache();
+        ReflectionTestUtils.setField(categoryTreeCache, "categoryMapper", sqlSession.getMapper(PackageCategoryMapper.class));
+        // 未连接Redis时版本号按0处理
+        ReflectionTestUtils.setField(categoryTreeCache, "stringRedisTemplate", mock(StringRedisTemplate.class));
+
+        CategoryNameResolver categoryNameResolver = new CategoryNameResolver();
+        ReflectionTestUtils.setField(categoryNameResolver, "categoryTreeCache", categoryTreeCache);
+
+        productService = new ProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "packageMapper", sqlSession.getMapper(HealthPackageMapper.class));
+        ReflectionTestUtils.setField(productService, "categoryMapper", sqlSession.getMapper(PackageCategoryMapper.class));
+        ReflectionTestUtils.setField(productService, "categoryNameResolver", categoryNameResolver);
+        ReflectionTestUtils.setField(productService, "categoryTreeCache", categoryTreeCache);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        sqlSession.close();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    void packagePageIssuesCountAndPageQueriesOnly() {
+        // 首次访问加载分类快照
+        productService.getPackageList(null, null, 1, 10);
+        statements.clear();
+
+        PageResult<PackageVO> page = productService.getPackageList(null, null, 1, 50);
+
+        assertThat(page.getRecords()).hasSize(50)
+                .allSatisfy(packageVO -> assertThat(packageVO.getCategoryName()).isNotNull());
+        assertThat(page.getRecords().stream().map(PackageVO::getCategoryName).distinct())
+                .hasSize(CATEGORY_COUNT);
+        assertThat(statements).hasSize(2).allSatisfy(sql -> assertThat(sql).contains("health_packages"));
+    }
+
+    @Test
+    void categoryPageDoesNotQueryCategories() {
+        PageResult<PackageVO> page = productService.getPackageList(1L, null, 1, 10);
+
+        assertThat(page.getRecords()).hasSize(10)
+                .allSatisfy(packageVO -> assertThat(packageVO.getCategoryName()).isEqualTo("分类1"));
+        assertThat(page.getTotal()).isEqualTo(PACKAGE_COUNT / CATEGORY_COUNT);
+        // 分类快照加载一次，其余为套餐的计数和分页查询
+        assertThat(countMatching("package_categories")).isEqualTo(1);
+        assertThat(countMatching("health_packages")).isEqualTo(2);
+
+        statements.clear();
+        productService.getPackageList(1L, null, 2, 10);
+
+        assertThat(countMatching("package_categories")).isZero();
+        assertThat(countMatching("health_packages")).isEqualTo(2);
+    }
+
+    // ========== 私有方法 ==========
+
+    private long countMatching(String table) {
+        return statements.stream().filter(sql -> sql.contains(table)).count();
+    }
+
+    private static void createTables(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE package_categories ("
+                    + "id BIGINT PRIMARY KEY, name VARCHAR(100) NOT NULL, code VARCHAR(20) NOT NULL, "
+                    + "parent_id BIGINT DEFAULT 0, sort_order INT DEFAULT 0, status TINYINT DEFAULT 1, "
+                    + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                    + "created_by VARCHAR(50) DEFAULT 'system', updated_by VARCHAR(50) DEFAULT 'system', "
+                    + "is_deleted TINYINT DEFAULT 0)");
+            statement.execute("CREATE TABLE health_packages ("
+                    + "id BIGINT PRIMARY KEY, category_id BIGINT NOT NULL, name VARCHAR(100) NOT NULL, "
+                    + "code VARCHAR(20) NOT NULL, description VARCHAR(1000), price DECIMAL(10,2) NOT NULL, "
+                    + "original_price DECIMAL(10,2), cover_image VARCHAR(255), detail_images VARCHAR(1000), "
+                    + "test_items VARCHAR(1000), sampling_method TINYINT NOT NULL, report_delivery_days INT DEFAULT 7, "
+                    + "stock INT DEFAULT 9999, sort_order INT DEFAULT 0, status TINYINT DEFAULT 1, "
+                    + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                    + "created_by VARCHAR(50) DEFAULT 'system', updated_by VARCHAR(50) DEFAULT 'system', "
+                    + "is_deleted TINYINT DEFAULT 0)");
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO package_categories (id, name, code, parent_id, sort_order) VALUES (?, ?, ?, 0, ?)")) {
+                for (int i = 1; i <= CATEGORY_COUNT; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, "分类" + i);
+                    insert.setString(3, "C" + i);
+                    insert.setInt(4, i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO health_packages "
+                    + "(id, category_id, name, code, price, sampling_method, test_items, sort_order) "
+                    + "VALUES (?, ?, ?, ?, 199.00, 1, '[\"血常规\"]', ?)")) {
+                for (int i = 1; i <= PACKAGE_COUNT; i++) {
+                    insert.setLong(1, i);
+                    insert.setLong(2, (i - 1) % CATEGORY_COUNT + 1);
+                    insert.setString(3, "套餐" + i);
+                    insert.setString(4, "P" + i);
+                    insert.setInt(5, i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private static SqlSessionFactory sqlSessionFactory(DataSource dataSource) throws IOException {
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.H2));
+        configuration.addInterceptor(interceptor);
+
+        // 解析XML时按命名空间注册Mapper并注入通用CRUD方法
+        for (String location : MAPPER_LOCATIONS) {
+            try (InputStream in = Resources.getResourceAsStream(location)) {
+                new XMLMapperBuilder(in, configuration, location, configuration.getSqlFragments()).parse();
+            }
+        }
+        return new MybatisSqlSessionFactoryBuilder().build(configuration);
+    }
+
+    /**
+     * 包装数据源，记录每条预编译的SQL
+     */
+    private DataSource recording(DataSource target) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    return result instanceof Connection ? recording((Connection) result) : result;
+                });
+    }
+
+    private Connection recording(Connection target) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String) {
+                        statements.add(((String) args[0]).toLowerCase().replaceAll("\\s+", " "));
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.lingli.product.inventory;
+
+import com.lingli.common.exception.BusinessException;
+import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.mapper.HealthPackageMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 套餐库存并发压测：单个热门套餐上数千笔并发预占不超卖，并发释放与写回后数据库库存与Redis一致
+ * 需要本地Redis（-Dlingli.test.redis.host/port/database 指定，默认 localhost:6379/15），不可用时跳过
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+class PackageInventoryStressTest {
+
+    private static final long PACKAGE_ID = 9_000_001L;
+    private static final int STOCK = 1000;
+    private static final int ORDERS = 5000;
+    private static final int THREADS = 64;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private PackageInventory inventory;
+
+    /**
+     * 已写回数据库的库存变化量
+     */
+    private final AtomicInteger flushed = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("lingli.test.redis.host", "localhost"),
+                Integer.getInteger("lingli.test.redis.port", 6379));
+        configuration.setDatabase(Integer.getInteger("lingli.test.redis.database", 15));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        assumeTrue(isAvailable(), "Redis不可用，跳过库存压测");
+        clearKeys();
+
+        HealthPackage healthPackage = new HealthPackage();
+        healthPackage.setId(PACKAGE_ID);
+        healthPackage.setStock(STOCK);
+        HealthPackageMapper packageMapper = mock(HealthPackageMapper.class);
+        when(packageMapper.selectById(PACKAGE_ID)).thenReturn(healthPackage);
+        when(packageMapper.batchAdjustStock(anyMap())).thenAnswer(invocation -> {
+            Map<Long, Integer> deltas = invocation.getArgument(0);
+            flushed.addAndGet(deltas.getOrDefault(PACKAGE_ID, 0));
+            return deltas.size();
+        });
+
+        inventory = new PackageInventory();
+        ReflectionTestUtils.setField(inventory, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(inventory, "packageMapper", packageMapper);
+        ReflectionTestUtils.setField(inventory, "reservationMinutes", 30L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (isAvailable()) {
+            clearKeys();
+        }
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        runConcurrently(ORDERS, i -> {
+            try {
+                inventory.reserve(orderNo(i), Collections.singletonMap(PACKAGE_ID, 1));
+                reserved.incrementAndGet();
+            } catch (BusinessException e) {
+                assertThat(e.getCode()).isEqualTo(20031);
+                soldOut.incrementAndGet();
+            }
+            // 写回与预占并发执行
+            if (i % 500 == 0) {
+                inventory.flush();
+            }
+        });
+        inventory.flush();
+
+        assertThat(reserved.get()).isEqualTo(STOCK);
+        assertThat(soldOut.get()).isEqualTo(ORDERS - STOCK);
+        assertThat(stock()).isZero();
+        assertThat(STOCK + flushed.get()).isZero();
+    }
+
+    @Test
+    void concurrentReleaseAndFlushKeepDatabaseConsistent() throws Exception {
+        runConcurrently(STOCK, i -> inventory.reserve(orderNo(i), Collections.singletonMap(PACKAGE_ID, 1)));
+        // 同一订单重复释放只生效一次
+        runConcurrently(STOCK, i -> {
+            inventory.release(orderNo(i / 2));
+            if (i % 100 == 0) {
+                inventory.flush();
+            }
+        });
+        inventory.flush();
+
+        assertThat(stock()).isEqualTo(STOCK / 2);
+        assertThat(STOCK + flushed.get()).isEqualTo(STOCK / 2);
+    }
+
+    @Test
+    void settingStockKeepsOutstandingReservationsAndPendingDeltas() throws Exception {
+        runConcurrently(STOCK / 2, i -> inventory.reserve(orderNo(i), Collections.singletonMap(PACKAGE_ID, 1)));
+        inventory.flush();
+        runConcurrently(STOCK / 4, i -> inventory.reserve(orderNo(STOCK + i), Collections.singletonMap(PACKAGE_ID, 1)));
+
+        // 预占未释放、部分变化量未写回时后台把可售库存改为100
+        inventory.setStockAfterCommit(PACKAGE_ID, 100);
+        assertThat(stock()).isEqualTo(100);
+
+        runConcurrently(STOCK / 2, i -> {
+            inventory.release(orderNo(i));
+            if (i % 100 == 0) {
+                inventory.flush();
+            }
+        });
+        inventory.flush();
+
+        // 释放的预占在新库存上加回，数据库与Redis一致
+        assertThat(stock()).isEqualTo(100 + STOCK / 2);
+        assertThat(STOCK + flushed.get()).isEqualTo(100 + STOCK / 2);
+    }
+
+    // ========== 私有方法 ==========
+
+    private void runConcurrently(int tasks, Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(tasks);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int stock() {
+        return Integer.parseInt(stringRedisTemplate.opsForValue().get("product:stock:" + PACKAGE_ID));
+    }
+
+    private static String orderNo(int i) {
+        return "STRESS" + i;
+    }
+
+    private boolean isAvailable() {
+        try {
+            return "PONG".equals(stringRedisTemplate.execute(connection -> connection.ping(), true));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void clearKeys() {
+        List<String> keys = new ArrayList<>(Arrays.asList("product:stock:" + PACKAGE_ID, "product:stock:pending",
+                "product:stock:flushing", "product:stock:flush:lock", "product:stock:reservations"));
+        for (int i = 0; i < ORDERS; i++) {
+            keys.add("product:stock:reservation:" + orderNo(i));
+        }
+        stringRedisTemplate.delete(keys);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run(int index) throws Exception;
+    }
+}
\ No newline at end of file
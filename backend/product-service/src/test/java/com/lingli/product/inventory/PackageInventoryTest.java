@@ -0,0 +1,257 @@
+package com.lingli.product.inventory;
+
+import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.mapper.HealthPackageMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 套餐库存写回与到期处理测试
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class PackageInventoryTest {
+
+    private static final String PENDING_KEY = "product:stock:pending";
+    private static final String FLUSHING_KEY = "product:stock:flushing";
+    private static final String FLUSH_LOCK_KEY = "product:stock:flush:lock";
+    private static final String RESERVATION_EXPIRY_KEY = "product:stock:reservations";
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private HealthPackageMapper packageMapper;
+
+    @Mock
+    private ReservationExpiryHandler expiryHandler;
+
+    private PackageInventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new PackageInventory();
+        ReflectionTestUtils.setField(inventory, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(inventory, "packageMapper", packageMapper);
+        ReflectionTestUtils.setField(inventory, "expiryHandler", expiryHandler);
+        ReflectionTestUtils.setField(inventory, "expiryGraceSeconds", 120L);
+        ReflectionTestUtils.setField(inventory, "expiredBatchSize", 200);
+
+        lenient().when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+        lenient().when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        lenient().when(valueOperations.setIfAbsent(eq(FLUSH_LOCK_KEY), anyString(), anyLong(), eq(TimeUnit.SECONDS)))
+                .thenReturn(true);
+        lenient().when(stringRedisTemplate.execute(eq(script("RENEW_LOCK_SCRIPT")), any(), any())).thenReturn(1L);
+    }
+
+    @Test
+    void flushDeletesEachChunkAfterItIsWritten() {
+        givenFlushing(1200);
+        when(packageMapper.batchAdjustStock(anyMap()))
+                .thenReturn(500)
+                .thenThrow(new IllegalStateException("数据库超时"));
+
+        inventory.flush();
+
+        // 第一块写回后删除，第二块失败后保留，第三块不再写回
+        ArgumentCaptor<Object> deleted = ArgumentCaptor.forClass(Object.class);
+        verify(hashOperations).delete(eq(FLUSHING_KEY), deleted.capture());
+        assertThat(deleted.getAllValues()).containsExactlyElementsOf(packageIds(1, 500));
+        verify(packageMapper, times(2)).batchAdjustStock(anyMap());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesAllChunksAndSettlesZeroDeltas() {
+        List<Object> fields = new ArrayList<>(fields(1, 600));
+        fields.add("601");
+        fields.add("0");
+        when(stringRedisTemplate.execute(eq(script("TAKE_PENDING_SCRIPT")), eq(Arrays.asList(PENDING_KEY, FLUSHING_KEY))))
+                .thenReturn(fields);
+
+        inventory.flush();
+
+        ArgumentCaptor<Map<Long, Integer>> chunks = ArgumentCaptor.forClass(Map.class);
+        verify(packageMapper, times(2)).batchAdjustStock(chunks.capture());
+        assertThat(chunks.getAllValues()).extracting(Map::size).containsExactly(500, 100);
+        assertThat(chunks.getAllValues().get(0)).containsEntry(1L, -1);
+        ArgumentCaptor<Object> deleted = ArgumentCaptor.forClass(Object.class);
+        verify(hashOperations, times(3)).delete(eq(FLUSHING_KEY), deleted.capture());
+        assertThat(deleted.getAllValues()).hasSize(601).contains("601");
+    }
+
+    @Test
+    void flushStopsWhenLockIsLost() {
+        givenFlushing(1200);
+        when(packageMapper.batchAdjustStock(anyMap())).thenReturn(500);
+        when(stringRedisTemplate.execute(eq(script("RENEW_LOCK_SCRIPT")), any(), any())).thenReturn(0L);
+
+        inventory.flush();
+
+        verify(packageMapper).batchAdjustStock(anyMap());
+    }
+
+    @Test
+    void flushReleasesOnlyItsOwnLock() {
+        givenFlushing(10);
+        ArgumentCaptor<String> owner = ArgumentCaptor.forClass(String.class);
+        when(valueOperations.setIfAbsent(eq(FLUSH_LOCK_KEY), owner.capture(), anyLong(), eq(TimeUnit.SECONDS)))
+                .thenReturn(true);
+
+        inventory.flush();
+
+        verify(stringRedisTemplate).execute(eq(script("UNLOCK_SCRIPT")),
+                eq(Collections.singletonList(FLUSH_LOCK_KEY)), eq(owner.getValue()));
+        verify(stringRedisTemplate, never()).delete(FLUSH_LOCK_KEY);
+    }
+
+    @Test
+    void flushSkipsWhenLockIsHeld() {
+        when(valueOperations.setIfAbsent(eq(FLUSH_LOCK_KEY), anyString(), anyLong(), eq(TimeUnit.SECONDS)))
+                .thenReturn(false);
+
+        inventory.flush();
+
+        verify(packageMapper, never()).batchAdjustStock(anyMap());
+        verify(stringRedisTemplate, never()).execute(eq(script("UNLOCK_SCRIPT")), any(), any());
+    }
+
+    @Test
+    void setStockIsRecordedAsDeltaUnderFlushLock() {
+        HealthPackage healthPackage = new HealthPackage();
+        healthPackage.setId(7L);
+        healthPackage.setStock(40);
+        when(packageMapper.selectById(7L)).thenReturn(healthPackage);
+
+        inventory.setStockAfterCommit(7L, 100);
+
+        // 由脚本换算为变化量，不直接覆盖库存、不丢弃未写回的变化量
+        verify(stringRedisTemplate).execute(eq(script("SET_STOCK_SCRIPT")),
+                eq(Arrays.asList("product:stock:7", PENDING_KEY, FLUSHING_KEY)), eq("7"), eq("40"), eq("100"));
+        verify(stringRedisTemplate).execute(eq(script("UNLOCK_SCRIPT")),
+                eq(Collections.singletonList(FLUSH_LOCK_KEY)), anyString());
+        verify(packageMapper, never()).updateById(any(HealthPackage.class));
+    }
+
+    @Test
+    void releaseDeclaresEveryStockKeyItTouches() {
+        when(hashOperations.keys("product:stock:reservation:ORD1"))
+                .thenReturn(new LinkedHashSet<>(Arrays.asList("7", "8")));
+        when(stringRedisTemplate.execute(eq(script("RELEASE_SCRIPT")), any(), any(), any(), any())).thenReturn(2L);
+
+        assertThat(inventory.release("ORD1")).isTrue();
+
+        // 集群模式下脚本只能访问KEYS中声明的键，库存键不能在脚本内拼接
+        verify(stringRedisTemplate).execute(eq(script("RELEASE_SCRIPT")),
+                eq(Arrays.asList("product:stock:reservation:ORD1", PENDING_KEY, RESERVATION_EXPIRY_KEY,
+                        "product:stock:7", "product:stock:8")),
+                eq("ORD1"), eq("7"), eq("8"));
+    }
+
+    @Test
+    void releaseRetriesWhenReservationDoesNotMatchDeclaredKeys() {
+        when(hashOperations.keys("product:stock:reservation:ORD1"))
+                .thenReturn(new LinkedHashSet<>(Collections.singletonList("7")));
+        when(stringRedisTemplate.execute(eq(script("RELEASE_SCRIPT")), any(), any(), any()))
+                .thenReturn(-1L)
+                .thenReturn(1L);
+
+        assertThat(inventory.release("ORD1")).isTrue();
+
+        verify(stringRedisTemplate, times(2)).execute(eq(script("RELEASE_SCRIPT")), any(), any(), any());
+    }
+
+    @Test
+    void expiredReservationsAreHandedToOrderSide() {
+        when(zSetOperations.rangeByScore(eq(RESERVATION_EXPIRY_KEY), anyDouble(), anyDouble(), anyLong(), anyLong()))
+                .thenReturn(new LinkedHashSet<>(Arrays.asList("ORD1", "ORD2")));
+
+        inventory.releaseExpired();
+
+        verify(expiryHandler).onExpired(Arrays.asList("ORD1", "ORD2"));
+        verify(stringRedisTemplate, never()).execute(eq(script("RELEASE_SCRIPT")), any(), any());
+    }
+
+    @Test
+    void expiredReservationsAreKeptWithoutOrderSide() {
+        ReflectionTestUtils.setField(inventory, "expiryHandler", null);
+
+        inventory.releaseExpired();
+
+        verify(stringRedisTemplate, never()).opsForZSet();
+        verify(stringRedisTemplate, never()).execute(eq(script("RELEASE_SCRIPT")), any(), any());
+    }
+
+    // ========== 私有方法 ==========
+
+    private void givenFlushing(int packages) {
+        when(stringRedisTemplate.execute(eq(script("TAKE_PENDING_SCRIPT")), eq(Arrays.asList(PENDING_KEY, FLUSHING_KEY))))
+                .thenReturn(fields(1, packages));
+    }
+
+    /**
+     * 同步中哈希字段：每个套餐变化量为-1
+     */
+    private static List<Object> fields(long fromId, long toId) {
+        List<Object> fields = new ArrayList<>();
+        for (long packageId = fromId; packageId <= toId; packageId++) {
+            fields.add(String.valueOf(packageId));
+            fields.add("-1");
+        }
+        return fields;
+    }
+
+    private static List<Object> packageIds(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId).mapToObj(String::valueOf).collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RedisScript<T> script(String name) {
+        return (RedisScript<T>) ReflectionTestUtils.getField(PackageInventory.class, name);
+    }
+}
\ No newline at end of file
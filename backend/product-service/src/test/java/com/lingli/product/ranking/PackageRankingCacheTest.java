@@ -0,0 +1,127 @@
+package com.lingli.product.ranking;
+
+import com.lingli.common.redis.CompactRedisSerializer;
+import com.lingli.product.mapper.HealthPackageMapper;
+import com.lingli.product.mapper.PackageRankingMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 套餐排行缓存测试：启动时预热，请求线程不计算，快照只读且可经Redis序列化往返
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class PackageRankingCacheTest {
+
+    private static final String RANKING_SNAPSHOT_KEY = "product:ranking:snapshot";
+
+    @Mock
+    private HealthPackageMapper packageMapper;
+
+    @Mock
+    private PackageRankingMapper rankingMapper;
+
+    @Mock
+    private PackageViewCounter viewCounter;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    private PackageRankingCache rankingCache;
+
+    @BeforeEach
+    void setUp() {
+        rankingCache = new PackageRankingCache();
+        ReflectionTestUtils.setField(rankingCache, "packageMapper", packageMapper);
+        ReflectionTestUtils.setField(rankingCache, "rankingMapper", rankingMapper);
+        ReflectionTestUtils.setField(rankingCache, "viewCounter", viewCounter);
+        ReflectionTestUtils.setField(rankingCache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(rankingCache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(rankingCache, "refreshIntervalMs", 300000L);
+        ReflectionTestUtils.setField(rankingCache, "windowDays", 30);
+        ReflectionTestUtils.setField(rankingCache, "maxSize", 100);
+        ReflectionTestUtils.setField(rankingCache, "maxCities", 50);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void requestBeforeWarmUpDoesNotCompute() {
+        assertThat(rankingCache.getHotPackageIds(null)).isEmpty();
+
+        verifyNoInteractions(packageMapper, rankingMapper, viewCounter);
+    }
+
+    @Test
+    void requestBeforeWarmUpUsesPublishedSnapshot() {
+        when(valueOperations.get(RANKING_SNAPSHOT_KEY)).thenReturn(snapshot());
+
+        assertThat(rankingCache.getHotPackageIds("杭州")).containsExactly(3L, 1L);
+        verifyNoInteractions(packageMapper, rankingMapper, viewCounter);
+    }
+
+    @Test
+    void warmUpComputesAndPublishesWhenNothingIsPublished() {
+        rankingCache.warmUp();
+
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(valueOperations).set(eq(RANKING_SNAPSHOT_KEY), published.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+        assertThat(published.getValue()).isInstanceOf(RankingSnapshot.class);
+        verify(packageMapper).selectList(any());
+    }
+
+    @Test
+    void snapshotIsReadOnlyAfterRedisRoundTrip() {
+        CompactRedisSerializer serializer = new CompactRedisSerializer(true, 1024);
+
+        RankingSnapshot read = (RankingSnapshot) serializer.deserialize(serializer.serialize(snapshot()));
+
+        assertThat(read.getHot()).containsExactly(1L, 2L, 3L);
+        assertThat(read.getHotByCity()).containsEntry("杭州", Arrays.asList(3L, 1L));
+        List<Long> hot = RankingSnapshot.copyOf(read).getHot();
+        assertThatThrownBy(() -> hot.add(4L)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> read.getHotByCity().get("杭州").set(0, 4L))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    // ========== 私有方法 ==========
+
+    private static RankingSnapshot snapshot() {
+        Map<String, List<Long>> hotByCity = new HashMap<>();
+        hotByCity.put("杭州", Arrays.asList(3L, 1L));
+        return new RankingSnapshot(1L, Arrays.asList(1L, 2L, 3L), Collections.singletonList(2L),
+                hotByCity, Collections.emptyMap());
+    }
+}
\ No newline at end of file
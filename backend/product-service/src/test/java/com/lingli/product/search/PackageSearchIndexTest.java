@@ -0,0 +1,75 @@
+package com.lingli.product.search;
+
+import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.mapper.HealthPackageMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 套餐搜索倒排索引测试
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class PackageSearchIndexTest {
+
+    @Mock
+    private HealthPackageMapper packageMapper;
+
+    @InjectMocks
+    private PackageSearchIndex packageSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(packageMapper.selectList(any())).thenReturn(Arrays.asList(
+                healthPackage(1L, "基础体检套餐", Arrays.asList("血常规", "尿常规")),
+                healthPackage(2L, "中老年体检套餐", Arrays.asList("血常规", "甲状腺功能")),
+                healthPackage(3L, "甲状腺专项检测", null)));
+    }
+
+    @Test
+    void testItemsAreIndexed() {
+        SearchHits hits = packageSearchIndex.search("尿常规", 0, 10);
+
+        assertThat(hits.getPackageIds()).containsExactly(1L);
+    }
+
+    @Test
+    void nameOutranksTestItem() {
+        SearchHits hits = packageSearchIndex.search("甲状腺", 0, 10);
+
+        assertThat(hits.getTotal()).isEqualTo(2);
+        assertThat(hits.getPackageIds()).containsExactly(3L, 2L);
+    }
+
+    @Test
+    void termsAreAnded() {
+        List<Long> packageIds = packageSearchIndex.search("血常规 甲状腺", 0, 10).getPackageIds();
+
+        assertThat(packageIds).containsExactly(2L);
+    }
+
+    // ========== 私有方法 ==========
+
+    private static HealthPackage healthPackage(Long id, String name, List<String> testItems) {
+        HealthPackage healthPackage = new HealthPackage();
+        healthPackage.setId(id);
+        healthPackage.setName(name);
+        healthPackage.setTestItems(testItems);
+        healthPackage.setSortOrder(id.intValue());
+        healthPackage.setStatus(1);
+        return healthPackage;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.lingli.product.search;
+
+import com.lingli.product.cache.CategorySnapshot;
+import com.lingli.product.cache.CategoryTreeCache;
+import com.lingli.product.entity.HealthPackage;
+import com.lingli.product.mapper.HealthPackageMapper;
+import com.lingli.product.ranking.PackageRankingCache;
+import com.lingli.product.search.SuggestionTrie.Suggestion;
+import com.lingli.product.vo.CategoryVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 搜索联想索引测试：按热门榜加权，变更在后台重建，重建完成前继续使用旧联想树
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class PackageSuggestionIndexTest {
+
+    @Mock
+    private HealthPackageMapper packageMapper;
+
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
+
+    @Mock
+    private PackageRankingCache packageRankingCache;
+
+    @Mock
+    private ExecutorService rebuildExecutor;
+
+    private PackageSuggestionIndex suggestionIndex;
+
+    @BeforeEach
+    void setUp() {
+        suggestionIndex = new PackageSuggestionIndex();
+        ReflectionTestUtils.setField(suggestionIndex, "packageMapper", packageMapper);
+        ReflectionTestUtils.setField(suggestionIndex, "categoryTreeCache", categoryTreeCache);
+        ReflectionTestUtils.setField(suggestionIndex, "packageRankingCache", packageRankingCache);
+        ReflectionTestUtils.setField(suggestionIndex, "rebuildExecutor", rebuildExecutor);
+
+        when(packageMapper.selectList(any())).thenReturn(Arrays.asList(
+                healthPackage(1L, 10L, "体检基础套餐", 1),
+                healthPackage(2L, 10L, "体检高端套餐", 2),
+                healthPackage(3L, 20L, "孕前检查套餐", 3)));
+        lenient().when(categoryTreeCache.getSnapshot()).thenReturn(CategorySnapshot.build(1L, Arrays.asList(
+                category(10L, "体检套餐", 2), category(20L, "体检附加项目", 1))));
+        lenient().when(packageRankingCache.getHotPackageIds(null)).thenReturn(Arrays.asList(2L, 1L));
+    }
+
+    @Test
+    void hotPackagesAndTheirCategoriesRankFirst() {
+        List<Suggestion> suggestions = suggestionIndex.suggest("tijian", 10);
+
+        // 热门榜名次优先于排序号；分类按其下套餐的热度之和加权，没有热门套餐的分类排在最后
+        assertThat(suggestions).extracting(Suggestion::getText)
+                .containsExactly("体检套餐", "体检高端套餐", "体检基础套餐", "体检附加项目");
+    }
+
+    @Test
+    void changesAreRebuiltInBackgroundWhileOldTrieServes() {
+        assertThat(texts(suggestionIndex.suggest("体检", 10))).doesNotContain("体检新品套餐");
+
+        suggestionIndex.updateAfterCommit(healthPackage(4L, 10L, "体检新品套餐", 4));
+        suggestionIndex.updateAfterCommit(healthPackage(5L, 10L, "体检尊享套餐", 5));
+
+        // 两次变更只排一次重建，执行前查询仍返回旧结果
+        ArgumentCaptor<Runnable> rebuild = ArgumentCaptor.forClass(Runnable.class);
+        verify(rebuildExecutor).execute(rebuild.capture());
+        assertThat(texts(suggestionIndex.suggest("体检", 10))).doesNotContain("体检新品套餐");
+
+        rebuild.getValue().run();
+
+        assertThat(texts(suggestionIndex.suggest("体检", 10))).contains("体检新品套餐", "体检尊享套餐");
+    }
+
+    @Test
+    void rankingOutageFallsBackToZeroWeights() {
+        when(packageRankingCache.getHotPackageIds(null)).thenThrow(new IllegalStateException("连接失败"));
+
+        List<Suggestion> suggestions = suggestionIndex.suggest("tjjc", 10);
+
+        assertThat(suggestions).extracting(Suggestion::getText).containsExactly("体检基础套餐");
+        assertThat(suggestions.get(0).getWeight()).isZero();
+        verify(rebuildExecutor, never()).execute(any());
+    }
+
+    // ========== 私有方法 ==========
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).collect(Collectors.toList());
+    }
+
+    private static HealthPackage healthPackage(Long id, Long categoryId, String name, int sortOrder) {
+        HealthPackage healthPackage = new HealthPackage();
+        healthPackage.setId(id);
+        healthPackage.setCategoryId(categoryId);
+        healthPackage.setName(name);
+        healthPackage.setTestItems(Collections.emptyList());
+        healthPackage.setSortOrder(sortOrder);
+        healthPackage.setStatus(1);
+        return healthPackage;
+    }
+
+    private static CategoryVO category(Long id, String name, int sortOrder) {
+        CategoryVO category = new CategoryVO();
+        category.setId(id);
+        category.setName(name);
+        category.setParentId(0L);
+        category.setSortOrder(sortOrder);
+        category.setEnabled(true);
+        return category;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.lingli.product.support;
+
+import com.lingli.product.cache.CategorySnapshot;
+import com.lingli.product.cache.CategoryTreeCache;
+import com.lingli.product.vo.CategoryVO;
+import com.lingli.product.vo.PackageVO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分类名称批量解析器测试
+ *
+ * @author lingli
+ * @since 2023-11-28
+ */
+@ExtendWith(MockitoExtension.class)
+class CategoryNameResolverTest {
+
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
+
+    @InjectMocks
+    private CategoryNameResolver categoryNameResolver;
+
+    @Test
+    void resolveNamesSkipsNullIdsUnknownIdsAndNullNames() {
+        givenCategories();
+
+        Map<Long, String> names = categoryNameResolver.resolveNames(Arrays.asList(1L, 2L, 3L, 99L, null));
+
+        assertThat(names).containsOnly(Map.entry(1L, "基础体检"), Map.entry(2L, "专项检测"));
+    }
+
+    @Test
+    void fillCategoryNamesReadsSnapshotOncePerPage() {
+        givenCategories();
+        List<PackageVO> page = Arrays.asList(
+                packageVO(1L), packageVO(2L), packageVO(1L), packageVO(3L), packageVO(null));
+
+        categoryNameResolver.fillCategoryNames(page, PackageVO::getCategoryId, PackageVO::setCategoryName);
+
+        assertThat(page).extracting(PackageVO::getCategoryName)
+                .containsExactly("基础体检", "专项检测", "基础体检", null, null);
+        verify(categoryTreeCache, times(1)).getSnapshot();
+    }
+
+    @Test
+    void resolveNamesOfEmptyInputDoesNotReadSnapshot() {
+        assertThat(categoryNameResolver.resolveNames(Collections.emptyList())).isEmpty();
+        assertThat(categoryNameResolver.resolveNames(null)).isEmpty();
+        verifyNoInteractions(categoryTreeCache);
+    }
+
+    // ========== 私有方法 ==========
+
+    /**
+     * 快照中包含一个名称为空的分类
+     */
+    private void givenCategories() {
+        when(categoryTreeCache.getSnapshot()).thenReturn(CategorySnapshot.build(1L, Arrays.asList(
+                category(1L, "基础体检"),
+                category(2L, "专项检测"),
+                category(3L, null))));
+    }
+
+    private static CategoryVO category(Long id, String name) {
+        CategoryVO category = new CategoryVO();
+        category.setId(id);
+        category.setName(name);
+        category.setParentId(CategorySnapshot.ROOT_PARENT_ID);
+        category.setSortOrder(id.intValue());
+        category.setEnabled(true);
+        return category;
+    }
+
+    private static PackageVO packageVO(Long categoryId) {
+        PackageVO packageVO = new PackageVO();
+        packageVO.setCategoryId(categoryId);
+        return packageVO;
+    }
+}
\ No newline at end of file
@@ -11,7 +11,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
  * @author lingli
  * @since 2023-11-28
  */
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = {"com.lingli.user", "com.lingli.common"})
 @EnableTransactionManagement
 @MapperScan("com.lingli.user.mapper")
 public class UserServiceApplication {
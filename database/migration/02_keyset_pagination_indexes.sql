@@ -0,0 +1,10 @@
+-- 游标分页索引：(过滤条件, 排序键, id)，按上一页最后一条定位后顺序读取，无需扫描offset行
+USE `lingli_dev`;
+
+-- 套餐列表：status = 1 ORDER BY sort_order, id
+CREATE INDEX idx_health_packages_status_sort_id ON health_packages(status, sort_order, id);
+CREATE INDEX idx_health_packages_category_status_sort_id ON health_packages(category_id, status, sort_order, id);
+
+-- 订单列表：user_id = ? [AND status = ?] ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_orders_user_created_id ON orders(user_id, created_at, id);
+CREATE INDEX idx_orders_user_status_created_id ON orders(user_id, status, created_at, id);
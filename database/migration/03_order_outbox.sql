@@ -0,0 +1,23 @@
+-- 订单事务发件箱：下单时与订单在同一事务写入事件，后台工作线程批量完成明细快照、购物车清理和下游通知
+USE `lingli_dev`;
+
+CREATE TABLE `order_outbox` (
+  `id` bigint NOT NULL COMMENT '主键ID',
+  `order_no` varchar(32) NOT NULL COMMENT '订单号',
+  `event_type` varchar(32) NOT NULL COMMENT '事件类型：ORDER_CREATED-订单已创建',
+  `payload` text NOT NULL COMMENT '事件内容(JSON)',
+  `status` tinyint NOT NULL DEFAULT 0 COMMENT '状态：0-待处理，1-处理中，2-已完成，3-失败',
+  `retry_count` int NOT NULL DEFAULT 0 COMMENT '重试次数',
+  `next_retry_at` datetime NOT NULL COMMENT '下次可处理时间（处理中时为租约到期时间）',
+  `claim_token` varchar(64) DEFAULT NULL COMMENT '领取批次标识',
+  `last_error` varchar(500) DEFAULT NULL COMMENT '最近一次失败原因',
+  `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  `created_by` varchar(50) DEFAULT 'system' COMMENT '创建人',
+  `updated_by` varchar(50) DEFAULT 'system' COMMENT '更新人',
+  `is_deleted` tinyint DEFAULT 0 COMMENT '删除标志（0:未删除 1:已删除）',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_order_no_event` (`order_no`, `event_type`),
+  KEY `idx_status_next_retry` (`status`, `next_retry_at`, `id`),
+  KEY `idx_claim_token` (`claim_token`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单事务发件箱';
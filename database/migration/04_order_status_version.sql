@@ -0,0 +1,5 @@
+-- 订单状态版本号：状态变更使用条件UPDATE并递增版本号，调用方可携带读取时的版本号做乐观锁校验
+USE `lingli_dev`;
+
+ALTER TABLE `orders`
+  ADD COLUMN `version` int NOT NULL DEFAULT 0 COMMENT '状态版本号，每次状态变更加1' AFTER `appointment_id`;
@@ -0,0 +1,6 @@
+-- 订单明细快照：补充更新时间列（与实体基类一致），订单内同一套餐唯一，发件箱重复投递时批量插入幂等
+USE `lingli_dev`;
+
+ALTER TABLE `order_items`
+  ADD COLUMN `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间' AFTER `created_at`,
+  ADD UNIQUE KEY `uk_order_package` (`order_id`, `package_id`);
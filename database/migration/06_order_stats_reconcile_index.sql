@@ -0,0 +1,4 @@
+-- 用户订单统计对账：按更新时间找出最近有订单变化的用户，(updated_at, user_id) 覆盖范围扫描
+USE `lingli_dev`;
+
+CREATE INDEX idx_orders_updated_user ON orders(updated_at, user_id);
@@ -0,0 +1,31 @@
+-- 销售预聚合：按分钟/小时/天/月/累计时间桶，以及全部、公司、城市、套餐维度汇总下单、支付、取消，
+-- 管理后台统计合并时间桶读取，不再扫描订单表。
+-- 历史订单由订单服务回填天、月、累计桶（SalesRollupBackfill）：首次启动时记录截止时间，截止前下单的订单
+-- 以及没有支付、取消事件的历史支付和取消由回填计入，其余由发件箱累加；回填与标记完成在同一事务内，只执行一次。
+-- 本脚本可重复执行；升级时需先停止旧版本订单服务，避免新旧版本同时处理发件箱
+USE `lingli_dev`;
+
+ALTER TABLE `order_outbox`
+  MODIFY COLUMN `event_type` varchar(32) NOT NULL COMMENT '事件类型：ORDER_CREATED-订单已创建，ORDER_PAID-订单已支付，ORDER_CANCELLED-订单已取消';
+
+CREATE TABLE IF NOT EXISTS `sales_rollups` (
+  `granularity` tinyint NOT NULL COMMENT '时间粒度：1-分钟，2-小时，3-天，4-月，5-累计',
+  `bucket_start` datetime NOT NULL COMMENT '时间桶起点（累计桶固定为1970-01-01）',
+  `dimension` tinyint NOT NULL COMMENT '维度：0-全部，1-公司，2-城市，3-套餐',
+  `dimension_key` varchar(64) NOT NULL DEFAULT '' COMMENT '维度值：公司ID、城市名称、套餐ID，全部维度为空串',
+  `order_count` int NOT NULL DEFAULT 0 COMMENT '下单数（套餐维度为份数）',
+  `order_amount` decimal(14,2) NOT NULL DEFAULT 0.00 COMMENT '下单金额',
+  `paid_count` int NOT NULL DEFAULT 0 COMMENT '支付数（套餐维度为份数）',
+  `paid_amount` decimal(14,2) NOT NULL DEFAULT 0.00 COMMENT '支付金额',
+  `cancelled_count` int NOT NULL DEFAULT 0 COMMENT '取消数（套餐维度为份数）',
+  `cancelled_amount` decimal(14,2) NOT NULL DEFAULT 0.00 COMMENT '取消金额',
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`granularity`, `dimension`, `bucket_start`, `dimension_key`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='销售预聚合';
+
+CREATE TABLE IF NOT EXISTS `sales_rollup_backfill` (
+  `id` tinyint NOT NULL COMMENT '主键，固定为1',
+  `cutoff` datetime NOT NULL COMMENT '截止时间：此前下单的订单由回填计入，此后由发件箱累加',
+  `backfilled_at` datetime DEFAULT NULL COMMENT '回填完成时间，为空表示未回填',
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='销售预聚合回填状态';
@@ -0,0 +1,4 @@
+-- 销售事实抽取：按支付时间取一天的已支付订单，以及有支付订单的日期
+USE `lingli_dev`;
+
+CREATE INDEX idx_orders_pay_time ON orders(pay_time);
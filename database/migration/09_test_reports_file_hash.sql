@@ -0,0 +1,6 @@
+-- 报告文件按内容寻址存储：记录文件内容哈希，用于定位存储文件和下载校验
+USE `lingli_dev`;
+
+ALTER TABLE test_reports
+  ADD COLUMN `file_hash` char(64) DEFAULT NULL COMMENT '文件内容SHA-256（文件存储键）' AFTER `file_size`,
+  ADD KEY `idx_file_hash` (`file_hash`);
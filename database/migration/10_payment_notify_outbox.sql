@@ -0,0 +1,7 @@
+-- 支付回调持久化：回调接收时写入发件箱后再应答支付渠道，由发件箱调度应用支付结果，
+-- 节点宕机后未处理的回调由调度重新领取。支付回调事件的订单号列存放支付单号，唯一键用于回调去重
+USE `lingli_dev`;
+
+ALTER TABLE `order_outbox`
+  MODIFY COLUMN `order_no` varchar(32) NOT NULL COMMENT '订单号（支付回调事件为支付单号）',
+  MODIFY COLUMN `event_type` varchar(32) NOT NULL COMMENT '事件类型：ORDER_CREATED-订单已创建，ORDER_PAID-订单已支付，ORDER_CANCELLED-订单已取消，PAYMENT_SUCCEEDED-支付成功回调，PAYMENT_FAILED-支付失败回调';